@@ -9,16 +9,23 @@ import android.content.pm.PackageInfo;
 import android.content.pm.PackageManager;
 import android.content.pm.Signature;
 import android.content.res.XmlResourceParser;
+import android.os.SystemClock;
+import android.os.Trace;
+
+import androidx.annotation.NonNull;
 
-import org.xmlpull.v1.XmlPullParser;
 import org.xmlpull.v1.XmlPullParserException;
 
+import java.io.File;
 import java.io.IOException;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 
+import online.cszt0.androidcommonutils.app.internal.BootConfig;
+import online.cszt0.androidcommonutils.app.internal.BootSnapshot;
 import online.cszt0.androidcommonutils.app.internal.ExceptionHandler;
 import online.cszt0.androidcommonutils.app.internal.ExitThread;
+import online.cszt0.androidcommonutils.app.internal.StartupGraph;
 
 /**
  * 本类提供了应用程序启动时的全局配置方案。
@@ -51,6 +58,12 @@ import online.cszt0.androidcommonutils.app.internal.ExitThread;
  *
  *          &lt;exception
  *              target="handler activity class" /&gt;
+ *
+ *          &lt;task
+ *              name="task name"
+ *              class="task class"
+ *              thread="main | background | idle"
+ *              depends="comma separated task names" /&gt;
  *     &lt;/manifest&gt;
  * </pre>
  * <ul>
@@ -66,143 +79,282 @@ import online.cszt0.androidcommonutils.app.internal.ExitThread;
  *     将启动指定的 Activity，并将异常信息传递。您可以通过
  *     <code>(Throwable) getIntent().getSerializableExtra(ConfigApplication.EXCEPTION_HANDLER_KEY)</code>
  *     来获取。</li>
+ *
+ *     <li>在 <code>&lt;task&gt;</code> 节点中，定义了一个启动任务。name 是必填项，且不可重复；
+ *     class 为实现 {@link StartupTask} 的类，可省略，此时任务仅用于等待其依赖的任务。
+ *     thread 指定执行的线程：main 在 {@link #onCreate()} 返回前于主线程执行，
+ *     background（默认）在后台线程执行，idle 在主线程空闲时执行。depends 为依赖的任务名称，
+ *     依赖的任务完成后才会执行，除自定义任务外还可依赖内置任务 {@link #TASK_VERIFY}、
+ *     {@link #TASK_NOTIFICATION} 与 {@link #TASK_EXCEPTION}。</li>
  * </ul>
+ * <p>
+ * 任务按依赖关系并行执行，{@link #config(Application)} 只等待 main 任务及其依赖的任务，
+ * 其余任务在返回后继续执行。内置任务中仅异常捕获在主线程执行，完整性校验与通知频道的注册在后台进行；
+ * 若启动后需要立即发送通知，可声明一个依赖 {@link #TASK_NOTIFICATION} 的 main 任务。
+ * <p>
+ * 配置文件解析后将保存为二进制快照，之后启动时直接读取快照，不再读取 meta-data 与解析配置文件。
+ * 应用更新后将重新解析。完整性校验、通知频道注册与异常捕获仍在每次启动时进行。
+ * 可通过 {@link #getLastConfigNanos()} 获取配置耗时，或通过 {@link #setSnapshotEnabled(boolean)}
+ * 关闭快照以对比耗时。
  */
 public class ConfigApplication extends Application {
 
     public static final String BOOT_CONFIG_META_DATA = "online.cszt0.android_common_utils.boot_config";
     public static final String EXCEPTION_HANDLER_KEY = "exception";
 
+    /**
+     * 内置任务：校验 application 与应用签名，在后台线程执行
+     */
+    public static final String TASK_VERIFY = "verify";
+    /**
+     * 内置任务：注册通知频道，在后台线程执行
+     */
+    public static final String TASK_NOTIFICATION = "notification";
+    /**
+     * 内置任务：安装全局异常捕获，在主线程执行
+     */
+    public static final String TASK_EXCEPTION = "exception";
+
+    private static final String[] NO_DEPENDS = new String[0];
+
+    private static volatile boolean sSnapshotEnabled = true;
+    private static volatile long sLastConfigNanos = -1;
+    private static volatile boolean sLastConfigFromSnapshot;
+
+    /**
+     * 启动任务，在 <code>&lt;task&gt;</code> 节点中声明。实现类须有公开的无参构造方法
+     */
+    public interface StartupTask {
+        /**
+         * 执行任务，在声明的线程中调用
+         *
+         * @param application Application 实例
+         * @throws Exception 任务失败
+         */
+        void run(@NonNull Application application) throws Exception;
+    }
+
     /**
      * 程序启动配置
      *
      * @param application Application 实例
      */
     public static void config(Application application) {
+        long start = SystemClock.elapsedRealtimeNanos();
+        Trace.beginSection("ConfigApplication.config");
+        try {
+            apply(application, load(application));
+        } finally {
+            Trace.endSection();
+            sLastConfigNanos = SystemClock.elapsedRealtimeNanos() - start;
+        }
+    }
+
+    /**
+     * 设置是否使用启动配置的快照，默认启用。应在 {@link #config(Application)} 之前调用
+     *
+     * @param enabled true - 使用快照；false - 每次启动均解析配置文件
+     */
+    public static void setSnapshotEnabled(boolean enabled) {
+        sSnapshotEnabled = enabled;
+    }
+
+    /**
+     * 获取最近一次 {@link #config(Application)} 的耗时
+     *
+     * @return 纳秒数；尚未配置时返回 -1
+     */
+    public static long getLastConfigNanos() {
+        return sLastConfigNanos;
+    }
+
+    /**
+     * 判断最近一次 {@link #config(Application)} 是否读取了快照
+     *
+     * @return true - 读取了快照；false - 解析了配置文件
+     */
+    public static boolean isLastConfigFromSnapshot() {
+        return sLastConfigFromSnapshot;
+    }
+
+    /**
+     * 读取快照，快照不可用时解析配置文件并在后台保存快照
+     */
+    private static BootConfig load(Application application) {
+        boolean snapshotEnabled = sSnapshotEnabled;
+        BootSnapshot.Key key = null;
+        File file = null;
+        if (snapshotEnabled) {
+            key = BootSnapshot.Key.of(application);
+            file = BootSnapshot.file(application);
+            BootConfig config = BootSnapshot.read(file, key);
+            if (config != null) {
+                sLastConfigFromSnapshot = true;
+                return config;
+            }
+        }
+        sLastConfigFromSnapshot = false;
+        BootConfig config = parse(application);
+        if (snapshotEnabled) {
+            BootSnapshot.writeAsync(file, key, config);
+        }
+        return config;
+    }
+
+    private static BootConfig parse(Application application) {
         try {
             // 获取 AndroidManifest.xml 中配置的配置文件路径
             PackageManager packageManager = application.getPackageManager();
             String packageName = application.getPackageName();
             ApplicationInfo applicationInfo = packageManager.getApplicationInfo(packageName, PackageManager.GET_META_DATA);
-            String xmlFilePath = applicationInfo.metaData.getString(BOOT_CONFIG_META_DATA);
-            if (xmlFilePath == null) return;
+            String xmlFilePath = applicationInfo.metaData == null ? null : applicationInfo.metaData.getString(BOOT_CONFIG_META_DATA);
+            if (xmlFilePath == null) return new BootConfig();
             XmlResourceParser xmlPullParser = application.getAssets().openXmlResourceParser(xmlFilePath);
-            // 配置用组件
-            NotificationManager notificationManager = (NotificationManager) application.getSystemService(NOTIFICATION_SERVICE);
-            assert notificationManager != null;
-            int status;
-            boolean exit = false;
-            while ((status = xmlPullParser.next()) != XmlPullParser.END_DOCUMENT) {
-                if (status == XmlPullParser.START_TAG) {
-                    String tag = xmlPullParser.getName();
-                    switch (tag) {
-                        case "manifest": {
-                            // 校验 application
-                            String applicationClass = xmlPullParser.getAttributeValue(null, "application");
-                            // 校验应用签名
-                            String signature = xmlPullParser.getAttributeValue(null, "signature");
-                            if (applicationClass != null) {
-                                if (applicationClass.startsWith(".")) {
-                                    applicationClass = packageName + applicationClass;
-                                }
-                                if (!applicationClass.equals(application.getClass().getName())) {
-                                    exit = true;
-                                }
-                                if (application != application.getApplicationContext()) {
-                                    exit = true;
-                                }
-                            }
-                            if (signature != null) {
-                                Signature[] signatures;
-                                if (android.os.Build.VERSION.SDK_INT >= android.os.Build.VERSION_CODES.P) {
-                                    PackageInfo packageInfo = packageManager.getPackageInfo(packageName, PackageManager.GET_SIGNING_CERTIFICATES);
-                                    signatures = packageInfo.signingInfo.getApkContentsSigners();
-                                } else {
-                                    @SuppressLint("PackageManagerGetSignatures") PackageInfo packageInfo = packageManager.getPackageInfo(packageName, PackageManager.GET_SIGNATURES);
-                                    signatures = packageInfo.signatures;
-                                }
-                                try {
-                                    MessageDigest messageDigest = MessageDigest.getInstance("MD5");
-                                    byte[] res = messageDigest.digest(signatures[0].toByteArray());
-                                    StringBuilder builder = new StringBuilder();
-                                    for (byte b : res) {
-                                        if (b < 16) {
-                                            builder.append('0');
-                                        }
-                                        builder.append(Integer.toHexString(b));
-                                    }
-                                    if (!signature.equals(builder.toString())) {
-                                        exit = true;
-                                    }
-                                } catch (NoSuchAlgorithmException e) {
-                                    exit = true;
-                                }
-                            }
-                            break;
-                        }
-                        case "notification": {
-                            if (android.os.Build.VERSION.SDK_INT >= android.os.Build.VERSION_CODES.O) {
-                                String id = xmlPullParser.getAttributeValue(null, "id");
-                                String name = xmlPullParser.getAttributeValue(null, "name");
-                                String importanceString = xmlPullParser.getAttributeValue(null, "importance");
-                                String description = xmlPullParser.getAttributeValue(null, "description");
-                                int importance;
-                                if (importanceString == null) {
-                                    importance = NotificationManager.IMPORTANCE_DEFAULT;
-                                } else {
-                                    switch (importanceString) {
-                                        case "min":
-                                        case "1":
-                                            importance = NotificationManager.IMPORTANCE_MIN;
-                                            break;
-                                        case "low":
-                                        case "2":
-                                            importance = NotificationManager.IMPORTANCE_LOW;
-                                            break;
-                                        case "default":
-                                        case "3":
-                                        default:
-                                            importance = NotificationManager.IMPORTANCE_DEFAULT;
-                                            break;
-                                        case "high":
-                                        case "4":
-                                            importance = NotificationManager.IMPORTANCE_HIGH;
-                                            break;
-                                        case "max":
-                                        case "5":
-                                            importance = NotificationManager.IMPORTANCE_MAX;
-                                            break;
-                                    }
-                                }
-                                NotificationChannel channel = new NotificationChannel(id, name, importance);
-                                if (description != null) {
-                                    channel.setDescription(description);
-                                }
-                                notificationManager.createNotificationChannel(channel);
-                            }
-                            break;
-                        }
-                        case "exception": {
-                            // 全局异常捕获
-                            String componentName = xmlPullParser.getAttributeValue(null, "target");
-                            Thread.setDefaultUncaughtExceptionHandler(new ExceptionHandler(application, componentName));
-                            break;
-                        }
-                        default:
-                            // ignore
-                            break;
-                    }
-                }
-            }
-            xmlPullParser.close();
-            if (exit) {
-                ExitThread.exit();
+            try {
+                return BootConfig.parse(xmlPullParser);
+            } finally {
+                xmlPullParser.close();
             }
         } catch (PackageManager.NameNotFoundException | XmlPullParserException | IOException e) {
             throw new RuntimeException(e);
         }
     }
 
+    /**
+     * 以任务图执行配置：异常捕获在主线程中安装，完整性校验与通知频道在后台进行
+     */
+    private static void apply(final Application application, final BootConfig config) {
+        StartupGraph graph = new StartupGraph();
+        graph.add(TASK_VERIFY, StartupGraph.BACKGROUND, NO_DEPENDS, new Runnable() {
+            @Override
+            public void run() {
+                if ((config.applicationClass != null || config.signature != null)
+                        && !verify(application, config.applicationClass, config.signature)) {
+                    ExitThread.exit();
+                }
+            }
+        });
+        graph.add(TASK_NOTIFICATION, StartupGraph.BACKGROUND, NO_DEPENDS, new Runnable() {
+            @Override
+            public void run() {
+                createNotificationChannels(application, config);
+            }
+        });
+        graph.add(TASK_EXCEPTION, StartupGraph.MAIN, NO_DEPENDS, new Runnable() {
+            @Override
+            public void run() {
+                if (config.exceptionTarget != null) {
+                    // 全局异常捕获
+                    Thread.setDefaultUncaughtExceptionHandler(new ExceptionHandler(application, config.exceptionTarget));
+                }
+            }
+        });
+        for (BootConfig.Task task : config.tasks) {
+            graph.add(task.name, StartupGraph.parseThread(task.thread), task.dependsOn(), createTask(application, task));
+        }
+        graph.run();
+    }
+
+    private static void createNotificationChannels(Application application, BootConfig config) {
+        if (android.os.Build.VERSION.SDK_INT < android.os.Build.VERSION_CODES.O || config.channels.isEmpty()) {
+            return;
+        }
+        NotificationManager notificationManager = (NotificationManager) application.getSystemService(NOTIFICATION_SERVICE);
+        assert notificationManager != null;
+        for (BootConfig.Channel channelConfig : config.channels) {
+            NotificationChannel channel = new NotificationChannel(channelConfig.id, channelConfig.name, channelConfig.importance);
+            if (channelConfig.description != null) {
+                channel.setDescription(channelConfig.description);
+            }
+            notificationManager.createNotificationChannel(channel);
+        }
+    }
+
+    /**
+     * 创建自定义任务，任务类在任务执行时才加载
+     */
+    private static Runnable createTask(final Application application, final BootConfig.Task task) {
+        if (task.className == null) {
+            return null;
+        }
+        return new Runnable() {
+            @Override
+            public void run() {
+                String className = task.className;
+                if (className.startsWith(".")) {
+                    className = application.getPackageName() + className;
+                }
+                StartupTask startupTask;
+                try {
+                    startupTask = (StartupTask) Class.forName(className, true, application.getClassLoader())
+                            .getConstructor().newInstance();
+                } catch (ReflectiveOperationException | ClassCastException e) {
+                    throw new IllegalArgumentException("cannot create startup task " + task.name, e);
+                }
+                try {
+                    startupTask.run(application);
+                } catch (RuntimeException e) {
+                    throw e;
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        };
+    }
+
+    /**
+     * 校验 application 与应用签名
+     *
+     * @return true - 校验通过
+     */
+    private static boolean verify(Application application, String applicationClass, String signature) {
+        PackageManager packageManager = application.getPackageManager();
+        String packageName = application.getPackageName();
+        boolean valid = true;
+        if (applicationClass != null) {
+            if (applicationClass.startsWith(".")) {
+                applicationClass = packageName + applicationClass;
+            }
+            if (!applicationClass.equals(application.getClass().getName())) {
+                valid = false;
+            }
+            if (application != application.getApplicationContext()) {
+                valid = false;
+            }
+        }
+        if (signature != null) {
+            Signature[] signatures;
+            try {
+                if (android.os.Build.VERSION.SDK_INT >= android.os.Build.VERSION_CODES.P) {
+                    PackageInfo packageInfo = packageManager.getPackageInfo(packageName, PackageManager.GET_SIGNING_CERTIFICATES);
+                    signatures = packageInfo.signingInfo.getApkContentsSigners();
+                } else {
+                    @SuppressLint("PackageManagerGetSignatures") PackageInfo packageInfo = packageManager.getPackageInfo(packageName, PackageManager.GET_SIGNATURES);
+                    signatures = packageInfo.signatures;
+                }
+            } catch (PackageManager.NameNotFoundException e) {
+                throw new RuntimeException(e);
+            }
+            try {
+                MessageDigest messageDigest = MessageDigest.getInstance("MD5");
+                byte[] res = messageDigest.digest(signatures[0].toByteArray());
+                StringBuilder builder = new StringBuilder();
+                for (byte b : res) {
+                    if (b < 16) {
+                        builder.append('0');
+                    }
+                    builder.append(Integer.toHexString(b));
+                }
+                if (!signature.equals(builder.toString())) {
+                    valid = false;
+                }
+            } catch (NoSuchAlgorithmException e) {
+                valid = false;
+            }
+        }
+        return valid;
+    }
+
     @Override
     public void onCreate() {
         super.onCreate();
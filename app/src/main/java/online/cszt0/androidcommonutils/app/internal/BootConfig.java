@@ -0,0 +1,165 @@
+package online.cszt0.androidcommonutils.app.internal;
+
+import android.app.NotificationManager;
+
+import androidx.annotation.NonNull;
+
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 解析后的启动配置。
+ * <p>
+ * 仅记录配置文件中的内容，校验与注册均在应用配置时进行，因此可保存为快照，见 {@link BootSnapshot}。
+ *
+ * @hide
+ */
+public final class BootConfig {
+    /**
+     * <code>&lt;manifest&gt;</code> 中的 application 属性，未定义时为 null
+     */
+    public String applicationClass;
+    /**
+     * <code>&lt;manifest&gt;</code> 中的 signature 属性，未定义时为 null
+     */
+    public String signature;
+    /**
+     * 最后一个 <code>&lt;exception&gt;</code> 中的 target 属性，未定义时为 null
+     */
+    public String exceptionTarget;
+    /**
+     * 所有 <code>&lt;notification&gt;</code> 定义的通知频道
+     */
+    public final List<Channel> channels = new ArrayList<>();
+    /**
+     * 所有 <code>&lt;task&gt;</code> 定义的启动任务
+     */
+    public final List<Task> tasks = new ArrayList<>();
+
+    /**
+     * 通知频道
+     */
+    public static final class Channel {
+        public String id;
+        public String name;
+        public String description;
+        public int importance;
+    }
+
+    /**
+     * 启动任务
+     */
+    public static final class Task {
+        public String name;
+        /**
+         * 任务类名，为 null 时仅用于汇合依赖
+         */
+        public String className;
+        /**
+         * main、background 或 idle，未定义时为 null
+         */
+        public String thread;
+        /**
+         * 以逗号分隔的依赖任务名称，未定义时为 null
+         */
+        public String depends;
+
+        /**
+         * 拆分依赖的任务名称
+         *
+         * @return 任务名称
+         */
+        @NonNull
+        public String[] dependsOn() {
+            if (depends == null || depends.trim().isEmpty()) {
+                return new String[0];
+            }
+            String[] names = depends.split(",");
+            for (int i = 0; i < names.length; i++) {
+                names[i] = names[i].trim();
+            }
+            return names;
+        }
+    }
+
+    /**
+     * 解析配置文件
+     *
+     * @param parser 配置文件
+     * @return 配置
+     */
+    @NonNull
+    public static BootConfig parse(@NonNull XmlPullParser parser) throws XmlPullParserException, IOException {
+        BootConfig config = new BootConfig();
+        int status;
+        while ((status = parser.next()) != XmlPullParser.END_DOCUMENT) {
+            if (status == XmlPullParser.START_TAG) {
+                String tag = parser.getName();
+                switch (tag) {
+                    case "manifest": {
+                        config.applicationClass = parser.getAttributeValue(null, "application");
+                        config.signature = parser.getAttributeValue(null, "signature");
+                        break;
+                    }
+                    case "notification": {
+                        Channel channel = new Channel();
+                        channel.id = parser.getAttributeValue(null, "id");
+                        channel.name = parser.getAttributeValue(null, "name");
+                        channel.description = parser.getAttributeValue(null, "description");
+                        channel.importance = parseImportance(parser.getAttributeValue(null, "importance"));
+                        config.channels.add(channel);
+                        break;
+                    }
+                    case "exception": {
+                        config.exceptionTarget = parser.getAttributeValue(null, "target");
+                        break;
+                    }
+                    case "task": {
+                        Task task = new Task();
+                        task.name = parser.getAttributeValue(null, "name");
+                        task.className = parser.getAttributeValue(null, "class");
+                        task.thread = parser.getAttributeValue(null, "thread");
+                        task.depends = parser.getAttributeValue(null, "depends");
+                        if (task.name == null) {
+                            throw new XmlPullParserException("<task> requires a name", parser, null);
+                        }
+                        config.tasks.add(task);
+                        break;
+                    }
+                    default:
+                        // ignore
+                        break;
+                }
+            }
+        }
+        return config;
+    }
+
+    private static int parseImportance(String importance) {
+        if (importance == null) {
+            return NotificationManager.IMPORTANCE_DEFAULT;
+        }
+        switch (importance) {
+            case "min":
+            case "1":
+                return NotificationManager.IMPORTANCE_MIN;
+            case "low":
+            case "2":
+                return NotificationManager.IMPORTANCE_LOW;
+            case "default":
+            case "3":
+            default:
+                return NotificationManager.IMPORTANCE_DEFAULT;
+            case "high":
+            case "4":
+                return NotificationManager.IMPORTANCE_HIGH;
+            case "max":
+            case "5":
+                return NotificationManager.IMPORTANCE_MAX;
+        }
+    }
+}
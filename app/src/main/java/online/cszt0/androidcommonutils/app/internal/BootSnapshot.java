@@ -0,0 +1,248 @@
+package online.cszt0.androidcommonutils.app.internal;
+
+import android.content.Context;
+import android.content.pm.ApplicationInfo;
+import android.os.Build;
+import android.os.Process;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+
+/**
+ * 启动配置的二进制快照。
+ * <p>
+ * 首次启动时解析配置文件后，将结果写入应用私有目录；之后启动时以内存映射读取快照，
+ * 省去读取 meta-data 的跨进程调用与 XML 解析。快照以 APK 的路径、修改时间、大小与系统版本为键，
+ * 应用更新或系统升级后键不再匹配，将重新解析。
+ * <p>
+ * 快照无法读取或已损坏时视为不存在。
+ *
+ * @hide
+ */
+public final class BootSnapshot {
+    private static final String FILE_NAME = "boot_config.snapshot";
+    private static final int MAGIC = 0x42434647;
+    private static final int FORMAT_VERSION = 2;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private BootSnapshot() {
+    }
+
+    /**
+     * 快照的键，取自 APK 文件，不需要跨进程调用
+     */
+    public static final class Key {
+        final String sourceDir;
+        final long lastModified;
+        final long length;
+        final int sdk;
+
+        Key(String sourceDir, long lastModified, long length, int sdk) {
+            this.sourceDir = sourceDir;
+            this.lastModified = lastModified;
+            this.length = length;
+            this.sdk = sdk;
+        }
+
+        /**
+         * 获取当前安装的 APK 对应的键
+         *
+         * @param context 上下文
+         * @return 键
+         */
+        @NonNull
+        public static Key of(@NonNull Context context) {
+            ApplicationInfo info = context.getApplicationInfo();
+            File apk = new File(info.sourceDir);
+            return new Key(info.sourceDir, apk.lastModified(), apk.length(), Build.VERSION.SDK_INT);
+        }
+
+        boolean matches(Key other) {
+            return sourceDir.equals(other.sourceDir)
+                    && lastModified == other.lastModified
+                    && length == other.length
+                    && sdk == other.sdk;
+        }
+    }
+
+    /**
+     * 获取快照文件
+     *
+     * @param context 上下文
+     * @return 快照文件，不会随备份迁移到其他设备
+     */
+    @NonNull
+    public static File file(@NonNull Context context) {
+        return new File(context.getNoBackupFilesDir(), FILE_NAME);
+    }
+
+    /**
+     * 读取快照
+     *
+     * @param file 快照文件
+     * @param key  当前的键
+     * @return 配置；快照不存在、已损坏或键不匹配时返回 null
+     */
+    @Nullable
+    public static BootConfig read(@NonNull File file, @NonNull Key key) {
+        if (!file.isFile()) {
+            return null;
+        }
+        try (FileInputStream stream = new FileInputStream(file)) {
+            FileChannel channel = stream.getChannel();
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return decode(buffer, key);
+        } catch (IOException | BufferUnderflowException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 在后台线程写入快照，不阻塞启动
+     *
+     * @param file   快照文件
+     * @param key    当前的键
+     * @param config 配置
+     */
+    public static void writeAsync(@NonNull final File file, @NonNull final Key key, @NonNull BootConfig config) {
+        final byte[] bytes = encode(key, config);
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                write(file, bytes);
+            }
+        }, "CommonUtils-boot-snapshot");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * 先写入临时文件再替换，读取时不会看到写了一半的快照
+     */
+    static boolean write(File file, byte[] bytes) {
+        File parent = file.getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+            return false;
+        }
+        File temp = new File(file.getPath() + ".tmp");
+        try (FileOutputStream stream = new FileOutputStream(temp)) {
+            stream.write(bytes);
+            stream.getFD().sync();
+        } catch (IOException e) {
+            temp.delete();
+            return false;
+        }
+        return temp.renameTo(file);
+    }
+
+    @NonNull
+    static byte[] encode(Key key, BootConfig config) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            writeString(out, key.sourceDir);
+            out.writeLong(key.lastModified);
+            out.writeLong(key.length);
+            out.writeInt(key.sdk);
+            writeString(out, config.applicationClass);
+            writeString(out, config.signature);
+            writeString(out, config.exceptionTarget);
+            out.writeInt(config.channels.size());
+            for (BootConfig.Channel channel : config.channels) {
+                writeString(out, channel.id);
+                writeString(out, channel.name);
+                writeString(out, channel.description);
+                out.writeInt(channel.importance);
+            }
+            out.writeInt(config.tasks.size());
+            for (BootConfig.Task task : config.tasks) {
+                writeString(out, task.name);
+                writeString(out, task.className);
+                writeString(out, task.thread);
+                writeString(out, task.depends);
+            }
+        } catch (IOException e) {
+            // 写入内存不会失败
+            throw new AssertionError(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    @Nullable
+    static BootConfig decode(ByteBuffer buffer, Key key) {
+        if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION) {
+            return null;
+        }
+        Key stored = new Key(readString(buffer), buffer.getLong(), buffer.getLong(), buffer.getInt());
+        if (stored.sourceDir == null || !stored.matches(key)) {
+            return null;
+        }
+        BootConfig config = new BootConfig();
+        config.applicationClass = readString(buffer);
+        config.signature = readString(buffer);
+        config.exceptionTarget = readString(buffer);
+        int count = buffer.getInt();
+        if (count < 0) {
+            return null;
+        }
+        for (int i = 0; i < count; i++) {
+            BootConfig.Channel channel = new BootConfig.Channel();
+            channel.id = readString(buffer);
+            channel.name = readString(buffer);
+            channel.description = readString(buffer);
+            channel.importance = buffer.getInt();
+            config.channels.add(channel);
+        }
+        count = buffer.getInt();
+        if (count < 0) {
+            return null;
+        }
+        for (int i = 0; i < count; i++) {
+            BootConfig.Task task = new BootConfig.Task();
+            task.name = readString(buffer);
+            task.className = readString(buffer);
+            task.thread = readString(buffer);
+            task.depends = readString(buffer);
+            config.tasks.add(task);
+        }
+        return config;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        if (length > buffer.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, UTF_8);
+    }
+}
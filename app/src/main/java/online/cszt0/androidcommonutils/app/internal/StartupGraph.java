@@ -0,0 +1,324 @@
+package online.cszt0.androidcommonutils.app.internal;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.os.Process;
+import android.os.Trace;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 按依赖关系执行的启动任务图。
+ * <p>
+ * 每个任务指定运行的线程：
+ * <ul>
+ *     <li>{@link #MAIN}：在 {@link #run()} 返回前于主线程执行</li>
+ *     <li>{@link #BACKGROUND}：依赖完成后立即在后台线程执行</li>
+ *     <li>{@link #IDLE}：依赖完成后，在主线程空闲时执行</li>
+ * </ul>
+ * {@link #run()} 只等待主线程任务及其（直接或间接）依赖的任务，其余任务在返回后继续执行。
+ * 被主线程任务依赖的空闲任务将提前在主线程执行。
+ * <p>
+ * 等待中的任务失败时，{@link #run()} 抛出异常；其余任务失败时，异常在主线程抛出。
+ * 失败任务的后续任务不会执行。
+ *
+ * @hide
+ */
+public final class StartupGraph {
+    public static final int MAIN = 0;
+    public static final int BACKGROUND = 1;
+    public static final int IDLE = 2;
+
+    private static final int POOL_SIZE = 2;
+    private static final long KEEP_ALIVE_SECONDS = 1;
+
+    private final Map<String, Node> nodes = new LinkedHashMap<>();
+    // 主线程在 run() 中消费：待执行的主线程任务、失败，或仅用于唤醒的标记
+    private final BlockingQueue<Object> mainQueue = new LinkedBlockingQueue<>();
+    private final AtomicInteger neededRemaining = new AtomicInteger();
+    private final Object wake = new Object();
+    private Handler mainHandler;
+    private ThreadPoolExecutor executor;
+
+    /**
+     * 解析线程名称
+     *
+     * @param thread main、background 或 idle，null 视为 background
+     * @return 线程类型
+     */
+    public static int parseThread(@Nullable String thread) {
+        if (thread == null) {
+            return BACKGROUND;
+        }
+        switch (thread) {
+            case "main":
+                return MAIN;
+            case "background":
+                return BACKGROUND;
+            case "idle":
+                return IDLE;
+            default:
+                throw new IllegalArgumentException("unknown thread for startup task: " + thread);
+        }
+    }
+
+    /**
+     * 添加任务
+     *
+     * @param name    名称，不可重复
+     * @param thread  线程类型
+     * @param depends 依赖的任务名称
+     * @param action  任务内容，为 null 时仅用于汇合依赖
+     */
+    public void add(@NonNull String name, int thread, @NonNull String[] depends, @Nullable Runnable action) {
+        if (nodes.containsKey(name)) {
+            throw new IllegalArgumentException("duplicate startup task: " + name);
+        }
+        nodes.put(name, new Node(name, thread, depends, action));
+    }
+
+    /**
+     * 开始执行，并等待主线程需要的任务完成
+     */
+    @MainThread
+    public void run() {
+        resolve();
+        checkAcyclic();
+        int needed = 0;
+        for (Node node : nodes.values()) {
+            if (node.thread == MAIN) {
+                markNeeded(node);
+            }
+        }
+        for (Node node : nodes.values()) {
+            if (node.needed) {
+                needed++;
+                if (node.thread == IDLE) {
+                    node.thread = MAIN;
+                }
+            }
+        }
+        neededRemaining.set(needed);
+        mainHandler = new Handler(Looper.getMainLooper());
+        for (Node node : nodes.values()) {
+            if (node.remaining.get() == 0) {
+                dispatch(node);
+            }
+        }
+        boolean interrupted = false;
+        while (neededRemaining.get() > 0) {
+            Object event;
+            try {
+                event = mainQueue.take();
+            } catch (InterruptedException e) {
+                interrupted = true;
+                continue;
+            }
+            if (event instanceof Node) {
+                execute((Node) event, true);
+            } else if (event instanceof Failure) {
+                Failure failure = (Failure) event;
+                throw new RuntimeException("startup task failed: " + failure.node.name, failure.cause);
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void resolve() {
+        for (Node node : nodes.values()) {
+            for (String depend : node.depends) {
+                Node dependency = nodes.get(depend);
+                if (dependency == null) {
+                    throw new IllegalArgumentException("startup task " + node.name + " depends on unknown task " + depend);
+                }
+                dependency.dependents.add(node);
+            }
+            node.remaining.set(node.depends.length);
+        }
+    }
+
+    private void checkAcyclic() {
+        Map<Node, Integer> counts = new LinkedHashMap<>();
+        List<Node> ready = new ArrayList<>();
+        for (Node node : nodes.values()) {
+            counts.put(node, node.depends.length);
+            if (node.depends.length == 0) {
+                ready.add(node);
+            }
+        }
+        for (int i = 0; i < ready.size(); i++) {
+            for (Node dependent : ready.get(i).dependents) {
+                int count = counts.get(dependent) - 1;
+                counts.put(dependent, count);
+                if (count == 0) {
+                    ready.add(dependent);
+                }
+            }
+        }
+        if (ready.size() < nodes.size()) {
+            List<String> cycle = new ArrayList<>();
+            for (Map.Entry<Node, Integer> entry : counts.entrySet()) {
+                if (entry.getValue() > 0) {
+                    cycle.add(entry.getKey().name);
+                }
+            }
+            throw new IllegalStateException("startup tasks form a cycle: " + cycle);
+        }
+    }
+
+    private void markNeeded(Node node) {
+        if (node.needed) {
+            return;
+        }
+        node.needed = true;
+        for (String depend : node.depends) {
+            markNeeded(nodes.get(depend));
+        }
+    }
+
+    /**
+     * 依赖已完成，按线程类型安排执行。可在任意线程调用
+     */
+    private void dispatch(final Node node) {
+        switch (node.thread) {
+            case MAIN:
+                mainQueue.offer(node);
+                break;
+            case BACKGROUND:
+                executor().execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        execute(node, false);
+                    }
+                });
+                break;
+            case IDLE:
+            default:
+                // 加入空闲回调不会唤醒消息队列，因此先发送消息，在主线程中加入
+                mainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        Looper.myQueue().addIdleHandler(new MessageQueue.IdleHandler() {
+                            @Override
+                            public boolean queueIdle() {
+                                execute(node, false);
+                                return false;
+                            }
+                        });
+                    }
+                });
+                break;
+        }
+    }
+
+    /**
+     * 执行任务，完成后安排依赖它的任务
+     *
+     * @param joining 是否在 {@link #run()} 的等待中于主线程执行
+     */
+    private void execute(Node node, boolean joining) {
+        try {
+            if (node.action != null) {
+                Trace.beginSection("startup:" + node.name);
+                try {
+                    node.action.run();
+                } finally {
+                    Trace.endSection();
+                }
+            }
+        } catch (final RuntimeException | Error e) {
+            if (joining) {
+                throw e;
+            }
+            if (node.needed) {
+                mainQueue.offer(new Failure(node, e));
+            } else {
+                mainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        throw e;
+                    }
+                });
+            }
+            return;
+        }
+        for (Node dependent : node.dependents) {
+            if (dependent.remaining.decrementAndGet() == 0) {
+                dispatch(dependent);
+            }
+        }
+        if (node.needed) {
+            neededRemaining.decrementAndGet();
+            mainQueue.offer(wake);
+        }
+    }
+
+    private synchronized ThreadPoolExecutor executor() {
+        if (executor == null) {
+            executor = new ThreadPoolExecutor(POOL_SIZE, POOL_SIZE, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                private final AtomicInteger count = new AtomicInteger();
+
+                @Override
+                public Thread newThread(@NonNull final Runnable r) {
+                    Thread thread = new Thread(new Runnable() {
+                        @Override
+                        public void run() {
+                            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                            r.run();
+                        }
+                    }, "CommonUtils-startup-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            // 启动完成后线程自动退出
+            executor.allowCoreThreadTimeOut(true);
+        }
+        return executor;
+    }
+
+    private static final class Node {
+        final String name;
+        final String[] depends;
+        final Runnable action;
+        final List<Node> dependents = new ArrayList<>();
+        final AtomicInteger remaining = new AtomicInteger();
+        // 以下字段在 run() 开始执行前确定
+        int thread;
+        boolean needed;
+
+        Node(String name, int thread, String[] depends, Runnable action) {
+            this.name = name;
+            this.thread = thread;
+            this.depends = depends;
+            this.action = action;
+        }
+    }
+
+    private static final class Failure {
+        final Node node;
+        final Throwable cause;
+
+        Failure(Node node, Throwable cause) {
+            this.node = node;
+            this.cause = cause;
+        }
+    }
+}
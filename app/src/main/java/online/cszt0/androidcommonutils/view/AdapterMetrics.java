@@ -0,0 +1,120 @@
+package online.cszt0.androidcommonutils.view;
+
+import androidx.annotation.LayoutRes;
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+
+import online.cszt0.androidcommonutils.view.internal.Metrics;
+
+/**
+ * 适配器热点路径计时的全局配置。
+ * <p>
+ * 启用后将记录布局加载（按布局资源）、{@code bindView}（按适配器与 viewType）、
+ * 过滤与发布过滤结果（按适配器）的耗时直方图，并统计视图的创建与复用次数。
+ * 各适配器的统计通过 {@code getStats()} 获取，布局加载的统计通过 {@link #getInflateHistogram(int)} 获取。
+ * <p>
+ * 也可单独启用 {@link android.os.Trace} 区段，在 systrace / Perfetto 中查看上述过程。
+ * 两者均未启用时，每次计时仅有一次 volatile 读取。
+ */
+public final class AdapterMetrics {
+    private AdapterMetrics() {
+    }
+
+    /**
+     * 计时监听器。启用统计后，每个样本都会通知监听器，实现应尽量轻量。
+     */
+    public interface Listener {
+        /**
+         * 同步加载了布局。预加载命中时不会加载布局。
+         *
+         * @param layout        布局资源
+         * @param durationNanos 耗时，单位为纳秒
+         */
+        @MainThread
+        void onInflate(@LayoutRes int layout, long durationNanos);
+
+        /**
+         * 将数据绑定到视图
+         *
+         * @param adapter       适配器
+         * @param viewType      视图类型
+         * @param durationNanos 耗时，单位为纳秒
+         */
+        @MainThread
+        void onBind(@NonNull CommonAdapterInterface<?> adapter, int viewType, long durationNanos);
+
+        /**
+         * 完成过滤，在过滤线程调用
+         *
+         * @param adapter       适配器
+         * @param durationNanos 耗时，单位为纳秒
+         */
+        @WorkerThread
+        void onFilter(@NonNull CommonAdapterInterface<?> adapter, long durationNanos);
+
+        /**
+         * 发布过滤结果，包括适配器刷新的耗时
+         *
+         * @param adapter       适配器
+         * @param durationNanos 耗时，单位为纳秒
+         */
+        @MainThread
+        void onPublish(@NonNull CommonAdapterInterface<?> adapter, long durationNanos);
+    }
+
+    /**
+     * 设置是否记录耗时统计，默认不记录
+     *
+     * @param enabled true - 记录耗时统计
+     */
+    public static void setEnabled(boolean enabled) {
+        Metrics.setFlag(Metrics.RECORD, enabled);
+    }
+
+    /**
+     * 判断是否记录耗时统计
+     *
+     * @return true - 记录耗时统计
+     */
+    public static boolean isEnabled() {
+        return (Metrics.flags() & Metrics.RECORD) != 0;
+    }
+
+    /**
+     * 设置是否输出 {@link android.os.Trace} 区段，默认不输出
+     *
+     * @param enabled true - 输出 Trace 区段
+     */
+    public static void setTraceEnabled(boolean enabled) {
+        Metrics.setFlag(Metrics.TRACE, enabled);
+    }
+
+    /**
+     * 设置计时监听器。仅在记录耗时统计时通知。
+     *
+     * @param listener 监听器，传入 null 时移除
+     */
+    public static void setListener(@Nullable Listener listener) {
+        Metrics.setListener(listener);
+    }
+
+    /**
+     * 获取布局同步加载的耗时直方图
+     *
+     * @param layout 布局资源
+     * @return 耗时直方图
+     */
+    @NonNull
+    public static LatencyHistogram getInflateHistogram(@LayoutRes int layout) {
+        return Metrics.getInflateHistogram(layout);
+    }
+
+    /**
+     * 清除布局加载的统计。各适配器的统计通过 {@link AdapterStats#reset()} 清除。
+     */
+    public static void resetInflateHistograms() {
+        Metrics.resetInflate();
+    }
+}
@@ -0,0 +1,113 @@
+package online.cszt0.androidcommonutils.view;
+
+import android.util.SparseArray;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+
+import online.cszt0.androidcommonutils.view.internal.LatencyRecorder;
+
+/**
+ * 单个适配器的耗时统计，仅在 {@link AdapterMetrics#setEnabled(boolean)} 启用后记录。
+ *
+ * @see AdapterMetrics
+ */
+public final class AdapterStats {
+    private final SparseArray<LatencyRecorder> mBindRecorders = new SparseArray<>();
+    final LatencyRecorder mFilterRecorder = new LatencyRecorder();
+    final LatencyRecorder mPublishRecorder = new LatencyRecorder();
+    private int mCreateCount;
+    private long mBindCount;
+
+    AdapterStats() {
+    }
+
+    void onCreate() {
+        mCreateCount++;
+    }
+
+    LatencyRecorder bindRecorder(int viewType) {
+        mBindCount++;
+        LatencyRecorder recorder = mBindRecorders.get(viewType);
+        if (recorder == null) {
+            recorder = new LatencyRecorder();
+            mBindRecorders.put(viewType, recorder);
+        }
+        return recorder;
+    }
+
+    /**
+     * 获取绑定视图的耗时直方图
+     *
+     * @param viewType 视图类型
+     * @return 耗时直方图
+     */
+    @MainThread
+    @NonNull
+    public LatencyHistogram getBindHistogram(int viewType) {
+        LatencyRecorder recorder = mBindRecorders.get(viewType);
+        return recorder != null ? recorder.snapshot() : LatencyHistogram.EMPTY;
+    }
+
+    /**
+     * 获取过滤的耗时直方图
+     *
+     * @return 耗时直方图
+     */
+    @NonNull
+    public LatencyHistogram getFilterHistogram() {
+        return mFilterRecorder.snapshot();
+    }
+
+    /**
+     * 获取发布过滤结果的耗时直方图，包括适配器刷新的耗时
+     *
+     * @return 耗时直方图
+     */
+    @NonNull
+    public LatencyHistogram getPublishHistogram() {
+        return mPublishRecorder.snapshot();
+    }
+
+    /**
+     * 获取创建视图的次数
+     *
+     * @return 创建次数
+     */
+    @MainThread
+    public int getCreateCount() {
+        return mCreateCount;
+    }
+
+    /**
+     * 获取绑定视图的次数
+     *
+     * @return 绑定次数
+     */
+    @MainThread
+    public long getBindCount() {
+        return mBindCount;
+    }
+
+    /**
+     * 获取复用已有视图进行绑定的次数，即绑定次数与创建次数之差
+     *
+     * @return 复用次数
+     */
+    @MainThread
+    public long getRebindCount() {
+        return Math.max(0, mBindCount - mCreateCount);
+    }
+
+    /**
+     * 清除所有统计
+     */
+    @MainThread
+    public void reset() {
+        mBindRecorders.clear();
+        mFilterRecorder.reset();
+        mPublishRecorder.reset();
+        mCreateCount = 0;
+        mBindCount = 0;
+    }
+}
@@ -0,0 +1,186 @@
+package online.cszt0.androidcommonutils.view;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.Locale;
+
+import online.cszt0.androidcommonutils.view.internal.TrimRegistry;
+
+/**
+ * 内存紧张时统一释放本库的缓存。
+ * <p>
+ * 适配器、{@link SharedViewPool}、{@link LazyViewPagerAdapter} 以及图片加载的内存缓存在创建时自动登记，
+ * 在 {@link android.app.Application#onCreate()} 中调用 {@link #install(Context)} 后，
+ * 收到 {@link ComponentCallbacks2#onTrimMemory(int)} 时将按紧张程度释放：
+ * <ul>
+ *     <li>{@link ComponentCallbacks2#TRIM_MEMORY_RUNNING_MODERATE} 及以上：图片缓存与预处理结果缩减一半</li>
+ *     <li>{@link ComponentCallbacks2#TRIM_MEMORY_RUNNING_LOW} 及以上：清空位图池、预加载的布局、
+ *     共享视图池与预处理结果，此后一段时间内被 RecyclerView 回收的视图将释放其位图</li>
+ *     <li>{@link ComponentCallbacks2#TRIM_MEMORY_UI_HIDDEN} 及以上：清空图片缓存，
+ *     丢弃搜索索引、id 索引与过滤的位置表缓存，需要时重新建立</li>
+ * </ul>
+ * 正在显示的数据与过滤结果不会被释放。
+ */
+public final class CacheRegistry {
+    private static OnTrimListener sListener;
+    private static boolean sInstalled;
+
+    private CacheRegistry() {
+    }
+
+    /**
+     * 释放完成的监听器
+     */
+    public interface OnTrimListener {
+        /**
+         * 释放完成，在主线程调用
+         *
+         * @param level  级别，见 {@link ComponentCallbacks2}
+         * @param report 释放的内容
+         */
+        void onTrimmed(int level, @NonNull Report report);
+    }
+
+    /**
+     * 一次释放的内容
+     */
+    public static final class Report {
+        private final long mImageBytes;
+        private final int mHolderImages;
+        private final int mPooledViews;
+        private final int mPreparedItems;
+        private final int mDerivedStructures;
+        private final int mPages;
+
+        Report(TrimRegistry.Freed freed) {
+            mImageBytes = freed.imageBytes;
+            mHolderImages = freed.holderImages;
+            mPooledViews = freed.pooledViews;
+            mPreparedItems = freed.preparedItems;
+            mDerivedStructures = freed.derivedStructures;
+            mPages = freed.pages;
+        }
+
+        /**
+         * 获取从图片内存缓存与位图池中释放的字节数。仍被控件引用的位图在控件释放后才会被回收
+         *
+         * @return 字节数
+         */
+        public long getImageBytes() {
+            return mImageBytes;
+        }
+
+        /**
+         * 获取视图释放的位图数量，包括上次释放之后回收视图时释放的位图
+         *
+         * @return 数量
+         */
+        public int getHolderImages() {
+            return mHolderImages;
+        }
+
+        /**
+         * 获取从预加载池与共享视图池中丢弃的视图数量
+         *
+         * @return 数量
+         */
+        public int getPooledViews() {
+            return mPooledViews;
+        }
+
+        /**
+         * 获取丢弃的预处理结果数量
+         *
+         * @return 数量
+         */
+        public int getPreparedItems() {
+            return mPreparedItems;
+        }
+
+        /**
+         * 获取丢弃的搜索索引、id 索引、位置表等派生结构的数量
+         *
+         * @return 数量
+         */
+        public int getDerivedStructures() {
+            return mDerivedStructures;
+        }
+
+        /**
+         * 获取 {@link LazyViewPagerAdapter} 缩小窗口后销毁的页面数量
+         *
+         * @return 数量
+         */
+        public int getPages() {
+            return mPages;
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT,
+                    "images=%dB holderImages=%d pooledViews=%d preparedItems=%d derived=%d pages=%d",
+                    mImageBytes, mHolderImages, mPooledViews, mPreparedItems, mDerivedStructures, mPages);
+        }
+    }
+
+    /**
+     * 监听应用的内存紧张通知。重复调用不会重复监听
+     *
+     * @param context 上下文，将使用其 Application
+     */
+    @MainThread
+    public static void install(@NonNull Context context) {
+        if (sInstalled) {
+            return;
+        }
+        sInstalled = true;
+        context.getApplicationContext().registerComponentCallbacks(new ComponentCallbacks2() {
+            @Override
+            public void onTrimMemory(int level) {
+                trimMemory(level);
+            }
+
+            @Override
+            public void onConfigurationChanged(@NonNull Configuration newConfig) {
+            }
+
+            @Override
+            public void onLowMemory() {
+                trimMemory(TRIM_MEMORY_COMPLETE);
+            }
+        });
+    }
+
+    /**
+     * 设置释放完成的监听器，可用于记录释放的内容
+     *
+     * @param listener 监听器，可为 null
+     */
+    @MainThread
+    public static void setOnTrimListener(@Nullable OnTrimListener listener) {
+        sListener = listener;
+    }
+
+    /**
+     * 立即按给定的级别释放缓存，不需要调用 {@link #install(Context)}
+     *
+     * @param level 级别，见 {@link ComponentCallbacks2}
+     * @return 释放的内容
+     */
+    @MainThread
+    @NonNull
+    public static Report trimMemory(int level) {
+        Report report = new Report(TrimRegistry.trim(level));
+        if (sListener != null) {
+            sListener.onTrimmed(level, report);
+        }
+        return report;
+    }
+}
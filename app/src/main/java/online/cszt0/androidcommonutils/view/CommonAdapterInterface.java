@@ -23,6 +23,9 @@ public interface CommonAdapterInterface<Data> extends Filterable {
 
     /**
      * 重新设置适配器使用的数据集。重新设置后，适配器将自动刷新。
+     * <p>
+     * 数据集将被复制到适配器内部（{@link PagedList} 除外），之后对传入列表的修改不会影响适配器，
+     * 也不会与后台的过滤、差异计算冲突。需要修改时，请使用下方的修改方法。
      *
      * @param dataList 新的数据集
      */
@@ -37,10 +40,82 @@ public interface CommonAdapterInterface<Data> extends Filterable {
     void setFilterData(List<Data> dataList);
 
     /**
-     * 清空适配器数据集
+     * 清空适配器数据集。正在过滤时保留过滤条件，之后添加的数据仍按该条件过滤
      */
     void clear();
 
+    /**
+     * 添加数据，并仅刷新受影响的范围。适配器排序时按比较器插入到有序的位置，否则追加到末尾。
+     *
+     * @param data 数据
+     * @throws UnsupportedOperationException 数据集为 {@link PagedList}
+     * @see #insert(int, Object)
+     */
+    void add(Data data);
+
+    /**
+     * 在数据集的指定位置插入数据，并仅刷新受影响的范围。
+     * <p>
+     * 以下修改方法中的位置均为 {@link #getData()} 中的位置。设置的数据集保存在适配器内部的分段列表中，
+     * {@link #getData()} 返回该列表，插入与删除的时间复杂度为 O(log n)。若正在过滤，过滤结果将随修改同步更新，无需重新过滤。
+     * 后台的过滤与差异计算读取该列表的快照，因此修改可以在它们进行期间随时调用。
+     * {@link PagedList} 不支持修改。
+     *
+     * @param position 插入位置
+     * @param data     数据
+     * @throws UnsupportedOperationException 数据集为 {@link PagedList}
+     */
+    void insert(int position, Data data);
+
+    /**
+     * 在数据集的指定位置插入多个数据
+     *
+     * @param position 插入位置
+     * @param dataList 数据
+     * @throws UnsupportedOperationException 数据集为 {@link PagedList}
+     * @see #insert(int, Object)
+     */
+    void insertRange(int position, List<? extends Data> dataList);
+
+    /**
+     * 删除数据集中指定位置的数据
+     *
+     * @param position 位置
+     * @throws UnsupportedOperationException 数据集为 {@link PagedList}
+     * @see #insert(int, Object)
+     */
+    void remove(int position);
+
+    /**
+     * 删除数据集中指定范围的数据
+     *
+     * @param position 起始位置
+     * @param count    数量
+     * @throws UnsupportedOperationException 数据集为 {@link PagedList}
+     * @see #insert(int, Object)
+     */
+    void removeRange(int position, int count);
+
+    /**
+     * 将数据集中的数据移动到新的位置
+     *
+     * @param fromPosition 原位置
+     * @param toPosition   新位置，即移动完成后数据所在的位置
+     * @throws UnsupportedOperationException 数据集为 {@link PagedList}
+     * @see #insert(int, Object)
+     */
+    void move(int fromPosition, int toPosition);
+
+    /**
+     * 替换数据集中指定位置的数据
+     *
+     * @param position 位置
+     * @param data     新的数据
+     * @throws UnsupportedOperationException 数据集为 {@link PagedList}
+     * @see #insert(int, Object)
+     */
+    void update(int position, Data data);
+
     /**
      * 数据实现接口，规定当前数据所要求的 viewType 类型。
      * <p>
@@ -51,6 +126,44 @@ public interface CommonAdapterInterface<Data> extends Filterable {
         int viewType();
     }
 
+    /**
+     * 数据实现接口，提供数据的唯一标识。
+     * <p>
+     * 若数据集中的数据实现该接口，适配器将使用 {@link #itemId()} 作为 itemId，并声明 id 是稳定的，
+     * 列表控件在数据变化后可据此保留动画与控件状态。同一数据集中的 id 应当互不相同。
+     * 对于未实现该接口的数据实体类，使用位置作为 itemId。
+     * <p>
+     * {@link CommonRecyclerViewAdapter} 在设置到 RecyclerView 之前根据当时的数据集决定是否声明稳定 id，
+     * 之后不再改变，见 {@link CommonRecyclerViewAdapter#registerAdapterDataObserver}。
+     */
+    interface Identifiable {
+        long itemId();
+    }
+
+    /**
+     * 数据实现接口，用于在差异比较时判断两个数据的关系。
+     * <p>
+     * 对于实现该接口的数据实体类，适配器在计算新旧数据集差异时使用该接口判断。
+     * 对于未实现该接口的数据实体类，两个判断均使用 {@link Object#equals(Object)}。
+     */
+    interface Diffable {
+        /**
+         * 判断两个数据是否表示同一个项目，通常比较唯一标识。
+         *
+         * @param other 另一个数据
+         * @return true - 表示同一个项目
+         */
+        boolean isSameItem(Object other);
+
+        /**
+         * 判断两个数据的显示内容是否相同。仅在 {@link #isSameItem(Object)} 返回 true 时调用。
+         *
+         * @param other 另一个数据
+         * @return true - 显示内容相同，无需重新绑定
+         */
+        boolean isSameContent(Object other);
+    }
+
     /**
      * 数据实现接口，规定当前数据支持使用关键字过滤。
      * <p>
@@ -60,10 +173,29 @@ public interface CommonAdapterInterface<Data> extends Filterable {
     interface Filterable {
         /**
          * 判断在给定条件下是否通过选择。
+         * <p>
+         * 若单个数据的判断耗时较长，可在其中通过 {@link FilterCancellation#isCanceled()}
+         * 检查本次过滤是否已被更新的条件取消。
          *
          * @param constraint 条件
          * @return true - 通过选择，即满足给定条件的要求
          */
         boolean filter(CharSequence constraint);
     }
+
+    /**
+     * 数据实现接口，提供用于建立搜索索引的关键字。
+     * <p>
+     * 启用搜索索引后，对于实现该接口的数据实体类，当任一关键字（不区分大小写）包含过滤条件时即通过选择，
+     * 此时不再调用 {@link Filterable#filter(CharSequence)}。
+     * 对于未实现该接口的数据实体类，仍按 {@link Filterable} 的规则判断。
+     */
+    interface Indexable {
+        /**
+         * 获取用于搜索的关键字。返回值在数据重新设置前不应改变。
+         *
+         * @return 关键字列表
+         */
+        CharSequence[] searchKeys();
+    }
 }
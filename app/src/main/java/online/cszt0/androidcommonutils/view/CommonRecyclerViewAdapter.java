@@ -1,6 +1,7 @@
 package online.cszt0.androidcommonutils.view;
 
 import android.content.Context;
+import android.text.TextUtils;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -9,16 +10,35 @@ import android.widget.Filter;
 import androidx.annotation.LayoutRes;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListUpdateCallback;
 import androidx.recyclerview.widget.RecyclerView;
 
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 
+import online.cszt0.androidcommonutils.view.internal.AsyncDiffer;
+import online.cszt0.androidcommonutils.view.internal.ChunkedList;
 import online.cszt0.androidcommonutils.view.internal.FilterImpl;
+import online.cszt0.androidcommonutils.view.internal.FilteredList;
+import online.cszt0.androidcommonutils.view.internal.InflatePool;
+import online.cszt0.androidcommonutils.view.internal.ItemIdIndex;
+import online.cszt0.androidcommonutils.view.internal.Metrics;
+import online.cszt0.androidcommonutils.view.internal.PrepareCache;
 import online.cszt0.androidcommonutils.view.internal.RecyclerViewViewHolderImpl;
+import online.cszt0.androidcommonutils.view.internal.Snapshots;
+import online.cszt0.androidcommonutils.view.internal.Sorter;
+import online.cszt0.androidcommonutils.view.internal.TrimRegistry;
+import online.cszt0.androidcommonutils.view.internal.ViewLookupTable;
+import online.cszt0.androidcommonutils.view.internal.ViewTypeTable;
 
 /**
  * RecyclerView 适配器
+ * <p>
+ * 在 RecyclerView 中以布局资源 id 作为视图类型，使用相同布局的适配器可通过
+ * {@link SharedViewPool} 共享回收的视图。{@link #bindView(ViewHolder, Object, int, int)}
+ * 等方法中的 viewType 仍为布局在构造参数中的序号。
  *
  * @param <Data> 数据集类型
  * @see RecyclerView
@@ -27,95 +47,985 @@ public abstract class CommonRecyclerViewAdapter<Data> extends RecyclerView.Adapt
     private Context mContext;
     private List<Data> mData;
     private List<Data> mFilterData;
+    private List<Data> mShownData;
     private int[] mLayout;
+    private FilterImpl<Data> mFilter;
+    private InflatePool mInflatePool;
+    private PrepareCache mPrepareCache;
+    private SharedViewPool mViewPool;
+    private AsyncDiffer<Data> mDiffer;
+    private DiffUtil.ItemCallback<Data> mItemCallback;
+    private Comparator<? super Data> mComparator;
+    private Sorter<Data> mSorter;
+    private CharSequence mSortConstraint;
+    private final ItemIdIndex mIdIndex = new ItemIdIndex();
+    private final ViewTypeTable mViewTypes;
+    private final AdapterStats mStats = new AdapterStats();
+    private int mShownVersion;
+    private ListUpdateCallback mShownDataCallback;
+    private boolean mDispatching;
+    private int mAttachedCount;
+    private final TrimRegistry.Trimmable mTrimmable = new TrimRegistry.Trimmable() {
+        @Override
+        public void trim(int level, @NonNull TrimRegistry.Freed freed) {
+            trimMemory(level, freed);
+        }
+    };
+    // 外部直接修改数据集后发出的通知，需要同步更新类型表与 id 索引
+    private final RecyclerView.AdapterDataObserver mDataObserver = new RecyclerView.AdapterDataObserver() {
+        @Override
+        public void onChanged() {
+            onDataModified();
+        }
+
+        @Override
+        public void onItemRangeChanged(int positionStart, int itemCount) {
+            if (!mDispatching) {
+                mViewTypes.update(positionStart, itemCount);
+                mIdIndex.update(positionStart, itemCount);
+            }
+        }
+
+        @Override
+        public void onItemRangeInserted(int positionStart, int itemCount) {
+            onDataModified();
+        }
+
+        @Override
+        public void onItemRangeRemoved(int positionStart, int itemCount) {
+            onDataModified();
+        }
+
+        @Override
+        public void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
+            onDataModified();
+        }
+    };
+    private final PagedList.Callback mPagedCallback = new PagedList.Callback() {
+        @Override
+        public void onItemRangeLoaded(int start, int count) {
+            mIdIndex.invalidate(mShownData);
+            notifyItemRangeChanged(start, count);
+        }
+
+        @Override
+        public void onItemRangeRemoved(int start, int count) {
+            mIdIndex.invalidate(mShownData);
+            notifyItemRangeRemoved(start, count);
+        }
+    };
+
+    // 细粒度修改时，显示数据集中的变化范围
+    private final ListUpdateCallback mUpdateCallback = new ListUpdateCallback() {
+        @Override
+        public void onInserted(int position, int count) {
+            mViewTypes.insert(position, count);
+            mIdIndex.insert(position, count);
+            if (mShownDataCallback != null) {
+                mShownDataCallback.onInserted(position, count);
+            }
+            mDispatching = true;
+            notifyItemRangeInserted(position, count);
+            mDispatching = false;
+        }
+
+        @Override
+        public void onRemoved(int position, int count) {
+            mViewTypes.remove(position, count);
+            mIdIndex.remove(position, count);
+            if (mShownDataCallback != null) {
+                mShownDataCallback.onRemoved(position, count);
+            }
+            mDispatching = true;
+            notifyItemRangeRemoved(position, count);
+            mDispatching = false;
+        }
+
+        @Override
+        public void onMoved(int fromPosition, int toPosition) {
+            mViewTypes.move(fromPosition, toPosition);
+            mIdIndex.move(fromPosition, toPosition);
+            if (mShownDataCallback != null) {
+                mShownDataCallback.onMoved(fromPosition, toPosition);
+            }
+            mDispatching = true;
+            notifyItemMoved(fromPosition, toPosition);
+            mDispatching = false;
+        }
+
+        @Override
+        public void onChanged(int position, int count, @Nullable Object payload) {
+            mViewTypes.update(position, count);
+            mIdIndex.update(position, count);
+            if (mShownDataCallback != null) {
+                mShownDataCallback.onChanged(position, count, payload);
+            }
+            mDispatching = true;
+            notifyItemRangeChanged(position, count, payload);
+            mDispatching = false;
+        }
+    };
 
     /**
      * 构造适配器
      *
      * @param context  应用程序上下文
-     * @param dataList 数据集。若构建适配器时没有数据集，可传入 null
+     * @param dataList 数据集，将被复制，之后对它的修改不会影响适配器。若构建适配器时没有数据集，可传入 null。
+     *                 传入 {@link PagedList} 时按页懒加载
      * @param layouts  布局，根据 viewType 升序排列
      */
     public CommonRecyclerViewAdapter(@NonNull Context context, @Nullable List<Data> dataList, @NonNull @LayoutRes int... layouts) {
         mContext = context;
-        mData = dataList;
+        mData = dataList != null ? Snapshots.copyOf(dataList) : Collections.<Data>emptyList();
         mLayout = layouts;
-        if (dataList == null) {
-            mData = Collections.emptyList();
-        }
+        mViewTypes = new ViewTypeTable(layouts.length);
+        setShownData(mData);
+        TrimRegistry.register(mTrimmable);
     }
 
     /**
      * 将数据绑定到视图
      *
      * @param viewHolder 布局管理器
-     * @param data       数据
+     * @param data       数据。对于 {@link PagedList} 中尚未加载的位置，数据为 null
      * @param position   当前位置
      * @param viewType   视图类型
      */
     protected abstract void bindView(ViewHolder viewHolder, Data data, int position, int viewType);
 
+    /**
+     * 使用局部刷新信息将数据绑定到视图。
+     * <p>
+     * 当通过 {@link #notifyItemChanged(int, Object)} 或差异计算中
+     * {@link DiffUtil.ItemCallback#getChangePayload(Object, Object)} 提供了局部刷新信息时调用，
+     * 可仅更新发生变化的控件。默认实现调用 {@link #bindView(ViewHolder, Object, int, int)} 完整绑定。
+     *
+     * @param viewHolder 布局管理器
+     * @param data       数据
+     * @param position   当前位置
+     * @param viewType   视图类型
+     * @param payloads   局部刷新信息，不为空
+     */
+    protected void bindView(ViewHolder viewHolder, Data data, int position, int viewType, @NonNull List<Object> payloads) {
+        bindView(viewHolder, data, position, viewType);
+    }
+
+    /**
+     * 使用预处理结果将数据绑定到视图。
+     * <p>
+     * 设置了 {@link #setItemPreparer(ItemPreparer)} 后，完整绑定时调用该方法代替
+     * {@link #bindView(ViewHolder, Object, int, int)}。默认实现忽略预处理结果，调用该方法完整绑定。
+     *
+     * @param viewHolder 布局管理器
+     * @param data       数据。对于 {@link PagedList} 中尚未加载的位置，数据为 null
+     * @param prepared   {@link ItemPreparer#prepare(Object)} 的结果，类型与设置的预处理一致；数据为 null 时为 null
+     * @param position   当前位置
+     * @param viewType   视图类型
+     */
+    protected void bindPreparedView(@NonNull ViewHolder viewHolder, Data data, @Nullable Object prepared, int position, int viewType) {
+        bindView(viewHolder, data, position, viewType);
+    }
+
     private Data getData(int position) {
-        if (mFilterData != null) {
-            return mFilterData.get(position);
-        } else {
-            return mData.get(position);
-        }
+        return mShownData.get(position);
     }
 
+    /**
+     * 返回该位置的数据所使用的布局资源 id，而不是布局的序号
+     */
     @Override
     public int getItemViewType(int position) {
-        Data data = getData(position);
-        if (data instanceof CommonAdapterInterface.ViewTypeRequire) {
-            return ((ViewTypeRequire) data).viewType();
-        }
-        return 0;
+        return mLayout[mViewTypes.get(position)];
+    }
+
+    /**
+     * 获取当前显示的数据中各视图类型的数量，可用于
+     * {@link RecyclerView.RecycledViewPool#setMaxRecycledViews(int, int)} 按布局设置缓存数量。
+     *
+     * @return 以 viewType 为下标的数量数组，长度不小于布局数量
+     * @see #getLayout(int)
+     */
+    @NonNull
+    public int[] getViewTypeHistogram() {
+        return mViewTypes.histogram();
+    }
+
+    /**
+     * 获取视图类型所使用的布局
+     *
+     * @param viewType 视图类型
+     * @return 布局资源 id，即 RecyclerView 中的视图类型
+     */
+    @LayoutRes
+    public int getLayout(int viewType) {
+        return mLayout[viewType];
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return ItemIdIndex.idOf(getData(position), position);
+    }
+
+    /**
+     * 查询 id 对应的数据当前所在的位置。
+     * <p>
+     * 数据需实现 {@link CommonAdapterInterface.Identifiable}，否则 id 即为位置。
+     * 数据集被替换后首次查询时建立索引，之后的查询为常数时间；细粒度修改只更新变化的范围。
+     *
+     * @param itemId id
+     * @return 当前显示的数据中的位置；不存在时返回 {@link RecyclerView#NO_POSITION}
+     */
+    public int getPositionForItemId(long itemId) {
+        int position = mIdIndex.positionOf(itemId);
+        return position < 0 ? RecyclerView.NO_POSITION : position;
     }
 
     @NonNull
     @Override
     public RecyclerView.ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
-        View convertView = LayoutInflater.from(mContext).inflate(mLayout[viewType], parent, false);
-        ViewHolder viewHolder = new RecyclerViewViewHolderImpl(convertView);
+        // 视图类型即布局，创建的视图不依赖于适配器，可被其他适配器复用
+        int layout = viewType;
+        View convertView = mInflatePool != null ? mInflatePool.obtain(layout) : null;
+        if (convertView == null) {
+            convertView = inflate(layout, parent);
+        }
+        if ((Metrics.flags() & Metrics.RECORD) != 0) {
+            mStats.onCreate();
+        }
+        ViewHolder viewHolder = new RecyclerViewViewHolderImpl(convertView, ViewLookupTable.forLayout(layout));
         return (RecyclerView.ViewHolder) viewHolder;
     }
 
+    private View inflate(int layout, ViewGroup parent) {
+        int flags = Metrics.flags();
+        long start = Metrics.begin(flags, Metrics.SECTION_INFLATE);
+        View view = LayoutInflater.from(mContext).inflate(layout, parent, false);
+        long elapsed = Metrics.end(flags, start);
+        if (elapsed >= 0) {
+            Metrics.recordInflate(layout, elapsed);
+        }
+        return view;
+    }
+
+    private void recordBind(int flags, long start, int viewType) {
+        long elapsed = Metrics.end(flags, start);
+        if (elapsed >= 0) {
+            Metrics.recordBind(this, mStats.bindRecorder(viewType), viewType, elapsed);
+        }
+    }
+
+    /**
+     * 获取适配器的耗时统计。需要先通过 {@link AdapterMetrics#setEnabled(boolean)} 启用。
+     *
+     * @return 耗时统计
+     */
+    @NonNull
+    public AdapterStats getStats() {
+        return mStats;
+    }
+
+    @Override
+    public void onAttachedToRecyclerView(@NonNull RecyclerView recyclerView) {
+        super.onAttachedToRecyclerView(recyclerView);
+        // 设置到 RecyclerView 后才注册，以免影响 setHasStableIds
+        if (mAttachedCount++ == 0) {
+            registerAdapterDataObserver(mDataObserver);
+        }
+        if (mInflatePool != null && mInflatePool.isEnabled()) {
+            mInflatePool.start(recyclerView);
+        }
+        if (mViewPool != null && recyclerView.getRecycledViewPool() != mViewPool) {
+            recyclerView.setRecycledViewPool(mViewPool);
+        }
+    }
+
+    /**
+     * 设置共享的视图缓存池。适配器被设置到 RecyclerView 时，RecyclerView 将使用该缓存池，
+     * 因此应在 {@link RecyclerView#setAdapter(RecyclerView.Adapter)} 之前调用。
+     *
+     * @param pool 缓存池，可为 null
+     * @see SharedViewPool
+     */
+    public void setSharedViewPool(@Nullable SharedViewPool pool) {
+        mViewPool = pool;
+    }
+
+    /**
+     * 获取共享的视图缓存池
+     *
+     * @return 缓存池；未设置时返回 null
+     */
+    @Nullable
+    public SharedViewPool getSharedViewPool() {
+        return mViewPool;
+    }
+
+    /**
+     * 内存紧张时，释放被回收的视图中的位图
+     */
+    @Override
+    public void onViewRecycled(@NonNull RecyclerView.ViewHolder holder) {
+        super.onViewRecycled(holder);
+        if (holder instanceof RecyclerViewViewHolderImpl && TrimRegistry.isUnderPressure()) {
+            TrimRegistry.onReleasedOnRecycle(((RecyclerViewViewHolderImpl) holder).releaseImages());
+        }
+    }
+
+    @Override
+    public void onDetachedFromRecyclerView(@NonNull RecyclerView recyclerView) {
+        super.onDetachedFromRecyclerView(recyclerView);
+        if (--mAttachedCount == 0) {
+            unregisterAdapterDataObserver(mDataObserver);
+        }
+    }
+
     @Override
     public void onBindViewHolder(@NonNull RecyclerView.ViewHolder holder, int position) {
+        if (mShownData instanceof PagedList) {
+            ((PagedList<Data>) mShownData).loadAround(position);
+        }
+        Data data = getData(position);
+        // 视图的类型为布局，不同的 viewType 可能使用相同的布局，因此从类型表读取
+        int viewType = mViewTypes.get(position);
+        int flags = Metrics.flags();
+        long start = Metrics.begin(flags, Metrics.SECTION_BIND);
+        if (mPrepareCache != null) {
+            bindPreparedView((ViewHolder) holder, data, mPrepareCache.obtain(mShownData, position), position, viewType);
+        } else {
+            bindView((ViewHolder) holder, data, position, viewType);
+        }
+        recordBind(flags, start, viewType);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull RecyclerView.ViewHolder holder, int position, @NonNull List<Object> payloads) {
+        if (payloads.isEmpty()) {
+            onBindViewHolder(holder, position);
+            return;
+        }
         Data data = getData(position);
-        int itemViewType = getItemViewType(position);
-        bindView((ViewHolder) holder, data, position, itemViewType);
+        int viewType = mViewTypes.get(position);
+        int flags = Metrics.flags();
+        long start = Metrics.begin(flags, Metrics.SECTION_BIND);
+        bindView((ViewHolder) holder, data, position, viewType, payloads);
+        recordBind(flags, start, viewType);
     }
 
     @Override
     public int getItemCount() {
-        if (mFilterData != null) {
-            return mFilterData.size();
+        return mShownData.size();
+    }
+
+    /**
+     * 设置是否使用后台差异计算刷新视图。
+     * <p>
+     * 启用后，{@link #resetDataSet(List)}、{@link #setFilterData(List)} 与 {@link #clear()}
+     * 将在后台线程计算新旧数据集的差异，完成后仅分发发生变化的范围，而不是调用
+     * {@link #notifyDataSetChanged()}。若在计算完成前又提交了新的数据集，旧的计算将被丢弃。
+     * <p>
+     * 启用后，提交给适配器的数据集在计算期间不应再被修改；通过适配器的修改方法修改数据集不受此限制。
+     *
+     * @param enabled true - 启用后台差异计算
+     * @see #setDiffItemCallback(DiffUtil.ItemCallback)
+     */
+    public void setAsyncDiffEnabled(boolean enabled) {
+        if (enabled && mDiffer == null) {
+            mDiffer = new AsyncDiffer<>(this, new AsyncDiffer.Committer<Data>() {
+                @Override
+                public void commit(List<Data> newList) {
+                    setShownData(newList);
+                    mDispatching = true;
+                }
+
+                @Override
+                public void onDispatched() {
+                    mDispatching = false;
+                }
+            });
+            mDiffer.setItemCallback(mItemCallback);
+        } else if (!enabled && mDiffer != null) {
+            mDiffer.cancel();
+            mDiffer = null;
         }
-        return mData.size();
+    }
+
+    /**
+     * 设置差异计算时判断数据项是否相同的回调。
+     * <p>
+     * 若未设置，对于实现 {@link CommonAdapterInterface.Diffable} 的数据使用该接口判断，
+     * 其余数据使用 {@link Object#equals(Object)} 判断。
+     *
+     * @param itemCallback 回调，传入 null 时恢复默认判断
+     * @see #setAsyncDiffEnabled(boolean)
+     */
+    public void setDiffItemCallback(@Nullable DiffUtil.ItemCallback<Data> itemCallback) {
+        mItemCallback = itemCallback;
+        if (mDiffer != null) {
+            mDiffer.setItemCallback(itemCallback);
+        }
+    }
+
+    private void showData(List<Data> data) {
+        // 分页数据集中含有未加载的占位，无法计算差异
+        if (mDiffer != null && !(mShownData instanceof PagedList) && !(data instanceof PagedList)) {
+            mDiffer.submit(mShownData, data);
+        } else {
+            if (mDiffer != null) {
+                mDiffer.cancel();
+            }
+            setShownData(data);
+            mDispatching = true;
+            notifyDataSetChanged();
+            mDispatching = false;
+        }
+    }
+
+    private void setShownData(List<Data> data) {
+        if (mShownData instanceof PagedList) {
+            ((PagedList<Data>) mShownData).removeCallback(mPagedCallback);
+        }
+        mShownData = data;
+        mShownVersion++;
+        mIdIndex.invalidate(data);
+        mViewTypes.submit(data);
+        if (mPrepareCache != null) {
+            mPrepareCache.onDataSetChanged();
+        }
+        if (data instanceof PagedList) {
+            ((PagedList<Data>) data).addCallback(mPagedCallback);
+        }
+    }
+
+    /**
+     * 获取当前显示的数据集，供分组适配器使用
+     */
+    List<Data> getShownData() {
+        return mShownData;
+    }
+
+    /**
+     * 获取显示数据集的版本，显示数据集被替换后增加
+     */
+    int getShownVersion() {
+        return mShownVersion;
+    }
+
+    /**
+     * 判断当前的通知是否由适配器自身发出
+     */
+    boolean isDispatching() {
+        return mDispatching;
+    }
+
+    /**
+     * 设置细粒度修改时显示数据集变化的回调，在发出通知之前调用
+     */
+    void setShownDataCallback(@Nullable ListUpdateCallback callback) {
+        mShownDataCallback = callback;
+    }
+
+    private void onDataModified() {
+        if (!mDispatching) {
+            mViewTypes.invalidate();
+            mIdIndex.invalidate(mShownData);
+        }
+    }
+
+    /**
+     * 在第一个观察者注册前确定是否使用稳定 id：当时的数据实现 {@link CommonAdapterInterface.Identifiable}
+     * 时启用。有观察者后 RecyclerView 不允许再修改，因此设置到 RecyclerView（或被分组适配器包装）之后
+     * 才提供的 Identifiable 数据不会启用稳定 id，{@link #getItemId(int)} 仍返回其 id。
+     * 需要在空数据集时启用，请在设置到 RecyclerView 前调用 {@link #setHasStableIds(boolean)}。
+     */
+    @Override
+    public void registerAdapterDataObserver(@NonNull RecyclerView.AdapterDataObserver observer) {
+        if (!hasObservers() && !hasStableIds() && ItemIdIndex.hasStableIds(mData)) {
+            setHasStableIds(true);
+        }
+        super.registerAdapterDataObserver(observer);
     }
 
     @Override
     public void resetDataSet(List<Data> data) {
-        mData = data;
+        // 排序时复制到数组中排序，不会保留传入的列表
+        if (mComparator != null && !(data instanceof PagedList)) {
+            sort(data, true);
+            return;
+        }
+        if (mSorter != null) {
+            mSorter.cancel();
+        }
+        List<Data> oldFilterData = mFilterData;
+        // 复制传入的列表，之后使用者对它的修改不会与后台读取冲突
+        mData = Snapshots.copyOf(data);
         mFilterData = null;
-        notifyDataSetChanged();
+        if (mFilter != null) {
+            mFilter.invalidate();
+        }
+        showData(mData);
+        recycleFilterData(oldFilterData);
     }
 
     @Override
     public void clear() {
-        resetDataSet(Collections.emptyList());
+        if (mSorter != null) {
+            mSorter.cancel();
+        }
+        List<Data> oldFilterData = mFilterData;
+        mData = Collections.emptyList();
+        // 正在过滤时保留过滤条件，之后添加的数据仍按该条件过滤
+        mFilterData = oldFilterData != null ? Sorter.filter(mData, getFilterImpl(), getFilterImpl().getPublishedConstraint()) : null;
+        if (mFilter != null) {
+            mFilter.invalidate();
+        }
+        showData(mFilterData != null ? mFilterData : mData);
+        recycleFilterData(oldFilterData);
+    }
+
+    /**
+     * 设置排序使用的比较器。
+     * <p>
+     * 设置后，数据集将按比较器排序（数据量较大时在后台线程排序，完成后刷新），
+     * 之后 {@link #resetDataSet(List)} 设置的数据集同样会被排序，
+     * {@link #add(Object)} 与 {@link #update(int, Object)} 将按二分查找把数据放到有序的位置，
+     * 此时不能再使用 {@link #insert(int, Object)}、{@link #insertRange(int, List)} 与 {@link #move(int, int)}。
+     * 正在过滤时，排序与过滤在同一趟中完成，过滤结果保持有序。
+     * <p>
+     * 排序是稳定的。比较器应与数据的内容一致：数据的排序依据改变后，应通过 {@link #update(int, Object)} 通知适配器。
+     *
+     * @param comparator 比较器，传入 null 时取消排序并保持当前顺序
+     * @throws UnsupportedOperationException 数据集为 {@link PagedList}
+     */
+    public void setComparator(@Nullable Comparator<? super Data> comparator) {
+        mComparator = comparator;
+        if (comparator == null) {
+            if (mSorter != null) {
+                mSorter.flush();
+            }
+            return;
+        }
+        if (mData instanceof PagedList) {
+            throw new UnsupportedOperationException("PagedList does not support sorting");
+        }
+        sort(mData, false);
+    }
+
+    /**
+     * 获取排序使用的比较器
+     *
+     * @return 比较器；未排序时为 null
+     */
+    @Nullable
+    public Comparator<? super Data> getComparator() {
+        return mComparator;
+    }
+
+    /**
+     * 排序数据集，过滤与排序在同一趟中完成
+     *
+     * @param data  数据集
+     * @param reset 是否为重新设置的数据集，此时清除过滤结果
+     */
+    private void sort(List<Data> data, final boolean reset) {
+        if (mSorter == null) {
+            mSorter = new Sorter<>();
+        }
+        boolean filtering = !reset && mFilterData != null;
+        mSortConstraint = filtering ? getFilterImpl().getPublishedConstraint() : null;
+        mSorter.sort(data, mComparator, filtering ? getFilterImpl() : null, mSortConstraint, new Sorter.Callback<Data>() {
+            @Override
+            public void onSorted(@NonNull ChunkedList<Data> sorted, @Nullable FilteredList<Data> filtered) {
+                showSorted(sorted, filtered, reset);
+            }
+        });
+    }
+
+    private void showSorted(ChunkedList<Data> sorted, FilteredList<Data> filtered, boolean reset) {
+        List<Data> oldFilterData = mFilterData;
+        // 排序期间过滤条件可能已经变化
+        if (reset || oldFilterData == null) {
+            filtered = null;
+        } else if (filtered == null || !TextUtils.equals(mSortConstraint, getFilterImpl().getPublishedConstraint())) {
+            filtered = Sorter.filter(sorted, getFilterImpl(), getFilterImpl().getPublishedConstraint());
+        }
+        mData = sorted;
+        mFilterData = filtered;
+        if (mFilter != null) {
+            mFilter.invalidate();
+        }
+        showData(filtered != null ? filtered : sorted);
+        recycleFilterData(oldFilterData);
+    }
+
+    /**
+     * 添加数据。排序时按比较器插入到有序的位置，否则追加到末尾。
+     *
+     * @param data 数据
+     * @see #setComparator(Comparator)
+     */
+    @Override
+    public void add(Data data) {
+        ChunkedList<Data> list = mutableData();
+        int position = mComparator != null ? Sorter.insertionPoint(list, data, mComparator) : list.size();
+        insertAt(position, Collections.singletonList(data));
+    }
+
+    @Override
+    public void insert(int position, Data data) {
+        insertRange(position, Collections.singletonList(data));
+    }
+
+    @Override
+    public void insertRange(int position, List<? extends Data> dataList) {
+        checkUnsorted();
+        insertAt(position, dataList);
+    }
+
+    private void insertAt(int position, List<? extends Data> dataList) {
+        mutableData().addAll(position, dataList);
+        if (mFilterData == null) {
+            mUpdateCallback.onInserted(position, dataList.size());
+        } else if (mFilterData instanceof FilteredList) {
+            ((FilteredList<Data>) mFilterData).onInserted(position, dataList.size(), getFilterImpl(), mUpdateCallback);
+        }
+        onMutated();
+    }
+
+    @Override
+    public void remove(int position) {
+        removeRange(position, 1);
+    }
+
+    @Override
+    public void removeRange(int position, int count) {
+        mutableData().subList(position, position + count).clear();
+        if (mFilterData == null) {
+            mUpdateCallback.onRemoved(position, count);
+        } else if (mFilterData instanceof FilteredList) {
+            ((FilteredList<Data>) mFilterData).onRemoved(position, count, mUpdateCallback);
+        }
+        onMutated();
+    }
+
+    @Override
+    public void move(int fromPosition, int toPosition) {
+        checkUnsorted();
+        ChunkedList<Data> data = mutableData();
+        data.add(toPosition, data.remove(fromPosition));
+        if (mFilterData == null) {
+            mUpdateCallback.onMoved(fromPosition, toPosition);
+        } else if (mFilterData instanceof FilteredList) {
+            ((FilteredList<Data>) mFilterData).onMoved(fromPosition, toPosition, mUpdateCallback);
+        }
+        onMutated();
+    }
+
+    @Override
+    public void update(int position, Data data) {
+        update(position, data, null);
+    }
+
+    /**
+     * 替换数据集中指定位置的数据，并提供局部刷新信息
+     *
+     * @param position 位置
+     * @param data     新的数据
+     * @param payload  局部刷新信息，将传递给 {@link #bindView(ViewHolder, Object, int, int, List)}
+     * @see #update(int, Object)
+     */
+    public void update(int position, Data data, @Nullable Object payload) {
+        ChunkedList<Data> list = mutableData();
+        int newPosition = position;
+        if (mComparator != null) {
+            list.remove(position);
+            newPosition = Sorter.repositionPoint(list, position, data, mComparator);
+            list.add(newPosition, data);
+        } else {
+            list.set(position, data);
+        }
+        if (mFilterData == null) {
+            if (newPosition != position) {
+                mUpdateCallback.onMoved(position, newPosition);
+            }
+            mUpdateCallback.onChanged(newPosition, 1, payload);
+        } else if (mFilterData instanceof FilteredList) {
+            FilteredList<Data> filtered = (FilteredList<Data>) mFilterData;
+            filtered.onMoved(position, newPosition, mUpdateCallback);
+            filtered.onChanged(newPosition, payload, getFilterImpl(), mUpdateCallback);
+        }
+        onMutated();
+    }
+
+    private void checkUnsorted() {
+        if (mComparator != null) {
+            throw new IllegalStateException("Positional insert and move are not allowed while sorted, use add() instead");
+        }
+    }
+
+    /**
+     * 准备进行细粒度修改：将数据集转换为分段列表，并将过滤结果转换为可同步更新的视图。
+     * 过滤结果中含有不在数据集中的数据时，以当前条件重新过滤
+     */
+    private ChunkedList<Data> mutableData() {
+        if (mData instanceof PagedList) {
+            throw new UnsupportedOperationException("PagedList does not support modification");
+        }
+        // 修改须基于排序完成后的数据集
+        if (mSorter != null) {
+            mSorter.flush();
+        }
+        // 尚未分发的差异计算基于修改前的数据集，直接切换到目标数据集
+        if (mDiffer != null && mDiffer.isPending()) {
+            mDiffer.cancel();
+            setShownData(mFilterData != null ? mFilterData : mData);
+            mDispatching = true;
+            notifyDataSetChanged();
+            mDispatching = false;
+        }
+        if (!(mData instanceof ChunkedList)) {
+            boolean shown = mShownData == mData;
+            mData = new ChunkedList<>(mData);
+            if (shown) {
+                setShownData(mData);
+            }
+        }
+        if (mFilterData != null && !(mFilterData instanceof FilteredList && ((FilteredList<Data>) mFilterData).isFor(mData))) {
+            FilteredList<Data> filtered = FilteredList.of(mData, mFilterData);
+            boolean refiltered = filtered == null;
+            if (refiltered) {
+                filtered = Sorter.filter(mData, getFilterImpl(), getFilterImpl().getPublishedConstraint());
+            }
+            List<Data> oldFilterData = mFilterData;
+            mFilterData = filtered;
+            setShownData(filtered);
+            recycleFilterData(oldFilterData);
+            if (refiltered) {
+                mDispatching = true;
+                notifyDataSetChanged();
+                mDispatching = false;
+            }
+        }
+        return (ChunkedList<Data>) mData;
+    }
+
+    private void onMutated() {
+        if (mFilter != null) {
+            mFilter.invalidate();
+        }
+    }
+
+    /**
+     * 设置指定 viewType 的布局的预加载数量。
+     * <p>
+     * 调用 {@link #preInflate(ViewGroup)} 后，将在后台线程提前加载指定数量的布局，
+     * 创建视图时优先使用预加载的布局，用完后在主线程空闲时补足。
+     * 布局中的控件须能够在后台线程构造，否则该布局将退回同步加载。
+     *
+     * @param viewType 视图类型
+     * @param count    预加载数量，0 表示不预加载
+     */
+    public void setPreInflateCount(int viewType, int count) {
+        getInflatePool().setTarget(mLayout[viewType], count);
+    }
+
+    /**
+     * 开始预加载布局。应在列表显示之前调用。
+     * 适配器被设置到 RecyclerView 时会自动以其作为父布局开始预加载。
+     *
+     * @param parent 视图将要添加到的父布局
+     * @see #setPreInflateCount(int, int)
+     */
+    public void preInflate(@NonNull ViewGroup parent) {
+        getInflatePool().start(parent);
+    }
+
+    /**
+     * 获取创建视图时命中预加载布局的次数
+     *
+     * @return 命中次数
+     */
+    public int getPreInflateHitCount() {
+        return mInflatePool == null ? 0 : mInflatePool.getHitCount();
+    }
+
+    /**
+     * 获取创建视图时预加载布局已用完、需要同步加载的次数
+     *
+     * @return 未命中次数
+     */
+    public int getPreInflateMissCount() {
+        return mInflatePool == null ? 0 : mInflatePool.getMissCount();
+    }
+
+    private InflatePool getInflatePool() {
+        if (mInflatePool == null) {
+            mInflatePool = new InflatePool(mContext);
+        }
+        return mInflatePool;
+    }
+
+    /**
+     * 内存紧张时释放预处理结果、预加载的布局与可重建的索引，正在显示的数据不受影响
+     */
+    private void trimMemory(int level, TrimRegistry.Freed freed) {
+        if (mPrepareCache != null) {
+            freed.preparedItems += mPrepareCache.trimMemory(level);
+        }
+        if (mInflatePool != null && TrimRegistry.shouldClear(level)) {
+            freed.pooledViews += mInflatePool.clear();
+        }
+        if (mFilter != null) {
+            freed.derivedStructures += mFilter.trimMemory(level);
+        }
+        if (TrimRegistry.shouldDropDerived(level) && mIdIndex.trim()) {
+            freed.derivedStructures++;
+        }
+    }
+
+    /**
+     * 设置绑定前的预处理。
+     * <p>
+     * 绑定某一位置时，将在后台线程为沿滚动方向之后的若干个数据调用预处理，
+     * 结果按数据对象缓存，绑定时传递给 {@link #bindPreparedView(ViewHolder, Object, Object, int, int)}；
+     * 结果尚未完成时在主线程同步预处理。
+     *
+     * @param preparer 预处理，传入 null 时取消预处理并清空缓存
+     * @see #setItemPreparer(ItemPreparer, int)
+     */
+    public void setItemPreparer(@Nullable ItemPreparer<? super Data, ?> preparer) {
+        setItemPreparer(preparer, PrepareCache.DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * 设置绑定前的预处理，并指定缓存的结果数量。超出数量时淘汰最久未使用的结果
+     *
+     * @param preparer  预处理，传入 null 时取消预处理并清空缓存
+     * @param cacheSize 缓存的结果数量，应大于一屏显示的数量
+     */
+    public void setItemPreparer(@Nullable ItemPreparer<? super Data, ?> preparer, int cacheSize) {
+        if (mPrepareCache != null) {
+            mPrepareCache.clear();
+        }
+        mPrepareCache = preparer == null ? null : new PrepareCache(preparer, cacheSize);
+    }
+
+    /**
+     * 清空预处理结果的缓存。在不替换数据对象的情况下修改了数据内容时调用
+     */
+    public void invalidatePrepared() {
+        if (mPrepareCache != null) {
+            mPrepareCache.clear();
+        }
+    }
+
+    /**
+     * 获取绑定时预处理结果已在缓存中的次数
+     *
+     * @return 命中次数
+     */
+    public int getPrepareHitCount() {
+        return mPrepareCache == null ? 0 : mPrepareCache.getHitCount();
+    }
+
+    /**
+     * 获取绑定时预处理结果尚未完成、需要同步预处理的次数
+     *
+     * @return 未命中次数
+     */
+    public int getPrepareMissCount() {
+        return mPrepareCache == null ? 0 : mPrepareCache.getMissCount();
     }
 
     @Override
     public Filter getFilter() {
-        return new FilterImpl<>(this);
+        return getFilterImpl();
+    }
+
+    private FilterImpl<Data> getFilterImpl() {
+        if (mFilter == null) {
+            mFilter = new FilterImpl<>(this);
+            mFilter.setRecorders(mStats.mFilterRecorder, mStats.mPublishRecorder);
+        }
+        return mFilter;
+    }
+
+    /**
+     * 按条件过滤显示的数据，适用于随输入实时过滤。必须在主线程调用。
+     * <p>
+     * 与 {@link #getFilter()} 的 {@link Filter#filter(CharSequence)} 不同，新的条件将取消正在进行的过滤，
+     * 并替换尚未开始的条件，只有最新的条件的结果会被显示。
+     * 设置了 {@link #setFilterDebounce(long)} 时，条件在防抖时间内没有变化后才开始过滤。
+     *
+     * @param constraint 过滤条件
+     * @see FilterCancellation
+     */
+    public void filter(@Nullable CharSequence constraint) {
+        getFilterImpl().request(constraint);
+    }
+
+    /**
+     * 设置 {@link #filter(CharSequence)} 的防抖时间
+     *
+     * @param delayMillis 条件变化后等待的毫秒数，0 表示立即过滤（默认）
+     */
+    public void setFilterDebounce(long delayMillis) {
+        getFilterImpl().setDebounce(delayMillis);
+    }
+
+    /**
+     * 设置是否启用增量过滤。
+     * <p>
+     * 启用后，若新的过滤条件以上一次的条件开头（如输入 "ab" 后继续输入 "abc"），
+     * 则仅在上一次的过滤结果中继续过滤，而不是重新扫描整个数据集。
+     * 仅当 {@link CommonAdapterInterface.Filterable#filter(CharSequence)} 满足
+     * “不满足某条件的数据，也不满足以该条件开头的更长的条件”时才应启用，例如包含或前缀匹配。
+     *
+     * @param enabled true - 启用增量过滤
+     */
+    public void setIncrementalFilterEnabled(boolean enabled) {
+        getFilterImpl().setIncremental(enabled);
+    }
+
+    /**
+     * 设置并行过滤的数据量阈值。
+     * <p>
+     * 当参与过滤的数据量不小于该阈值时，数据集将被分段后在 {@link java.util.concurrent.ForkJoinPool}
+     * 中并行过滤，结果保持原有顺序。适用于单个数据的过滤代价较高（如正则、多字段匹配）的场景。
+     * 启用后 {@link CommonAdapterInterface.Filterable#filter(CharSequence)} 将在多个线程中同时调用。
+     *
+     * @param threshold 阈值，小于等于 0 时不使用并行过滤（默认）
+     */
+    public void setParallelFilterThreshold(int threshold) {
+        getFilterImpl().setParallelThreshold(threshold);
+    }
+
+    /**
+     * 设置是否使用搜索索引过滤。
+     * <p>
+     * 启用后，每次数据集重新设置时，将在后台线程为实现了 {@link CommonAdapterInterface.Indexable}
+     * 的数据建立 n-gram 倒排索引，之后的过滤通过查询索引完成，无需逐个检查数据。
+     * 索引建立完成前，仍按原方式过滤。重建索引时会复用未变化的数据对象已有的索引内容。
+     *
+     * @param enabled true - 使用搜索索引
+     * @see CommonAdapterInterface.Indexable
+     */
+    public void setSearchIndexEnabled(boolean enabled) {
+        getFilterImpl().setIndexEnabled(enabled);
     }
 
     @Override
     public void setFilterData(List<Data> data) {
+        List<Data> oldFilterData = mFilterData;
         mFilterData = data;
-        notifyDataSetChanged();
+        showData(data != null ? data : mData);
+        recycleFilterData(oldFilterData);
+    }
+
+    private void recycleFilterData(List<Data> filterData) {
+        // 启用后台差异计算时，旧的数据集可能仍在被读取
+        if (mFilter != null && mDiffer == null && filterData != mShownData) {
+            mFilter.recycle(filterData);
+        }
     }
 
     @Override
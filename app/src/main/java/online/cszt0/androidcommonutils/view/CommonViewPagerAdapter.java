@@ -11,6 +11,7 @@ import androidx.fragment.app.FragmentPagerAdapter;
  *
  * @see androidx.viewpager.widget.ViewPager
  * @see Fragment
+ * @see LazyViewPagerAdapter
  */
 public class CommonViewPagerAdapter extends FragmentPagerAdapter {
     private final Fragment[] fragments;
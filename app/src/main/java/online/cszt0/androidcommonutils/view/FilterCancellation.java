@@ -0,0 +1,41 @@
+package online.cszt0.androidcommonutils.view;
+
+import android.os.OperationCanceledException;
+
+import online.cszt0.androidcommonutils.view.internal.FilterImpl;
+
+/**
+ * 查询过滤是否已被取消。
+ * <p>
+ * 通过适配器的 {@code filter(CharSequence)} 提交新的条件后，正在进行的过滤即被取消。
+ * 过滤时会定期检查取消状态，但若 {@link CommonAdapterInterface.Filterable#filter(CharSequence)}
+ * 中单个数据的判断耗时较长（如复杂的正则或多字段匹配），可在判断过程中调用本类的方法提前结束。
+ * 开销仅为一次线程局部变量的读取。
+ *
+ * @see CommonRecyclerViewAdapter#filter(CharSequence)
+ * @see CommonAdapterViewAdapter#filter(CharSequence)
+ */
+public final class FilterCancellation {
+    private FilterCancellation() {
+    }
+
+    /**
+     * 判断当前线程中正在进行的过滤是否已被取消
+     *
+     * @return true - 已被取消，判断结果将被丢弃；不在过滤中调用时返回 false
+     */
+    public static boolean isCanceled() {
+        return FilterImpl.isCurrentPassCanceled();
+    }
+
+    /**
+     * 若当前线程中正在进行的过滤已被取消，抛出异常以立即结束过滤
+     *
+     * @throws OperationCanceledException 过滤已被取消
+     */
+    public static void throwIfCanceled() {
+        if (FilterImpl.isCurrentPassCanceled()) {
+            throw new OperationCanceledException();
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package online.cszt0.androidcommonutils.view;
+
+import android.graphics.Bitmap;
+import android.widget.ImageView;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+
+import java.io.IOException;
+
+import online.cszt0.androidcommonutils.view.internal.ImageEngine;
+
+/**
+ * 图片加载的全局配置。
+ * <p>
+ * 通过 {@link ViewHolder#loadImageViewImage(int, ImageSource)} 设置的图片在后台线程解码，
+ * 按控件大小缩小采样，解码结果保存在按字节计算大小的 LRU 内存缓存中。
+ * 不再使用的位图会被保留一部分，用于复用内存解码新的图片。
+ * 当视图被重新绑定到其他图片时，尚未完成的加载会被取消。
+ */
+public final class ImageLoader {
+    private ImageLoader() {
+    }
+
+    /**
+     * 图片解码器
+     */
+    public interface Decoder {
+        /**
+         * 解码图片。该方法在后台线程调用。
+         *
+         * @param source    图片来源
+         * @param reqWidth  目标宽度，解码结果不必超过该宽度
+         * @param reqHeight 目标高度，解码结果不必超过该高度
+         * @return 位图；无法解码时返回 null
+         * @throws IOException 读取失败
+         */
+        @WorkerThread
+        @Nullable
+        Bitmap decode(@NonNull ImageSource source, int reqWidth, int reqHeight) throws IOException;
+    }
+
+    /**
+     * 异步加载图片并显示在控件上，用于适配器以外的控件。
+     * 缓存、采样与取消的规则与 {@link ViewHolder#loadImageViewImage(int, ImageSource)} 相同
+     *
+     * @param view   控件
+     * @param source 图片来源
+     */
+    @MainThread
+    public static void load(@NonNull ImageView view, @NonNull ImageSource source) {
+        ImageEngine.getInstance().bind(view, source);
+    }
+
+    /**
+     * 设置内存缓存的最大字节数，默认为最大可用内存的 1/8
+     *
+     * @param bytes 最大字节数
+     */
+    public static void setMemoryCacheSize(int bytes) {
+        ImageEngine.getInstance().setMemoryCacheSize(bytes);
+    }
+
+    /**
+     * 获取内存缓存当前占用的字节数
+     *
+     * @return 占用的字节数
+     */
+    public static int getMemoryCacheSize() {
+        return ImageEngine.getInstance().getMemoryCacheSize();
+    }
+
+    /**
+     * 设置图片解码器
+     *
+     * @param decoder 解码器，传入 null 时恢复默认的 {@link android.graphics.BitmapFactory} 实现
+     */
+    public static void setDecoder(@Nullable Decoder decoder) {
+        ImageEngine.getInstance().setDecoder(decoder);
+    }
+
+    /**
+     * 清空内存缓存。正在显示的图片不受影响。
+     */
+    public static void clearMemoryCache() {
+        ImageEngine.getInstance().clear();
+    }
+}
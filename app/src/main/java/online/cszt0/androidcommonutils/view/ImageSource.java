@@ -0,0 +1,162 @@
+package online.cszt0.androidcommonutils.view;
+
+import android.content.Context;
+import android.net.Uri;
+
+import androidx.annotation.NonNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * 图片来源，用于 {@link ViewHolder#loadImageViewImage(int, ImageSource)}。
+ * <p>
+ * 图片将在后台线程解码，并根据控件大小缩小采样。相同来源、相同大小的解码结果会缓存在内存中。
+ *
+ * @see ImageLoader
+ */
+public abstract class ImageSource {
+    /**
+     * 获取缓存使用的键。相同键的来源应当得到相同的图片。
+     *
+     * @return 缓存键
+     */
+    @NonNull
+    public abstract String getCacheKey();
+
+    /**
+     * 打开图片数据流。解码时可能多次调用，每次都应返回从头开始的新数据流。
+     *
+     * @return 数据流
+     * @throws IOException 无法打开
+     */
+    @NonNull
+    public abstract InputStream openStream() throws IOException;
+
+    /**
+     * 从文件加载图片
+     *
+     * @param file 文件
+     * @return 图片来源
+     */
+    @NonNull
+    public static ImageSource fromFile(@NonNull final File file) {
+        return new ImageSource() {
+            @NonNull
+            @Override
+            public String getCacheKey() {
+                // 文件被修改后应当重新解码
+                return "file:" + file.getAbsolutePath() + "#" + file.lastModified();
+            }
+
+            @NonNull
+            @Override
+            public InputStream openStream() throws IOException {
+                return new FileInputStream(file);
+            }
+        };
+    }
+
+    /**
+     * 从 Uri 加载图片，支持 <code>content://</code>、<code>file://</code> 与 <code>android.resource://</code>
+     *
+     * @param context 上下文
+     * @param uri     Uri
+     * @return 图片来源
+     */
+    @NonNull
+    public static ImageSource fromUri(@NonNull Context context, @NonNull final Uri uri) {
+        final Context applicationContext = context.getApplicationContext();
+        return new ImageSource() {
+            @NonNull
+            @Override
+            public String getCacheKey() {
+                return "uri:" + uri;
+            }
+
+            @NonNull
+            @Override
+            public InputStream openStream() throws IOException {
+                InputStream stream = applicationContext.getContentResolver().openInputStream(uri);
+                if (stream == null) {
+                    throw new FileNotFoundException(uri.toString());
+                }
+                return stream;
+            }
+        };
+    }
+
+    /**
+     * 从 assets 加载图片
+     *
+     * @param context 上下文
+     * @param path    assets 中的路径
+     * @return 图片来源
+     */
+    @NonNull
+    public static ImageSource fromAsset(@NonNull Context context, @NonNull final String path) {
+        final Context applicationContext = context.getApplicationContext();
+        return new ImageSource() {
+            @NonNull
+            @Override
+            public String getCacheKey() {
+                return "asset:" + path;
+            }
+
+            @NonNull
+            @Override
+            public InputStream openStream() throws IOException {
+                return applicationContext.getAssets().open(path);
+            }
+        };
+    }
+
+    /**
+     * 从内存中的数据加载图片。数据在加载完成前不应被修改。
+     *
+     * @param bytes 图片数据
+     * @return 图片来源
+     */
+    @NonNull
+    public static ImageSource fromBytes(@NonNull final byte[] bytes) {
+        return new ImageSource() {
+            private String key;
+
+            @NonNull
+            @Override
+            public String getCacheKey() {
+                if (key == null) {
+                    key = "bytes:" + digest(bytes);
+                }
+                return key;
+            }
+
+            @NonNull
+            @Override
+            public InputStream openStream() {
+                return new ByteArrayInputStream(bytes);
+            }
+        };
+    }
+
+    private static String digest(byte[] bytes) {
+        try {
+            byte[] res = MessageDigest.getInstance("SHA-1").digest(bytes);
+            StringBuilder builder = new StringBuilder(res.length * 2);
+            for (byte b : res) {
+                builder.append(Character.forDigit((b >> 4) & 0xf, 16));
+                builder.append(Character.forDigit(b & 0xf, 16));
+            }
+            return builder.toString();
+        } catch (NoSuchAlgorithmException e) {
+            // 不会发生，SHA-1 总是可用
+            throw new IllegalStateException(e);
+        }
+    }
+}
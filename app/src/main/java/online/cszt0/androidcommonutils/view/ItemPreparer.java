@@ -0,0 +1,33 @@
+package online.cszt0.androidcommonutils.view;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+
+/**
+ * 绑定前的数据预处理。
+ * <p>
+ * 将绑定时耗时的计算（如生成 {@link android.text.PrecomputedText}、格式化日期、渲染 Markdown）
+ * 移到后台线程：适配器在绑定某一位置时，于后台为即将显示的数据调用 {@link #prepare(Object)}，
+ * 结果按数据对象缓存，绑定时通过 {@code bindPreparedView} 传入。
+ * 若绑定时结果尚未完成，将在主线程同步调用。
+ * <p>
+ * 结果以数据对象本身（而非 {@link Object#equals(Object)}）为键缓存，
+ * 因此数据内容变化时应替换为新的对象，或调用适配器的 {@code invalidatePrepared()}。
+ *
+ * @param <Data>     数据类型
+ * @param <Prepared> 预处理结果类型
+ * @see CommonRecyclerViewAdapter#setItemPreparer(ItemPreparer)
+ * @see CommonAdapterViewAdapter#setItemPreparer(ItemPreparer)
+ */
+public interface ItemPreparer<Data, Prepared> {
+    /**
+     * 预处理数据。该方法通常在后台线程调用，也可能在主线程调用，且可能被多个线程同时调用
+     *
+     * @param data 数据
+     * @return 预处理结果，将传递给 {@code bindPreparedView}
+     */
+    @WorkerThread
+    @Nullable
+    Prepared prepare(@NonNull Data data);
+}
@@ -0,0 +1,129 @@
+package online.cszt0.androidcommonutils.view;
+
+import androidx.annotation.NonNull;
+
+/**
+ * 耗时直方图的快照。
+ * <p>
+ * 按耗时的二进制位数分桶：第 0 个桶记录耗时为 0 的样本，第 i 个桶记录 [2^(i-1), 2^i) 纳秒的样本。
+ * 百分位数以所在桶的上界估计，误差不超过一倍。
+ *
+ * @see AdapterMetrics
+ */
+public final class LatencyHistogram {
+    /**
+     * 桶的数量
+     */
+    public static final int BUCKET_COUNT = 64;
+
+    /**
+     * 没有样本的直方图
+     */
+    public static final LatencyHistogram EMPTY = new LatencyHistogram(new long[BUCKET_COUNT], 0, 0);
+
+    private final long[] mCounts;
+    private final long mCount;
+    private final long mTotalNanos;
+    private final long mMaxNanos;
+
+    /**
+     * @hide
+     */
+    public LatencyHistogram(@NonNull long[] counts, long totalNanos, long maxNanos) {
+        mCounts = counts;
+        long count = 0;
+        for (long c : counts) {
+            count += c;
+        }
+        mCount = count;
+        mTotalNanos = totalNanos;
+        mMaxNanos = maxNanos;
+    }
+
+    /**
+     * 获取样本数量
+     *
+     * @return 样本数量
+     */
+    public long getCount() {
+        return mCount;
+    }
+
+    /**
+     * 获取总耗时
+     *
+     * @return 总耗时，单位为纳秒
+     */
+    public long getTotalNanos() {
+        return mTotalNanos;
+    }
+
+    /**
+     * 获取平均耗时
+     *
+     * @return 平均耗时，单位为纳秒；没有样本时为 0
+     */
+    public long getMeanNanos() {
+        return mCount == 0 ? 0 : mTotalNanos / mCount;
+    }
+
+    /**
+     * 获取最大耗时
+     *
+     * @return 最大耗时，单位为纳秒
+     */
+    public long getMaxNanos() {
+        return mMaxNanos;
+    }
+
+    /**
+     * 估计百分位数
+     *
+     * @param fraction 百分位，取值范围为 [0, 1]，例如 0.99 表示 P99
+     * @return 耗时的上界，单位为纳秒；没有样本时为 0
+     */
+    public long getPercentileNanos(double fraction) {
+        if (mCount == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(Math.max(0, Math.min(1, fraction)) * mCount);
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += mCounts[i];
+            if (seen >= rank && mCounts[i] > 0) {
+                return Math.min(upperBound(i), mMaxNanos);
+            }
+        }
+        return mMaxNanos;
+    }
+
+    /**
+     * 获取指定桶的样本数量
+     *
+     * @param bucket 桶的序号
+     * @return 样本数量
+     */
+    public long getBucketCount(int bucket) {
+        return mCounts[bucket];
+    }
+
+    /**
+     * 获取指定桶的耗时上界（不含）
+     *
+     * @param bucket 桶的序号
+     * @return 耗时上界，单位为纳秒
+     */
+    public static long upperBound(int bucket) {
+        return bucket >= BUCKET_COUNT - 1 ? Long.MAX_VALUE : 1L << bucket;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return "LatencyHistogram{count=" + mCount
+                + ", mean=" + getMeanNanos()
+                + "ns, p50=" + getPercentileNanos(0.5)
+                + "ns, p99=" + getPercentileNanos(0.99)
+                + "ns, max=" + mMaxNanos + "ns}";
+    }
+}
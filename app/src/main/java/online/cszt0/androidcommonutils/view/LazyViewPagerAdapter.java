@@ -0,0 +1,216 @@
+package online.cszt0.androidcommonutils.view;
+
+import android.content.ComponentCallbacks2;
+import android.content.res.Configuration;
+import android.view.ViewGroup;
+
+import androidx.annotation.IntRange;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.fragment.app.Fragment;
+import androidx.fragment.app.FragmentManager;
+import androidx.fragment.app.FragmentStatePagerAdapter;
+import androidx.viewpager.widget.ViewPager;
+
+import online.cszt0.androidcommonutils.view.internal.TrimRegistry;
+
+/**
+ * 按需创建 Fragment 的 ViewPager 适配器。
+ * <p>
+ * 与 {@link CommonViewPagerAdapter} 不同，页面由 {@link FragmentFactory} 在首次显示时创建，
+ * 标题由工厂直接提供，无需创建 Fragment。仅当前页面两侧窗口内的页面保持存活，
+ * 窗口外的页面被销毁，只保留其状态，再次显示时重新创建并恢复状态。
+ * <p>
+ * 适配器创建时登记到 {@link CacheRegistry}，内存紧张时将缩小窗口，之后每次切换页面时窗口逐步恢复。
+ * 也可将适配器通过 {@link android.content.Context#registerComponentCallbacks(android.content.ComponentCallbacks)}
+ * 单独注册，此时不应再安装 {@link CacheRegistry}，不再使用时应取消注册。
+ *
+ * @see ViewPager
+ * @see FragmentFactory
+ */
+public class LazyViewPagerAdapter extends FragmentStatePagerAdapter implements ComponentCallbacks2 {
+    private final FragmentFactory mFactory;
+    private final int mCount;
+    private final CharSequence[] mTitles;
+    private int mWindow = 1;
+    private int mEffectiveWindow = 1;
+    private int mPrimaryPosition = -1;
+    private ViewPager mViewPager;
+
+    private final TrimRegistry.Trimmable mTrimmable = new TrimRegistry.Trimmable() {
+        @Override
+        public void trim(int level, @NonNull TrimRegistry.Freed freed) {
+            int window = mEffectiveWindow;
+            onTrimMemory(level);
+            // 两侧各销毁的页面
+            freed.pages += (window - mEffectiveWindow) * 2;
+        }
+    };
+
+    private final Runnable mApplyWindow = new Runnable() {
+        @Override
+        public void run() {
+            applyWindow();
+        }
+    };
+
+    /**
+     * 页面工厂
+     */
+    public interface FragmentFactory {
+        /**
+         * 创建页面。页面被销毁后再次显示时将重新调用
+         *
+         * @param position 位置
+         * @return 新创建的 <code>Fragment</code>
+         */
+        @NonNull
+        Fragment createFragment(int position);
+
+        /**
+         * 获取页面标题，不应创建 <code>Fragment</code>。
+         * 返回 null 时，若页面实现了 {@link CommonViewPagerAdapter.TitledFragment}，
+         * 则在页面创建后使用其标题
+         *
+         * @param position 位置
+         * @return 标题，可为 null
+         */
+        @Nullable
+        CharSequence getTitle(int position);
+    }
+
+    /**
+     * 构建适配器
+     *
+     * @param fm      {@link FragmentManager}
+     * @param count   页面数量
+     * @param factory 页面工厂
+     */
+    public LazyViewPagerAdapter(@NonNull FragmentManager fm, int count, @NonNull FragmentFactory factory) {
+        super(fm, BEHAVIOR_RESUME_ONLY_CURRENT_FRAGMENT);
+        mFactory = factory;
+        mCount = count;
+        mTitles = new CharSequence[count];
+        TrimRegistry.register(mTrimmable);
+    }
+
+    /**
+     * 设置当前页面每侧保持存活的页面数量，即 {@link ViewPager#setOffscreenPageLimit(int)}，默认为 1。
+     * 适配器设置到 ViewPager 后，将覆盖 ViewPager 原有的设置。
+     *
+     * @param window 每侧存活的页面数量
+     */
+    public void setWindow(@IntRange(from = 1) int window) {
+        if (window < 1) {
+            throw new IllegalArgumentException("window must be at least 1");
+        }
+        mWindow = window;
+        mEffectiveWindow = window;
+        applyWindow();
+    }
+
+    /**
+     * 获取设置的窗口大小
+     *
+     * @return 每侧存活的页面数量
+     */
+    public int getWindow() {
+        return mWindow;
+    }
+
+    /**
+     * 获取当前生效的窗口大小，内存紧张时可能小于设置的窗口大小
+     *
+     * @return 每侧存活的页面数量
+     */
+    public int getEffectiveWindow() {
+        return mEffectiveWindow;
+    }
+
+    @NonNull
+    @Override
+    public Fragment getItem(int position) {
+        Fragment fragment = mFactory.createFragment(position);
+        if (mTitles[position] == null && fragment instanceof CommonViewPagerAdapter.TitledFragment) {
+            mTitles[position] = ((CommonViewPagerAdapter.TitledFragment) fragment).getFragmentTitle();
+        }
+        return fragment;
+    }
+
+    @Override
+    public int getCount() {
+        return mCount;
+    }
+
+    @Nullable
+    @Override
+    public CharSequence getPageTitle(int position) {
+        CharSequence title = mTitles[position];
+        if (title == null) {
+            title = mFactory.getTitle(position);
+            mTitles[position] = title;
+        }
+        return title;
+    }
+
+    @Override
+    public void startUpdate(@NonNull ViewGroup container) {
+        super.startUpdate(container);
+        if (mViewPager != container && container instanceof ViewPager) {
+            mViewPager = (ViewPager) container;
+            // 正在布局页面，推迟到布局完成后修改
+            container.post(mApplyWindow);
+        }
+    }
+
+    @Override
+    public void setPrimaryItem(@NonNull ViewGroup container, int position, @NonNull Object object) {
+        super.setPrimaryItem(container, position, object);
+        if (position != mPrimaryPosition) {
+            mPrimaryPosition = position;
+            if (mEffectiveWindow < mWindow) {
+                mEffectiveWindow++;
+                container.post(mApplyWindow);
+            }
+        }
+    }
+
+    /**
+     * 根据内存紧张程度缩小窗口：
+     * 应用在前台且内存较低，或已进入后台时，仅保留当前页面两侧各一个页面；其余情况窗口减半
+     */
+    @Override
+    public void onTrimMemory(int level) {
+        if (level >= TRIM_MEMORY_RUNNING_LOW && level != TRIM_MEMORY_UI_HIDDEN) {
+            shrinkWindow(1);
+        } else {
+            shrinkWindow(Math.max(1, mEffectiveWindow / 2));
+        }
+    }
+
+    @Override
+    public void onLowMemory() {
+        shrinkWindow(1);
+    }
+
+    @Override
+    public void onConfigurationChanged(@NonNull Configuration newConfig) {
+    }
+
+    private void shrinkWindow(int window) {
+        if (window < mEffectiveWindow) {
+            mEffectiveWindow = window;
+            applyWindow();
+        }
+    }
+
+    /**
+     * 修改 ViewPager 的预加载数量，ViewPager 将销毁窗口外的页面并保存其状态
+     */
+    private void applyWindow() {
+        if (mViewPager != null && mViewPager.getAdapter() == this
+                && mViewPager.getOffscreenPageLimit() != mEffectiveWindow) {
+            mViewPager.setOffscreenPageLimit(mEffectiveWindow);
+        }
+    }
+}
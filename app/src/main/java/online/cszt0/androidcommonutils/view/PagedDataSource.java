@@ -0,0 +1,54 @@
+package online.cszt0.androidcommonutils.view;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+
+import java.util.List;
+
+/**
+ * 分页数据源，配合 {@link PagedList} 使用，按需加载数据集中的一段数据。
+ * <p>
+ * 例如，对于数据库中的数据，可在 {@link #getCount()} 中返回 <code>COUNT(*)</code> 的结果，
+ * 在 {@link #loadRange(int, int)} 中使用 <code>LIMIT</code> 和 <code>OFFSET</code> 查询。
+ *
+ * @param <Data> 数据集类型
+ * @see PagedList
+ */
+public abstract class PagedDataSource<Data> {
+    /**
+     * 获取数据总数。可以是估计值，若实际加载时发现数据不足，{@link PagedList} 会相应缩减。
+     * <p>
+     * 该方法在创建 {@link PagedList} 的线程调用，应尽可能快地返回。
+     *
+     * @return 数据总数
+     */
+    public abstract int getCount();
+
+    /**
+     * 加载指定范围的数据。该方法在后台线程调用。
+     *
+     * @param start 起始位置
+     * @param count 数量
+     * @return 加载到的数据，数量可以少于 count（表示已到达末尾）
+     */
+    @WorkerThread
+    @NonNull
+    public abstract List<Data> loadRange(int start, int count);
+
+    /**
+     * 根据过滤条件创建新的数据源。该方法在过滤线程调用。
+     * <p>
+     * 若数据源能够直接完成过滤（如使用 SQL 的 <code>WHERE</code> 子句），应重写该方法并返回过滤后的数据源，
+     * 此时过滤不需要加载任何数据。默认返回 null，此时将逐页加载数据，并按
+     * {@link CommonAdapterInterface.Filterable} 的规则过滤，过程中加载的页面不会被保留。
+     *
+     * @param constraint 过滤条件
+     * @return 过滤后的数据源，不支持时返回 null
+     */
+    @WorkerThread
+    @Nullable
+    public PagedDataSource<Data> filter(@Nullable CharSequence constraint) {
+        return null;
+    }
+}
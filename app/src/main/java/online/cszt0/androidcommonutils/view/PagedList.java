@@ -0,0 +1,306 @@
+package online.cszt0.androidcommonutils.view;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+import online.cszt0.androidcommonutils.view.internal.TaskExecutors;
+
+/**
+ * 按页懒加载的只读数据集。
+ * <p>
+ * 将该数据集传入 {@link CommonRecyclerViewAdapter} 或 {@link CommonAdapterViewAdapter} 后，
+ * 适配器在绑定视图时会自动加载所绑定位置附近尚未加载的页面。尚未加载的位置使用 null 占位，
+ * 因此 <code>bindView</code> 中的数据可能为 null，页面加载完成后适配器会自动刷新对应范围。
+ * <p>
+ * 已加载的页面数量超过上限时，距离最近访问位置最远的页面将被释放，再次访问时重新加载。
+ *
+ * @param <Data> 数据集类型
+ * @see PagedDataSource
+ */
+public class PagedList<Data> extends AbstractList<Data> implements RandomAccess {
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    public static final int DEFAULT_MAX_PAGES = 20;
+
+    /**
+     * 页面加载状态的回调，在主线程调用
+     */
+    public interface Callback {
+        /**
+         * 指定范围的数据已加载
+         *
+         * @param start 起始位置
+         * @param count 数量
+         */
+        void onItemRangeLoaded(int start, int count);
+
+        /**
+         * 实际数据少于预计，末尾的范围已被移除
+         *
+         * @param start 起始位置
+         * @param count 数量
+         */
+        void onItemRangeRemoved(int start, int count);
+    }
+
+    private final PagedDataSource<Data> mDataSource;
+    private final int mPageSize;
+    private final int mMaxPages;
+    private int mPrefetchDistance;
+    private volatile int mCount;
+    // 按页号索引，受 mPages 保护，过滤线程也可能读取
+    private final Object[][] mPages;
+    private int mLoadedPages;
+    private final Set<Integer> mLoadingPages;
+    private final List<Callback> mCallbacks;
+    private int mLastAccessedPage;
+    private final Executor mBackground;
+    private final Executor mMain;
+
+    /**
+     * 使用默认页面大小和页面数量上限构建数据集
+     *
+     * @param dataSource 数据源
+     */
+    public PagedList(@NonNull PagedDataSource<Data> dataSource) {
+        this(dataSource, DEFAULT_PAGE_SIZE, DEFAULT_MAX_PAGES);
+    }
+
+    /**
+     * 构建数据集
+     *
+     * @param dataSource 数据源
+     * @param pageSize   每页数据数量
+     * @param maxPages   内存中最多保留的页面数量，即内存预算为 pageSize * maxPages 个数据
+     */
+    public PagedList(@NonNull PagedDataSource<Data> dataSource, int pageSize, int maxPages) {
+        this(dataSource, pageSize, maxPages, TaskExecutors.background(), new Executor() {
+            @Override
+            public void execute(@NonNull Runnable command) {
+                TaskExecutors.main().post(command);
+            }
+        });
+    }
+
+    /**
+     * 指定加载数据与回到主线程使用的线程，用于测试
+     */
+    PagedList(@NonNull PagedDataSource<Data> dataSource, int pageSize, int maxPages,
+              @NonNull Executor background, @NonNull Executor main) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("pageSize must be positive: " + pageSize);
+        }
+        mDataSource = dataSource;
+        mPageSize = pageSize;
+        mPrefetchDistance = pageSize;
+        // 至少能容纳预加载窗口内的全部页面，避免刚加载的页面立即被释放
+        mMaxPages = Math.max(maxPages, windowPages());
+        mCount = Math.max(0, dataSource.getCount());
+        mPages = new Object[(mCount + pageSize - 1) / pageSize][];
+        mLoadingPages = new HashSet<>();
+        mCallbacks = new ArrayList<>();
+        mBackground = background;
+        mMain = main;
+    }
+
+    private int windowPages() {
+        return (2 * mPrefetchDistance + mPageSize - 1) / mPageSize + 1;
+    }
+
+    /**
+     * 设置预加载距离。访问某一位置时，其前后该距离内未加载的数据都会被加载。
+     *
+     * @param distance 预加载距离，默认为一页
+     */
+    public void setPrefetchDistance(int distance) {
+        mPrefetchDistance = Math.max(0, distance);
+    }
+
+    @NonNull
+    public PagedDataSource<Data> getDataSource() {
+        return mDataSource;
+    }
+
+    public int getPageSize() {
+        return mPageSize;
+    }
+
+    public int getMaxPages() {
+        return mMaxPages;
+    }
+
+    /**
+     * 使用相同的配置，以新的数据源构建数据集
+     *
+     * @param dataSource 数据源
+     * @return 新的数据集
+     */
+    @NonNull
+    public PagedList<Data> withDataSource(@NonNull PagedDataSource<Data> dataSource) {
+        PagedList<Data> list = new PagedList<>(dataSource, mPageSize, mMaxPages, mBackground, mMain);
+        list.mPrefetchDistance = mPrefetchDistance;
+        return list;
+    }
+
+    @Override
+    public int size() {
+        return mCount;
+    }
+
+    /**
+     * 获取指定位置的数据。该方法不会触发加载，尚未加载的位置返回 null。
+     *
+     * @param index 位置
+     * @return 数据，尚未加载时为 null
+     */
+    @Nullable
+    @SuppressWarnings("unchecked")
+    @Override
+    public Data get(int index) {
+        if (index < 0 || index >= mCount) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + mCount);
+        }
+        synchronized (mPages) {
+            Object[] page = mPages[index / mPageSize];
+            int offset = index % mPageSize;
+            if (page == null || offset >= page.length) {
+                return null;
+            }
+            return (Data) page[offset];
+        }
+    }
+
+    /**
+     * 判断指定位置的数据是否已加载
+     *
+     * @param index 位置
+     * @return true - 已加载
+     */
+    public boolean isLoaded(int index) {
+        synchronized (mPages) {
+            int page = index / mPageSize;
+            return page >= 0 && page < mPages.length && mPages[page] != null;
+        }
+    }
+
+    /**
+     * 记录对指定位置的访问，并加载其附近尚未加载的页面。通常由适配器在绑定视图时调用。
+     *
+     * @param index 位置
+     */
+    @MainThread
+    public void loadAround(int index) {
+        int count = mCount;
+        if (count == 0) {
+            return;
+        }
+        index = Math.min(Math.max(index, 0), count - 1);
+        mLastAccessedPage = index / mPageSize;
+        int firstPage = Math.max(0, index - mPrefetchDistance) / mPageSize;
+        int lastPage = Math.min(count - 1, index + mPrefetchDistance) / mPageSize;
+        for (int page = firstPage; page <= lastPage; page++) {
+            if (!mLoadingPages.contains(page) && !isLoaded(page * mPageSize)) {
+                loadPage(page);
+            }
+        }
+    }
+
+    private void loadPage(final int page) {
+        mLoadingPages.add(page);
+        final int start = page * mPageSize;
+        final int count = Math.min(mPageSize, mCount - start);
+        mBackground.execute(new Runnable() {
+            @Override
+            public void run() {
+                final List<Data> items;
+                try {
+                    items = mDataSource.loadRange(start, count);
+                } catch (final RuntimeException e) {
+                    mMain.execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            mLoadingPages.remove(page);
+                            throw e;
+                        }
+                    });
+                    return;
+                }
+                mMain.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        onPageLoaded(page, count, items);
+                    }
+                });
+            }
+        });
+    }
+
+    private void onPageLoaded(int page, int requested, List<Data> items) {
+        mLoadingPages.remove(page);
+        int start = page * mPageSize;
+        if (start >= mCount) {
+            return;
+        }
+        int loaded = Math.min(items.size(), requested);
+        synchronized (mPages) {
+            if (mPages[page] == null) {
+                mLoadedPages++;
+            }
+            mPages[page] = items.subList(0, loaded).toArray();
+        }
+        if (loaded < requested) {
+            // 数据源的总数为估计值，实际数据不足
+            int oldCount = mCount;
+            mCount = start + loaded;
+            for (Callback callback : new ArrayList<>(mCallbacks)) {
+                callback.onItemRangeRemoved(mCount, oldCount - mCount);
+            }
+        }
+        if (loaded > 0) {
+            for (Callback callback : new ArrayList<>(mCallbacks)) {
+                callback.onItemRangeLoaded(start, loaded);
+            }
+        }
+        trimPages();
+    }
+
+    private void trimPages() {
+        synchronized (mPages) {
+            // 距离最近访问页面最远的页面必然是页号最小或最大的已加载页面
+            int first = 0;
+            int last = mPages.length - 1;
+            while (mLoadedPages > mMaxPages) {
+                while (mPages[first] == null) {
+                    first++;
+                }
+                while (mPages[last] == null) {
+                    last--;
+                }
+                if (mLastAccessedPage - first >= last - mLastAccessedPage) {
+                    mPages[first++] = null;
+                } else {
+                    mPages[last--] = null;
+                }
+                mLoadedPages--;
+            }
+        }
+    }
+
+    @MainThread
+    public void addCallback(@NonNull Callback callback) {
+        mCallbacks.add(callback);
+    }
+
+    @MainThread
+    public void removeCallback(@NonNull Callback callback) {
+        mCallbacks.remove(callback);
+    }
+}
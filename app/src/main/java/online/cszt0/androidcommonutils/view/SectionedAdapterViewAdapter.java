@@ -0,0 +1,305 @@
+package online.cszt0.androidcommonutils.view;
+
+import android.content.Context;
+import android.database.DataSetObserver;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.BaseAdapter;
+import android.widget.SectionIndexer;
+
+import androidx.annotation.LayoutRes;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.ListUpdateCallback;
+
+import online.cszt0.androidcommonutils.view.internal.SectionTable;
+import online.cszt0.androidcommonutils.view.internal.ViewHolderImpl;
+import online.cszt0.androidcommonutils.view.internal.ViewLookupTable;
+
+/**
+ * 分组的适配器视图适配器。
+ * <p>
+ * 包装一个 {@link CommonAdapterViewAdapter}，将其显示的数据中分组键相同的连续数据作为一组，
+ * 并在每组之前显示一行标题。标题不会加入数据集，数据的增删、过滤与排序仍通过被包装的适配器完成，
+ * 分组随之自动更新：细粒度修改时仅重新计算受影响的分组。
+ * <p>
+ * 实现了 {@link SectionIndexer}，设置到启用快速滚动的 {@link android.widget.ListView} 后，
+ * 快速滚动按分组定位，位置与分组之间的换算均为 O(log n)。
+ *
+ * @param <Data> 数据集类型
+ */
+public abstract class SectionedAdapterViewAdapter<Data> extends BaseAdapter implements SectionIndexer {
+    private Context mContext;
+    private CommonAdapterViewAdapter<Data> mAdapter;
+    private int mHeaderLayout;
+    private final SectionTable mSections;
+    private int mBuiltVersion;
+
+    // 标题由 notifyDataSetChanged 整体刷新，无需逐个通知
+    private static final ListUpdateCallback IGNORE = new ListUpdateCallback() {
+        @Override
+        public void onInserted(int position, int count) {
+        }
+
+        @Override
+        public void onRemoved(int position, int count) {
+        }
+
+        @Override
+        public void onMoved(int fromPosition, int toPosition) {
+        }
+
+        @Override
+        public void onChanged(int position, int count, @Nullable Object payload) {
+        }
+    };
+
+    // 被包装的适配器细粒度修改时，增量更新分组表
+    private final ListUpdateCallback mShownDataCallback = new ListUpdateCallback() {
+        @Override
+        public void onInserted(int position, int count) {
+            syncList();
+            mSections.onInserted(position, count, IGNORE);
+        }
+
+        @Override
+        public void onRemoved(int position, int count) {
+            syncList();
+            mSections.onRemoved(position, count, IGNORE);
+        }
+
+        @Override
+        public void onMoved(int fromPosition, int toPosition) {
+            syncList();
+            mSections.onMoved(fromPosition, toPosition, IGNORE);
+        }
+
+        @Override
+        public void onChanged(int position, int count, @Nullable Object payload) {
+            syncList();
+            mSections.onChanged(position, count, payload, IGNORE);
+        }
+    };
+
+    private final DataSetObserver mDataObserver = new DataSetObserver() {
+        @Override
+        public void onChanged() {
+            // 细粒度修改已增量更新，其余情况重新建立分组表
+            if (mBuiltVersion != mAdapter.getShownVersion()) {
+                mBuiltVersion = mAdapter.getShownVersion();
+                mSections.rebuild(mAdapter.getShownData());
+            }
+            notifyDataSetChanged();
+        }
+
+        @Override
+        public void onInvalidated() {
+            notifyDataSetInvalidated();
+        }
+    };
+
+    /**
+     * 构造适配器
+     *
+     * @param context      应用程序上下文
+     * @param adapter      被包装的适配器，之后不应再单独设置到列表控件
+     * @param headerLayout 标题布局
+     */
+    public SectionedAdapterViewAdapter(@NonNull Context context, @NonNull CommonAdapterViewAdapter<Data> adapter, @LayoutRes int headerLayout) {
+        mContext = context;
+        mAdapter = adapter;
+        mHeaderLayout = headerLayout;
+        mSections = new SectionTable(new SectionTable.KeyFunction() {
+            @SuppressWarnings("unchecked")
+            @Override
+            public Object keyOf(Object item) {
+                return getSectionKey((Data) item);
+            }
+        });
+        mBuiltVersion = adapter.getShownVersion();
+        mSections.rebuild(adapter.getShownData());
+        adapter.setShownDataCallback(mShownDataCallback);
+        adapter.registerDataSetObserver(mDataObserver);
+    }
+
+    /**
+     * 获取数据的分组键。分组键应正确实现 {@link Object#equals(Object)}。
+     *
+     * @param data 数据。对于 {@link PagedList} 中尚未加载的位置，数据为 null
+     * @return 分组键
+     */
+    protected abstract Object getSectionKey(Data data);
+
+    /**
+     * 将分组绑定到标题视图
+     *
+     * @param viewHolder 布局管理器
+     * @param key        分组键
+     * @param section    分组序号
+     */
+    protected abstract void bindHeader(@NonNull ViewHolder viewHolder, Object key, int section);
+
+    /**
+     * 获取被包装的适配器
+     *
+     * @return 被包装的适配器
+     */
+    @NonNull
+    public CommonAdapterViewAdapter<Data> getAdapter() {
+        return mAdapter;
+    }
+
+    /**
+     * 获取分组数量
+     *
+     * @return 分组数量
+     */
+    public int getSectionCount() {
+        return mSections.getSectionCount();
+    }
+
+    /**
+     * 获取分组中的数据数量
+     *
+     * @param section 分组序号
+     * @return 数据数量
+     */
+    public int getSectionSize(int section) {
+        return mSections.getSectionSize(section);
+    }
+
+    /**
+     * 判断指定位置是否为标题
+     *
+     * @param position 位置
+     * @return true - 为标题
+     */
+    public boolean isHeader(int position) {
+        return mSections.isHeader(position);
+    }
+
+    /**
+     * 将位置换算为被包装的适配器中的位置
+     *
+     * @param position 位置
+     * @return 被包装的适配器中的位置；标题返回 -1
+     */
+    public int getDataPosition(int position) {
+        return mSections.isHeader(position) ? -1 : mSections.toPosition(position);
+    }
+
+    /**
+     * 将被包装的适配器中的位置换算为位置
+     *
+     * @param dataPosition 被包装的适配器中的位置
+     * @return 位置
+     */
+    public int getPosition(int dataPosition) {
+        return mSections.toFlatPosition(dataPosition);
+    }
+
+    @Override
+    public Object[] getSections() {
+        return mSections.getKeys();
+    }
+
+    @Override
+    public int getPositionForSection(int sectionIndex) {
+        int count = mSections.getSectionCount();
+        if (count == 0) {
+            return 0;
+        }
+        return mSections.getHeaderPosition(Math.max(0, Math.min(sectionIndex, count - 1)));
+    }
+
+    @Override
+    public int getSectionForPosition(int position) {
+        return Math.max(0, mSections.getSectionForFlatPosition(position));
+    }
+
+    @Override
+    public int getCount() {
+        return mSections.getFlatCount();
+    }
+
+    /**
+     * 获取指定位置的数据
+     *
+     * @param position 位置
+     * @return 数据；标题返回分组键
+     */
+    @Override
+    public Object getItem(int position) {
+        int section = mSections.getSectionForFlatPosition(position);
+        if (mSections.getHeaderPosition(section) == position) {
+            return mSections.getKey(section);
+        }
+        return mAdapter.getItem(position - section - 1);
+    }
+
+    @Override
+    public long getItemId(int position) {
+        int section = mSections.getSectionForFlatPosition(position);
+        if (mSections.getHeaderPosition(section) == position) {
+            Object key = mSections.getKey(section);
+            return Long.MIN_VALUE | (key == null ? 0 : key.hashCode() & 0xffffffffL);
+        }
+        return mAdapter.getItemId(position - section - 1);
+    }
+
+    @Override
+    public boolean hasStableIds() {
+        return mAdapter.hasStableIds();
+    }
+
+    @Override
+    public boolean isEnabled(int position) {
+        return !mSections.isHeader(position);
+    }
+
+    @Override
+    public boolean areAllItemsEnabled() {
+        return false;
+    }
+
+    @Override
+    public int getViewTypeCount() {
+        return mAdapter.getViewTypeCount() + 1;
+    }
+
+    /**
+     * 标题的 viewType 为被包装的适配器的 viewType 数量
+     */
+    @Override
+    public int getItemViewType(int position) {
+        if (mSections.isHeader(position)) {
+            return mAdapter.getViewTypeCount();
+        }
+        return mAdapter.getItemViewType(mSections.toPosition(position));
+    }
+
+    @Override
+    public View getView(int position, View convertView, ViewGroup parent) {
+        int section = mSections.getSectionForFlatPosition(position);
+        if (mSections.getHeaderPosition(section) != position) {
+            return mAdapter.getView(position - section - 1, convertView, parent);
+        }
+        if (convertView == null) {
+            convertView = LayoutInflater.from(mContext).inflate(mHeaderLayout, parent, false);
+            convertView.setTag(new ViewHolderImpl(convertView, ViewLookupTable.forLayout(mHeaderLayout)));
+        }
+        bindHeader((ViewHolder) convertView.getTag(), mSections.getKey(section), section);
+        return convertView;
+    }
+
+    /**
+     * 显示数据集被替换为内容相同的数据集时，分组表改为读取新的数据集
+     */
+    private void syncList() {
+        if (mBuiltVersion != mAdapter.getShownVersion()) {
+            mBuiltVersion = mAdapter.getShownVersion();
+            mSections.setList(mAdapter.getShownData());
+        }
+    }
+}
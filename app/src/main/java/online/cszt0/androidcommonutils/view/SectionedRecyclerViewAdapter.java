@@ -0,0 +1,371 @@
+package online.cszt0.androidcommonutils.view;
+
+import android.content.Context;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.SectionIndexer;
+
+import androidx.annotation.LayoutRes;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.AdapterListUpdateCallback;
+import androidx.recyclerview.widget.ListUpdateCallback;
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.util.List;
+
+import online.cszt0.androidcommonutils.view.internal.RecyclerViewViewHolderImpl;
+import online.cszt0.androidcommonutils.view.internal.SectionTable;
+import online.cszt0.androidcommonutils.view.internal.ViewLookupTable;
+
+/**
+ * 分组的 RecyclerView 适配器。
+ * <p>
+ * 包装一个 {@link CommonRecyclerViewAdapter}，将其显示的数据中分组键相同的连续数据作为一组，
+ * 并在每组之前显示一行标题。标题不会加入数据集，数据的增删、过滤与排序仍通过被包装的适配器完成，
+ * 分组随之自动更新：细粒度修改时仅重新计算受影响的分组。
+ * 若希望相同分组键的数据归为一组，应使被包装的适配器按分组键排序，例如使用
+ * {@link CommonRecyclerViewAdapter#setComparator(java.util.Comparator)}。
+ * <p>
+ * 位置与分组之间的换算均为 O(log n)。配合 {@link StickyHeaderDecoration} 可使当前分组的标题固定在顶部。
+ * 被包装的适配器使用后台差异计算时，差异分发将以整体刷新的方式通知。
+ *
+ * @param <Data> 数据集类型
+ * @see StickyHeaderDecoration
+ */
+public abstract class SectionedRecyclerViewAdapter<Data> extends RecyclerView.Adapter<RecyclerView.ViewHolder> implements SectionIndexer {
+    private Context mContext;
+    private CommonRecyclerViewAdapter<Data> mAdapter;
+    private int mHeaderLayout;
+    private final SectionTable mSections;
+    private int mBuiltVersion;
+    private int mSectionVersion;
+    private final ListUpdateCallback mFlatCallback = new AdapterListUpdateCallback(this);
+
+    // 被包装的适配器细粒度修改时，增量更新分组表
+    private final ListUpdateCallback mShownDataCallback = new ListUpdateCallback() {
+        @Override
+        public void onInserted(int position, int count) {
+            syncList();
+            mSections.onInserted(position, count, mFlatCallback);
+        }
+
+        @Override
+        public void onRemoved(int position, int count) {
+            syncList();
+            mSections.onRemoved(position, count, mFlatCallback);
+        }
+
+        @Override
+        public void onMoved(int fromPosition, int toPosition) {
+            syncList();
+            mSections.onMoved(fromPosition, toPosition, mFlatCallback);
+        }
+
+        @Override
+        public void onChanged(int position, int count, @Nullable Object payload) {
+            syncList();
+            mSections.onChanged(position, count, payload, mFlatCallback);
+        }
+    };
+
+    // 被包装的适配器的其他通知
+    private final RecyclerView.AdapterDataObserver mDataObserver = new RecyclerView.AdapterDataObserver() {
+        @Override
+        public void onChanged() {
+            rebuild();
+        }
+
+        @Override
+        public void onItemRangeChanged(int positionStart, int itemCount, @Nullable Object payload) {
+            if (checkDispatching()) {
+                mSections.onChanged(positionStart, itemCount, payload, mFlatCallback);
+            }
+        }
+
+        @Override
+        public void onItemRangeInserted(int positionStart, int itemCount) {
+            if (checkDispatching()) {
+                mSections.onInserted(positionStart, itemCount, mFlatCallback);
+            }
+        }
+
+        @Override
+        public void onItemRangeRemoved(int positionStart, int itemCount) {
+            if (checkDispatching()) {
+                mSections.onRemoved(positionStart, itemCount, mFlatCallback);
+            }
+        }
+
+        @Override
+        public void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
+            if (itemCount != 1) {
+                rebuild();
+            } else if (checkDispatching()) {
+                mSections.onMoved(fromPosition, toPosition, mFlatCallback);
+            }
+        }
+    };
+
+    /**
+     * 构造适配器
+     *
+     * @param context      应用程序上下文
+     * @param adapter      被包装的适配器，之后不应再单独设置到 RecyclerView
+     * @param headerLayout 标题布局
+     */
+    public SectionedRecyclerViewAdapter(@NonNull Context context, @NonNull CommonRecyclerViewAdapter<Data> adapter, @LayoutRes int headerLayout) {
+        mContext = context;
+        mAdapter = adapter;
+        mHeaderLayout = headerLayout;
+        mSections = new SectionTable(new SectionTable.KeyFunction() {
+            @SuppressWarnings("unchecked")
+            @Override
+            public Object keyOf(Object item) {
+                return getSectionKey((Data) item);
+            }
+        });
+        mBuiltVersion = adapter.getShownVersion();
+        mSections.rebuild(adapter.getShownData());
+        adapter.setShownDataCallback(mShownDataCallback);
+        // 被包装的适配器在第一个观察者注册时确定是否使用稳定 id，之后不再变化，因此注册后再读取
+        adapter.registerAdapterDataObserver(mDataObserver);
+        setHasStableIds(adapter.hasStableIds());
+    }
+
+    /**
+     * 获取标题在 RecyclerView 中的视图类型。
+     * <p>
+     * 数据以布局资源 id 作为视图类型，资源 id 均为正数；标题使用标题布局资源 id 按位取反后的负数，
+     * 因此即使标题布局也被用作数据的布局，两者的视图类型也不会冲突。
+     * 使用相同标题布局的分组适配器之间，标题视图仍可通过 {@link SharedViewPool} 共享。
+     *
+     * @param headerLayout 标题布局
+     * @return 视图类型
+     */
+    public static int getHeaderViewType(@LayoutRes int headerLayout) {
+        return ~headerLayout;
+    }
+
+    /**
+     * 获取数据的分组键。分组键应正确实现 {@link Object#equals(Object)}。
+     *
+     * @param data 数据。对于 {@link PagedList} 中尚未加载的位置，数据为 null
+     * @return 分组键
+     */
+    protected abstract Object getSectionKey(Data data);
+
+    /**
+     * 将分组绑定到标题视图
+     *
+     * @param viewHolder 布局管理器
+     * @param key        分组键
+     * @param section    分组序号
+     */
+    protected abstract void bindHeader(@NonNull ViewHolder viewHolder, Object key, int section);
+
+    /**
+     * 获取被包装的适配器
+     *
+     * @return 被包装的适配器
+     */
+    @NonNull
+    public CommonRecyclerViewAdapter<Data> getAdapter() {
+        return mAdapter;
+    }
+
+    /**
+     * 获取分组数量
+     *
+     * @return 分组数量
+     */
+    public int getSectionCount() {
+        return mSections.getSectionCount();
+    }
+
+    /**
+     * 获取分组中的数据数量
+     *
+     * @param section 分组序号
+     * @return 数据数量
+     */
+    public int getSectionSize(int section) {
+        return mSections.getSectionSize(section);
+    }
+
+    /**
+     * 判断指定位置是否为标题
+     *
+     * @param position 位置
+     * @return true - 为标题
+     */
+    public boolean isHeader(int position) {
+        return mSections.isHeader(position);
+    }
+
+    /**
+     * 将位置换算为被包装的适配器中的位置
+     *
+     * @param position 位置
+     * @return 被包装的适配器中的位置；标题返回 {@link RecyclerView#NO_POSITION}
+     */
+    public int getDataPosition(int position) {
+        return mSections.isHeader(position) ? RecyclerView.NO_POSITION : mSections.toPosition(position);
+    }
+
+    /**
+     * 将被包装的适配器中的位置换算为位置
+     *
+     * @param dataPosition 被包装的适配器中的位置
+     * @return 位置
+     */
+    public int getPosition(int dataPosition) {
+        return mSections.toFlatPosition(dataPosition);
+    }
+
+    @Override
+    public Object[] getSections() {
+        return mSections.getKeys();
+    }
+
+    @Override
+    public int getPositionForSection(int sectionIndex) {
+        int count = mSections.getSectionCount();
+        if (count == 0) {
+            return 0;
+        }
+        return mSections.getHeaderPosition(Math.max(0, Math.min(sectionIndex, count - 1)));
+    }
+
+    @Override
+    public int getSectionForPosition(int position) {
+        return Math.max(0, mSections.getSectionForFlatPosition(position));
+    }
+
+    @Override
+    public int getItemCount() {
+        return mSections.getFlatCount();
+    }
+
+    /**
+     * 标题的 viewType 见 {@link #getHeaderViewType(int)}，数据的 viewType 为其布局资源 id
+     */
+    @Override
+    public int getItemViewType(int position) {
+        if (mSections.isHeader(position)) {
+            return getHeaderViewType(mHeaderLayout);
+        }
+        return mAdapter.getItemViewType(mSections.toPosition(position));
+    }
+
+    /**
+     * 标题的 id 由分组键的 {@link Object#hashCode()} 得出，最高位为 1，不应与数据的 id 冲突
+     */
+    @Override
+    public long getItemId(int position) {
+        int section = mSections.getSectionForFlatPosition(position);
+        if (mSections.getHeaderPosition(section) == position) {
+            Object key = mSections.getKey(section);
+            return Long.MIN_VALUE | (key == null ? 0 : key.hashCode() & 0xffffffffL);
+        }
+        return mAdapter.getItemId(position - section - 1);
+    }
+
+    @NonNull
+    @Override
+    public RecyclerView.ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        if (viewType == getHeaderViewType(mHeaderLayout)) {
+            return createHeaderViewHolder(parent);
+        }
+        return mAdapter.onCreateViewHolder(parent, viewType);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull RecyclerView.ViewHolder holder, int position) {
+        int section = mSections.getSectionForFlatPosition(position);
+        if (mSections.getHeaderPosition(section) == position) {
+            bindHeader((ViewHolder) holder, mSections.getKey(section), section);
+        } else {
+            mAdapter.onBindViewHolder(holder, position - section - 1);
+        }
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull RecyclerView.ViewHolder holder, int position, @NonNull List<Object> payloads) {
+        if (payloads.isEmpty() || mSections.isHeader(position)) {
+            onBindViewHolder(holder, position);
+            return;
+        }
+        mAdapter.onBindViewHolder(holder, mSections.toPosition(position), payloads);
+    }
+
+    @Override
+    public void onAttachedToRecyclerView(@NonNull RecyclerView recyclerView) {
+        super.onAttachedToRecyclerView(recyclerView);
+        mAdapter.onAttachedToRecyclerView(recyclerView);
+    }
+
+    @Override
+    public void onDetachedFromRecyclerView(@NonNull RecyclerView recyclerView) {
+        super.onDetachedFromRecyclerView(recyclerView);
+        mAdapter.onDetachedFromRecyclerView(recyclerView);
+    }
+
+    /**
+     * 创建标题视图
+     */
+    RecyclerView.ViewHolder createHeaderViewHolder(ViewGroup parent) {
+        View view = LayoutInflater.from(mContext).inflate(mHeaderLayout, parent, false);
+        return new RecyclerViewViewHolderImpl(view, ViewLookupTable.forLayout(mHeaderLayout));
+    }
+
+    /**
+     * 将分组绑定到标题视图
+     */
+    void bindHeaderViewHolder(RecyclerView.ViewHolder holder, int section) {
+        bindHeader((ViewHolder) holder, mSections.getKey(section), section);
+    }
+
+    /**
+     * 获取分组表的版本，分组表变化后增加
+     */
+    int getSectionVersion() {
+        return mSectionVersion;
+    }
+
+    /**
+     * 显示数据集被替换为内容相同的数据集时，分组表改为读取新的数据集
+     */
+    private void syncList() {
+        mSectionVersion++;
+        if (mBuiltVersion != mAdapter.getShownVersion()) {
+            mBuiltVersion = mAdapter.getShownVersion();
+            mSections.setList(mAdapter.getShownData());
+        }
+    }
+
+    /**
+     * 被包装的适配器自身发出的通知已由 {@link #mShownDataCallback} 处理；
+     * 差异分发时数据集已是最终状态，无法按步骤更新，因此整体刷新一次
+     *
+     * @return true - 需要按通知增量更新
+     */
+    private boolean checkDispatching() {
+        if (mAdapter.isDispatching()) {
+            if (mBuiltVersion != mAdapter.getShownVersion()) {
+                rebuild();
+            }
+            return false;
+        }
+        syncList();
+        return true;
+    }
+
+    private void rebuild() {
+        mSectionVersion++;
+        mBuiltVersion = mAdapter.getShownVersion();
+        mSections.rebuild(mAdapter.getShownData());
+        notifyDataSetChanged();
+    }
+}
@@ -0,0 +1,176 @@
+package online.cszt0.androidcommonutils.view;
+
+import android.util.SparseIntArray;
+
+import androidx.annotation.LayoutRes;
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.RecyclerView;
+
+import online.cszt0.androidcommonutils.view.internal.RecyclerViewViewHolderImpl;
+import online.cszt0.androidcommonutils.view.internal.TrimRegistry;
+
+/**
+ * 可在多个 {@link CommonRecyclerViewAdapter} 之间共享的视图缓存池。
+ * <p>
+ * {@link CommonRecyclerViewAdapter} 以布局资源 id 作为 RecyclerView 中的视图类型，
+ * 视图的创建与绑定均不依赖于创建它的适配器，因此使用相同布局的适配器可以复用彼此回收的视图，
+ * 例如纵向列表中的多个横向列表。通过 {@link CommonRecyclerViewAdapter#setSharedViewPool(SharedViewPool)}
+ * 将适配器关联到缓存池，适配器被设置到 RecyclerView 时将使用该缓存池。
+ * <p>
+ * 缓存数量按布局设置：调用 {@link #setMaxRecycledViews(int, int)} 时以布局资源 id 作为视图类型，
+ * 未设置的布局使用构造时指定的默认数量。
+ * <p>
+ * 视图持有创建时的 {@link android.content.Context}，缓存池只应在同一个 Activity 内共享。
+ * 内存紧张时，缓存池中的视图将被 {@link CacheRegistry} 清空。
+ * 所有方法必须在主线程调用。
+ *
+ * @see CommonRecyclerViewAdapter#setSharedViewPool(SharedViewPool)
+ */
+@MainThread
+public class SharedViewPool extends RecyclerView.RecycledViewPool {
+    /**
+     * 默认的每个布局的缓存数量，与 {@link RecyclerView.RecycledViewPool} 相同
+     */
+    public static final int DEFAULT_MAX_RECYCLED_VIEWS = 5;
+
+    private final int mDefaultMax;
+    private final SparseIntArray mMax = new SparseIntArray();
+    private final SparseIntArray mHits = new SparseIntArray();
+    private final SparseIntArray mMisses = new SparseIntArray();
+    private int mHitCount;
+    private int mMissCount;
+    private final TrimRegistry.Trimmable mTrimmable = new TrimRegistry.Trimmable() {
+        @Override
+        public void trim(int level, @NonNull TrimRegistry.Freed freed) {
+            if (TrimRegistry.shouldClear(level)) {
+                trimViews(freed);
+            }
+        }
+    };
+
+    public SharedViewPool() {
+        this(DEFAULT_MAX_RECYCLED_VIEWS);
+    }
+
+    /**
+     * 构造缓存池
+     *
+     * @param defaultMax 未单独设置的布局的缓存数量
+     */
+    public SharedViewPool(int defaultMax) {
+        mDefaultMax = defaultMax;
+        TrimRegistry.register(mTrimmable);
+    }
+
+    /**
+     * 设置布局的缓存数量
+     *
+     * @param viewType 布局资源 id
+     * @param max      缓存数量
+     */
+    @Override
+    public void setMaxRecycledViews(@LayoutRes int viewType, int max) {
+        mMax.put(viewType, max);
+        super.setMaxRecycledViews(viewType, max);
+    }
+
+    /**
+     * 获取布局的缓存数量
+     *
+     * @param layout 布局资源 id
+     * @return 缓存数量
+     */
+    public int getMaxRecycledViews(@LayoutRes int layout) {
+        return mMax.get(layout, mDefaultMax);
+    }
+
+    @Nullable
+    @Override
+    public RecyclerView.ViewHolder getRecycledView(int viewType) {
+        RecyclerView.ViewHolder holder = super.getRecycledView(viewType);
+        if (holder != null) {
+            mHits.put(viewType, mHits.get(viewType) + 1);
+            mHitCount++;
+        } else {
+            mMisses.put(viewType, mMisses.get(viewType) + 1);
+            mMissCount++;
+        }
+        return holder;
+    }
+
+    @Override
+    public void putRecycledView(RecyclerView.ViewHolder scrap) {
+        int viewType = scrap.getItemViewType();
+        if (mMax.indexOfKey(viewType) < 0) {
+            setMaxRecycledViews(viewType, mDefaultMax);
+        }
+        super.putRecycledView(scrap);
+    }
+
+    /**
+     * 获取从缓存池中取得视图的次数
+     *
+     * @return 命中次数
+     */
+    public int getHitCount() {
+        return mHitCount;
+    }
+
+    /**
+     * 获取缓存池中没有可用视图、需要创建视图的次数
+     *
+     * @return 未命中次数
+     */
+    public int getMissCount() {
+        return mMissCount;
+    }
+
+    /**
+     * 获取指定布局从缓存池中取得视图的次数
+     *
+     * @param layout 布局资源 id
+     * @return 命中次数
+     */
+    public int getHitCount(@LayoutRes int layout) {
+        return mHits.get(layout);
+    }
+
+    /**
+     * 获取指定布局在缓存池中没有可用视图的次数
+     *
+     * @param layout 布局资源 id
+     * @return 未命中次数
+     */
+    public int getMissCount(@LayoutRes int layout) {
+        return mMisses.get(layout);
+    }
+
+    /**
+     * 取出缓存池中的所有视图并释放其位图，不计入命中统计。
+     * 放入过的视图类型都已记录在 mMax 中
+     */
+    private void trimViews(TrimRegistry.Freed freed) {
+        for (int i = 0; i < mMax.size(); i++) {
+            int viewType = mMax.keyAt(i);
+            RecyclerView.ViewHolder holder;
+            while ((holder = super.getRecycledView(viewType)) != null) {
+                if (holder instanceof RecyclerViewViewHolderImpl) {
+                    freed.holderImages += ((RecyclerViewViewHolderImpl) holder).releaseImages();
+                }
+                freed.pooledViews++;
+            }
+        }
+    }
+
+    /**
+     * 清空命中统计
+     */
+    public void resetStats() {
+        mHits.clear();
+        mMisses.clear();
+        mHitCount = 0;
+        mMissCount = 0;
+    }
+}
@@ -0,0 +1,74 @@
+package online.cszt0.androidcommonutils.view;
+
+import android.graphics.Canvas;
+import android.view.View;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+/**
+ * 使 {@link SectionedRecyclerViewAdapter} 中当前分组的标题固定在列表顶部。
+ * 下一个分组的标题到达顶部时，将当前的标题推出。
+ * <p>
+ * 仅适用于纵向的线性布局。
+ *
+ * @see SectionedRecyclerViewAdapter
+ */
+public class StickyHeaderDecoration extends RecyclerView.ItemDecoration {
+    private SectionedRecyclerViewAdapter<?> mAdapter;
+    private RecyclerView.ViewHolder mHeader;
+    private int mBoundSection = -1;
+    private int mBoundVersion;
+    private int mBoundWidth;
+
+    public StickyHeaderDecoration(@NonNull SectionedRecyclerViewAdapter<?> adapter) {
+        mAdapter = adapter;
+    }
+
+    @Override
+    public void onDrawOver(@NonNull Canvas c, @NonNull RecyclerView parent, @NonNull RecyclerView.State state) {
+        int childCount = parent.getChildCount();
+        if (childCount == 0 || mAdapter.getSectionCount() == 0) {
+            return;
+        }
+        int position = parent.getChildAdapterPosition(parent.getChildAt(0));
+        if (position == RecyclerView.NO_POSITION) {
+            return;
+        }
+        int section = mAdapter.getSectionForPosition(position);
+        View header = obtainHeader(parent, section);
+        int top = parent.getPaddingTop();
+        if (section + 1 < mAdapter.getSectionCount()) {
+            int next = mAdapter.getPositionForSection(section + 1);
+            for (int i = 0; i < childCount; i++) {
+                View child = parent.getChildAt(i);
+                if (parent.getChildAdapterPosition(child) == next) {
+                    top = Math.min(top, child.getTop() - header.getHeight());
+                    break;
+                }
+            }
+        }
+        int saveCount = c.save();
+        c.translate(parent.getPaddingLeft(), top);
+        header.draw(c);
+        c.restoreToCount(saveCount);
+    }
+
+    private View obtainHeader(RecyclerView parent, int section) {
+        if (mHeader == null) {
+            mHeader = mAdapter.createHeaderViewHolder(parent);
+        }
+        View view = mHeader.itemView;
+        int width = parent.getWidth() - parent.getPaddingLeft() - parent.getPaddingRight();
+        if (section != mBoundSection || mAdapter.getSectionVersion() != mBoundVersion || width != mBoundWidth) {
+            mAdapter.bindHeaderViewHolder(mHeader, section);
+            view.measure(View.MeasureSpec.makeMeasureSpec(width, View.MeasureSpec.EXACTLY),
+                    View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED));
+            view.layout(0, 0, view.getMeasuredWidth(), view.getMeasuredHeight());
+            mBoundSection = section;
+            mBoundVersion = mAdapter.getSectionVersion();
+            mBoundWidth = width;
+        }
+        return view;
+    }
+}
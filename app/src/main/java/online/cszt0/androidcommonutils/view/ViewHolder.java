@@ -2,6 +2,7 @@ package online.cszt0.androidcommonutils.view;
 
 import android.graphics.Bitmap;
 import android.view.View;
+import android.widget.ImageView;
 
 import androidx.annotation.ColorInt;
 import androidx.annotation.IdRes;
@@ -10,6 +11,8 @@ import androidx.annotation.NonNull;
 /**
  * 在各种适配器中，用于修改组件属性的接口。提供各种基本组件的快速修改，同时可以获取指定控件进行修改。
  * 内部使用缓存机制将曾经获取过的控件进行缓存，因此总是使用 id 访问也可以保证效率。
+ * <p>
+ * 各设置方法在值与上一次设置的值相同时不会再次写入控件，因此重新绑定未变化的数据几乎没有开销。
  */
 public interface ViewHolder {
     /**
@@ -61,4 +64,21 @@ public interface ViewHolder {
      * @param image 所显示的图片
      */
     void setImageViewImage(@IdRes int id, Bitmap image);
+
+    /**
+     * 针对 {@link android.widget.ImageView}，异步加载并显示图片。
+     * <p>
+     * 图片在后台线程解码，并根据控件大小缩小采样，加载期间控件不显示图片。
+     * 若加载完成前该控件被设置为其他图片，本次加载将被取消。
+     * <p>
+     * 默认实现通过 {@link ImageLoader#load(ImageView, ImageSource)} 加载，
+     * 本库提供的实现还会在重新绑定相同图片时跳过加载。
+     *
+     * @param id     <code>ImageView</code> 的 id
+     * @param source 图片来源
+     * @see ImageLoader
+     */
+    default void loadImageViewImage(@IdRes int id, @NonNull ImageSource source) {
+        ImageLoader.load(this.<ImageView>getView(id), source);
+    }
 }
@@ -0,0 +1,242 @@
+package online.cszt0.androidcommonutils.view.internal;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import online.cszt0.androidcommonutils.view.CommonAdapterInterface;
+
+/**
+ * 在后台线程计算新旧数据集差异，并向适配器分发细粒度的刷新通知。
+ * <p>
+ * 每次提交都会产生新的版本号，旧版本的计算一旦发现已过期即中止，其结果也不会被分发。
+ * 计算读取新旧数据集的快照（见 {@link Snapshots}）；由使用者提供、无法建立快照的数据集在计算期间不应被修改。
+ *
+ * @param <Data> 数据集类型
+ * @hide
+ */
+public class AsyncDiffer<Data> {
+
+    /**
+     * 切换适配器所显示的数据集
+     *
+     * @param <Data> 数据集类型
+     */
+    public interface Committer<Data> {
+        /**
+         * 差异计算完成后，在分发通知前调用
+         *
+         * @param newList 新的数据集
+         */
+        void commit(List<Data> newList);
+
+        /**
+         * 通知分发完成后调用
+         */
+        void onDispatched();
+    }
+
+    private final RecyclerView.Adapter<?> adapter;
+    private final Committer<Data> committer;
+    private final Executor background;
+    private final Executor main;
+    private DiffUtil.ItemCallback<Data> itemCallback;
+    private volatile int maxGeneration;
+    private boolean pending;
+
+    public AsyncDiffer(@NonNull RecyclerView.Adapter<?> adapter, @NonNull Committer<Data> committer) {
+        this(adapter, committer, TaskExecutors.background(), new Executor() {
+            @Override
+            public void execute(@NonNull Runnable command) {
+                TaskExecutors.main().post(command);
+            }
+        });
+    }
+
+    /**
+     * 指定计算差异与回到主线程使用的线程，用于测试
+     */
+    AsyncDiffer(@NonNull RecyclerView.Adapter<?> adapter, @NonNull Committer<Data> committer,
+                @NonNull Executor background, @NonNull Executor main) {
+        this.adapter = adapter;
+        this.committer = committer;
+        this.background = background;
+        this.main = main;
+        this.itemCallback = new DefaultItemCallback<>();
+    }
+
+    /**
+     * 设置判断数据项是否相同的回调
+     *
+     * @param itemCallback 回调，传入 null 时使用默认实现
+     */
+    public void setItemCallback(DiffUtil.ItemCallback<Data> itemCallback) {
+        if (itemCallback == null) {
+            itemCallback = new DefaultItemCallback<>();
+        }
+        this.itemCallback = itemCallback;
+    }
+
+    /**
+     * 提交新的数据集。必须在主线程调用。
+     *
+     * @param oldList 当前显示的数据集
+     * @param newList 新的数据集
+     */
+    public void submit(@NonNull final List<Data> oldList, @NonNull final List<Data> newList) {
+        final int generation = ++maxGeneration;
+        pending = false;
+        if (oldList == newList) {
+            return;
+        }
+        // 空集合无需计算差异
+        if (oldList.isEmpty() || newList.isEmpty()) {
+            int oldSize = oldList.size();
+            committer.commit(newList);
+            if (oldSize > 0) {
+                adapter.notifyItemRangeRemoved(0, oldSize);
+            }
+            if (!newList.isEmpty()) {
+                adapter.notifyItemRangeInserted(0, newList.size());
+            }
+            committer.onDispatched();
+            return;
+        }
+        final DiffUtil.ItemCallback<Data> callback = itemCallback;
+        // 后台读取快照，计算期间主线程可以继续修改数据集
+        final List<Data> oldSnapshot = Snapshots.of(oldList);
+        final List<Data> newSnapshot = Snapshots.of(newList);
+        pending = true;
+        background.execute(new Runnable() {
+            @Override
+            public void run() {
+                final DiffUtil.DiffResult result;
+                try {
+                    result = DiffUtil.calculateDiff(new ListCallback(oldSnapshot, newSnapshot, callback, generation));
+                } catch (StaleDiffException e) {
+                    return;
+                }
+                main.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (generation == maxGeneration) {
+                            pending = false;
+                            committer.commit(newList);
+                            result.dispatchUpdatesTo(adapter);
+                            committer.onDispatched();
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * 取消所有尚未分发的差异计算。必须在主线程调用。
+     */
+    public void cancel() {
+        maxGeneration++;
+        pending = false;
+    }
+
+    /**
+     * 判断是否有尚未分发的差异计算。必须在主线程调用。
+     *
+     * @return true - 适配器所显示的数据集尚未切换到最近一次提交的数据集
+     */
+    public boolean isPending() {
+        return pending;
+    }
+
+    private class ListCallback extends DiffUtil.Callback {
+        private final List<Data> oldList;
+        private final List<Data> newList;
+        private final DiffUtil.ItemCallback<Data> callback;
+        private final int generation;
+
+        ListCallback(List<Data> oldList, List<Data> newList, DiffUtil.ItemCallback<Data> callback, int generation) {
+            this.oldList = oldList;
+            this.newList = newList;
+            this.callback = callback;
+            this.generation = generation;
+        }
+
+        @Override
+        public int getOldListSize() {
+            return oldList.size();
+        }
+
+        @Override
+        public int getNewListSize() {
+            return newList.size();
+        }
+
+        @Override
+        public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+            if (generation != maxGeneration) {
+                // 已有更新的数据集提交，放弃本次计算
+                throw StaleDiffException.INSTANCE;
+            }
+            Data oldItem = oldList.get(oldItemPosition);
+            Data newItem = newList.get(newItemPosition);
+            if (oldItem == null || newItem == null) {
+                return oldItem == newItem;
+            }
+            return callback.areItemsTheSame(oldItem, newItem);
+        }
+
+        @Override
+        public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+            Data oldItem = oldList.get(oldItemPosition);
+            Data newItem = newList.get(newItemPosition);
+            if (oldItem == null || newItem == null) {
+                return oldItem == newItem;
+            }
+            return callback.areContentsTheSame(oldItem, newItem);
+        }
+
+        @Override
+        public Object getChangePayload(int oldItemPosition, int newItemPosition) {
+            Data oldItem = oldList.get(oldItemPosition);
+            Data newItem = newList.get(newItemPosition);
+            if (oldItem == null || newItem == null) {
+                return null;
+            }
+            return callback.getChangePayload(oldItem, newItem);
+        }
+    }
+
+    /**
+     * 默认的比较实现：优先使用 {@link CommonAdapterInterface.Diffable}，否则使用 {@link Object#equals(Object)}
+     */
+    private static class DefaultItemCallback<Data> extends DiffUtil.ItemCallback<Data> {
+        @Override
+        public boolean areItemsTheSame(@NonNull Data oldItem, @NonNull Data newItem) {
+            if (oldItem instanceof CommonAdapterInterface.Diffable) {
+                return ((CommonAdapterInterface.Diffable) oldItem).isSameItem(newItem);
+            }
+            return oldItem.equals(newItem);
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull Data oldItem, @NonNull Data newItem) {
+            if (oldItem instanceof CommonAdapterInterface.Diffable) {
+                return ((CommonAdapterInterface.Diffable) oldItem).isSameContent(newItem);
+            }
+            return oldItem.equals(newItem);
+        }
+    }
+
+    private static class StaleDiffException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+        static final StaleDiffException INSTANCE = new StaleDiffException();
+
+        @Override
+        public synchronized Throwable fillInStackTrace() {
+            return this;
+        }
+    }
+}
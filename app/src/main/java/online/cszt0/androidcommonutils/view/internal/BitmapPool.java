@@ -0,0 +1,103 @@
+package online.cszt0.androidcommonutils.view.internal;
+
+import android.graphics.Bitmap;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 可复用位图池。
+ * <p>
+ * 保存已不再显示、也不在内存缓存中的可变位图，解码新图片时作为
+ * {@link android.graphics.BitmapFactory.Options#inBitmap} 复用其内存。
+ *
+ * @hide
+ */
+public class BitmapPool {
+    private final List<Bitmap> bitmaps;
+    private int maxSize;
+    private int size;
+
+    public BitmapPool(int maxSize) {
+        this.maxSize = maxSize;
+        bitmaps = new ArrayList<>();
+    }
+
+    /**
+     * 放入位图。不可变或已回收的位图将被忽略。
+     *
+     * @param bitmap 位图
+     */
+    public synchronized void put(@NonNull Bitmap bitmap) {
+        if (!bitmap.isMutable() || bitmap.isRecycled()) {
+            return;
+        }
+        int bytes = bitmap.getAllocationByteCount();
+        if (bytes > maxSize) {
+            return;
+        }
+        bitmaps.add(bitmap);
+        size += bytes;
+        trimToSize(maxSize);
+    }
+
+    /**
+     * 取出内存不小于给定字节数的最小位图
+     *
+     * @param bytes 需要的字节数
+     * @return 位图；没有合适的位图时返回 null
+     */
+    @Nullable
+    public synchronized Bitmap get(int bytes) {
+        int best = -1;
+        int bestBytes = Integer.MAX_VALUE;
+        for (int i = 0; i < bitmaps.size(); i++) {
+            int allocation = bitmaps.get(i).getAllocationByteCount();
+            // 过大的位图复用会浪费内存，不超过需要的两倍
+            if (allocation >= bytes && allocation < bestBytes && allocation <= bytes * 2) {
+                best = i;
+                bestBytes = allocation;
+            }
+        }
+        if (best < 0) {
+            return null;
+        }
+        size -= bestBytes;
+        return bitmaps.remove(best);
+    }
+
+    /**
+     * 设置池的最大字节数
+     *
+     * @param maxSize 最大字节数
+     */
+    public synchronized void setMaxSize(int maxSize) {
+        this.maxSize = maxSize;
+        trimToSize(maxSize);
+    }
+
+    /**
+     * 释放位图直到总字节数不超过给定值
+     *
+     * @param targetSize 目标字节数
+     * @return 释放的字节数
+     */
+    public synchronized int trimToSize(int targetSize) {
+        int freed = 0;
+        while (size > targetSize && !bitmaps.isEmpty()) {
+            // 最早放入的位图最先释放
+            Bitmap bitmap = bitmaps.remove(0);
+            int bytes = bitmap.getAllocationByteCount();
+            size -= bytes;
+            freed += bytes;
+        }
+        return freed;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+}
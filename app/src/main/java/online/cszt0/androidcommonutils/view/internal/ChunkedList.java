@@ -0,0 +1,801 @@
+package online.cszt0.androidcommonutils.view.internal;
+
+import androidx.annotation.NonNull;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+
+/**
+ * 分段存储的列表。
+ * <p>
+ * 数据按顺序存放在若干定长的叶子分段中，分段之上是记录子树元素数量的多叉树，
+ * 按位置读取、插入与删除的时间复杂度均为 O(log n)，插入时仅移动单个分段内的元素。
+ * 所有叶子分段位于同一深度：分段满时分裂，过少时与相邻分段合并。
+ * 批量插入与删除将树在边界处切开后重新拼接，时间复杂度为 O(k + log n)。
+ * <p>
+ * 列表是持久化的：{@link #snapshot()} 在 O(1) 时间内返回与列表共享节点的不可变快照。
+ * 每个节点记录创建它的修改令牌，只有令牌与列表当前的令牌相同时才能就地修改；
+ * 建立快照时列表更换令牌，之后的修改将复制根到目标分段路径上的节点，
+ * 因此快照中的节点不再被修改，可以在其他线程中读取。
+ * <p>
+ * 该类不是线程安全的，但快照可以在任意线程中读取。
+ *
+ * @param <E> 元素类型
+ * @hide
+ */
+public class ChunkedList<E> extends AbstractList<E> implements RandomAccess {
+    private static final int LEAF_CAPACITY = 64;
+    private static final int BRANCH_CAPACITY = 32;
+    // 少于该数量的批量插入与删除逐个进行，避免在拼接处留下过少的分段
+    private static final int BULK_THRESHOLD = LEAF_CAPACITY / 4;
+
+    private Node root;
+    // 修改令牌，令牌相同的节点可以就地修改
+    private Object edit = new Object();
+    private final boolean readOnly;
+    // 最近一次的快照，修改后失效
+    private ChunkedList<E> snapshot;
+
+    public ChunkedList() {
+        root = new Leaf(edit);
+        readOnly = false;
+    }
+
+    public ChunkedList(@NonNull Collection<? extends E> collection) {
+        root = build(collection, edit);
+        readOnly = false;
+    }
+
+    private ChunkedList(Node root, boolean readOnly) {
+        this.root = root;
+        this.readOnly = readOnly;
+    }
+
+    /**
+     * 复制集合的内容。
+     * <p>
+     * 复制另一个 {@link ChunkedList} 时与其快照共享节点，时间复杂度为 O(1)：
+     * 两个列表的令牌均与共享的节点不同，之后的修改都会先复制节点，互不影响。其他集合逐个复制。
+     *
+     * @param collection 集合
+     * @param <E>        元素类型
+     * @return 可修改的列表
+     */
+    @NonNull
+    public static <E> ChunkedList<E> copyOf(@NonNull Collection<? extends E> collection) {
+        if (collection instanceof ChunkedList) {
+            return new ChunkedList<>(((ChunkedList<? extends E>) collection).snapshot().root, false);
+        }
+        return new ChunkedList<>(collection);
+    }
+
+    /**
+     * 获取列表当前内容的快照。
+     * <p>
+     * 快照是不可变的，之后对列表的修改不会影响快照，可以在任意线程中读取。
+     * 两次修改之间多次获取的快照为同一对象。
+     *
+     * @return 快照；对快照调用时返回自身
+     */
+    @NonNull
+    public ChunkedList<E> snapshot() {
+        if (readOnly) {
+            return this;
+        }
+        if (snapshot == null) {
+            edit = new Object();
+            snapshot = new ChunkedList<>(root, true);
+        }
+        return snapshot;
+    }
+
+    @Override
+    public int size() {
+        return root.size;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public E get(int index) {
+        checkIndex(index);
+        Node node = root;
+        while (node instanceof Branch) {
+            Branch branch = (Branch) node;
+            int c = 0;
+            while (index >= branch.children[c].size) {
+                index -= branch.children[c].size;
+                c++;
+            }
+            node = branch.children[c];
+        }
+        return (E) ((Leaf) node).items[index];
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public E set(int index, E element) {
+        checkIndex(index);
+        beforeModify();
+        Node node = root = editable(root);
+        while (node instanceof Branch) {
+            Branch branch = (Branch) node;
+            int c = 0;
+            while (index >= branch.children[c].size) {
+                index -= branch.children[c].size;
+                c++;
+            }
+            node = branch.children[c] = editable(branch.children[c]);
+        }
+        Leaf leaf = (Leaf) node;
+        E old = (E) leaf.items[index];
+        leaf.items[index] = element;
+        return old;
+    }
+
+    @Override
+    public void add(int index, E element) {
+        if (index < 0 || index > size()) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+        }
+        beforeModify();
+        root = editable(root);
+        Node split = insert(root, index, element);
+        if (split != null) {
+            Branch branch = new Branch(edit);
+            branch.children[0] = root;
+            branch.children[1] = split;
+            branch.count = 2;
+            branch.size = root.size + split.size;
+            root = branch;
+        }
+        modCount++;
+    }
+
+    @Override
+    public boolean addAll(@NonNull Collection<? extends E> c) {
+        return addAll(size(), c);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public boolean addAll(int index, @NonNull Collection<? extends E> c) {
+        if (index < 0 || index > size()) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+        }
+        int count = c.size();
+        if (count == 0) {
+            return false;
+        }
+        if (count < BULK_THRESHOLD) {
+            // 先复制，集合可能就是列表自身
+            for (Object e : c.toArray()) {
+                add(index++, (E) e);
+            }
+            return true;
+        }
+        beforeModify();
+        Node inserted = build(c, edit);
+        Node[] parts = split(root, index);
+        root = normalize(concat(concat(parts[0], inserted), parts[1]));
+        modCount++;
+        return true;
+    }
+
+    @Override
+    public E remove(int index) {
+        checkIndex(index);
+        beforeModify();
+        root = editable(root);
+        E old = remove(root, index);
+        if (root instanceof Branch && ((Branch) root).count == 1) {
+            root = ((Branch) root).children[0];
+        }
+        modCount++;
+        return old;
+    }
+
+    @Override
+    protected void removeRange(int fromIndex, int toIndex) {
+        if (fromIndex < 0 || toIndex > size() || fromIndex > toIndex) {
+            throw new IndexOutOfBoundsException("From: " + fromIndex + ", To: " + toIndex + ", Size: " + size());
+        }
+        if (toIndex - fromIndex < BULK_THRESHOLD) {
+            for (int i = fromIndex; i < toIndex; i++) {
+                remove(fromIndex);
+            }
+            return;
+        }
+        beforeModify();
+        Node[] head = split(root, fromIndex);
+        Node[] tail = split(head[1], toIndex - fromIndex);
+        root = normalize(concat(head[0], tail[1]));
+        modCount++;
+    }
+
+    @Override
+    public void clear() {
+        beforeModify();
+        root = new Leaf(edit);
+        modCount++;
+    }
+
+    @NonNull
+    @Override
+    public Iterator<E> iterator() {
+        return new Itr();
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+        }
+    }
+
+    private void beforeModify() {
+        if (readOnly) {
+            throw new UnsupportedOperationException("Snapshot is read-only");
+        }
+        snapshot = null;
+    }
+
+    /**
+     * 获取可就地修改的节点：节点属于当前令牌时返回自身，否则返回其副本
+     */
+    private Node editable(Node node) {
+        return node.owner == edit ? node : node.copy(edit);
+    }
+
+    /**
+     * 在可修改的子树中插入元素
+     *
+     * @return 子树分裂出的右半部分；未分裂时返回 null
+     */
+    private Node insert(Node node, int index, Object element) {
+        if (node instanceof Leaf) {
+            Leaf leaf = (Leaf) node;
+            if (leaf.size < LEAF_CAPACITY) {
+                leaf.insert(index, element);
+                return null;
+            }
+            Leaf right = leaf.split(edit);
+            if (index <= leaf.size) {
+                leaf.insert(index, element);
+            } else {
+                right.insert(index - leaf.size, element);
+            }
+            return right;
+        }
+        Branch branch = (Branch) node;
+        int c = 0;
+        // 插入在两个分段交界处时，追加到前一个分段末尾
+        while (c < branch.count - 1 && index > branch.children[c].size) {
+            index -= branch.children[c].size;
+            c++;
+        }
+        Node split = insert(branch.children[c] = editable(branch.children[c]), index, element);
+        branch.size++;
+        if (split == null) {
+            return null;
+        }
+        if (branch.count < BRANCH_CAPACITY) {
+            branch.insert(c + 1, split);
+            return null;
+        }
+        // 分裂时新子树的元素计入了左半部分，若其落在右半部分需要修正
+        Branch right = branch.split(edit);
+        if (c + 1 <= branch.count) {
+            branch.insert(c + 1, split);
+        } else {
+            right.insert(c + 1 - branch.count, split);
+            branch.size -= split.size;
+            right.size += split.size;
+        }
+        return right;
+    }
+
+    /**
+     * 从可修改的子树中删除元素
+     */
+    @SuppressWarnings("unchecked")
+    private E remove(Node node, int index) {
+        if (node instanceof Leaf) {
+            Leaf leaf = (Leaf) node;
+            Object old = leaf.items[index];
+            System.arraycopy(leaf.items, index + 1, leaf.items, index, leaf.size - index - 1);
+            leaf.items[--leaf.size] = null;
+            return (E) old;
+        }
+        Branch branch = (Branch) node;
+        int c = 0;
+        while (index >= branch.children[c].size) {
+            index -= branch.children[c].size;
+            c++;
+        }
+        Node child = branch.children[c] = editable(branch.children[c]);
+        E old = remove(child, index);
+        branch.size--;
+        if (child.size == 0) {
+            branch.removeAt(c);
+        } else if (child.isUnderflow()) {
+            branch.tryMerge(c, edit);
+        }
+        return old;
+    }
+
+    /**
+     * 在位置处将子树切为两棵与原子树同高的子树。与快照共享的节点不会被修改
+     *
+     * @return 左右两部分，某部分为空时对应元素为 null
+     */
+    private Node[] split(Node node, int index) {
+        Node[] parts = new Node[2];
+        int size = node.size;
+        if (index == 0) {
+            parts[1] = node;
+            return parts;
+        }
+        if (index == size) {
+            parts[0] = node;
+            return parts;
+        }
+        if (node instanceof Leaf) {
+            Leaf left = (Leaf) editable(node);
+            Leaf right = new Leaf(edit);
+            right.size = size - index;
+            System.arraycopy(left.items, index, right.items, 0, right.size);
+            Arrays.fill(left.items, index, size, null);
+            left.size = index;
+            parts[0] = left;
+            parts[1] = right;
+            return parts;
+        }
+        Branch branch = (Branch) node;
+        int c = 0;
+        int offset = 0;
+        while (index - offset >= branch.children[c].size) {
+            offset += branch.children[c].size;
+            c++;
+        }
+        Node[] childParts = split(branch.children[c], index - offset);
+        // 先取出右侧的子节点，左侧可能就地修改
+        Branch right = new Branch(edit);
+        if (childParts[1] != null) {
+            right.children[right.count++] = childParts[1];
+        }
+        for (int i = c + 1; i < branch.count; i++) {
+            right.children[right.count++] = branch.children[i];
+        }
+        right.size = size - index;
+        Branch left = (Branch) editable(branch);
+        Arrays.fill(left.children, c, left.count, null);
+        left.count = c;
+        if (childParts[0] != null) {
+            left.children[left.count++] = childParts[0];
+        }
+        left.size = index;
+        parts[0] = left;
+        parts[1] = right;
+        return parts;
+    }
+
+    /**
+     * 拼接两棵子树，较矮的子树挂到较高子树的边缘上，相接处过少的节点尽量合并
+     *
+     * @return 拼接后的子树；两者均为 null 时返回 null
+     */
+    private Node concat(Node a, Node b) {
+        if (a == null) {
+            return b;
+        }
+        if (b == null) {
+            return a;
+        }
+        int ha = height(a);
+        int hb = height(b);
+        if (ha == hb) {
+            if (mergeable(a, b)) {
+                return merge(editable(a), b, edit);
+            }
+            return parent(a, b);
+        }
+        if (ha > hb) {
+            Branch left = (Branch) editable(a);
+            Branch split = joinRight(left, ha, b, hb);
+            return split == null ? left : parent(left, split);
+        }
+        Branch right = (Branch) editable(b);
+        Branch split = joinLeft(a, ha, right, hb);
+        return split == null ? right : parent(right, split);
+    }
+
+    /**
+     * 将较矮的子树 b 接到可修改的子树 a 的最右侧
+     *
+     * @return a 分裂出的右半部分；未分裂时返回 null
+     */
+    private Branch joinRight(Branch a, int ha, Node b, int hb) {
+        int last = a.count - 1;
+        if (ha - 1 == hb) {
+            Node child = a.children[last];
+            if (mergeable(child, b)) {
+                a.children[last] = merge(editable(child), b, edit);
+                a.size += b.size;
+                return null;
+            }
+            return insertChild(a, a.count, b);
+        }
+        Branch child = (Branch) editable(a.children[last]);
+        a.children[last] = child;
+        Branch split = joinRight(child, ha - 1, b, hb);
+        if (split == null) {
+            a.size += b.size;
+            return null;
+        }
+        a.size += b.size - split.size;
+        return insertChild(a, a.count, split);
+    }
+
+    /**
+     * 将较矮的子树 a 接到可修改的子树 b 的最左侧
+     *
+     * @return b 分裂出的右半部分；未分裂时返回 null
+     */
+    private Branch joinLeft(Node a, int ha, Branch b, int hb) {
+        if (hb - 1 == ha) {
+            Node child = b.children[0];
+            if (mergeable(a, child)) {
+                b.children[0] = merge(editable(a), child, edit);
+                b.size += a.size;
+                return null;
+            }
+            return insertChild(b, 0, a);
+        }
+        Branch child = (Branch) editable(b.children[0]);
+        b.children[0] = child;
+        Branch split = joinLeft(a, ha, child, hb - 1);
+        if (split == null) {
+            b.size += a.size;
+            return null;
+        }
+        b.size += a.size - split.size;
+        return insertChild(b, 1, split);
+    }
+
+    /**
+     * 在可修改的分支中插入子节点，并计入其元素数量
+     *
+     * @return 分支分裂出的右半部分；未分裂时返回 null
+     */
+    private Branch insertChild(Branch branch, int index, Node child) {
+        if (branch.count < BRANCH_CAPACITY) {
+            branch.insert(index, child);
+            branch.size += child.size;
+            return null;
+        }
+        Branch right = branch.split(edit);
+        if (index <= branch.count) {
+            branch.insert(index, child);
+            branch.size += child.size;
+        } else {
+            right.insert(index - branch.count, child);
+            right.size += child.size;
+        }
+        return right;
+    }
+
+    private Branch parent(Node left, Node right) {
+        Branch branch = new Branch(edit);
+        branch.children[0] = left;
+        branch.children[1] = right;
+        branch.count = 2;
+        branch.size = left.size + right.size;
+        return branch;
+    }
+
+    /**
+     * 去掉只有一个子节点的根
+     */
+    private Node normalize(Node node) {
+        if (node == null) {
+            return new Leaf(edit);
+        }
+        while (node instanceof Branch && ((Branch) node).count == 1) {
+            node = ((Branch) node).children[0];
+        }
+        return node;
+    }
+
+    private static int height(Node node) {
+        int height = 0;
+        while (node instanceof Branch) {
+            node = ((Branch) node).children[0];
+            height++;
+        }
+        return height;
+    }
+
+    /**
+     * 判断两个同高的相邻节点能否合并为一个
+     */
+    private static boolean mergeable(Node a, Node b) {
+        if (a instanceof Leaf) {
+            return a.size + b.size <= LEAF_CAPACITY;
+        }
+        return ((Branch) a).count + ((Branch) b).count <= BRANCH_CAPACITY;
+    }
+
+    /**
+     * 将 b 的内容追加到可修改的节点 a 中。合并分支时，相接处过少的子节点继续合并
+     *
+     * @return a
+     */
+    private static Node merge(Node a, Node b, Object edit) {
+        if (a instanceof Leaf) {
+            Leaf la = (Leaf) a;
+            Leaf lb = (Leaf) b;
+            System.arraycopy(lb.items, 0, la.items, la.size, lb.size);
+            la.size += lb.size;
+            return la;
+        }
+        Branch ba = (Branch) a;
+        Branch bb = (Branch) b;
+        int seam = ba.count - 1;
+        System.arraycopy(bb.children, 0, ba.children, ba.count, bb.count);
+        ba.count += bb.count;
+        ba.size += bb.size;
+        if (seam >= 0 && seam + 1 < ba.count
+                && (ba.children[seam].isUnderflow() || ba.children[seam + 1].isUnderflow())) {
+            ba.tryMerge(seam, edit);
+        }
+        return ba;
+    }
+
+    private static Node build(Collection<?> collection, Object edit) {
+        List<Node> level = new ArrayList<>(collection.size() / LEAF_CAPACITY + 1);
+        if (collection instanceof RandomAccess && !(collection instanceof ChunkedList)) {
+            // 按位置逐段填充，不经过迭代器
+            List<?> list = (List<?>) collection;
+            int size = list.size();
+            int offset = 0;
+            do {
+                Leaf leaf = new Leaf(edit);
+                int count = Math.min(LEAF_CAPACITY, size - offset);
+                for (int i = 0; i < count; i++) {
+                    leaf.items[i] = list.get(offset + i);
+                }
+                leaf.size = count;
+                level.add(leaf);
+                offset += count;
+            } while (offset < size);
+        } else {
+            Leaf leaf = new Leaf(edit);
+            for (Object item : collection) {
+                if (leaf.size == LEAF_CAPACITY) {
+                    level.add(leaf);
+                    leaf = new Leaf(edit);
+                }
+                leaf.items[leaf.size++] = item;
+            }
+            level.add(leaf);
+        }
+        while (level.size() > 1) {
+            List<Node> parents = new ArrayList<>((level.size() + BRANCH_CAPACITY - 1) / BRANCH_CAPACITY);
+            Branch branch = null;
+            for (Node node : level) {
+                if (branch == null || branch.count == BRANCH_CAPACITY) {
+                    branch = new Branch(edit);
+                    parents.add(branch);
+                }
+                branch.children[branch.count++] = node;
+                branch.size += node.size;
+            }
+            level = parents;
+        }
+        return level.get(0);
+    }
+
+    private abstract static class Node {
+        // 创建节点的修改令牌
+        final Object owner;
+        int size;
+
+        Node(Object owner) {
+            this.owner = owner;
+        }
+
+        abstract boolean isUnderflow();
+
+        /**
+         * 复制节点，子节点仍然共享
+         */
+        abstract Node copy(Object owner);
+    }
+
+    private static final class Leaf extends Node {
+        final Object[] items = new Object[LEAF_CAPACITY];
+
+        Leaf(Object owner) {
+            super(owner);
+        }
+
+        @Override
+        Leaf copy(Object owner) {
+            Leaf copy = new Leaf(owner);
+            System.arraycopy(items, 0, copy.items, 0, size);
+            copy.size = size;
+            return copy;
+        }
+
+        void insert(int index, Object item) {
+            System.arraycopy(items, index, items, index + 1, size - index);
+            items[index] = item;
+            size++;
+        }
+
+        Leaf split(Object owner) {
+            Leaf right = new Leaf(owner);
+            int half = size / 2;
+            right.size = size - half;
+            System.arraycopy(items, half, right.items, 0, right.size);
+            for (int i = half; i < size; i++) {
+                items[i] = null;
+            }
+            size = half;
+            return right;
+        }
+
+        @Override
+        boolean isUnderflow() {
+            return size < LEAF_CAPACITY / 4;
+        }
+    }
+
+    private static final class Branch extends Node {
+        final Node[] children = new Node[BRANCH_CAPACITY];
+        int count;
+
+        Branch(Object owner) {
+            super(owner);
+        }
+
+        @Override
+        Branch copy(Object owner) {
+            Branch copy = new Branch(owner);
+            System.arraycopy(children, 0, copy.children, 0, count);
+            copy.count = count;
+            copy.size = size;
+            return copy;
+        }
+
+        void insert(int index, Node child) {
+            System.arraycopy(children, index, children, index + 1, count - index);
+            children[index] = child;
+            count++;
+        }
+
+        void removeAt(int index) {
+            System.arraycopy(children, index + 1, children, index, count - index - 1);
+            children[--count] = null;
+        }
+
+        Branch split(Object owner) {
+            Branch right = new Branch(owner);
+            int half = count / 2;
+            right.count = count - half;
+            System.arraycopy(children, half, right.children, 0, right.count);
+            for (int i = half; i < count; i++) {
+                right.size += children[i].size;
+                children[i] = null;
+            }
+            size -= right.size;
+            count = half;
+            return right;
+        }
+
+        /**
+         * 尝试将过少的子节点与相邻子节点合并，合并到左侧的节点中
+         */
+        void tryMerge(int index, Object edit) {
+            if (count < 2) {
+                return;
+            }
+            int left = index + 1 < count ? index : index - 1;
+            Node a = children[left];
+            Node b = children[left + 1];
+            if (!mergeable(a, b)) {
+                return;
+            }
+            // 右侧的节点只被读取，左侧的节点可能与快照共享，需要可修改的副本
+            if (a.owner != edit) {
+                a = children[left] = a.copy(edit);
+            }
+            merge(a, b, edit);
+            removeAt(left + 1);
+        }
+
+        @Override
+        boolean isUnderflow() {
+            return count < BRANCH_CAPACITY / 4;
+        }
+    }
+
+    /**
+     * 按叶子分段顺序遍历的迭代器，只在进入新的分段时查找一次
+     */
+    private class Itr implements Iterator<E> {
+        // 当前分段的元素数组及其在列表中的范围 [leafStart, leafEnd)
+        private Object[] items;
+        private int leafStart;
+        private int leafEnd;
+        private int cursor;
+        private int lastRet = -1;
+        private int expectedModCount = modCount;
+
+        @Override
+        public boolean hasNext() {
+            return cursor < size();
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public E next() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            int i = cursor;
+            // 未被修改时，位于当前分段内的位置必然有效，只在进入新的分段时检查
+            if (i >= leafEnd) {
+                if (i >= size()) {
+                    throw new NoSuchElementException();
+                }
+                seek(i);
+            }
+            lastRet = i;
+            cursor = i + 1;
+            return (E) items[i - leafStart];
+        }
+
+        /**
+         * 查找包含指定位置的叶子分段
+         */
+        private void seek(int index) {
+            Node node = root;
+            int offset = 0;
+            while (node instanceof Branch) {
+                Branch branch = (Branch) node;
+                int c = 0;
+                while (index - offset >= branch.children[c].size) {
+                    offset += branch.children[c].size;
+                    c++;
+                }
+                node = branch.children[c];
+            }
+            items = ((Leaf) node).items;
+            leafStart = offset;
+            leafEnd = offset + node.size;
+        }
+
+        @Override
+        public void remove() {
+            if (lastRet < 0) {
+                throw new IllegalStateException();
+            }
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            ChunkedList.this.remove(lastRet);
+            cursor = lastRet;
+            lastRet = -1;
+            // 删除后分段可能已变化，重新查找
+            leafEnd = 0;
+            expectedModCount = modCount;
+        }
+    }
+}
@@ -1,48 +1,690 @@
 package online.cszt0.androidcommonutils.view.internal;
 
+import android.os.OperationCanceledException;
 import android.widget.Filter;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import online.cszt0.androidcommonutils.view.CommonAdapterInterface;
+import online.cszt0.androidcommonutils.view.PagedDataSource;
+import online.cszt0.androidcommonutils.view.PagedList;
 
 /**
  * 过滤的具体实现类
+ * <p>
+ * 启用增量过滤后，若新的条件以上一次的条件开头（如 "ab" -> "abc"），则仅在上一次的结果中继续过滤。
+ * 启用并行过滤后，数据量达到阈值时将数据集分段交由 {@link ForkJoinPool} 过滤，合并后保持原有顺序。
+ * 启用搜索索引后，每次数据集变化时在后台重建 {@link SearchIndex}，索引就绪前仍使用扫描方式过滤，
+ * 但扫描同样按 {@link #matches(Object, CharSequence)} 的规则判断，因此结果与索引是否就绪无关。
+ * 对于 {@link PagedList}，优先由数据源完成过滤，否则逐页加载并过滤，加载的页面不会被保留。
+ * <p>
+ * 过滤结果以 {@link FilteredList} 的形式记录数据在数据集中的位置，不复制数据。
+ * 适配器不再使用的结果可通过 {@link #recycle(List)} 归还，其位置表将被之后的过滤复用。
+ * <p>
+ * 过滤与建立索引均读取数据集的快照（见 {@link Snapshots}），快照在数据集变化时于主线程中获取，
+ * 因此后台读取不会与主线程的修改冲突。若过滤期间数据集发生了变化，过滤结果不会被发布，而是以相同条件重新过滤。
+ * <p>
+ * 通过 {@link #request(CharSequence)} 发起的过滤经过防抖，且只有最新的请求会被发布：
+ * 每次请求使代数增加，正在进行的过滤在扫描中定期检查代数，发现过期后立即停止；
+ * 发布时代数已过期的结果将被丢弃。直接调用 {@link #filter(CharSequence)} 的过滤不改变代数。
  *
  * @param <Data> 数据集类型
  * @hide
  */
-public class FilterImpl<Data> extends Filter {
+public class FilterImpl<Data> extends Filter implements FilteredList.Matcher {
+
+    private static final int MIN_CHUNK_SIZE = 256;
+    private static final int MAX_POOLED_BUFFERS = 2;
+    // 扫描时每隔多少个数据检查一次是否已被取消，须为 2 的幂
+    private static final int CANCEL_CHECK_INTERVAL = 256;
+    // 当前线程正在进行的过滤
+    private static final ThreadLocal<Pass> CURRENT_PASS = new ThreadLocal<>();
+
+    /**
+     * 延迟执行防抖后的请求，用于测试时替换主线程的 Handler
+     */
+    interface Scheduler {
+        void postDelayed(Runnable task, long delayMillis);
+
+        void cancel(Runnable task);
+    }
+
+    private static final Scheduler MAIN_SCHEDULER = new Scheduler() {
+        @Override
+        public void postDelayed(Runnable task, long delayMillis) {
+            TaskExecutors.main().postDelayed(task, delayMillis);
+        }
+
+        @Override
+        public void cancel(Runnable task) {
+            TaskExecutors.main().removeCallbacks(task);
+        }
+    };
 
     private CommonAdapterInterface<Data> commonAdapter;
+    private final Executor background;
+    private final Scheduler scheduler;
+    private volatile boolean incremental;
+    private volatile int dataVersion;
+    // 数据集的快照，先于 dataVersion 更新
+    private volatile List<Data> snapshot;
+    private volatile int parallelThreshold;
+    private volatile boolean indexEnabled;
+    private volatile int indexGeneration;
+    private volatile SearchIndex index;
+    private volatile LatencyRecorder filterRecorder;
+    private volatile LatencyRecorder publishRecorder;
+    // 可复用的位置表，由过滤线程取出，由主线程归还
+    private final ArrayDeque<int[]> bufferPool = new ArrayDeque<>();
+    // 最新请求的代数，增加后正在进行的过滤即被取消
+    private final AtomicInteger requestGeneration = new AtomicInteger();
+    // 已交给过滤线程的请求的代数，小于 requestGeneration 时说明有请求正在防抖
+    private volatile int dispatchedGeneration;
+    private volatile long debounceMillis;
+
+    // 以下字段仅在主线程中访问
+    private CharSequence publishedConstraint;
+    private Runnable pendingRequest;
+    // 搜索索引因内存紧张被丢弃，下次过滤时重建
+    private boolean indexDropped;
+
+    // 以下字段仅在过滤线程中访问
+    private String lastConstraint;
+    private List<Data> lastSource;
+    private int lastSourceSize;
+    private int lastVersion;
+    // 上一次结果的位置表，与发布的结果共享，发布的结果修改前将复制位置表
+    private int[] lastPositions;
+    private int lastCount;
 
     public FilterImpl(CommonAdapterInterface<Data> commonAdapter) {
+        this(commonAdapter, TaskExecutors.background());
+    }
+
+    /**
+     * 指定建立搜索索引使用的线程，用于测试
+     */
+    FilterImpl(CommonAdapterInterface<Data> commonAdapter, Executor background) {
+        this(commonAdapter, background, MAIN_SCHEDULER);
+    }
+
+    /**
+     * 指定建立搜索索引使用的线程与防抖使用的调度，用于测试
+     */
+    FilterImpl(CommonAdapterInterface<Data> commonAdapter, Executor background, Scheduler scheduler) {
         this.commonAdapter = commonAdapter;
+        this.background = background;
+        this.scheduler = scheduler;
+        snapshot = Snapshots.of(commonAdapter.getData());
+    }
+
+    /**
+     * 设置记录过滤与发布耗时的记录器
+     *
+     * @param filterRecorder  过滤耗时的记录器
+     * @param publishRecorder 发布耗时的记录器
+     */
+    public void setRecorders(LatencyRecorder filterRecorder, LatencyRecorder publishRecorder) {
+        this.filterRecorder = filterRecorder;
+        this.publishRecorder = publishRecorder;
+    }
+
+    /**
+     * 设置是否启用增量过滤
+     *
+     * @param incremental true - 启用增量过滤
+     */
+    public void setIncremental(boolean incremental) {
+        this.incremental = incremental;
+    }
+
+    /**
+     * 设置并行过滤的数据量阈值
+     *
+     * @param threshold 阈值，小于等于 0 时不使用并行过滤
+     */
+    public void setParallelThreshold(int threshold) {
+        this.parallelThreshold = threshold;
+    }
+
+    /**
+     * 设置防抖时间
+     *
+     * @param millis 请求后等待的毫秒数，期间的新请求将替换该请求；小于等于 0 时立即过滤
+     */
+    public void setDebounce(long millis) {
+        this.debounceMillis = millis;
     }
 
+    /**
+     * 请求以给定条件过滤。必须在主线程调用。
+     * <p>
+     * 正在进行的过滤将被取消，尚未开始的请求将被替换。
+     * 经过防抖时间且期间没有新的请求后，才开始过滤。
+     *
+     * @param constraint 过滤条件
+     */
+    public void request(CharSequence constraint) {
+        restoreIndex();
+        // 条件可能是随输入变化的 Editable，因此保存副本
+        final String key = constraint == null ? null : constraint.toString();
+        final int generation = requestGeneration.incrementAndGet();
+        if (pendingRequest != null) {
+            scheduler.cancel(pendingRequest);
+            pendingRequest = null;
+        }
+        long delay = debounceMillis;
+        if (delay <= 0) {
+            dispatch(generation, key);
+            return;
+        }
+        pendingRequest = new Runnable() {
+            @Override
+            public void run() {
+                pendingRequest = null;
+                dispatch(generation, key);
+            }
+        };
+        scheduler.postDelayed(pendingRequest, delay);
+    }
+
+    private void dispatch(int generation, String constraint) {
+        if (generation == requestGeneration.get()) {
+            dispatchedGeneration = generation;
+            filter(constraint);
+        }
+    }
+
+    /**
+     * 判断当前线程中正在进行的过滤是否已被更新的请求取消，可在任意线程调用
+     *
+     * @return true - 已被取消；当前线程没有正在进行的过滤时返回 false
+     */
+    public static boolean isCurrentPassCanceled() {
+        Pass pass = CURRENT_PASS.get();
+        return pass != null && pass.isCanceled();
+    }
+
+    /**
+     * 设置是否使用搜索索引。必须在主线程调用。
+     *
+     * @param enabled true - 使用搜索索引
+     */
+    public void setIndexEnabled(boolean enabled) {
+        if (indexEnabled == enabled) {
+            return;
+        }
+        indexEnabled = enabled;
+        if (enabled) {
+            rebuildIndex();
+        } else {
+            indexGeneration++;
+            index = null;
+        }
+    }
+
+    /**
+     * 数据集发生变化，丢弃上一次的过滤结果。必须在主线程调用。
+     */
+    public void invalidate() {
+        snapshot = Snapshots.of(commonAdapter.getData());
+        dataVersion++;
+        if (indexEnabled) {
+            rebuildIndex();
+        }
+    }
+
+    /**
+     * 获取最近一次发布的过滤结果所使用的条件。必须在主线程调用。
+     *
+     * @return 过滤条件
+     */
+    public CharSequence getPublishedConstraint() {
+        return publishedConstraint;
+    }
+
+    /**
+     * 判断数据是否通过最近一次发布的过滤条件，用于在数据集被细粒度修改后维护过滤结果。必须在主线程调用。
+     *
+     * @param item 数据
+     * @return true - 通过过滤
+     */
     @Override
-    protected FilterResults performFiltering(CharSequence constraint) {
-        List<Data> data = commonAdapter.getData();
-        List<Data> filterData = new ArrayList<>();
-        for (Data d : data) {
-            boolean contains = true;
-            if (d instanceof CommonAdapterInterface.Filterable) {
-                contains = ((CommonAdapterInterface.Filterable) d).filter(constraint);
+    public boolean matches(Object item) {
+        return matches(item, publishedConstraint);
+    }
+
+    /**
+     * 判断数据是否通过给定的过滤条件，可在任意线程调用
+     *
+     * @param item       数据
+     * @param constraint 过滤条件
+     * @return true - 通过过滤
+     */
+    public boolean matches(Object item, CharSequence constraint) {
+        return accept(item, constraint, queryOf(constraint));
+    }
+
+    /**
+     * 获取逐个判断数据时使用的查询串
+     *
+     * @param constraint 过滤条件
+     * @return 启用搜索索引时为 {@link SearchIndex#normalize(CharSequence)} 处理后的条件，否则为 null
+     */
+    private String queryOf(CharSequence constraint) {
+        return indexEnabled ? SearchIndex.normalize(constraint) : null;
+    }
+
+    /**
+     * 归还适配器不再使用的过滤结果。必须在主线程调用，且调用后不得再访问该结果。
+     *
+     * @param filterData 过滤结果，可为 null
+     */
+    public void recycle(List<?> filterData) {
+        if (!(filterData instanceof FilteredList)) {
+            return;
+        }
+        int[] buffer = ((FilteredList<?>) filterData).release();
+        if (buffer.length == 0) {
+            return;
+        }
+        synchronized (bufferPool) {
+            if (bufferPool.size() < MAX_POOLED_BUFFERS) {
+                bufferPool.push(buffer);
             }
-            if (contains) {
-                filterData.add(d);
+        }
+    }
+
+    /**
+     * 取出可复用的位置表
+     *
+     * @param minCapacity 最小长度
+     * @return 位置表
+     */
+    private int[] obtainBuffer(int minCapacity) {
+        synchronized (bufferPool) {
+            for (int[] buffer : bufferPool) {
+                if (buffer.length >= minCapacity) {
+                    bufferPool.remove(buffer);
+                    return buffer;
+                }
+            }
+        }
+        return new int[Math.max(minCapacity, 16)];
+    }
+
+    /**
+     * 按内存紧张程度丢弃可复用的位置表与搜索索引。必须在主线程调用。
+     * <p>
+     * 发布的过滤结果正在显示，不会被丢弃。
+     *
+     * @param level 级别，见 {@link android.content.ComponentCallbacks2}
+     * @return 丢弃的结构数量
+     */
+    public int trimMemory(int level) {
+        int dropped = 0;
+        if (TrimRegistry.shouldClear(level)) {
+            synchronized (bufferPool) {
+                dropped += bufferPool.size();
+                bufferPool.clear();
+            }
+        }
+        if (TrimRegistry.shouldDropDerived(level) && indexEnabled) {
+            // 使正在建立的索引也被丢弃
+            indexGeneration++;
+            if (index != null) {
+                index = null;
+                dropped++;
+            }
+            indexDropped = true;
+        }
+        return dropped;
+    }
+
+    private void restoreIndex() {
+        if (indexDropped) {
+            indexDropped = false;
+            if (indexEnabled) {
+                rebuildIndex();
             }
         }
-        FilterResults results = new FilterResults();
+    }
+
+    private void rebuildIndex() {
+        final List<Data> data = snapshot;
+        final int generation = ++indexGeneration;
+        final SearchIndex previous = index;
+        background.execute(new Runnable() {
+            @Override
+            public void run() {
+                SearchIndex built = SearchIndex.build(data, previous, new SearchIndex.Canceled() {
+                    @Override
+                    public boolean isCanceled() {
+                        return generation != indexGeneration;
+                    }
+                });
+                if (built != null && generation == indexGeneration) {
+                    index = built;
+                }
+            }
+        });
+    }
+
+    @Override
+    protected FilterResults performFiltering(CharSequence constraint) {
+        int generation = requestGeneration.get();
+        if (generation != dispatchedGeneration) {
+            // 有更新的请求正在防抖，该条件已过期。结果的代数小于最新的代数，发布时将被丢弃
+            return new VersionedResults(dataVersion, generation - 1);
+        }
+        Pass pass = new Pass(requestGeneration, generation);
+        int flags = Metrics.flags();
+        long start = Metrics.begin(flags, Metrics.SECTION_FILTER);
+        CURRENT_PASS.set(pass);
+        try {
+            return filterData(constraint, pass);
+        } catch (OperationCanceledException e) {
+            return new VersionedResults(dataVersion, generation);
+        } finally {
+            CURRENT_PASS.remove();
+            long elapsed = Metrics.end(flags, start);
+            if (elapsed >= 0 && filterRecorder != null) {
+                Metrics.recordFilter(commonAdapter, filterRecorder, elapsed);
+            }
+        }
+    }
+
+    private FilterResults filterData(CharSequence constraint, Pass pass) {
+        int version = dataVersion;
+        List<Data> data = snapshot;
+        if (data instanceof PagedList) {
+            List<Data> filterData = filterPaged((PagedList<Data>) data, constraint, queryOf(constraint), pass);
+            FilterResults results = new VersionedResults(version, pass.generation);
+            results.values = filterData;
+            results.count = filterData.size();
+            return results;
+        }
+        String key = constraint == null ? null : constraint.toString();
+        FilteredList<Data> filterData = filterPositions(data, key, constraint, version, pass);
+        if (incremental) {
+            lastConstraint = key;
+            lastSource = data;
+            lastSourceSize = data.size();
+            lastVersion = version;
+            lastCount = filterData.size();
+            lastPositions = filterData.release();
+            filterData = FilteredList.wrap(data, lastPositions, lastCount);
+            filterData.share();
+        } else {
+            lastSource = null;
+            lastPositions = null;
+        }
+        FilterResults results = new VersionedResults(version, pass.generation);
         results.values = filterData;
         results.count = filterData.size();
         return results;
     }
 
-    @SuppressWarnings("unchecked")
+    private FilteredList<Data> filterPositions(List<Data> data, String key, CharSequence constraint, int version, Pass pass) {
+        int[] previous = isRefinement(data, key, version) ? lastPositions : null;
+        int candidateCount = previous != null ? lastCount : data.size();
+        int threshold = parallelThreshold;
+        // 索引未就绪时扫描也须按索引的规则判断，否则结果将取决于索引是否已建立完成
+        String query = queryOf(constraint);
+        SearchIndex searchIndex = query != null ? index : null;
+        if (searchIndex != null && searchIndex.isFor(data)) {
+            return filterWithIndex(searchIndex, data, constraint, query, obtainBuffer(0), pass);
+        }
+        if (threshold > 0 && candidateCount >= threshold) {
+            List<Data> source = data instanceof RandomAccess ? data : new ArrayList<>(data);
+            int[] buffer = obtainBuffer(candidateCount);
+            int count = TaskExecutors.forkJoin().invoke(new ParallelFilterTask<>(source, previous, buffer, 0, candidateCount,
+                    chunkSize(candidateCount), constraint, query, pass));
+            return FilteredList.wrap(data, buffer, count);
+        }
+        FilteredList<Data> filterData = new FilteredList<>(data, obtainBuffer(0));
+        if (previous != null) {
+            for (int i = 0; i < candidateCount; i++) {
+                pass.check(i);
+                int position = previous[i];
+                if (accept(data.get(position), constraint, query)) {
+                    filterData.append(position);
+                }
+            }
+        } else {
+            int position = 0;
+            for (Data d : data) {
+                pass.check(position);
+                if (accept(d, constraint, query)) {
+                    filterData.append(position);
+                }
+                position++;
+            }
+        }
+        return filterData;
+    }
+
+    private static <Data> List<Data> filterPaged(PagedList<Data> pagedList, CharSequence constraint, String query, Pass pass) {
+        PagedDataSource<Data> dataSource = pagedList.getDataSource();
+        PagedDataSource<Data> filtered = dataSource.filter(constraint);
+        if (filtered != null) {
+            return pagedList.withDataSource(filtered);
+        }
+        List<Data> filterData = new ArrayList<>();
+        int count = pagedList.size();
+        int pageSize = pagedList.getPageSize();
+        for (int start = 0; start < count; start += pageSize) {
+            pass.check(0);
+            List<Data> page = dataSource.loadRange(start, Math.min(pageSize, count - start));
+            for (Data d : page) {
+                if (accept(d, constraint, query)) {
+                    filterData.add(d);
+                }
+            }
+            if (page.size() < pageSize) {
+                break;
+            }
+        }
+        return filterData;
+    }
+
+    private static <Data> FilteredList<Data> filterWithIndex(SearchIndex searchIndex, List<Data> data, CharSequence constraint, String query, int[] buffer, Pass pass) {
+        int[] matched = searchIndex.query(query);
+        int[] unindexed = searchIndex.getUnindexedPositions();
+        FilteredList<Data> filterData = new FilteredList<>(data, buffer);
+        // 合并两个升序的位置序列，保持原有顺序
+        int i = 0, j = 0;
+        while (i < matched.length || j < unindexed.length) {
+            if (j == unindexed.length || (i < matched.length && matched[i] < unindexed[j])) {
+                filterData.append(matched[i++]);
+            } else {
+                pass.check(j);
+                int position = unindexed[j++];
+                if (accept(data.get(position), constraint, query)) {
+                    filterData.append(position);
+                }
+            }
+        }
+        return filterData;
+    }
+
+    /**
+     * 判断数据是否通过过滤条件
+     *
+     * @param query 见 {@link #queryOf(CharSequence)}，不为 null 时按关键字判断实现了
+     *              {@link CommonAdapterInterface.Indexable} 的数据
+     */
+    private static boolean accept(Object d, CharSequence constraint, String query) {
+        if (query != null && d instanceof CommonAdapterInterface.Indexable) {
+            return SearchIndex.matches((CommonAdapterInterface.Indexable) d, query);
+        }
+        if (d instanceof CommonAdapterInterface.Filterable) {
+            return ((CommonAdapterInterface.Filterable) d).filter(constraint);
+        }
+        return true;
+    }
+
+    private static int chunkSize(int size) {
+        // 每个线程约分到 4 段，以平衡各段耗时不均的情况
+        int parallelism = TaskExecutors.forkJoin().getParallelism();
+        return Math.max(MIN_CHUNK_SIZE, size / (parallelism * 4));
+    }
+
+    private boolean isRefinement(List<Data> data, String key, int version) {
+        return incremental
+                && lastPositions != null
+                && lastSource == data
+                && lastSourceSize == data.size()
+                && lastVersion == version
+                && key != null
+                && lastConstraint != null
+                && key.startsWith(lastConstraint);
+    }
+
     @Override
     protected void publishResults(CharSequence constraint, FilterResults results) {
-        commonAdapter.setFilterData((List<Data>) results.values);
+        int flags = Metrics.flags();
+        long start = Metrics.begin(flags, Metrics.SECTION_PUBLISH);
+        publishData(constraint, results);
+        long elapsed = Metrics.end(flags, start);
+        if (elapsed >= 0 && publishRecorder != null) {
+            Metrics.recordPublish(commonAdapter, publishRecorder, elapsed);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void publishData(CharSequence constraint, FilterResults results) {
+        List<Data> values = (List<Data>) results.values;
+        if (results instanceof VersionedResults && ((VersionedResults) results).generation != requestGeneration.get()) {
+            // 已有更新的请求
+            recycle(values);
+            return;
+        }
+        if (results instanceof VersionedResults && ((VersionedResults) results).version != dataVersion) {
+            // 过滤的是已被修改的数据集
+            recycle(values);
+            filter(constraint);
+            return;
+        }
+        // 过滤读取的是快照，与适配器中的数据集内容相同，改为基于后者以便细粒度修改
+        if (values instanceof FilteredList) {
+            ((FilteredList<Data>) values).rebase(commonAdapter.getData());
+        }
+        publishedConstraint = constraint;
+        commonAdapter.setFilterData(values);
+        restoreIndex();
+    }
+
+    /**
+     * 记录过滤时的数据集版本与请求代数
+     */
+    private static class VersionedResults extends FilterResults {
+        final int version;
+        final int generation;
+
+        VersionedResults(int version, int generation) {
+            this.version = version;
+            this.generation = generation;
+        }
+    }
+
+    /**
+     * 一次过滤，记录开始时的请求代数
+     */
+    private static class Pass {
+        private final AtomicInteger requestGeneration;
+        final int generation;
+
+        Pass(AtomicInteger requestGeneration, int generation) {
+            this.requestGeneration = requestGeneration;
+            this.generation = generation;
+        }
+
+        boolean isCanceled() {
+            return requestGeneration.get() != generation;
+        }
+
+        /**
+         * 每隔 {@link #CANCEL_CHECK_INTERVAL} 个数据检查一次，已被取消时抛出异常以停止过滤
+         *
+         * @param i 扫描的序号
+         */
+        void check(int i) {
+            if ((i & (CANCEL_CHECK_INTERVAL - 1)) == 0 && isCanceled()) {
+                throw new OperationCanceledException();
+            }
+        }
+    }
+
+    /**
+     * 并行过滤任务，将候选区间二分直至不大于分段大小。
+     * <p>
+     * 每段将通过的位置写入输出表中该段自己的区间，合并时把右段的结果紧接在左段之后，以保持原有顺序。
+     */
+    private static class ParallelFilterTask<Data> extends RecursiveTask<Integer> {
+        private static final long serialVersionUID = 1L;
+
+        private final List<Data> data;
+        private final int[] candidates;
+        private final int[] out;
+        private final int from;
+        private final int to;
+        private final int chunkSize;
+        private final CharSequence constraint;
+        private final String query;
+        private final Pass pass;
+
+        /**
+         * @param candidates 候选位置，为 null 时候选为整个数据集
+         * @param out        输出的位置表，长度不小于候选数量
+         */
+        ParallelFilterTask(List<Data> data, int[] candidates, int[] out, int from, int to, int chunkSize, CharSequence constraint, String query, Pass pass) {
+            this.data = data;
+            this.candidates = candidates;
+            this.out = out;
+            this.from = from;
+            this.to = to;
+            this.chunkSize = chunkSize;
+            this.constraint = constraint;
+            this.query = query;
+            this.pass = pass;
+        }
+
+        @Override
+        protected Integer compute() {
+            if (to - from <= chunkSize) {
+                // 工作线程可能正在执行其他过滤的任务
+                Pass outer = CURRENT_PASS.get();
+                CURRENT_PASS.set(pass);
+                try {
+                    int count = 0;
+                    for (int i = from; i < to; i++) {
+                        pass.check(i - from);
+                        int position = candidates == null ? i : candidates[i];
+                        if (accept(data.get(position), constraint, query)) {
+                            out[from + count++] = position;
+                        }
+                    }
+                    return count;
+                } finally {
+                    CURRENT_PASS.set(outer);
+                }
+            }
+            int mid = (from + to) >>> 1;
+            ParallelFilterTask<Data> left = new ParallelFilterTask<>(data, candidates, out, from, mid, chunkSize, constraint, query, pass);
+            ParallelFilterTask<Data> right = new ParallelFilterTask<>(data, candidates, out, mid, to, chunkSize, constraint, query, pass);
+            right.fork();
+            int leftCount = left.compute();
+            int rightCount = right.join();
+            System.arraycopy(out, mid, out, from + leftCount, rightCount);
+            return leftCount + rightCount;
+        }
     }
 }
@@ -0,0 +1,334 @@
+package online.cszt0.androidcommonutils.view.internal;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.ListUpdateCallback;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * 过滤结果的视图，按升序记录通过过滤的数据在原数据集中的位置。
+ * <p>
+ * 原数据集被细粒度修改后，调用对应的方法同步位置表，并将显示位置上的变化通知给回调，
+ * 因此修改后无需重新过滤整个数据集。
+ * <p>
+ * 位置表可与其他线程共享：{@link #snapshot()} 返回的快照与过滤线程保留的结果均只读取位置表，
+ * 共享后视图在首次修改前复制位置表，因此共享的位置表不会再被修改。
+ *
+ * @param <Data> 数据集类型
+ * @hide
+ */
+public class FilteredList<Data> extends AbstractList<Data> implements RandomAccess {
+    private static final int[] EMPTY = new int[0];
+
+    private List<Data> source;
+    private int[] positions;
+    private int size;
+    // 位置表被共享，修改前需要复制
+    private boolean shared;
+
+    /**
+     * 判断数据是否通过当前的过滤条件
+     */
+    public interface Matcher {
+        boolean matches(Object item);
+    }
+
+    private FilteredList(List<Data> source, int[] positions, int size) {
+        this.source = source;
+        this.positions = positions;
+        this.size = size;
+    }
+
+    /**
+     * 建立空的视图，之后通过 {@link #append(int)} 添加位置
+     *
+     * @param source 原数据集
+     * @param buffer 存放位置的缓冲区，长度不足时自动扩容
+     */
+    public FilteredList(@NonNull List<Data> source, @NonNull int[] buffer) {
+        this(source, buffer, 0);
+    }
+
+    /**
+     * 使用已填充的位置表建立视图
+     *
+     * @param source    原数据集
+     * @param positions 升序排列的位置表
+     * @param size      位置数量
+     * @param <Data>    数据集类型
+     * @return 过滤结果的视图
+     */
+    @NonNull
+    public static <Data> FilteredList<Data> wrap(@NonNull List<Data> source, @NonNull int[] positions, int size) {
+        return new FilteredList<>(source, positions, size);
+    }
+
+    /**
+     * 根据过滤结果建立视图。过滤结果中的数据须按原有顺序排列，且与原数据集中的为同一对象。
+     *
+     * @param source   原数据集
+     * @param filtered 过滤结果
+     * @param <Data>   数据集类型
+     * @return 过滤结果的视图；过滤结果与原数据集不对应时返回 null
+     */
+    @Nullable
+    public static <Data> FilteredList<Data> of(@NonNull List<Data> source, @NonNull List<Data> filtered) {
+        int[] positions = new int[Math.max(filtered.size(), 4)];
+        int size = 0;
+        int position = 0;
+        int sourceSize = source.size();
+        for (Data item : filtered) {
+            while (position < sourceSize && source.get(position) != item) {
+                position++;
+            }
+            if (position == sourceSize) {
+                return null;
+            }
+            positions[size++] = position++;
+        }
+        return new FilteredList<>(source, positions, size);
+    }
+
+    /**
+     * 判断视图是否基于给定的数据集
+     *
+     * @param source 数据集
+     * @return true - 视图基于该数据集
+     */
+    public boolean isFor(List<?> source) {
+        return this.source == source;
+    }
+
+    /**
+     * 将原数据集替换为内容相同的数据集，例如将过滤时读取的快照替换为适配器中的数据集
+     *
+     * @param source 内容相同的数据集
+     */
+    public void rebase(@NonNull List<Data> source) {
+        this.source = source;
+    }
+
+    /**
+     * 标记位置表被共享，之后的修改将先复制位置表
+     */
+    public void share() {
+        shared = true;
+    }
+
+    /**
+     * 获取视图当前内容的快照，可以在任意线程中读取
+     *
+     * @return 快照，共享位置表与原数据集的快照
+     */
+    @NonNull
+    public FilteredList<Data> snapshot() {
+        shared = true;
+        FilteredList<Data> snapshot = new FilteredList<>(Snapshots.of(source), positions, size);
+        snapshot.shared = true;
+        return snapshot;
+    }
+
+    @Override
+    public Data get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        return source.get(positions[index]);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 获取显示位置对应的原位置
+     *
+     * @param index 显示位置
+     * @return 在原数据集中的位置
+     */
+    public int positionAt(int index) {
+        return positions[index];
+    }
+
+    /**
+     * 在末尾添加位置，须大于已有的位置
+     *
+     * @param position 在原数据集中的位置
+     */
+    public void append(int position) {
+        own();
+        insertAt(size, position);
+    }
+
+    /**
+     * 取出位置表以供复用，之后视图为空
+     *
+     * @return 位置表
+     */
+    @NonNull
+    public int[] release() {
+        // 共享的位置表不能被复用
+        int[] released = shared ? EMPTY : positions;
+        shared = false;
+        positions = EMPTY;
+        size = 0;
+        modCount++;
+        return released;
+    }
+
+    /**
+     * 原数据集的指定位置插入了数据
+     *
+     * @param position 插入位置
+     * @param count    插入数量
+     * @param matcher  过滤条件
+     * @param callback 显示位置变化的回调
+     */
+    public void onInserted(int position, int count, @NonNull Matcher matcher, @NonNull ListUpdateCallback callback) {
+        own();
+        int rank = rank(position);
+        shift(rank, count);
+        int matched = 0;
+        for (int i = 0; i < count; i++) {
+            if (matcher.matches(source.get(position + i))) {
+                insertAt(rank + matched, position + i);
+                matched++;
+            }
+        }
+        if (matched > 0) {
+            modCount++;
+            callback.onInserted(rank, matched);
+        }
+    }
+
+    /**
+     * 原数据集的指定范围被删除
+     *
+     * @param position 起始位置
+     * @param count    删除数量
+     * @param callback 显示位置变化的回调
+     */
+    public void onRemoved(int position, int count, @NonNull ListUpdateCallback callback) {
+        own();
+        int from = rank(position);
+        int to = rank(position + count);
+        System.arraycopy(positions, to, positions, from, size - to);
+        size -= to - from;
+        shift(from, -count);
+        if (to > from) {
+            modCount++;
+            callback.onRemoved(from, to - from);
+        }
+    }
+
+    /**
+     * 原数据集的指定位置的数据被替换
+     *
+     * @param position 位置
+     * @param payload  局部刷新信息，可为 null
+     * @param matcher  过滤条件
+     * @param callback 显示位置变化的回调
+     */
+    public void onChanged(int position, @Nullable Object payload, @NonNull Matcher matcher, @NonNull ListUpdateCallback callback) {
+        own();
+        int rank = rank(position);
+        boolean shown = rank < size && positions[rank] == position;
+        boolean matches = matcher.matches(source.get(position));
+        if (shown && matches) {
+            callback.onChanged(rank, 1, payload);
+        } else if (shown) {
+            System.arraycopy(positions, rank + 1, positions, rank, size - rank - 1);
+            size--;
+            modCount++;
+            callback.onRemoved(rank, 1);
+        } else if (matches) {
+            insertAt(rank, position);
+            modCount++;
+            callback.onInserted(rank, 1);
+        }
+    }
+
+    /**
+     * 原数据集中的数据从一个位置移动到另一个位置
+     *
+     * @param from     原位置
+     * @param to       新位置
+     * @param callback 显示位置变化的回调
+     */
+    public void onMoved(int from, int to, @NonNull ListUpdateCallback callback) {
+        if (from == to) {
+            return;
+        }
+        own();
+        int fromRank = rank(from);
+        boolean shown = fromRank < size && positions[fromRank] == from;
+        if (shown) {
+            System.arraycopy(positions, fromRank + 1, positions, fromRank, size - fromRank - 1);
+            size--;
+        }
+        // 两个位置之间的数据整体前移或后移一位
+        if (from < to) {
+            for (int i = rank(from + 1), end = rank(to + 1); i < end; i++) {
+                positions[i]--;
+            }
+        } else {
+            for (int i = rank(to), end = rank(from); i < end; i++) {
+                positions[i]++;
+            }
+        }
+        if (shown) {
+            int toRank = rank(to);
+            insertAt(toRank, to);
+            if (toRank != fromRank) {
+                modCount++;
+                callback.onMoved(fromRank, toRank);
+            }
+        }
+    }
+
+    /**
+     * 查找第一个原位置不小于给定位置的显示位置
+     */
+    private int rank(int position) {
+        int low = 0, high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (positions[mid] < position) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * 位置表被共享时，复制一份再修改
+     */
+    private void own() {
+        if (shared) {
+            positions = Arrays.copyOf(positions, Math.max(16, size + 16));
+            shared = false;
+        }
+    }
+
+    private void shift(int from, int delta) {
+        for (int i = from; i < size; i++) {
+            positions[i] += delta;
+        }
+    }
+
+    private void insertAt(int rank, int position) {
+        if (size == positions.length) {
+            positions = Arrays.copyOf(positions, Math.max(16, size * 2));
+        }
+        System.arraycopy(positions, rank, positions, rank + 1, size - rank);
+        positions[rank] = position;
+        size++;
+    }
+}
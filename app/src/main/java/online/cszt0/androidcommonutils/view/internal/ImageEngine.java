@@ -0,0 +1,461 @@
+package online.cszt0.androidcommonutils.view.internal;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.drawable.Drawable;
+import android.util.DisplayMetrics;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.ImageView;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.WeakHashMap;
+import java.util.concurrent.Executor;
+
+import online.cszt0.androidcommonutils.view.ImageLoader;
+import online.cszt0.androidcommonutils.view.ImageSource;
+
+/**
+ * 图片加载的具体实现。
+ * <p>
+ * 解码结果以 {@link CachedBitmap} 的形式放入按字节计算大小的 LRU 内存缓存，并记录引用计数。
+ * 只有既不在缓存中、也没有任何控件引用的位图才会进入 {@link BitmapPool} 等待复用，
+ * 因此正在显示的位图不会被覆盖。
+ * <p>
+ * 内存缓存与引用计数均受本对象的锁保护。
+ *
+ * @hide
+ */
+public final class ImageEngine {
+    private static final int MAX_POOL_DIVISOR = 4;
+    private static volatile ImageEngine sInstance;
+
+    // 按访问顺序排列，最久未使用的在前
+    private final LinkedHashMap<String, CachedBitmap> memoryCache = new LinkedHashMap<>(16, 0.75f, true);
+    private final BitmapPool bitmapPool;
+    private final Executor background;
+    private final Executor main;
+    // 通过 bind 加载图片的控件，仅在主线程访问
+    private final WeakHashMap<ImageView, Binding> bindings = new WeakHashMap<>();
+    private int cacheSize;
+    private int maxCacheSize;
+    private volatile ImageLoader.Decoder decoder;
+    private final TrimRegistry.Trimmable trimmable = new TrimRegistry.Trimmable() {
+        @Override
+        public void trim(int level, @NonNull TrimRegistry.Freed freed) {
+            freed.imageBytes += trimMemory(level);
+        }
+    };
+
+    /**
+     * 加载完成的回调，在主线程调用
+     */
+    public interface Callback {
+        /**
+         * 加载完成
+         *
+         * @param bitmap 位图，已为调用者增加引用计数；加载失败时为 null
+         */
+        void onLoaded(@Nullable CachedBitmap bitmap);
+    }
+
+    /**
+     * 带引用计数的位图
+     */
+    public static final class CachedBitmap {
+        public final Bitmap bitmap;
+        final int bytes;
+        // 以下字段受 ImageEngine 保护
+        int refs;
+        boolean cached;
+
+        CachedBitmap(Bitmap bitmap) {
+            this.bitmap = bitmap;
+            bytes = bitmap.getAllocationByteCount();
+        }
+    }
+
+    /**
+     * 加载请求，可被取消
+     */
+    public static final class Request {
+        volatile boolean canceled;
+
+        public void cancel() {
+            canceled = true;
+        }
+    }
+
+    @NonNull
+    public static ImageEngine getInstance() {
+        ImageEngine engine = sInstance;
+        if (engine == null) {
+            synchronized (ImageEngine.class) {
+                engine = sInstance;
+                if (engine == null) {
+                    engine = new ImageEngine((int) Math.min(Integer.MAX_VALUE, Runtime.getRuntime().maxMemory() / 8));
+                    sInstance = engine;
+                }
+            }
+        }
+        return engine;
+    }
+
+    private ImageEngine(int cacheSize) {
+        this(cacheSize, TaskExecutors.background(), new Executor() {
+            @Override
+            public void execute(@NonNull Runnable command) {
+                TaskExecutors.main().post(command);
+            }
+        });
+        TrimRegistry.register(trimmable);
+    }
+
+    /**
+     * 创建独立的实例，用于测试
+     *
+     * @param cacheSize  内存缓存的最大字节数
+     * @param background 解码使用的线程池
+     * @param main       回调使用的主线程
+     */
+    ImageEngine(int cacheSize, @NonNull Executor background, @NonNull Executor main) {
+        maxCacheSize = cacheSize;
+        bitmapPool = new BitmapPool(cacheSize / MAX_POOL_DIVISOR);
+        decoder = new DefaultDecoder();
+        this.background = background;
+        this.main = main;
+    }
+
+    /**
+     * 按内存紧张程度缩减内存缓存与位图池，正在显示的位图不受影响
+     *
+     * @param level 级别，见 {@link android.content.ComponentCallbacks2}
+     * @return 从缓存与池中移除的字节数
+     */
+    public synchronized long trimMemory(int level) {
+        long before = (long) cacheSize + bitmapPool.size();
+        if (TrimRegistry.shouldDropDerived(level)) {
+            trimToSize(0);
+        } else if (TrimRegistry.shouldShrink(level)) {
+            trimToSize(maxCacheSize / 2);
+        }
+        // 被移出缓存且不再显示的位图已进入位图池
+        if (TrimRegistry.shouldClear(level)) {
+            bitmapPool.trimToSize(0);
+        } else if (TrimRegistry.shouldShrink(level)) {
+            bitmapPool.trimToSize(bitmapPool.size() / 2);
+        }
+        return before - cacheSize - bitmapPool.size();
+    }
+
+    public synchronized void setMemoryCacheSize(int bytes) {
+        maxCacheSize = bytes;
+        trimToSize(bytes);
+        bitmapPool.setMaxSize(bytes / MAX_POOL_DIVISOR);
+    }
+
+    public synchronized int getMemoryCacheSize() {
+        return cacheSize;
+    }
+
+    @NonNull
+    BitmapPool getBitmapPool() {
+        return bitmapPool;
+    }
+
+    public void setDecoder(@Nullable ImageLoader.Decoder decoder) {
+        this.decoder = decoder == null ? new DefaultDecoder() : decoder;
+    }
+
+    /**
+     * 清空内存缓存与位图池，正在显示的位图不受影响
+     */
+    public synchronized void clear() {
+        trimToSize(0);
+        bitmapPool.trimToSize(0);
+    }
+
+    /**
+     * 从最久未使用的位图开始移出缓存，直到占用不超过给定字节数
+     */
+    private void trimToSize(int size) {
+        Iterator<CachedBitmap> iterator = memoryCache.values().iterator();
+        while (cacheSize > size && iterator.hasNext()) {
+            CachedBitmap eldest = iterator.next();
+            iterator.remove();
+            onRemoved(eldest);
+        }
+    }
+
+    private void onRemoved(CachedBitmap bitmap) {
+        cacheSize -= bitmap.bytes;
+        bitmap.cached = false;
+        recycleIfUnused(bitmap);
+    }
+
+    /**
+     * 放入缓存，调用者需持有锁。超过缓存大小的位图不放入缓存
+     */
+    private void putCache(String key, CachedBitmap bitmap) {
+        if (bitmap.bytes > maxCacheSize) {
+            return;
+        }
+        CachedBitmap previous = memoryCache.put(key, bitmap);
+        bitmap.cached = true;
+        cacheSize += bitmap.bytes;
+        if (previous != null && previous != bitmap) {
+            onRemoved(previous);
+        }
+        trimToSize(maxCacheSize);
+    }
+
+    /**
+     * 计算缓存键
+     *
+     * @param source 图片来源
+     * @param width  目标宽度
+     * @param height 目标高度
+     * @return 缓存键
+     */
+    @NonNull
+    public static String cacheKey(@NonNull ImageSource source, int width, int height) {
+        return source.getCacheKey() + "@" + width + "x" + height;
+    }
+
+    /**
+     * 从内存缓存中获取位图，并增加引用计数
+     *
+     * @param key 缓存键
+     * @return 位图；不在缓存中时返回 null
+     */
+    @Nullable
+    public synchronized CachedBitmap acquire(@NonNull String key) {
+        CachedBitmap cached = memoryCache.get(key);
+        if (cached != null) {
+            cached.refs++;
+        }
+        return cached;
+    }
+
+    /**
+     * 减少引用计数
+     *
+     * @param bitmap 位图
+     */
+    public synchronized void release(@NonNull CachedBitmap bitmap) {
+        bitmap.refs--;
+        recycleIfUnused(bitmap);
+    }
+
+    private void recycleIfUnused(CachedBitmap bitmap) {
+        if (bitmap.refs <= 0 && !bitmap.cached) {
+            bitmapPool.put(bitmap.bitmap);
+        }
+    }
+
+    /**
+     * 在后台线程加载图片
+     *
+     * @param source   图片来源
+     * @param key      缓存键
+     * @param width    目标宽度
+     * @param height   目标高度
+     * @param callback 回调
+     * @return 加载请求
+     */
+    @MainThread
+    @NonNull
+    public Request load(@NonNull final ImageSource source, @NonNull final String key, final int width, final int height, @NonNull final Callback callback) {
+        final Request request = new Request();
+        background.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (request.canceled) {
+                    return;
+                }
+                CachedBitmap result = acquire(key);
+                if (result == null) {
+                    Bitmap bitmap;
+                    try {
+                        bitmap = decoder.decode(source, width, height);
+                    } catch (IOException | RuntimeException e) {
+                        bitmap = null;
+                    }
+                    if (bitmap != null) {
+                        result = new CachedBitmap(bitmap);
+                        synchronized (ImageEngine.this) {
+                            result.refs = 1;
+                            putCache(key, result);
+                        }
+                    }
+                }
+                final CachedBitmap loaded = result;
+                main.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (request.canceled) {
+                            if (loaded != null) {
+                                release(loaded);
+                            }
+                            return;
+                        }
+                        callback.onLoaded(loaded);
+                    }
+                });
+            }
+        });
+        return request;
+    }
+
+    /**
+     * 异步加载图片并显示在控件上，供未使用 {@link ViewHolderImpl} 的场景使用。
+     * 重新加载相同的图片时跳过，加载其他图片时取消尚未完成的加载并释放原先的位图
+     *
+     * @param view   控件
+     * @param source 图片来源
+     */
+    @MainThread
+    public void bind(@NonNull final ImageView view, @NonNull ImageSource source) {
+        int width = targetSize(view, true);
+        int height = targetSize(view, false);
+        String key = cacheKey(source, width, height);
+        Binding binding = bindings.get(view);
+        if (binding == null) {
+            binding = new Binding();
+            bindings.put(view, binding);
+        } else if (key.equals(binding.key)
+                && (binding.request != null || (binding.held != null && view.getDrawable() == binding.drawable))) {
+            // 相同的图片正在加载或已显示
+            return;
+        }
+        binding.clear();
+        binding.key = key;
+        CachedBitmap cached = acquire(key);
+        if (cached != null) {
+            binding.show(view, cached);
+            return;
+        }
+        view.setImageDrawable(null);
+        final Binding target = binding;
+        binding.request = load(source, key, width, height, new Callback() {
+            @Override
+            public void onLoaded(CachedBitmap bitmap) {
+                target.request = null;
+                if (bitmap != null) {
+                    target.show(view, bitmap);
+                }
+            }
+        });
+    }
+
+    /**
+     * 计算图片的目标大小：优先使用控件已测量的大小，其次是布局参数中的固定大小，最后是屏幕大小
+     *
+     * @param view  控件
+     * @param width true - 计算宽度；false - 计算高度
+     * @return 目标大小
+     */
+    public static int targetSize(@NonNull View view, boolean width) {
+        int size = width ? view.getWidth() : view.getHeight();
+        if (size > 0) {
+            return size;
+        }
+        ViewGroup.LayoutParams params = view.getLayoutParams();
+        if (params != null) {
+            size = width ? params.width : params.height;
+            if (size > 0) {
+                return size;
+            }
+        }
+        DisplayMetrics metrics = view.getResources().getDisplayMetrics();
+        return width ? metrics.widthPixels : metrics.heightPixels;
+    }
+
+    /**
+     * 通过 {@link #bind(ImageView, ImageSource)} 加载到控件上的图片。不引用控件本身，以免控件无法回收
+     */
+    private class Binding {
+        String key;
+        Request request;
+        CachedBitmap held;
+        Drawable drawable;
+
+        void show(ImageView view, CachedBitmap bitmap) {
+            view.setImageBitmap(bitmap.bitmap);
+            held = bitmap;
+            drawable = view.getDrawable();
+        }
+
+        void clear() {
+            if (request != null) {
+                request.cancel();
+                request = null;
+            }
+            if (held != null) {
+                release(held);
+                held = null;
+            }
+            drawable = null;
+            key = null;
+        }
+    }
+
+    /**
+     * 使用 {@link BitmapFactory} 解码，按目标大小计算采样率，并尽可能复用位图池中的内存
+     */
+    private class DefaultDecoder implements ImageLoader.Decoder {
+        @Nullable
+        @Override
+        public Bitmap decode(@NonNull ImageSource source, int reqWidth, int reqHeight) throws IOException {
+            BitmapFactory.Options options = new BitmapFactory.Options();
+            options.inJustDecodeBounds = true;
+            try (InputStream stream = source.openStream()) {
+                BitmapFactory.decodeStream(stream, null, options);
+            }
+            if (options.outWidth <= 0 || options.outHeight <= 0) {
+                return null;
+            }
+            options.inJustDecodeBounds = false;
+            options.inSampleSize = sampleSize(options.outWidth, options.outHeight, reqWidth, reqHeight);
+            options.inMutable = true;
+            options.inPreferredConfig = Bitmap.Config.ARGB_8888;
+            int width = (options.outWidth + options.inSampleSize - 1) / options.inSampleSize;
+            int height = (options.outHeight + options.inSampleSize - 1) / options.inSampleSize;
+            options.inBitmap = bitmapPool.get(width * height * 4);
+            try (InputStream stream = source.openStream()) {
+                return BitmapFactory.decodeStream(stream, null, options);
+            } catch (IllegalArgumentException e) {
+                // 位图无法复用，放回池中后重新解码
+                if (options.inBitmap == null) {
+                    throw e;
+                }
+                bitmapPool.put(options.inBitmap);
+                options.inBitmap = null;
+                try (InputStream stream = source.openStream()) {
+                    return BitmapFactory.decodeStream(stream, null, options);
+                }
+            }
+        }
+    }
+
+    /**
+     * 计算采样率：取 2 的幂，使解码后的宽高均不小于目标宽高
+     */
+    static int sampleSize(int width, int height, int reqWidth, int reqHeight) {
+        int sampleSize = 1;
+        if (reqWidth <= 0 || reqHeight <= 0) {
+            return sampleSize;
+        }
+        while (width / (sampleSize * 2) >= reqWidth && height / (sampleSize * 2) >= reqHeight) {
+            sampleSize *= 2;
+        }
+        return sampleSize;
+    }
+}
@@ -0,0 +1,245 @@
+package online.cszt0.androidcommonutils.view.internal;
+
+import android.content.Context;
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+
+import androidx.annotation.LayoutRes;
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+/**
+ * 布局预加载池。
+ * <p>
+ * 在后台线程提前加载指定数量的布局，适配器创建视图时优先从池中取出，池为空时再同步加载。
+ * 取出视图后，会在主线程空闲时于后台补足池中的数量。
+ * <p>
+ * 若某个布局无法在后台线程加载（例如其中的控件在构造时需要 {@link Looper}），
+ * 该布局将不再预加载，始终同步加载。
+ *
+ * @hide
+ */
+public class InflatePool {
+    /**
+     * 加载布局，用于测试时替换 {@link LayoutInflater}
+     */
+    interface Inflater {
+        View inflate(@LayoutRes int layout, @NonNull ViewGroup parent);
+    }
+
+    private static class Entry {
+        int target;
+        // 以下字段受 InflatePool.this 保护
+        final ArrayDeque<View> pool = new ArrayDeque<>();
+        int pending;
+        boolean failed;
+    }
+
+    private final Inflater inflater;
+    private final Executor background;
+    private final Executor idle;
+    // 只在主线程修改，后台线程只访问已取得的 Entry
+    private final Map<Integer, Entry> entries;
+
+    private ViewGroup parent;
+    private boolean idleScheduled;
+    private int hitCount;
+    private int missCount;
+
+    public InflatePool(@NonNull final Context context) {
+        this(new Inflater() {
+            @Override
+            public View inflate(int layout, @NonNull ViewGroup parent) {
+                // LayoutInflater 不是线程安全的，每次加载使用独立的实例
+                return LayoutInflater.from(context).cloneInContext(context).inflate(layout, parent, false);
+            }
+        }, TaskExecutors.background(), new Executor() {
+            @Override
+            public void execute(@NonNull final Runnable command) {
+                Looper.myQueue().addIdleHandler(new MessageQueue.IdleHandler() {
+                    @Override
+                    public boolean queueIdle() {
+                        command.run();
+                        return false;
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * 指定加载布局的方式、后台加载使用的线程以及主线程空闲时执行任务的方式，用于测试
+     */
+    InflatePool(@NonNull Inflater inflater, @NonNull Executor background, @NonNull Executor idle) {
+        this.inflater = inflater;
+        this.background = background;
+        this.idle = idle;
+        entries = new HashMap<>();
+    }
+
+    /**
+     * 设置布局的预加载数量
+     *
+     * @param layout 布局
+     * @param count  预加载数量，0 表示不预加载
+     */
+    @MainThread
+    public void setTarget(@LayoutRes int layout, int count) {
+        Entry entry = entries.get(layout);
+        if (entry == null) {
+            entry = new Entry();
+            entries.put(layout, entry);
+        }
+        entry.target = Math.max(0, count);
+        fill();
+    }
+
+    /**
+     * 判断是否设置了任何预加载
+     *
+     * @return true - 至少有一个布局需要预加载
+     */
+    public boolean isEnabled() {
+        for (Entry entry : entries.values()) {
+            if (entry.target > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 开始预加载
+     *
+     * @param parent 视图将要添加到的父布局，用于生成正确的布局参数
+     */
+    @MainThread
+    public void start(@NonNull ViewGroup parent) {
+        this.parent = parent;
+        fill();
+    }
+
+    /**
+     * 从池中取出视图
+     *
+     * @param layout 布局
+     * @return 预加载的视图；池为空时返回 null
+     */
+    @MainThread
+    @Nullable
+    public View obtain(@LayoutRes int layout) {
+        Entry entry = entries.get(layout);
+        if (entry == null || entry.target <= 0) {
+            return null;
+        }
+        View view;
+        synchronized (this) {
+            view = entry.pool.pollFirst();
+        }
+        if (view != null) {
+            hitCount++;
+        } else {
+            missCount++;
+        }
+        scheduleIdleFill();
+        return view;
+    }
+
+    /**
+     * 丢弃池中的视图，之后取出视图时再于主线程空闲时补足
+     *
+     * @return 丢弃的视图数量
+     */
+    public synchronized int clear() {
+        int count = 0;
+        for (Entry entry : entries.values()) {
+            count += entry.pool.size();
+            entry.pool.clear();
+        }
+        return count;
+    }
+
+    public int getHitCount() {
+        return hitCount;
+    }
+
+    public int getMissCount() {
+        return missCount;
+    }
+
+    private void scheduleIdleFill() {
+        if (idleScheduled || parent == null) {
+            return;
+        }
+        idleScheduled = true;
+        idle.execute(new Runnable() {
+            @Override
+            public void run() {
+                idleScheduled = false;
+                fill();
+            }
+        });
+    }
+
+    private void fill() {
+        final ViewGroup parent = this.parent;
+        if (parent == null) {
+            return;
+        }
+        for (final Map.Entry<Integer, Entry> e : entries.entrySet()) {
+            final int layout = e.getKey();
+            final Entry entry = e.getValue();
+            int missing;
+            synchronized (this) {
+                if (entry.failed) {
+                    continue;
+                }
+                missing = entry.target - entry.pool.size() - entry.pending;
+                if (missing <= 0) {
+                    continue;
+                }
+                entry.pending += missing;
+            }
+            for (int n = 0; n < missing; n++) {
+                background.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        inflate(layout, entry, parent);
+                    }
+                });
+            }
+        }
+    }
+
+    private void inflate(int layout, Entry entry, ViewGroup parent) {
+        View view = null;
+        try {
+            synchronized (this) {
+                if (entry.failed) {
+                    return;
+                }
+            }
+            view = inflater.inflate(layout, parent);
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                entry.failed = true;
+            }
+        } finally {
+            synchronized (this) {
+                entry.pending--;
+                if (view != null) {
+                    entry.pool.addLast(view);
+                }
+            }
+        }
+    }
+}
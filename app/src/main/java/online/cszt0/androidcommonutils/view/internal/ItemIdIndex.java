@@ -0,0 +1,318 @@
+package online.cszt0.androidcommonutils.view.internal;
+
+import androidx.annotation.NonNull;
+
+import java.util.Arrays;
+import java.util.List;
+
+import online.cszt0.androidcommonutils.view.CommonAdapterInterface;
+
+/**
+ * 数据 id 到位置的索引。
+ * <p>
+ * 使用开放寻址的 long -> int 哈希表，在数据集被替换或整体变化后首次查询时重建，之后的查询为常数时间。
+ * 数据集被细粒度修改后，通过 {@link #insert(int, int)} 等方法只更新变化的范围：
+ * 删除与替换的 id 从按位置记录的 id 数组中取得，之后位置的偏移只需遍历一次位置数组，不再读取数据。
+ * 数据集中含有未实现 {@link CommonAdapterInterface.Identifiable} 的数据（其 id 随位置变化）或重复的 id 时，
+ * 修改后仍在下次查询时重建。
+ *
+ * @hide
+ */
+public class ItemIdIndex {
+    private static final int EMPTY = -1;
+
+    private List<?> data;
+    private boolean valid;
+    private long[] keys;
+    private int[] positions;
+    // 按位置记录的 id
+    private long[] ids;
+    private int size;
+    // 含有以位置作为 id 的数据或重复的 id，修改后须重建
+    private boolean irregular;
+
+    /**
+     * 获取指定位置数据的 id。未实现 {@link CommonAdapterInterface.Identifiable} 的数据使用位置作为 id。
+     *
+     * @param item     数据
+     * @param position 位置
+     * @return id
+     */
+    public static long idOf(Object item, int position) {
+        if (item instanceof CommonAdapterInterface.Identifiable) {
+            return ((CommonAdapterInterface.Identifiable) item).itemId();
+        }
+        return position;
+    }
+
+    /**
+     * 判断数据集是否提供稳定的 id，以第一个数据是否实现 {@link CommonAdapterInterface.Identifiable} 为准
+     *
+     * @param data 数据集
+     * @return true - 提供稳定的 id
+     */
+    public static boolean hasStableIds(@NonNull List<?> data) {
+        return !data.isEmpty() && data.get(0) instanceof CommonAdapterInterface.Identifiable;
+    }
+
+    /**
+     * 设置索引对应的数据集，或通知数据集已整体变化
+     *
+     * @param data 数据集
+     */
+    public void invalidate(@NonNull List<?> data) {
+        this.data = data;
+        valid = false;
+    }
+
+    /**
+     * 数据集的指定位置插入数据后，加入插入的 id 并偏移之后的位置
+     *
+     * @param start 插入位置
+     * @param count 插入数量
+     */
+    public void insert(int start, int count) {
+        if (!valid) {
+            return;
+        }
+        if (irregular || (size + count) * 2 > keys.length) {
+            valid = false;
+            return;
+        }
+        if (size + count > ids.length) {
+            ids = Arrays.copyOf(ids, Math.max(size + count, ids.length * 2));
+        }
+        System.arraycopy(ids, start, ids, start + count, size - start);
+        if (start < size) {
+            shift(start, count);
+        }
+        size += count;
+        for (int position = start; position < start + count; position++) {
+            Object item = data.get(position);
+            if (!(item instanceof CommonAdapterInterface.Identifiable)) {
+                valid = false;
+                return;
+            }
+            long id = ((CommonAdapterInterface.Identifiable) item).itemId();
+            ids[position] = id;
+            put(id, position);
+        }
+    }
+
+    /**
+     * 数据集的指定范围被删除后，删除对应的 id 并偏移之后的位置
+     *
+     * @param start 起始位置
+     * @param count 删除数量
+     */
+    public void remove(int start, int count) {
+        if (!valid) {
+            return;
+        }
+        if (irregular) {
+            valid = false;
+            return;
+        }
+        for (int position = start; position < start + count; position++) {
+            delete(ids[position]);
+        }
+        System.arraycopy(ids, start + count, ids, start, size - start - count);
+        size -= count;
+        if (start < size) {
+            shift(start + count, -count);
+        }
+    }
+
+    /**
+     * 数据集中的数据移动后，更新移动范围内的位置
+     *
+     * @param from 原位置
+     * @param to   新位置
+     */
+    public void move(int from, int to) {
+        if (!valid) {
+            return;
+        }
+        if (irregular) {
+            valid = false;
+            return;
+        }
+        long id = ids[from];
+        if (from < to) {
+            System.arraycopy(ids, from + 1, ids, from, to - from);
+            for (int position = from; position < to; position++) {
+                relocate(ids[position], position);
+            }
+        } else {
+            System.arraycopy(ids, to, ids, to + 1, from - to);
+            for (int position = to + 1; position <= from; position++) {
+                relocate(ids[position], position);
+            }
+        }
+        ids[to] = id;
+        relocate(id, to);
+    }
+
+    /**
+     * 数据集中指定范围的数据被替换后，更新 id 发生变化的项
+     *
+     * @param start 起始位置
+     * @param count 数量
+     */
+    public void update(int start, int count) {
+        if (!valid) {
+            return;
+        }
+        if (irregular) {
+            valid = false;
+            return;
+        }
+        int end = Math.min(start + count, size);
+        for (int position = start; position < end; position++) {
+            Object item = data.get(position);
+            if (!(item instanceof CommonAdapterInterface.Identifiable)) {
+                valid = false;
+                return;
+            }
+            long id = ((CommonAdapterInterface.Identifiable) item).itemId();
+            if (id != ids[position]) {
+                delete(ids[position]);
+                ids[position] = id;
+                put(id, position);
+            }
+        }
+    }
+
+    /**
+     * 查询 id 对应的位置
+     *
+     * @param id id
+     * @return 位置；不存在时返回 -1
+     */
+    public int positionOf(long id) {
+        if (data == null) {
+            return -1;
+        }
+        if (!valid) {
+            rebuild();
+        }
+        int i = find(id);
+        return i < 0 ? -1 : positions[i];
+    }
+
+    /**
+     * 丢弃哈希表，下次查询时重建
+     *
+     * @return true - 丢弃了已建立的哈希表
+     */
+    public boolean trim() {
+        if (keys == null) {
+            return false;
+        }
+        keys = null;
+        positions = null;
+        ids = null;
+        valid = false;
+        return true;
+    }
+
+    private void rebuild() {
+        size = data.size();
+        int capacity = Integer.highestOneBit(Math.max(size, 8) * 2 - 1) << 1;
+        if (keys == null || keys.length < capacity || keys.length > capacity * 4) {
+            keys = new long[capacity];
+            positions = new int[capacity];
+        }
+        if (ids == null || ids.length < size || ids.length > keys.length) {
+            ids = new long[Math.max(size, 8)];
+        }
+        Arrays.fill(positions, EMPTY);
+        irregular = false;
+        int position = 0;
+        for (Object item : data) {
+            if (!(item instanceof CommonAdapterInterface.Identifiable)) {
+                irregular = true;
+            }
+            long id = idOf(item, position);
+            ids[position] = id;
+            put(id, position);
+            position++;
+        }
+        valid = true;
+    }
+
+    /**
+     * 加入 id。id 重复时保留较小的位置，并标记之后的修改须重建
+     */
+    private void put(long id, int position) {
+        int mask = keys.length - 1;
+        int i = mix(id) & mask;
+        while (positions[i] != EMPTY) {
+            if (keys[i] == id) {
+                irregular = true;
+                positions[i] = Math.min(positions[i], position);
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = id;
+        positions[i] = position;
+    }
+
+    private int find(long id) {
+        int mask = keys.length - 1;
+        int i = mix(id) & mask;
+        while (positions[i] != EMPTY) {
+            if (keys[i] == id) {
+                return i;
+            }
+            i = (i + 1) & mask;
+        }
+        return -1;
+    }
+
+    private void relocate(long id, int position) {
+        positions[find(id)] = position;
+    }
+
+    /**
+     * 删除 id，并将之后探测链上的项前移，使查询不会在空位处提前结束
+     */
+    private void delete(long id) {
+        int i = find(id);
+        int mask = keys.length - 1;
+        int j = i;
+        while (true) {
+            j = (j + 1) & mask;
+            if (positions[j] == EMPTY) {
+                break;
+            }
+            int home = mix(keys[j]) & mask;
+            // home 不在 (i, j] 的循环区间内时，该项可以移到空位 i
+            boolean between = i <= j ? (home > i && home <= j) : (home > i || home <= j);
+            if (!between) {
+                keys[i] = keys[j];
+                positions[i] = positions[j];
+                i = j;
+            }
+        }
+        positions[i] = EMPTY;
+    }
+
+    /**
+     * 将不小于 from 的位置偏移 delta
+     */
+    private void shift(int from, int delta) {
+        int[] positions = this.positions;
+        for (int i = 0; i < positions.length; i++) {
+            if (positions[i] >= from) {
+                positions[i] += delta;
+            }
+        }
+    }
+
+    private static int mix(long id) {
+        long h = id * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
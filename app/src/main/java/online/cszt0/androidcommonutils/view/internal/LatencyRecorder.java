@@ -0,0 +1,63 @@
+package online.cszt0.androidcommonutils.view.internal;
+
+import androidx.annotation.NonNull;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import online.cszt0.androidcommonutils.view.LatencyHistogram;
+
+/**
+ * 耗时直方图的记录器。
+ * <p>
+ * 按耗时的二进制位数分桶，第 i 个桶记录 [2^(i-1), 2^i) 纳秒的样本。记录时不加锁，可在多个线程中同时记录。
+ *
+ * @hide
+ */
+public class LatencyRecorder {
+    private final AtomicLongArray buckets = new AtomicLongArray(LatencyHistogram.BUCKET_COUNT);
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * 记录一个样本
+     *
+     * @param nanos 耗时，单位为纳秒
+     */
+    public void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        buckets.incrementAndGet(LatencyHistogram.BUCKET_COUNT - Long.numberOfLeadingZeros(nanos));
+        total.addAndGet(nanos);
+        long current;
+        while (nanos > (current = max.get()) && !max.compareAndSet(current, nanos)) {
+            // 其他线程更新了最大值，重试
+        }
+    }
+
+    /**
+     * 获取当前记录的快照
+     *
+     * @return 直方图
+     */
+    @NonNull
+    public LatencyHistogram snapshot() {
+        long[] counts = new long[LatencyHistogram.BUCKET_COUNT];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = buckets.get(i);
+        }
+        return new LatencyHistogram(counts, total.get(), max.get());
+    }
+
+    /**
+     * 清除所有样本
+     */
+    public void reset() {
+        for (int i = 0; i < LatencyHistogram.BUCKET_COUNT; i++) {
+            buckets.set(i, 0);
+        }
+        total.set(0);
+        max.set(0);
+    }
+}
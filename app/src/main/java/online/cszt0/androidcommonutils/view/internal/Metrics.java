@@ -0,0 +1,190 @@
+package online.cszt0.androidcommonutils.view.internal;
+
+import android.os.Trace;
+import android.util.SparseArray;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import online.cszt0.androidcommonutils.view.AdapterMetrics;
+import online.cszt0.androidcommonutils.view.CommonAdapterInterface;
+import online.cszt0.androidcommonutils.view.LatencyHistogram;
+
+/**
+ * 适配器热点路径的计时。
+ * <p>
+ * 调用方先读取一次 {@link #flags()}，再以同一个值调用 {@link #begin(int, String)} 与 {@link #end(int, long)}，
+ * 未启用时仅有一次 volatile 读取。
+ *
+ * @hide
+ */
+public final class Metrics {
+    /**
+     * 记录耗时直方图并通知监听器
+     */
+    public static final int RECORD = 1;
+    /**
+     * 输出 {@link Trace} 区段
+     */
+    public static final int TRACE = 2;
+
+    public static final String SECTION_INFLATE = "CommonAdapter:inflate";
+    public static final String SECTION_BIND = "CommonAdapter:bind";
+    public static final String SECTION_FILTER = "CommonAdapter:filter";
+    public static final String SECTION_PUBLISH = "CommonAdapter:publish";
+
+    private static volatile int flags;
+    private static volatile AdapterMetrics.Listener listener;
+    private static final SparseArray<LatencyRecorder> inflateRecorders = new SparseArray<>();
+
+    private Metrics() {
+    }
+
+    /**
+     * 获取当前启用的功能
+     *
+     * @return {@link #RECORD} 与 {@link #TRACE} 的组合
+     */
+    public static int flags() {
+        return flags;
+    }
+
+    /**
+     * 启用或停用功能
+     *
+     * @param flag    {@link #RECORD} 或 {@link #TRACE}
+     * @param enabled true - 启用
+     */
+    public static synchronized void setFlag(int flag, boolean enabled) {
+        flags = enabled ? flags | flag : flags & ~flag;
+    }
+
+    /**
+     * 设置计时监听器
+     *
+     * @param listener 监听器，可为 null
+     */
+    public static void setListener(@Nullable AdapterMetrics.Listener listener) {
+        Metrics.listener = listener;
+    }
+
+    /**
+     * 开始计时
+     *
+     * @param flags   {@link #flags()} 的值
+     * @param section Trace 区段名称
+     * @return 开始时间
+     */
+    public static long begin(int flags, String section) {
+        if ((flags & TRACE) != 0) {
+            Trace.beginSection(section);
+        }
+        return (flags & RECORD) != 0 ? System.nanoTime() : 0;
+    }
+
+    /**
+     * 结束计时
+     *
+     * @param flags 与 {@link #begin(int, String)} 相同的值
+     * @param start 开始时间
+     * @return 耗时，单位为纳秒；不记录时返回 -1
+     */
+    public static long end(int flags, long start) {
+        if ((flags & TRACE) != 0) {
+            Trace.endSection();
+        }
+        return (flags & RECORD) != 0 ? System.nanoTime() - start : -1;
+    }
+
+    /**
+     * 记录布局同步加载的耗时
+     *
+     * @param layout 布局资源
+     * @param nanos  耗时
+     */
+    public static void recordInflate(int layout, long nanos) {
+        LatencyRecorder recorder;
+        synchronized (inflateRecorders) {
+            recorder = inflateRecorders.get(layout);
+            if (recorder == null) {
+                recorder = new LatencyRecorder();
+                inflateRecorders.put(layout, recorder);
+            }
+        }
+        recorder.record(nanos);
+        AdapterMetrics.Listener listener = Metrics.listener;
+        if (listener != null) {
+            listener.onInflate(layout, nanos);
+        }
+    }
+
+    /**
+     * 记录绑定视图的耗时
+     *
+     * @param adapter  适配器
+     * @param recorder 该 viewType 的记录器
+     * @param viewType 视图类型
+     * @param nanos    耗时
+     */
+    public static void recordBind(@NonNull CommonAdapterInterface<?> adapter, @NonNull LatencyRecorder recorder, int viewType, long nanos) {
+        recorder.record(nanos);
+        AdapterMetrics.Listener listener = Metrics.listener;
+        if (listener != null) {
+            listener.onBind(adapter, viewType, nanos);
+        }
+    }
+
+    /**
+     * 记录过滤的耗时，在过滤线程调用
+     *
+     * @param adapter  适配器
+     * @param recorder 记录器
+     * @param nanos    耗时
+     */
+    public static void recordFilter(@NonNull CommonAdapterInterface<?> adapter, @NonNull LatencyRecorder recorder, long nanos) {
+        recorder.record(nanos);
+        AdapterMetrics.Listener listener = Metrics.listener;
+        if (listener != null) {
+            listener.onFilter(adapter, nanos);
+        }
+    }
+
+    /**
+     * 记录发布过滤结果的耗时
+     *
+     * @param adapter  适配器
+     * @param recorder 记录器
+     * @param nanos    耗时
+     */
+    public static void recordPublish(@NonNull CommonAdapterInterface<?> adapter, @NonNull LatencyRecorder recorder, long nanos) {
+        recorder.record(nanos);
+        AdapterMetrics.Listener listener = Metrics.listener;
+        if (listener != null) {
+            listener.onPublish(adapter, nanos);
+        }
+    }
+
+    /**
+     * 获取布局同步加载的耗时直方图
+     *
+     * @param layout 布局资源
+     * @return 耗时直方图
+     */
+    @NonNull
+    public static LatencyHistogram getInflateHistogram(int layout) {
+        LatencyRecorder recorder;
+        synchronized (inflateRecorders) {
+            recorder = inflateRecorders.get(layout);
+        }
+        return recorder != null ? recorder.snapshot() : LatencyHistogram.EMPTY;
+    }
+
+    /**
+     * 清除布局加载的统计
+     */
+    public static void resetInflate() {
+        synchronized (inflateRecorders) {
+            inflateRecorders.clear();
+        }
+    }
+}
@@ -0,0 +1,277 @@
+package online.cszt0.androidcommonutils.view.internal;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+import online.cszt0.androidcommonutils.view.ItemPreparer;
+
+/**
+ * 绑定前预处理结果的缓存。
+ * <p>
+ * 每次绑定时，沿滚动方向为之后的若干个位置在后台线程调用预处理，结果回到主线程后放入缓存。
+ * 缓存以数据对象的引用为键，按最近使用淘汰。绑定时结果尚未完成则同步调用预处理。
+ * <p>
+ * 除预处理本身外，所有方法与缓存均只在主线程访问。
+ *
+ * @hide
+ */
+@MainThread
+public class PrepareCache {
+    /**
+     * 默认缓存数量
+     */
+    public static final int DEFAULT_MAX_SIZE = 100;
+    /**
+     * 默认每次绑定时向前预处理的数量
+     */
+    public static final int DEFAULT_AHEAD = 6;
+
+    // 缓存中表示预处理结果为 null
+    private static final Object NULL = new Object();
+
+    private final ItemPreparer<Object, Object> preparer;
+    private final Executor background;
+    private final Executor main;
+    private final LinkedHashMap<Key, Object> cache;
+    private final IdentityHashMap<Object, Boolean> pending = new IdentityHashMap<>();
+    // 查询时复用的键，避免每次绑定分配对象
+    private final Key probe = new Key(null);
+    private int maxSize;
+    private int ahead = DEFAULT_AHEAD;
+    private int lastPosition = -1;
+    private int direction = 1;
+    // 数据集替换后增加，使排队中的预处理失效
+    private volatile int generation;
+    private int hitCount;
+    private int missCount;
+
+    public PrepareCache(@NonNull ItemPreparer<?, ?> preparer, int maxSize) {
+        this(preparer, maxSize, TaskExecutors.background(), new Executor() {
+            @Override
+            public void execute(@NonNull Runnable command) {
+                TaskExecutors.main().post(command);
+            }
+        });
+    }
+
+    /**
+     * 指定预处理与回到主线程使用的线程，用于测试
+     */
+    @SuppressWarnings("unchecked")
+    PrepareCache(@NonNull ItemPreparer<?, ?> preparer, int maxSize, @NonNull Executor background, @NonNull Executor main) {
+        this.preparer = (ItemPreparer<Object, Object>) preparer;
+        this.background = background;
+        this.main = main;
+        this.maxSize = maxSize;
+        cache = new LinkedHashMap<Key, Object>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Object> eldest) {
+                return size() > PrepareCache.this.maxSize;
+            }
+        };
+    }
+
+    /**
+     * 设置缓存数量，超出部分立即淘汰
+     *
+     * @param maxSize 缓存数量
+     */
+    public void setMaxSize(int maxSize) {
+        this.maxSize = maxSize;
+        trimToSize(maxSize);
+    }
+
+    /**
+     * 设置每次绑定时沿滚动方向预处理的数量
+     *
+     * @param ahead 数量，0 表示不预处理，仅缓存同步结果
+     */
+    public void setAhead(int ahead) {
+        this.ahead = Math.max(0, ahead);
+    }
+
+    /**
+     * 取得位置上数据的预处理结果，并为之后将要显示的位置安排预处理
+     *
+     * @param shown    当前显示的数据集
+     * @param position 绑定的位置
+     * @return 预处理结果；数据为 null 时返回 null
+     */
+    @Nullable
+    public Object obtain(@NonNull List<?> shown, int position) {
+        if (lastPosition >= 0 && position != lastPosition) {
+            direction = position > lastPosition ? 1 : -1;
+        }
+        lastPosition = position;
+        Object data = shown.get(position);
+        Object prepared = null;
+        if (data != null) {
+            prepared = get(data);
+            if (prepared != null) {
+                hitCount++;
+            } else {
+                missCount++;
+                prepared = preparer.prepare(data);
+                cache.put(new Key(data), prepared == null ? NULL : prepared);
+            }
+        }
+        int size = shown.size();
+        for (int i = 1; i <= ahead; i++) {
+            int next = position + direction * i;
+            if (next < 0 || next >= size) {
+                break;
+            }
+            schedule(shown.get(next));
+        }
+        return prepared == NULL ? null : prepared;
+    }
+
+    /**
+     * 数据集被替换，放弃排队中的预处理。已缓存的结果仍然有效
+     */
+    public void onDataSetChanged() {
+        generation++;
+        pending.clear();
+        lastPosition = -1;
+    }
+
+    /**
+     * 清空缓存，并放弃排队中的预处理
+     */
+    public void clear() {
+        onDataSetChanged();
+        cache.clear();
+    }
+
+    /**
+     * 淘汰缓存直至不超过指定数量
+     *
+     * @param size 数量
+     */
+    public void trimToSize(int size) {
+        while (cache.size() > size) {
+            Key eldest = cache.keySet().iterator().next();
+            cache.remove(eldest);
+        }
+    }
+
+    /**
+     * 按内存紧张程度缩减缓存
+     *
+     * @param level 级别，见 {@link android.content.ComponentCallbacks2}
+     * @return 丢弃的结果数量
+     */
+    public int trimMemory(int level) {
+        int before = cache.size();
+        if (TrimRegistry.shouldClear(level)) {
+            clear();
+        } else if (TrimRegistry.shouldShrink(level)) {
+            trimToSize(before / 2);
+        }
+        return before - cache.size();
+    }
+
+    /**
+     * 获取缓存中的结果数量
+     *
+     * @return 数量
+     */
+    public int size() {
+        return cache.size();
+    }
+
+    public int getHitCount() {
+        return hitCount;
+    }
+
+    public int getMissCount() {
+        return missCount;
+    }
+
+    private Object get(Object data) {
+        probe.set(data);
+        Object prepared = cache.get(probe);
+        probe.set(null);
+        return prepared;
+    }
+
+    private void schedule(final Object data) {
+        if (data == null || pending.containsKey(data)) {
+            return;
+        }
+        probe.set(data);
+        boolean cached = cache.containsKey(probe);
+        probe.set(null);
+        if (cached) {
+            return;
+        }
+        pending.put(data, Boolean.TRUE);
+        final int gen = generation;
+        background.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (gen != generation) {
+                    return;
+                }
+                Object prepared;
+                try {
+                    prepared = preparer.prepare(data);
+                } catch (RuntimeException e) {
+                    // 不缓存，绑定时同步预处理，异常将在主线程抛出
+                    post(gen, data, null, false);
+                    return;
+                }
+                post(gen, data, prepared, true);
+            }
+        });
+    }
+
+    private void post(final int gen, final Object data, final Object prepared, final boolean success) {
+        main.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (gen != generation) {
+                    return;
+                }
+                pending.remove(data);
+                if (success) {
+                    cache.put(new Key(data), prepared == null ? NULL : prepared);
+                }
+            }
+        });
+    }
+
+    /**
+     * 以引用判断相等的键
+     */
+    private static class Key {
+        Object item;
+        int hash;
+
+        Key(Object item) {
+            set(item);
+        }
+
+        void set(Object item) {
+            this.item = item;
+            hash = System.identityHashCode(item);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof Key && ((Key) obj).item == item;
+        }
+    }
+}
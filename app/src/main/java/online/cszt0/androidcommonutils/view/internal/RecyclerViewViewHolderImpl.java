@@ -1,71 +1,78 @@
 package online.cszt0.androidcommonutils.view.internal;
 
 import android.graphics.Bitmap;
-import android.util.SparseArray;
 import android.view.View;
-import android.widget.ImageView;
-import android.widget.TextView;
 
 import androidx.annotation.NonNull;
 import androidx.recyclerview.widget.RecyclerView;
 
+import online.cszt0.androidcommonutils.view.ImageSource;
 import online.cszt0.androidcommonutils.view.ViewHolder;
 
 /**
  * 对 {@link ViewHolder} 的实现，同时继承 {@link RecyclerView.ViewHolder}
  * <p>
+ * 具体实现委托给 {@link ViewHolderImpl}。
+ * <p>
  * 您应当仅通过接口实现对该类的访问。
  *
  * @hide
  */
 public class RecyclerViewViewHolderImpl extends RecyclerView.ViewHolder implements ViewHolder {
-    private final View contentView;
-    private final SparseArray<View> cacheViews;
+    private final ViewHolderImpl impl;
 
     public RecyclerViewViewHolderImpl(@NonNull View contentView) {
+        this(contentView, new ViewLookupTable());
+    }
+
+    public RecyclerViewViewHolderImpl(@NonNull View contentView, @NonNull ViewLookupTable lookupTable) {
         super(contentView);
-        this.contentView = contentView;
-        cacheViews = new SparseArray<>();
+        impl = new ViewHolderImpl(contentView, lookupTable);
     }
 
     @NonNull
     @Override
     public View getContentView() {
-        return contentView;
+        return impl.getContentView();
     }
 
-    @SuppressWarnings("unchecked")
     @Override
     public <V extends View> V getView(int id) {
-        View view = cacheViews.get(id);
-        if (view == null) {
-            view = contentView.findViewById(id);
-            cacheViews.put(id, view);
-        }
-        return (V) view;
+        return impl.getView(id);
     }
 
     @Override
     public void setTextViewText(int id, CharSequence text) {
-        TextView textView = getView(id);
-        textView.setText(text);
+        impl.setTextViewText(id, text);
     }
 
     @Override
     public void setTextViewTextColor(int id, int color) {
-        TextView textView = getView(id);
-        textView.setTextColor(color);
+        impl.setTextViewTextColor(id, color);
     }
 
     @Override
     public void setViewVisibility(int id, int visibility) {
-        View view = getView(id);
-        view.setVisibility(visibility);
+        impl.setViewVisibility(id, visibility);
     }
 
     @Override
     public void setImageViewImage(int id, Bitmap image) {
-        ImageView imageView = getView(id);
-        imageView.setImageBitmap(image);
+        impl.setImageViewImage(id, image);
+    }
+
+    @Override
+    public void loadImageViewImage(int id, @NonNull ImageSource source) {
+        impl.loadImageViewImage(id, source);
+    }
+
+    /**
+     * 释放通过本类设置的位图
+     *
+     * @return 释放的位图数量
+     * @see ViewHolderImpl#releaseImages()
+     */
+    public int releaseImages() {
+        return impl.releaseImages();
     }
 }
@@ -0,0 +1,310 @@
+package online.cszt0.androidcommonutils.view.internal;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import online.cszt0.androidcommonutils.view.CommonAdapterInterface;
+
+/**
+ * 基于 n-gram 倒排表的子串搜索索引。
+ * <p>
+ * 对实现 {@link CommonAdapterInterface.Indexable} 的数据，将其所有关键字转为小写后，
+ * 按长度为 {@link #GRAM} 的片段建立倒排表。查询时取查询串所有片段的倒排表求交集，
+ * 再逐个校验候选项是否真正包含查询串。查询串短于 {@link #GRAM} 时退化为对关键字的线性扫描。
+ * <p>
+ * 索引建立后不可修改。重建时会复用上一次索引中同一数据对象的片段，只处理新出现的数据。
+ *
+ * @hide
+ */
+public class SearchIndex {
+    static final int GRAM = 3;
+    private static final int[] EMPTY = new int[0];
+
+    private final List<?> source;
+    private final int size;
+    private final String[][] keys;
+    private final int[] unindexed;
+    private final Map<Long, int[]> postings;
+    private final IdentityHashMap<Object, Entry> entries;
+
+    private SearchIndex(List<?> source, String[][] keys, int[] unindexed, Map<Long, int[]> postings, IdentityHashMap<Object, Entry> entries) {
+        this.source = source;
+        this.size = source.size();
+        this.keys = keys;
+        this.unindexed = unindexed;
+        this.postings = postings;
+        this.entries = entries;
+    }
+
+    /**
+     * 判断索引是否对应给定的数据集
+     *
+     * @param data 数据集
+     * @return true - 索引可用于该数据集
+     */
+    public boolean isFor(List<?> data) {
+        return data == source && data.size() == size;
+    }
+
+    /**
+     * 获取未实现 {@link CommonAdapterInterface.Indexable} 的数据位置，升序排列
+     *
+     * @return 未建立索引的数据位置
+     */
+    @NonNull
+    public int[] getUnindexedPositions() {
+        return unindexed;
+    }
+
+    /**
+     * 将查询条件转换为索引使用的形式
+     *
+     * @param constraint 查询条件
+     * @return 小写形式的查询串，null 视为空串
+     */
+    @NonNull
+    public static String normalize(@Nullable CharSequence constraint) {
+        if (constraint == null) {
+            return "";
+        }
+        return constraint.toString().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * 查询关键字中包含给定子串的数据位置
+     *
+     * @param query 经过 {@link #normalize(CharSequence)} 处理的查询串
+     * @return 匹配的数据位置，升序排列
+     */
+    @NonNull
+    public int[] query(@NonNull String query) {
+        if (query.length() < GRAM) {
+            return scan(query);
+        }
+        int gramCount = query.length() - GRAM + 1;
+        int[][] lists = new int[gramCount][];
+        for (int i = 0; i < gramCount; i++) {
+            int[] list = postings.get(gram(query, i));
+            if (list == null) {
+                return EMPTY;
+            }
+            lists[i] = list;
+        }
+        // 从最短的倒排表开始求交集
+        Arrays.sort(lists, new Comparator<int[]>() {
+            @Override
+            public int compare(int[] o1, int[] o2) {
+                return Integer.compare(o1.length, o2.length);
+            }
+        });
+        int[] candidates = lists[0];
+        int count = candidates.length;
+        int[] buffer = null;
+        for (int i = 1; i < lists.length && count > 0; i++) {
+            if (lists[i] == lists[i - 1]) {
+                continue;
+            }
+            if (buffer == null) {
+                buffer = new int[count];
+            }
+            count = intersect(candidates, count, lists[i], buffer);
+            candidates = buffer;
+        }
+        // 片段全部命中不代表包含整个查询串，需要逐个校验
+        int[] result = new int[count];
+        int matched = 0;
+        for (int i = 0; i < count; i++) {
+            int position = candidates[i];
+            if (contains(keys[position], query)) {
+                result[matched++] = position;
+            }
+        }
+        return matched == result.length ? result : Arrays.copyOf(result, matched);
+    }
+
+    private int[] scan(String query) {
+        int[] result = new int[size];
+        int matched = 0;
+        for (int i = 0; i < size; i++) {
+            if (keys[i] != null && contains(keys[i], query)) {
+                result[matched++] = i;
+            }
+        }
+        return Arrays.copyOf(result, matched);
+    }
+
+    /**
+     * 判断数据的关键字中是否包含给定子串，与索引查询的判断方式一致
+     *
+     * @param item  数据
+     * @param query 经过 {@link #normalize(CharSequence)} 处理的查询串
+     * @return true - 包含
+     */
+    public static boolean matches(@NonNull CommonAdapterInterface.Indexable item, @NonNull String query) {
+        CharSequence[] searchKeys = item.searchKeys();
+        if (searchKeys == null) {
+            return false;
+        }
+        for (CharSequence key : searchKeys) {
+            if (key != null && normalize(key).contains(query)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean contains(String[] keys, String query) {
+        for (String key : keys) {
+            if (key.contains(query)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int intersect(int[] a, int aLength, int[] b, int[] out) {
+        int i = 0, j = 0, k = 0;
+        while (i < aLength && j < b.length) {
+            int x = a[i], y = b[j];
+            if (x < y) {
+                i++;
+            } else if (x > y) {
+                j++;
+            } else {
+                out[k++] = x;
+                i++;
+                j++;
+            }
+        }
+        return k;
+    }
+
+    private static long gram(String s, int offset) {
+        return ((long) s.charAt(offset) << 32) | ((long) s.charAt(offset + 1) << 16) | s.charAt(offset + 2);
+    }
+
+    /**
+     * 为数据集建立索引。应在后台线程调用。
+     *
+     * @param source   数据集，建立期间不应被修改
+     * @param previous 上一次的索引，用于复用未变化数据的片段，可为 null
+     * @param canceled 用于检查是否已取消的标记
+     * @return 新的索引；若已取消则返回 null
+     */
+    @Nullable
+    public static SearchIndex build(@NonNull List<?> source, @Nullable SearchIndex previous, @NonNull Canceled canceled) {
+        int size = source.size();
+        String[][] keys = new String[size][];
+        IntList unindexed = new IntList(0);
+        IdentityHashMap<Object, Entry> entries = new IdentityHashMap<>();
+        HashMap<Long, IntList> lists = new HashMap<>();
+        int position = 0;
+        for (Object item : source) {
+            if ((position & 0x3ff) == 0 && canceled.isCanceled()) {
+                return null;
+            }
+            if (item instanceof CommonAdapterInterface.Indexable) {
+                Entry entry = entries.get(item);
+                if (entry == null && previous != null) {
+                    entry = previous.entries.get(item);
+                }
+                if (entry == null) {
+                    entry = new Entry(((CommonAdapterInterface.Indexable) item).searchKeys());
+                }
+                entries.put(item, entry);
+                keys[position] = entry.keys;
+                for (long gram : entry.grams) {
+                    IntList list = lists.get(gram);
+                    if (list == null) {
+                        list = new IntList(4);
+                        lists.put(gram, list);
+                    }
+                    list.add(position);
+                }
+            } else {
+                unindexed.add(position);
+            }
+            position++;
+        }
+        HashMap<Long, int[]> postings = new HashMap<>(lists.size() * 4 / 3 + 1);
+        for (Map.Entry<Long, IntList> e : lists.entrySet()) {
+            postings.put(e.getKey(), e.getValue().toArray());
+        }
+        return new SearchIndex(source, keys, unindexed.toArray(), postings, entries);
+    }
+
+    /**
+     * 用于检查索引建立是否已被取消
+     */
+    public interface Canceled {
+        boolean isCanceled();
+    }
+
+    /**
+     * 单个数据的关键字与去重后的片段
+     */
+    private static class Entry {
+        final String[] keys;
+        final long[] grams;
+
+        Entry(CharSequence[] searchKeys) {
+            List<String> keyList = new ArrayList<>();
+            if (searchKeys != null) {
+                for (CharSequence key : searchKeys) {
+                    if (key != null) {
+                        keyList.add(normalize(key));
+                    }
+                }
+            }
+            keys = keyList.toArray(new String[0]);
+            int total = 0;
+            for (String key : keys) {
+                total += Math.max(0, key.length() - GRAM + 1);
+            }
+            long[] all = new long[total];
+            int n = 0;
+            for (String key : keys) {
+                for (int i = 0; i + GRAM <= key.length(); i++) {
+                    all[n++] = gram(key, i);
+                }
+            }
+            Arrays.sort(all);
+            int unique = 0;
+            for (int i = 0; i < n; i++) {
+                if (unique == 0 || all[unique - 1] != all[i]) {
+                    all[unique++] = all[i];
+                }
+            }
+            grams = Arrays.copyOf(all, unique);
+        }
+    }
+
+    private static class IntList {
+        int[] values;
+        int size;
+
+        IntList(int capacity) {
+            values = new int[Math.max(capacity, 4)];
+        }
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
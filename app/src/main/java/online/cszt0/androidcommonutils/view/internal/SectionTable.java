@@ -0,0 +1,357 @@
+package online.cszt0.androidcommonutils.view.internal;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.ListUpdateCallback;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 分组表。
+ * <p>
+ * 数据集中分组键相同的连续数据构成一个分组，每个分组前有一行不占用数据集位置的标题。
+ * 表中记录每个分组的第一个数据的位置，第 s 个分组的标题位于展开后的位置 {@code starts[s] + s}，
+ * 该值随 s 严格递增，因此展开位置与（分组，组内位置）之间的换算均为二分查找。
+ * <p>
+ * 数据集被细粒度修改后，仅重新计算受影响的分组，并将展开后的位置变化通知给回调。
+ * <p>
+ * 所有方法必须在主线程调用。
+ *
+ * @hide
+ */
+@MainThread
+public class SectionTable {
+    private final KeyFunction keyFunction;
+    private List<?> list;
+    private int[] starts = new int[16];
+    private Object[] keys = new Object[16];
+    private int count;
+    private int size;
+
+    // 最近一次修改所影响的展开范围
+    private int regionFlatStart;
+    private int regionOldFlatCount;
+    private int regionNewFlatCount;
+    private int regionSection;
+
+    /**
+     * 获取数据的分组键
+     */
+    public interface KeyFunction {
+        Object keyOf(Object item);
+    }
+
+    public SectionTable(@NonNull KeyFunction keyFunction) {
+        this.keyFunction = keyFunction;
+    }
+
+    /**
+     * 设置数据集并重新建立分组表
+     *
+     * @param list 数据集
+     */
+    public void rebuild(@NonNull List<?> list) {
+        this.list = list;
+        size = list.size();
+        count = 0;
+        scan(0, size);
+    }
+
+    /**
+     * 数据集被替换为内容相同的数据集时，改为读取新的数据集，无需重新建立
+     *
+     * @param list 数据集
+     */
+    public void setList(@NonNull List<?> list) {
+        this.list = list;
+    }
+
+    /**
+     * 获取分组数量
+     *
+     * @return 分组数量
+     */
+    public int getSectionCount() {
+        return count;
+    }
+
+    /**
+     * 获取展开后的总行数，包括标题
+     *
+     * @return 总行数
+     */
+    public int getFlatCount() {
+        return size + count;
+    }
+
+    /**
+     * 获取分组键
+     *
+     * @param section 分组
+     * @return 分组键
+     */
+    public Object getKey(int section) {
+        return keys[section];
+    }
+
+    /**
+     * 获取所有分组键
+     *
+     * @return 分组键的副本
+     */
+    @NonNull
+    public Object[] getKeys() {
+        return Arrays.copyOf(keys, count);
+    }
+
+    /**
+     * 获取分组标题的展开位置
+     *
+     * @param section 分组
+     * @return 展开位置
+     */
+    public int getHeaderPosition(int section) {
+        return starts[section] + section;
+    }
+
+    /**
+     * 获取分组的数据数量
+     *
+     * @param section 分组
+     * @return 数据数量
+     */
+    public int getSectionSize(int section) {
+        return (section + 1 < count ? starts[section + 1] : size) - starts[section];
+    }
+
+    /**
+     * 查找展开位置所在的分组
+     *
+     * @param flatPosition 展开位置
+     * @return 分组；没有分组时返回 -1
+     */
+    public int getSectionForFlatPosition(int flatPosition) {
+        int low = 0, high = count;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (starts[mid] + mid <= flatPosition) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low - 1;
+    }
+
+    /**
+     * 查找数据所在的分组
+     *
+     * @param position 数据集中的位置
+     * @return 分组；没有分组时返回 -1
+     */
+    public int getSectionForPosition(int position) {
+        int low = 0, high = count;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (starts[mid] <= position) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low - 1;
+    }
+
+    /**
+     * 判断展开位置是否为标题
+     *
+     * @param flatPosition 展开位置
+     * @return true - 为标题
+     */
+    public boolean isHeader(int flatPosition) {
+        int section = getSectionForFlatPosition(flatPosition);
+        return section >= 0 && starts[section] + section == flatPosition;
+    }
+
+    /**
+     * 将展开位置换算为数据集中的位置
+     *
+     * @param flatPosition 展开位置，不能为标题
+     * @return 数据集中的位置
+     */
+    public int toPosition(int flatPosition) {
+        return flatPosition - getSectionForFlatPosition(flatPosition) - 1;
+    }
+
+    /**
+     * 将数据集中的位置换算为展开位置
+     *
+     * @param position 数据集中的位置
+     * @return 展开位置
+     */
+    public int toFlatPosition(int position) {
+        return position + getSectionForPosition(position) + 1;
+    }
+
+    /**
+     * 数据集的指定位置插入了数据
+     *
+     * @param position 插入位置
+     * @param count    插入数量
+     * @param callback 展开位置变化的回调
+     */
+    public void onInserted(int position, int count, @NonNull ListUpdateCallback callback) {
+        if (replace(position, 0, count)) {
+            callback.onInserted(position + regionSection + 1, count);
+        } else {
+            dispatchRegion(callback);
+        }
+    }
+
+    /**
+     * 数据集的指定范围被删除
+     *
+     * @param position 起始位置
+     * @param count    删除数量
+     * @param callback 展开位置变化的回调
+     */
+    public void onRemoved(int position, int count, @NonNull ListUpdateCallback callback) {
+        if (replace(position, count, 0)) {
+            callback.onRemoved(position + regionSection + 1, count);
+        } else {
+            dispatchRegion(callback);
+        }
+    }
+
+    /**
+     * 数据集的指定范围的数据被替换
+     *
+     * @param position 起始位置
+     * @param count    数量
+     * @param payload  局部刷新信息，可为 null
+     * @param callback 展开位置变化的回调
+     */
+    public void onChanged(int position, int count, @Nullable Object payload, @NonNull ListUpdateCallback callback) {
+        if (replace(position, count, count)) {
+            callback.onChanged(position + regionSection + 1, count, payload);
+        } else {
+            dispatchRegion(callback);
+        }
+    }
+
+    /**
+     * 数据集中的数据从一个位置移动到另一个位置
+     *
+     * @param from     原位置
+     * @param to       新位置
+     * @param callback 展开位置变化的回调
+     */
+    public void onMoved(int from, int to, @NonNull ListUpdateCallback callback) {
+        if (from == to) {
+            return;
+        }
+        int span = Math.abs(from - to) + 1;
+        if (replace(Math.min(from, to), span, span)) {
+            callback.onMoved(from + regionSection + 1, to + regionSection + 1);
+        } else {
+            dispatchRegion(callback);
+        }
+    }
+
+    /**
+     * 数据集中 [start, start + removed) 被替换为 [start, start + inserted) 后，重新计算受影响的分组。
+     * <p>
+     * 受影响的范围从 start - 1 所在分组的开头，到 start + removed 所在分组的末尾，
+     * 两端的数据均未改变，因此重新计算的分组不会与范围外的分组合并。
+     *
+     * @return true - 修改位于同一个分组内，且分组键未变化
+     */
+    private boolean replace(int start, int removed, int inserted) {
+        int oldSize = size;
+        int oldCount = count;
+        int newSize = oldSize - removed + inserted;
+        if (oldCount == 0 || newSize == 0) {
+            rebuild(list);
+            regionFlatStart = 0;
+            regionOldFlatCount = oldSize + oldCount;
+            regionNewFlatCount = size + count;
+            return false;
+        }
+        int lo = getSectionForPosition(Math.max(start - 1, 0));
+        int hi = getSectionForPosition(Math.min(start + removed, oldSize - 1));
+        int regionStart = starts[lo];
+        int regionOldEnd = hi + 1 < oldCount ? starts[hi + 1] : oldSize;
+        int regionNewEnd = regionOldEnd - removed + inserted;
+        Object oldKey = keys[lo];
+
+        // 暂存范围之后的分组，重新扫描范围内的分组
+        int tail = oldCount - hi - 1;
+        int[] tailStarts = Arrays.copyOfRange(starts, hi + 1, oldCount);
+        Object[] tailKeys = Arrays.copyOfRange(keys, hi + 1, oldCount);
+        count = lo;
+        size = newSize;
+        scan(regionStart, regionNewEnd);
+        int scanned = count - lo;
+        boolean simple = hi == lo && scanned == 1 && equals(oldKey, keys[lo]);
+        int delta = inserted - removed;
+        ensureCapacity(count + tail);
+        for (int i = 0; i < tail; i++) {
+            starts[count] = tailStarts[i] + delta;
+            keys[count] = tailKeys[i];
+            count++;
+        }
+        Arrays.fill(keys, count, keys.length, null);
+
+        regionSection = lo;
+        regionFlatStart = regionStart + lo;
+        regionOldFlatCount = regionOldEnd - regionStart + hi - lo + 1;
+        regionNewFlatCount = regionNewEnd - regionStart + scanned;
+        return simple;
+    }
+
+    /**
+     * 将受影响的展开范围作为整体通知：重叠部分视为变化，其余部分视为插入或删除
+     */
+    private void dispatchRegion(ListUpdateCallback callback) {
+        int common = Math.min(regionOldFlatCount, regionNewFlatCount);
+        if (common > 0) {
+            callback.onChanged(regionFlatStart, common, null);
+        }
+        if (regionNewFlatCount > common) {
+            callback.onInserted(regionFlatStart + common, regionNewFlatCount - common);
+        } else if (regionOldFlatCount > common) {
+            callback.onRemoved(regionFlatStart + common, regionOldFlatCount - common);
+        }
+    }
+
+    /**
+     * 扫描数据集的指定范围，将分组追加到表的末尾
+     */
+    private void scan(int from, int to) {
+        Object last = null;
+        for (int i = from; i < to; i++) {
+            Object key = keyFunction.keyOf(list.get(i));
+            if (i == from || !equals(key, last)) {
+                ensureCapacity(count + 1);
+                starts[count] = i;
+                keys[count] = key;
+                count++;
+            }
+            last = key;
+        }
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > starts.length) {
+            int newLength = Math.max(capacity, starts.length * 2);
+            starts = Arrays.copyOf(starts, newLength);
+            keys = Arrays.copyOf(keys, newLength);
+        }
+    }
+
+    private static boolean equals(Object a, Object b) {
+        return a == null ? b == null : a.equals(b);
+    }
+}
@@ -0,0 +1,60 @@
+package online.cszt0.androidcommonutils.view.internal;
+
+import androidx.annotation.NonNull;
+
+import java.util.List;
+
+import online.cszt0.androidcommonutils.view.CommonAdapterInterface;
+import online.cszt0.androidcommonutils.view.PagedList;
+
+/**
+ * 获取数据集的快照，供后台线程读取。
+ * <p>
+ * {@link ChunkedList} 与 {@link FilteredList} 在 O(1) 时间内返回结构共享的不可变快照，
+ * 之后在主线程中对它们的修改不会影响快照。使用者提供的数据集由 {@link #copyOf(List)} 复制为
+ * {@link ChunkedList}，因此其他数据集只有不可变的空列表、{@link PagedList} 以及
+ * 通过 {@link CommonAdapterInterface#setFilterData(List)} 设置的过滤结果，它们原样返回。
+ * <p>
+ * 必须在修改数据集的线程（通常为主线程）中调用。
+ *
+ * @hide
+ */
+public final class Snapshots {
+    private Snapshots() {
+    }
+
+    /**
+     * 复制使用者提供的数据集，之后使用者对原列表的修改不会影响适配器，也不会与后台读取冲突。
+     * <p>
+     * {@link PagedList} 由分页加载管理，不复制。
+     *
+     * @param list 数据集
+     * @param <E>  元素类型
+     * @return 数据集的副本
+     */
+    @NonNull
+    public static <E> List<E> copyOf(@NonNull List<E> list) {
+        if (list instanceof PagedList) {
+            return list;
+        }
+        return ChunkedList.copyOf(list);
+    }
+
+    /**
+     * 获取数据集的快照
+     *
+     * @param list 数据集
+     * @param <E>  元素类型
+     * @return 快照；无法建立快照的数据集返回其自身
+     */
+    @NonNull
+    public static <E> List<E> of(@NonNull List<E> list) {
+        if (list instanceof ChunkedList) {
+            return ((ChunkedList<E>) list).snapshot();
+        }
+        if (list instanceof FilteredList) {
+            return ((FilteredList<E>) list).snapshot();
+        }
+        return list;
+    }
+}
@@ -0,0 +1,207 @@
+package online.cszt0.androidcommonutils.view.internal;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * 排序与过滤的流水线。
+ * <p>
+ * 对数据集的副本排序后，若正在过滤，则在同一趟中按过滤条件得到排序后的过滤结果，
+ * 过滤结果按位置引用排序后的数据集，因此天然保持有序。
+ * 数据量较大时在后台线程完成，期间再次提交的任务会使之前的结果作废。
+ *
+ * @param <Data> 数据集类型
+ * @hide
+ */
+@MainThread
+public class Sorter<Data> {
+    private static final int BACKGROUND_THRESHOLD = 4096;
+
+    private int generation;
+    private Job pending;
+
+    /**
+     * 排序完成的回调，在主线程调用
+     *
+     * @param <Data> 数据集类型
+     */
+    public interface Callback<Data> {
+        /**
+         * 排序完成
+         *
+         * @param sorted   排序后的数据集
+         * @param filtered 排序后数据集的过滤结果；未过滤时为 null
+         */
+        void onSorted(@NonNull ChunkedList<Data> sorted, @Nullable FilteredList<Data> filtered);
+    }
+
+    /**
+     * 查找有序数据集中数据应插入的位置，位于所有与其相等的数据之后
+     *
+     * @param sorted     有序数据集
+     * @param item       数据
+     * @param comparator 比较器
+     * @param <Data>     数据集类型
+     * @return 插入位置
+     */
+    public static <Data> int insertionPoint(@NonNull List<Data> sorted, Data item, @NonNull Comparator<? super Data> comparator) {
+        int low = 0, high = sorted.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (comparator.compare(sorted.get(mid), item) <= 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * 查找被修改的数据在有序数据集中的新位置。若数据在原位置仍然有序，则保持原位置。
+     *
+     * @param sorted     移除该数据后的有序数据集
+     * @param position   数据原来的位置
+     * @param item       修改后的数据
+     * @param comparator 比较器
+     * @param <Data>     数据集类型
+     * @return 新的位置
+     */
+    public static <Data> int repositionPoint(@NonNull List<Data> sorted, int position, Data item, @NonNull Comparator<? super Data> comparator) {
+        if ((position == 0 || comparator.compare(sorted.get(position - 1), item) <= 0)
+                && (position == sorted.size() || comparator.compare(item, sorted.get(position)) <= 0)) {
+            return position;
+        }
+        return insertionPoint(sorted, item, comparator);
+    }
+
+    /**
+     * 按过滤条件过滤有序数据集，结果保持有序
+     *
+     * @param sorted     有序数据集
+     * @param filter     过滤器
+     * @param constraint 过滤条件
+     * @param <Data>     数据集类型
+     * @return 过滤结果
+     */
+    @NonNull
+    public static <Data> FilteredList<Data> filter(@NonNull List<Data> sorted, @NonNull FilterImpl<Data> filter, @Nullable CharSequence constraint) {
+        FilteredList<Data> filtered = new FilteredList<>(sorted, new int[16]);
+        int position = 0;
+        for (Data item : sorted) {
+            if (filter.matches(item, constraint)) {
+                filtered.append(position);
+            }
+            position++;
+        }
+        return filtered;
+    }
+
+    /**
+     * 提交排序任务
+     *
+     * @param data       数据集
+     * @param comparator 比较器
+     * @param filter     过滤器；不需要过滤时为 null
+     * @param constraint 过滤条件
+     * @param callback   回调
+     */
+    public void sort(@NonNull List<Data> data, @NonNull Comparator<? super Data> comparator,
+                     @Nullable FilterImpl<Data> filter, @Nullable CharSequence constraint, @NonNull Callback<Data> callback) {
+        final int generation = ++this.generation;
+        final Job job = new Job(data.toArray(), comparator, filter, constraint, callback);
+        if (job.items.length < BACKGROUND_THRESHOLD) {
+            pending = null;
+            job.compute();
+            job.deliver();
+            return;
+        }
+        pending = job;
+        TaskExecutors.background().execute(new Runnable() {
+            @Override
+            public void run() {
+                job.compute();
+                TaskExecutors.main().post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (generation == Sorter.this.generation) {
+                            pending = null;
+                            job.deliver();
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * 判断是否有尚未完成的排序
+     *
+     * @return true - 有尚未完成的排序
+     */
+    public boolean isPending() {
+        return pending != null;
+    }
+
+    /**
+     * 立即在当前线程完成尚未完成的排序
+     */
+    public void flush() {
+        Job job = pending;
+        if (job == null) {
+            return;
+        }
+        generation++;
+        pending = null;
+        // 快照不会被排序修改，后台线程的结果将被丢弃
+        Job copy = new Job(job.items, job.comparator, job.filter, job.constraint, job.callback);
+        copy.compute();
+        copy.deliver();
+    }
+
+    /**
+     * 取消尚未完成的排序
+     */
+    public void cancel() {
+        generation++;
+        pending = null;
+    }
+
+    private class Job {
+        final Object[] items;
+        final Comparator<? super Data> comparator;
+        final FilterImpl<Data> filter;
+        final CharSequence constraint;
+        final Callback<Data> callback;
+        ChunkedList<Data> sorted;
+        FilteredList<Data> filtered;
+
+        Job(Object[] items, Comparator<? super Data> comparator, FilterImpl<Data> filter, CharSequence constraint, Callback<Data> callback) {
+            this.items = items;
+            this.comparator = comparator;
+            this.filter = filter;
+            this.constraint = constraint;
+            this.callback = callback;
+        }
+
+        @SuppressWarnings("unchecked")
+        void compute() {
+            Object[] items = this.items.clone();
+            Arrays.sort(items, (Comparator<Object>) comparator);
+            List<Data> list = (List<Data>) Arrays.asList(items);
+            sorted = new ChunkedList<>(list);
+            if (filter != null) {
+                filtered = filter(sorted, filter, constraint);
+            }
+        }
+
+        void deliver() {
+            callback.onSorted(sorted, filtered);
+        }
+    }
+}
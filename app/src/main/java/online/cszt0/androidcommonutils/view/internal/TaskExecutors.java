@@ -0,0 +1,124 @@
+package online.cszt0.androidcommonutils.view.internal;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+
+import androidx.annotation.NonNull;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 库内部共用的线程调度器。
+ * <p>
+ * 后台线程池为守护线程，空闲一段时间后自动回收，以低优先级运行。
+ *
+ * @hide
+ */
+public final class TaskExecutors {
+    private static final int POOL_SIZE = Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors() - 1));
+    private static final long KEEP_ALIVE_SECONDS = 30;
+
+    private static volatile ThreadPoolExecutor sBackground;
+    private static volatile Handler sMainHandler;
+    private static volatile ForkJoinPool sForkJoin;
+
+    private TaskExecutors() {
+    }
+
+    /**
+     * 获取后台线程池
+     *
+     * @return 后台线程池
+     */
+    @NonNull
+    public static Executor background() {
+        ThreadPoolExecutor executor = sBackground;
+        if (executor == null) {
+            synchronized (TaskExecutors.class) {
+                executor = sBackground;
+                if (executor == null) {
+                    executor = new ThreadPoolExecutor(POOL_SIZE, POOL_SIZE, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                            new LinkedBlockingQueue<Runnable>(), new BackgroundThreadFactory());
+                    executor.allowCoreThreadTimeOut(true);
+                    sBackground = executor;
+                }
+            }
+        }
+        return executor;
+    }
+
+    /**
+     * 获取用于并行计算的 {@link ForkJoinPool}。
+     * <p>
+     * {@link ForkJoinPool#commonPool()} 需要 API 24，因此由本库自行持有。
+     *
+     * @return 并行计算线程池
+     */
+    @NonNull
+    public static ForkJoinPool forkJoin() {
+        ForkJoinPool pool = sForkJoin;
+        if (pool == null) {
+            synchronized (TaskExecutors.class) {
+                pool = sForkJoin;
+                if (pool == null) {
+                    pool = new ForkJoinPool(Math.max(1, Runtime.getRuntime().availableProcessors()));
+                    sForkJoin = pool;
+                }
+            }
+        }
+        return pool;
+    }
+
+    /**
+     * 获取主线程 Handler
+     *
+     * @return 主线程 Handler
+     */
+    @NonNull
+    public static Handler main() {
+        Handler handler = sMainHandler;
+        if (handler == null) {
+            synchronized (TaskExecutors.class) {
+                handler = sMainHandler;
+                if (handler == null) {
+                    handler = new Handler(Looper.getMainLooper());
+                    sMainHandler = handler;
+                }
+            }
+        }
+        return handler;
+    }
+
+    /**
+     * 判断当前是否处于主线程
+     *
+     * @return true - 当前为主线程
+     */
+    public static boolean isMainThread() {
+        return Looper.myLooper() == Looper.getMainLooper();
+    }
+
+    private static class BackgroundThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(@NonNull final Runnable r) {
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                    r.run();
+                }
+            }, "CommonUtils-bg-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package online.cszt0.androidcommonutils.view.internal;
+
+import android.content.ComponentCallbacks2;
+import android.os.SystemClock;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 内存紧张时释放缓存的登记表。
+ * <p>
+ * 库中的缓存与池在创建时登记，登记表只持有弱引用，不影响其回收。
+ * 收到 {@link ComponentCallbacks2#onTrimMemory(int)} 时依次调用各项的 {@link Trimmable#trim(int, Freed)}，
+ * 并汇总释放的内容。各项按以下级别处理：
+ * <ul>
+ *     <li>{@link #shouldShrink(int)}：缓存缩减一半</li>
+ *     <li>{@link #shouldClear(int)}：清空池与缓存，此后一段时间内回收的视图将释放其位图</li>
+ *     <li>{@link #shouldDropDerived(int)}：丢弃可重建的索引等派生结构</li>
+ * </ul>
+ *
+ * @hide
+ */
+public final class TrimRegistry {
+    // 清空缓存后，回收的视图释放位图的持续时间
+    private static final long PRESSURE_MILLIS = 10_000;
+
+    private static final List<WeakReference<Trimmable>> sEntries = new ArrayList<>();
+    private static long sPressureUntil;
+    private static int sReleasedOnRecycle;
+
+    private TrimRegistry() {
+    }
+
+    /**
+     * 可在内存紧张时释放内存的缓存或池
+     */
+    public interface Trimmable {
+        /**
+         * 按内存紧张程度释放内存，在主线程调用
+         *
+         * @param level 级别，见 {@link ComponentCallbacks2}
+         * @param freed 记录释放的内容
+         */
+        @MainThread
+        void trim(int level, @NonNull Freed freed);
+    }
+
+    /**
+     * 一次释放的内容
+     */
+    public static final class Freed {
+        /**
+         * 从内存缓存与位图池中释放的位图字节数
+         */
+        public long imageBytes;
+        /**
+         * 视图释放的位图数量
+         */
+        public int holderImages;
+        /**
+         * 从池中丢弃的视图数量
+         */
+        public int pooledViews;
+        /**
+         * 丢弃的预处理结果数量
+         */
+        public int preparedItems;
+        /**
+         * 丢弃的索引、位置表等派生结构数量
+         */
+        public int derivedStructures;
+        /**
+         * 销毁的页面数量
+         */
+        public int pages;
+    }
+
+    /**
+     * 登记缓存。调用者须持有该对象的强引用
+     *
+     * @param trimmable 缓存
+     */
+    public static void register(@NonNull Trimmable trimmable) {
+        synchronized (sEntries) {
+            prune();
+            sEntries.add(new WeakReference<>(trimmable));
+        }
+    }
+
+    /**
+     * 按内存紧张程度释放所有登记的缓存
+     *
+     * @param level 级别，见 {@link ComponentCallbacks2}
+     * @return 释放的内容
+     */
+    @MainThread
+    @NonNull
+    public static Freed trim(int level) {
+        Freed freed = new Freed();
+        if (shouldClear(level)) {
+            sPressureUntil = SystemClock.uptimeMillis() + PRESSURE_MILLIS;
+        }
+        List<Trimmable> entries = new ArrayList<>();
+        synchronized (sEntries) {
+            prune();
+            for (WeakReference<Trimmable> ref : sEntries) {
+                Trimmable trimmable = ref.get();
+                if (trimmable != null) {
+                    entries.add(trimmable);
+                }
+            }
+        }
+        for (Trimmable trimmable : entries) {
+            trimmable.trim(level, freed);
+        }
+        // 上次清理后回收视图时释放的位图
+        freed.holderImages += sReleasedOnRecycle;
+        sReleasedOnRecycle = 0;
+        return freed;
+    }
+
+    /**
+     * 判断回收的视图是否应当释放其位图
+     *
+     * @return true - 最近清空过缓存
+     */
+    @MainThread
+    public static boolean isUnderPressure() {
+        return SystemClock.uptimeMillis() < sPressureUntil;
+    }
+
+    /**
+     * 记录回收视图时释放的位图数量
+     *
+     * @param count 数量
+     */
+    @MainThread
+    public static void onReleasedOnRecycle(int count) {
+        sReleasedOnRecycle += count;
+    }
+
+    /**
+     * 应用在前台且内存开始紧张，或应用在后台的缓存列表中
+     */
+    public static boolean shouldShrink(int level) {
+        return level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE;
+    }
+
+    /**
+     * 应用在前台且内存较低，或应用已不可见
+     */
+    public static boolean shouldClear(int level) {
+        return level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW;
+    }
+
+    /**
+     * 应用已不可见，派生结构可在返回前台后重建
+     */
+    public static boolean shouldDropDerived(int level) {
+        return level >= ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN;
+    }
+
+    private static void prune() {
+        for (int i = sEntries.size() - 1; i >= 0; i--) {
+            if (sEntries.get(i).get() == null) {
+                sEntries.remove(i);
+            }
+        }
+    }
+}
@@ -1,30 +1,51 @@
 package online.cszt0.androidcommonutils.view.internal;
 
+import android.content.res.ColorStateList;
 import android.graphics.Bitmap;
-import android.util.SparseArray;
+import android.graphics.drawable.Drawable;
 import android.view.View;
 import android.widget.ImageView;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
-import androidx.recyclerview.widget.RecyclerView;
 
+import java.util.Arrays;
+
+import online.cszt0.androidcommonutils.view.ImageSource;
 import online.cszt0.androidcommonutils.view.ViewHolder;
 
 /**
  * 对 {@link ViewHolder} 的实现
  * <p>
+ * 控件按 {@link ViewLookupTable} 分配的槽位缓存在数组中，同一布局的所有实例共用一张查找表。
+ * {@link RecyclerViewViewHolderImpl} 也委托给该类实现。
+ * <p>
+ * 各设置方法会记录最后写入的值，重新绑定相同的值时不再写入控件，避免无谓的重新布局与重绘。
+ * <p>
  * 您应当仅通过接口实现对该类的访问。
  *
  * @hide
  */
 public class ViewHolderImpl implements ViewHolder {
     private final View contentView;
-    private final SparseArray<View> cacheViews;
+    private final ViewLookupTable lookupTable;
+    private View[] cacheViews;
+    private WrittenState[] writtenStates;
 
     public ViewHolderImpl(@NonNull View contentView) {
+        this(contentView, new ViewLookupTable());
+    }
+
+    public ViewHolderImpl(@NonNull View contentView, @NonNull ViewLookupTable lookupTable) {
         this.contentView = contentView;
-        cacheViews = new SparseArray<>();
+        this.lookupTable = lookupTable;
+        // 提前按已记录的路径解析控件
+        int size = lookupTable.size();
+        cacheViews = new View[Math.max(size, 8)];
+        writtenStates = new WrittenState[cacheViews.length];
+        for (int slot = 0; slot < size; slot++) {
+            cacheViews[slot] = lookupTable.resolve(slot, lookupTable.idAt(slot), contentView);
+        }
     }
 
     @NonNull
@@ -36,35 +57,193 @@ public class ViewHolderImpl implements ViewHolder {
     @SuppressWarnings("unchecked")
     @Override
     public <V extends View> V getView(int id) {
-        View view = cacheViews.get(id);
+        return (V) viewAt(slotFor(id), id);
+    }
+
+    private int slotFor(int id) {
+        int slot = lookupTable.slotOf(id);
+        if (slot < 0) {
+            slot = lookupTable.register(id, contentView, contentView.findViewById(id));
+        }
+        return slot;
+    }
+
+    private View viewAt(int slot, int id) {
+        if (slot < cacheViews.length) {
+            View view = cacheViews[slot];
+            if (view != null) {
+                return view;
+            }
+        } else {
+            cacheViews = Arrays.copyOf(cacheViews, Math.max(slot + 1, cacheViews.length * 2));
+        }
+        View view = lookupTable.resolve(slot, id, contentView);
         if (view == null) {
             view = contentView.findViewById(id);
-            cacheViews.put(id, view);
         }
-        return (V) view;
+        cacheViews[slot] = view;
+        return view;
+    }
+
+    private WrittenState stateAt(int slot) {
+        if (slot >= writtenStates.length) {
+            writtenStates = Arrays.copyOf(writtenStates, Math.max(slot + 1, writtenStates.length * 2));
+        }
+        WrittenState state = writtenStates[slot];
+        if (state == null) {
+            state = new WrittenState();
+            writtenStates[slot] = state;
+        }
+        return state;
     }
 
     @Override
     public void setTextViewText(int id, CharSequence text) {
-        TextView textView = getView(id);
+        int slot = slotFor(id);
+        TextView textView = (TextView) viewAt(slot, id);
+        WrittenState state = stateAt(slot);
+        // 仅对不可变的 String 跳过，其他 CharSequence 可能在两次设置之间被修改
+        if (state.textRef != null && textView.getText() == state.textRef
+                && text instanceof String && text.equals(state.text)) {
+            return;
+        }
         textView.setText(text);
+        state.text = text;
+        state.textRef = textView.getText();
     }
 
     @Override
     public void setTextViewTextColor(int id, int color) {
-        TextView textView = getView(id);
+        int slot = slotFor(id);
+        TextView textView = (TextView) viewAt(slot, id);
+        WrittenState state = stateAt(slot);
+        if (state.colorRef != null && textView.getTextColors() == state.colorRef && state.color == color) {
+            return;
+        }
         textView.setTextColor(color);
+        state.color = color;
+        state.colorRef = textView.getTextColors();
     }
 
     @Override
     public void setViewVisibility(int id, int visibility) {
         View view = getView(id);
-        view.setVisibility(visibility);
+        if (view.getVisibility() != visibility) {
+            view.setVisibility(visibility);
+        }
     }
 
     @Override
     public void setImageViewImage(int id, Bitmap image) {
-        ImageView imageView = getView(id);
+        int slot = slotFor(id);
+        ImageView imageView = (ImageView) viewAt(slot, id);
+        WrittenState state = stateAt(slot);
+        if (state.drawableRef != null && imageView.getDrawable() == state.drawableRef && state.image == image) {
+            return;
+        }
+        // 图片确实改变时才取消加载、释放原先的位图
+        clearImageBinding(state);
         imageView.setImageBitmap(image);
+        state.image = image;
+        state.drawableRef = imageView.getDrawable();
+    }
+
+    @Override
+    public void loadImageViewImage(int id, @NonNull ImageSource source) {
+        int slot = slotFor(id);
+        final ImageView imageView = (ImageView) viewAt(slot, id);
+        final WrittenState state = stateAt(slot);
+        int width = ImageEngine.targetSize(imageView, true);
+        int height = ImageEngine.targetSize(imageView, false);
+        String key = ImageEngine.cacheKey(source, width, height);
+        if (key.equals(state.imageKey)
+                && (state.imageRequest != null || imageView.getDrawable() == state.drawableRef)) {
+            // 相同的图片正在加载或已显示
+            return;
+        }
+        clearImageBinding(state);
+        state.imageKey = key;
+        ImageEngine engine = ImageEngine.getInstance();
+        ImageEngine.CachedBitmap cached = engine.acquire(key);
+        if (cached != null) {
+            showImage(imageView, state, cached);
+            return;
+        }
+        imageView.setImageDrawable(null);
+        state.image = null;
+        state.drawableRef = null;
+        state.imageRequest = engine.load(source, key, width, height, new ImageEngine.Callback() {
+            @Override
+            public void onLoaded(ImageEngine.CachedBitmap bitmap) {
+                state.imageRequest = null;
+                if (bitmap != null) {
+                    showImage(imageView, state, bitmap);
+                }
+            }
+        });
+    }
+
+    private static void showImage(ImageView imageView, WrittenState state, ImageEngine.CachedBitmap bitmap) {
+        imageView.setImageBitmap(bitmap.bitmap);
+        state.heldBitmap = bitmap;
+        state.image = bitmap.bitmap;
+        state.drawableRef = imageView.getDrawable();
+    }
+
+    /**
+     * 取消尚未完成的加载，并释放对已显示位图的引用
+     */
+    private static void clearImageBinding(WrittenState state) {
+        if (state.imageRequest != null) {
+            state.imageRequest.cancel();
+            state.imageRequest = null;
+        }
+        if (state.heldBitmap != null) {
+            ImageEngine.getInstance().release(state.heldBitmap);
+            state.heldBitmap = null;
+        }
+        state.imageKey = null;
+    }
+
+    /**
+     * 释放通过本类设置的位图，用于视图被回收、内存紧张时。再次绑定时将重新设置
+     *
+     * @return 释放的位图数量
+     */
+    public int releaseImages() {
+        int released = 0;
+        for (int slot = 0; slot < writtenStates.length; slot++) {
+            WrittenState state = writtenStates[slot];
+            if (state == null || (state.image == null && state.imageRequest == null)) {
+                continue;
+            }
+            if (state.image != null) {
+                released++;
+            }
+            clearImageBinding(state);
+            View view = slot < cacheViews.length ? cacheViews[slot] : null;
+            if (view instanceof ImageView && ((ImageView) view).getDrawable() == state.drawableRef) {
+                ((ImageView) view).setImageDrawable(null);
+            }
+            state.image = null;
+            state.drawableRef = null;
+        }
+        return released;
+    }
+
+    /**
+     * 记录通过本类最后一次写入控件的值，以及写入后控件持有的对象。
+     * 若控件持有的对象已变化，说明控件被直接修改过，此时不能跳过写入。
+     */
+    private static class WrittenState {
+        CharSequence text;
+        CharSequence textRef;
+        int color;
+        ColorStateList colorRef;
+        Bitmap image;
+        Drawable drawableRef;
+        String imageKey;
+        ImageEngine.Request imageRequest;
+        ImageEngine.CachedBitmap heldBitmap;
     }
 }
@@ -0,0 +1,202 @@
+package online.cszt0.androidcommonutils.view.internal;
+
+import android.util.SparseArray;
+import android.view.View;
+import android.view.ViewGroup;
+import android.view.ViewParent;
+
+import androidx.annotation.LayoutRes;
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.Arrays;
+
+/**
+ * 布局的控件查找表。
+ * <p>
+ * 同一布局加载出的视图树结构相同，因此某个 id 的控件在树中的子节点下标路径也相同。
+ * 查找表为每个布局记录一次路径，并为每个 id 分配一个槽位，
+ * 之后每个 {@link ViewHolderImpl} 只需按槽位读取数组即可获得控件。
+ *
+ * @hide
+ */
+@MainThread
+public final class ViewLookupTable {
+    private static final SparseArray<ViewLookupTable> TABLES = new SparseArray<>();
+    private static final int[] ROOT_PATH = new int[0];
+
+    // id -> 槽位的开放寻址哈希表，values 中存储槽位 + 1，0 表示空位
+    private int[] keys;
+    private int[] values;
+    private int[][] paths;
+    private int[] slotIds;
+    private int size;
+
+    /**
+     * 获取指定布局的查找表
+     *
+     * @param layout 布局
+     * @return 查找表
+     */
+    @NonNull
+    public static ViewLookupTable forLayout(@LayoutRes int layout) {
+        ViewLookupTable table = TABLES.get(layout);
+        if (table == null) {
+            table = new ViewLookupTable();
+            TABLES.put(layout, table);
+        }
+        return table;
+    }
+
+    public ViewLookupTable() {
+        keys = new int[16];
+        values = new int[16];
+        paths = new int[8][];
+        slotIds = new int[8];
+    }
+
+    /**
+     * 获取已记录的槽位数量
+     *
+     * @return 槽位数量
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 获取槽位对应的 id
+     *
+     * @param slot 槽位
+     * @return 控件 id
+     */
+    public int idAt(int slot) {
+        return slotIds[slot];
+    }
+
+    /**
+     * 查询 id 对应的槽位
+     *
+     * @param id 控件 id
+     * @return 槽位；若尚未记录则返回 -1
+     */
+    public int slotOf(int id) {
+        int mask = keys.length - 1;
+        int i = mix(id) & mask;
+        while (values[i] != 0) {
+            if (keys[i] == id) {
+                return values[i] - 1;
+            }
+            i = (i + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * 记录 id 在视图树中的路径，并分配槽位
+     *
+     * @param id    控件 id
+     * @param root  根布局
+     * @param found 在根布局中找到的控件，可为 null
+     * @return 分配的槽位
+     */
+    public int register(int id, @NonNull View root, @Nullable View found) {
+        int slot = slotOf(id);
+        if (slot >= 0) {
+            return slot;
+        }
+        slot = size++;
+        if (slot == paths.length) {
+            paths = Arrays.copyOf(paths, slot * 2);
+            slotIds = Arrays.copyOf(slotIds, slot * 2);
+        }
+        paths[slot] = found == null ? null : pathOf(root, found);
+        slotIds[slot] = id;
+        if (size * 2 > keys.length) {
+            rehash(keys.length * 2);
+        }
+        insert(id, slot);
+        return slot;
+    }
+
+    /**
+     * 按记录的路径在视图树中查找控件
+     *
+     * @param slot 槽位
+     * @param id   控件 id，用于校验
+     * @param root 根布局
+     * @return 控件；若路径不再适用（视图树被动态修改）则返回 null
+     */
+    @Nullable
+    public View resolve(int slot, int id, @NonNull View root) {
+        int[] path = paths[slot];
+        if (path == null) {
+            return null;
+        }
+        View view = root;
+        for (int index : path) {
+            if (!(view instanceof ViewGroup)) {
+                return null;
+            }
+            ViewGroup group = (ViewGroup) view;
+            if (index >= group.getChildCount()) {
+                return null;
+            }
+            view = group.getChildAt(index);
+        }
+        return view.getId() == id ? view : null;
+    }
+
+    private static int[] pathOf(View root, View view) {
+        if (view == root) {
+            return ROOT_PATH;
+        }
+        int depth = 0;
+        View v = view;
+        while (v != root) {
+            ViewParent parent = v.getParent();
+            if (!(parent instanceof ViewGroup)) {
+                // 不在根布局之下，无法记录路径
+                return null;
+            }
+            v = (View) parent;
+            depth++;
+        }
+        int[] path = new int[depth];
+        v = view;
+        while (v != root) {
+            ViewGroup parent = (ViewGroup) v.getParent();
+            path[--depth] = parent.indexOfChild(v);
+            v = parent;
+        }
+        return path;
+    }
+
+    private void insert(int id, int slot) {
+        int mask = keys.length - 1;
+        int i = mix(id) & mask;
+        while (values[i] != 0) {
+            i = (i + 1) & mask;
+        }
+        keys[i] = id;
+        values[i] = slot + 1;
+    }
+
+    private void rehash(int capacity) {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new int[capacity];
+        values = new int[capacity];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] != 0) {
+                insert(oldKeys[i], oldValues[i] - 1);
+            }
+        }
+    }
+
+    private static int mix(int id) {
+        int h = id * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
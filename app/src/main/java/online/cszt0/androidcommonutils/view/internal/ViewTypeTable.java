@@ -0,0 +1,271 @@
+package online.cszt0.androidcommonutils.view.internal;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import online.cszt0.androidcommonutils.view.CommonAdapterInterface;
+import online.cszt0.androidcommonutils.view.PagedList;
+
+/**
+ * 数据集的视图类型表。
+ * <p>
+ * 数据集设置后一次性计算每个位置的 viewType 并记录各类型的数量，之后按位置直接读取数组。
+ * 数据量较大时在后台线程读取数据集的快照计算，计算完成前逐个判断数据的类型。
+ * {@link PagedList} 中未加载位置的类型会在加载后变化，因此总是逐个判断。
+ * <p>
+ * 所有方法必须在主线程调用。
+ *
+ * @hide
+ */
+@MainThread
+public class ViewTypeTable {
+    private static final int BACKGROUND_THRESHOLD = 4096;
+
+    private final int typeCount;
+    private final Executor background;
+    private final Executor main;
+    private List<?> list;
+    private int[] types;
+    private int[] histogram;
+    private boolean dirty;
+    private int generation;
+
+    public ViewTypeTable(int typeCount) {
+        this(typeCount, TaskExecutors.background(), new Executor() {
+            @Override
+            public void execute(@NonNull Runnable command) {
+                TaskExecutors.main().post(command);
+            }
+        });
+    }
+
+    /**
+     * 指定后台计算与回到主线程使用的线程，用于测试
+     */
+    ViewTypeTable(int typeCount, @NonNull Executor background, @NonNull Executor main) {
+        this.typeCount = typeCount;
+        this.background = background;
+        this.main = main;
+    }
+
+    /**
+     * 获取数据的视图类型
+     *
+     * @param item 数据
+     * @return 视图类型
+     */
+    public static int viewTypeOf(Object item) {
+        if (item instanceof CommonAdapterInterface.ViewTypeRequire) {
+            return ((CommonAdapterInterface.ViewTypeRequire) item).viewType();
+        }
+        return 0;
+    }
+
+    /**
+     * 设置新的数据集并重新计算类型表
+     *
+     * @param list 数据集
+     */
+    public void submit(@NonNull List<?> list) {
+        this.list = list;
+        types = null;
+        histogram = null;
+        dirty = false;
+        final int generation = ++this.generation;
+        if (list instanceof PagedList) {
+            return;
+        }
+        if (list.size() < BACKGROUND_THRESHOLD) {
+            build(list);
+            return;
+        }
+        // 后台读取快照，计算期间数据集被修改时，结果将因代数变化而被丢弃
+        final List<?> source = Snapshots.of(list);
+        background.execute(new Runnable() {
+            @Override
+            public void run() {
+                final int[] types = new int[source.size()];
+                final int[] histogram = computeTypes(source, types);
+                main.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (generation == ViewTypeTable.this.generation) {
+                            ViewTypeTable.this.types = types;
+                            ViewTypeTable.this.histogram = histogram;
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * 标记数据集已被外部修改，类型表将在下次读取时重新计算
+     */
+    public void invalidate() {
+        if (list != null && !dirty) {
+            dirty = true;
+            types = null;
+            histogram = null;
+            generation++;
+        }
+    }
+
+    /**
+     * 数据集中指定范围的数据被替换后，重新计算该范围的类型
+     *
+     * @param start 起始位置
+     * @param count 数量
+     */
+    public void update(int start, int count) {
+        if (types == null) {
+            // 后台计算的结果可能已读取了替换前的数据，需要丢弃
+            invalidate();
+            return;
+        }
+        int end = Math.min(start + count, types.length);
+        for (int i = start; i < end; i++) {
+            int type = viewTypeOf(list.get(i));
+            if (type != types[i]) {
+                histogram[types[i]]--;
+                histogram = count(histogram, type);
+                types[i] = type;
+            }
+        }
+    }
+
+    /**
+     * 数据集的指定位置插入数据后，插入对应的类型
+     *
+     * @param start 插入位置
+     * @param count 插入数量
+     */
+    public void insert(int start, int count) {
+        if (types == null) {
+            invalidate();
+            return;
+        }
+        int[] newTypes = new int[types.length + count];
+        System.arraycopy(types, 0, newTypes, 0, start);
+        System.arraycopy(types, start, newTypes, start + count, types.length - start);
+        for (int i = start; i < start + count; i++) {
+            newTypes[i] = viewTypeOf(list.get(i));
+            histogram = count(histogram, newTypes[i]);
+        }
+        types = newTypes;
+    }
+
+    /**
+     * 数据集的指定范围被删除后，删除对应的类型
+     *
+     * @param start 起始位置
+     * @param count 删除数量
+     */
+    public void remove(int start, int count) {
+        if (types == null) {
+            invalidate();
+            return;
+        }
+        for (int i = start; i < start + count; i++) {
+            histogram[types[i]]--;
+        }
+        int[] newTypes = new int[types.length - count];
+        System.arraycopy(types, 0, newTypes, 0, start);
+        System.arraycopy(types, start + count, newTypes, start, newTypes.length - start);
+        types = newTypes;
+    }
+
+    /**
+     * 数据集中的数据移动后，移动对应的类型
+     *
+     * @param from 原位置
+     * @param to   新位置
+     */
+    public void move(int from, int to) {
+        if (types == null) {
+            invalidate();
+            return;
+        }
+        int type = types[from];
+        if (from < to) {
+            System.arraycopy(types, from + 1, types, from, to - from);
+        } else {
+            System.arraycopy(types, to, types, to + 1, from - to);
+        }
+        types[to] = type;
+    }
+
+    /**
+     * 获取指定位置的视图类型
+     *
+     * @param position 位置
+     * @return 视图类型
+     */
+    public int get(int position) {
+        if (dirty) {
+            submit(list);
+        }
+        int[] types = this.types;
+        if (types != null && position < types.length) {
+            return types[position];
+        }
+        return viewTypeOf(list.get(position));
+    }
+
+    /**
+     * 获取各视图类型的数据数量
+     *
+     * @return 以 viewType 为下标的数量数组，长度不小于布局数量
+     */
+    @NonNull
+    public int[] histogram() {
+        if (dirty) {
+            submit(list);
+        }
+        if (histogram != null) {
+            return histogram.clone();
+        }
+        if (list == null) {
+            return new int[typeCount];
+        }
+        return computeTypes(list, null);
+    }
+
+    private void build(List<?> list) {
+        types = new int[list.size()];
+        histogram = computeTypes(list, types);
+    }
+
+    /**
+     * 计算数据集中每个位置的类型
+     *
+     * @param list  数据集
+     * @param types 输出的类型表，可为 null
+     * @return 各类型的数量
+     */
+    private int[] computeTypes(List<?> list, int[] types) {
+        int[] histogram = new int[typeCount];
+        int position = 0;
+        for (Object item : list) {
+            int type = viewTypeOf(item);
+            if (types != null) {
+                types[position] = type;
+            }
+            histogram = count(histogram, type);
+            position++;
+        }
+        return histogram;
+    }
+
+    private static int[] count(int[] histogram, int type) {
+        if (type >= histogram.length) {
+            histogram = Arrays.copyOf(histogram, type + 1);
+        }
+        histogram[type]++;
+        return histogram;
+    }
+}
@@ -0,0 +1,154 @@
+package online.cszt0.androidcommonutils.app.internal;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * {@link BootSnapshot} 的测试。
+ * <p>
+ * 编码后解码与原配置对照，并检查安装包信息不一致、文件头损坏或文件被截断时快照被忽略。
+ */
+public class BootSnapshotTest {
+    private static final BootSnapshot.Key KEY = new BootSnapshot.Key("/data/app/base.apk", 1234L, 5678L, 29);
+
+    private File dir;
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = File.createTempFile("snapshot", "");
+        dir.delete();
+        file = new File(new File(dir, "nested"), "boot_config.snapshot");
+    }
+
+    @After
+    public void tearDown() {
+        delete(dir);
+    }
+
+    @Test
+    public void roundTrip() {
+        BootConfig config = config();
+        BootConfig decoded = BootSnapshot.decode(ByteBuffer.wrap(BootSnapshot.encode(KEY, config)), KEY);
+        assertNotNull(decoded);
+        assertEquals(config.applicationClass, decoded.applicationClass);
+        assertNull(decoded.signature);
+        assertEquals(config.exceptionTarget, decoded.exceptionTarget);
+        assertEquals(2, decoded.channels.size());
+        BootConfig.Channel channel = decoded.channels.get(1);
+        assertEquals("news", channel.id);
+        assertEquals("新闻", channel.name);
+        assertNull(channel.description);
+        assertEquals(4, channel.importance);
+        assertEquals(3, decoded.tasks.size());
+        BootConfig.Task task = decoded.tasks.get(2);
+        assertEquals("ready", task.name);
+        assertNull(task.className);
+        assertEquals("main", task.thread);
+        assertEquals(Arrays.asList("db", "net"), Arrays.asList(task.dependsOn()));
+    }
+
+    @Test
+    public void mismatchedKeyIsRejected() {
+        byte[] bytes = BootSnapshot.encode(KEY, config());
+        BootSnapshot.Key[] others = {
+                new BootSnapshot.Key("/data/app/other.apk", 1234L, 5678L, 29),
+                new BootSnapshot.Key("/data/app/base.apk", 1235L, 5678L, 29),
+                new BootSnapshot.Key("/data/app/base.apk", 1234L, 5679L, 29),
+                new BootSnapshot.Key("/data/app/base.apk", 1234L, 5678L, 30),
+        };
+        for (BootSnapshot.Key other : others) {
+            assertNull(BootSnapshot.decode(ByteBuffer.wrap(bytes), other));
+        }
+    }
+
+    @Test
+    public void corruptedHeaderIsRejected() {
+        byte[] bytes = BootSnapshot.encode(KEY, config());
+        byte[] badMagic = bytes.clone();
+        badMagic[0] ^= 1;
+        assertNull(BootSnapshot.decode(ByteBuffer.wrap(badMagic), KEY));
+        byte[] badVersion = bytes.clone();
+        badVersion[7] ^= 1;
+        assertNull(BootSnapshot.decode(ByteBuffer.wrap(badVersion), KEY));
+    }
+
+    @Test
+    public void writeThenRead() {
+        assertNull("快照不存在", BootSnapshot.read(file, KEY));
+        assertTrue(BootSnapshot.write(file, BootSnapshot.encode(KEY, config())));
+        BootConfig read = BootSnapshot.read(file, KEY);
+        assertNotNull(read);
+        assertEquals("com.example.App", read.applicationClass);
+
+        // 覆盖写入，不留下临时文件
+        BootConfig changed = config();
+        changed.applicationClass = "com.example.Other";
+        assertTrue(BootSnapshot.write(file, BootSnapshot.encode(KEY, changed)));
+        assertEquals("com.example.Other", BootSnapshot.read(file, KEY).applicationClass);
+        assertFalse(new File(file.getPath() + ".tmp").exists());
+    }
+
+    @Test
+    public void truncatedFileIsIgnored() {
+        byte[] bytes = BootSnapshot.encode(KEY, config());
+        for (int length = 0; length < bytes.length; length++) {
+            assertTrue(BootSnapshot.write(file, Arrays.copyOf(bytes, length)));
+            assertNull("length " + length, BootSnapshot.read(file, KEY));
+        }
+        assertTrue(BootSnapshot.write(file, bytes));
+        assertNotNull(BootSnapshot.read(file, KEY));
+    }
+
+    private static BootConfig config() {
+        BootConfig config = new BootConfig();
+        config.applicationClass = "com.example.App";
+        config.exceptionTarget = "com.example.CrashActivity";
+        config.channels.add(channel("default", "默认", "普通通知", 3));
+        config.channels.add(channel("news", "新闻", null, 4));
+        config.tasks.add(task("db", "com.example.DbTask", "background", null));
+        config.tasks.add(task("net", "com.example.NetTask", null, "db"));
+        config.tasks.add(task("ready", null, "main", "db, net"));
+        return config;
+    }
+
+    private static BootConfig.Channel channel(String id, String name, String description, int importance) {
+        BootConfig.Channel channel = new BootConfig.Channel();
+        channel.id = id;
+        channel.name = name;
+        channel.description = description;
+        channel.importance = importance;
+        return channel;
+    }
+
+    private static BootConfig.Task task(String name, String className, String thread, String depends) {
+        BootConfig.Task task = new BootConfig.Task();
+        task.name = name;
+        task.className = className;
+        task.thread = thread;
+        task.depends = depends;
+        return task;
+    }
+
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+}
@@ -0,0 +1,218 @@
+package online.cszt0.androidcommonutils.app.internal;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * {@link StartupGraph} 的测试。
+ * <p>
+ * 后台任务运行在真实的线程池中；测试中主线程消息不会被执行，因此空闲任务只在被主线程任务依赖时使用。
+ */
+public class StartupGraphTest {
+    private static final String[] NONE = {};
+
+    private final List<String> order = Collections.synchronizedList(new ArrayList<String>());
+
+    @Test(timeout = 10_000)
+    public void mainTaskWaitsForBackgroundDependencies() {
+        final Thread mainThread = Thread.currentThread();
+        final Thread[] ranOn = new Thread[2];
+        StartupGraph graph = new StartupGraph();
+        graph.add("slow", StartupGraph.BACKGROUND, NONE, new Runnable() {
+            @Override
+            public void run() {
+                sleep(100);
+                ranOn[0] = Thread.currentThread();
+                order.add("slow");
+            }
+        });
+        graph.add("fast", StartupGraph.BACKGROUND, NONE, record("fast"));
+        // 仅用于汇合依赖
+        graph.add("join", StartupGraph.BACKGROUND, new String[]{"slow", "fast"}, null);
+        graph.add("ui", StartupGraph.MAIN, new String[]{"join"}, new Runnable() {
+            @Override
+            public void run() {
+                ranOn[1] = Thread.currentThread();
+                order.add("ui");
+            }
+        });
+        graph.run();
+
+        assertEquals(3, order.size());
+        assertEquals("ui", order.get(2));
+        assertTrue(ranOn[0] != mainThread);
+        assertSame(mainThread, ranOn[1]);
+    }
+
+    @Test(timeout = 10_000)
+    public void idleDependencyOfMainTaskIsPromoted() {
+        final Thread mainThread = Thread.currentThread();
+        final Thread[] ranOn = new Thread[1];
+        StartupGraph graph = new StartupGraph();
+        graph.add("idle", StartupGraph.IDLE, NONE, new Runnable() {
+            @Override
+            public void run() {
+                ranOn[0] = Thread.currentThread();
+                order.add("idle");
+            }
+        });
+        graph.add("ui", StartupGraph.MAIN, new String[]{"idle"}, record("ui"));
+        graph.run();
+
+        assertEquals(Arrays.asList("idle", "ui"), order);
+        assertSame(mainThread, ranOn[0]);
+    }
+
+    @Test(timeout = 10_000)
+    public void unneededTasksContinueAfterReturn() throws InterruptedException {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch finished = new CountDownLatch(1);
+        StartupGraph graph = new StartupGraph();
+        graph.add("ui", StartupGraph.MAIN, NONE, record("ui"));
+        graph.add("later", StartupGraph.BACKGROUND, NONE, new Runnable() {
+            @Override
+            public void run() {
+                started.countDown();
+                await(release);
+                order.add("later");
+            }
+        });
+        graph.add("after", StartupGraph.BACKGROUND, new String[]{"later"}, new Runnable() {
+            @Override
+            public void run() {
+                order.add("after");
+                finished.countDown();
+            }
+        });
+        graph.run();
+        // 未被主线程任务依赖的任务不阻塞返回
+        assertEquals(Collections.singletonList("ui"), order);
+
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        release.countDown();
+        assertTrue(finished.await(5, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList("ui", "later", "after"), order);
+    }
+
+    @Test(timeout = 10_000)
+    public void neededBackgroundFailureIsThrown() {
+        final IllegalStateException cause = new IllegalStateException("broken");
+        StartupGraph graph = new StartupGraph();
+        graph.add("db", StartupGraph.BACKGROUND, NONE, new Runnable() {
+            @Override
+            public void run() {
+                throw cause;
+            }
+        });
+        graph.add("ui", StartupGraph.MAIN, new String[]{"db"}, record("ui"));
+        try {
+            graph.run();
+            fail();
+        } catch (RuntimeException e) {
+            assertTrue(e.getMessage().contains("db"));
+            assertSame(cause, e.getCause());
+        }
+        // 失败任务的后续任务不会执行
+        assertTrue(order.isEmpty());
+    }
+
+    @Test
+    public void mainFailureIsRethrown() {
+        final IllegalStateException cause = new IllegalStateException("broken");
+        StartupGraph graph = new StartupGraph();
+        graph.add("ui", StartupGraph.MAIN, NONE, new Runnable() {
+            @Override
+            public void run() {
+                throw cause;
+            }
+        });
+        try {
+            graph.run();
+            fail();
+        } catch (IllegalStateException e) {
+            assertSame(cause, e);
+        }
+    }
+
+    @Test
+    public void cycleIsRejected() {
+        StartupGraph graph = new StartupGraph();
+        graph.add("root", StartupGraph.BACKGROUND, NONE, record("root"));
+        graph.add("a", StartupGraph.BACKGROUND, new String[]{"root", "c"}, record("a"));
+        graph.add("b", StartupGraph.BACKGROUND, new String[]{"a"}, record("b"));
+        graph.add("c", StartupGraph.MAIN, new String[]{"b"}, record("c"));
+        try {
+            graph.run();
+            fail();
+        } catch (IllegalStateException e) {
+            assertTrue(e.getMessage(), e.getMessage().endsWith("[a, b, c]"));
+        }
+        // 检查在开始执行前完成
+        assertTrue(order.isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownDependencyIsRejected() {
+        StartupGraph graph = new StartupGraph();
+        graph.add("ui", StartupGraph.MAIN, new String[]{"missing"}, record("ui"));
+        graph.run();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void duplicateNameIsRejected() {
+        StartupGraph graph = new StartupGraph();
+        graph.add("ui", StartupGraph.MAIN, NONE, null);
+        graph.add("ui", StartupGraph.BACKGROUND, NONE, null);
+    }
+
+    @Test
+    public void parsesThreadNames() {
+        assertEquals(StartupGraph.MAIN, StartupGraph.parseThread("main"));
+        assertEquals(StartupGraph.BACKGROUND, StartupGraph.parseThread("background"));
+        assertEquals(StartupGraph.BACKGROUND, StartupGraph.parseThread(null));
+        assertEquals(StartupGraph.IDLE, StartupGraph.parseThread("idle"));
+        try {
+            StartupGraph.parseThread("worker");
+            fail();
+        } catch (IllegalArgumentException expected) {
+            // 未知的线程类型
+        }
+    }
+
+    private Runnable record(final String name) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                order.add(name);
+            }
+        };
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            throw new AssertionError(e);
+        }
+    }
+}
@@ -0,0 +1,261 @@
+package online.cszt0.androidcommonutils.benchmark;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 在 JVM 上运行的轻量基准测试工具。
+ * <p>
+ * 每个基准先预热，再按自动校准的批量运行若干轮，丢弃第一轮后取各轮每次操作耗时的中位数，
+ * 并通过 {@link com.sun.management.ThreadMXBean} 统计每次操作在所有线程中分配的字节数，
+ * 使并行过滤等交给其他线程的工作同样计入，结果不随任务在哪个线程上执行而变化。
+ * 结果追加到 {@code build/benchmark/results.csv}，并与 {@code benchmark/baseline.csv} 中的基线比较：
+ * 每次操作的分配超过基线，且超出的部分大于 {@link #ALLOC_SLACK} 字节与基线的 {@link #ALLOC_TOLERANCE} 倍中较大者时，
+ * 基准测试失败。
+ * <p>
+ * 基线中的耗时只对记录它的机器有意义，因此默认只报告耗时的变化；
+ * 在记录基线的机器上以 {@code -Pbenchmark.tolerance=0.5} 等指定容差时，耗时超过基线的 {@code 1 + 容差} 倍也会失败。
+ * 以 {@code -Pbenchmark=record} 运行时不做比较，结果将写回基线。
+ * <p>
+ * Android 类型使用 {@code unitTests.returnDefaultValues} 提供的空实现，
+ * 因此结果反映的是库自身的开销，不包括控件与系统的开销。
+ */
+public final class Benchmark {
+    private static final String MODE = System.getProperty("benchmark", "false");
+    private static final long WARMUP_NANOS = 1_000_000_000L;
+    private static final long ROUND_NANOS = 200_000_000L;
+    private static final int ROUNDS = 7;
+    private static final File RESULTS = new File("build/benchmark/results.csv");
+    private static final File BASELINE = new File("benchmark/baseline.csv");
+    // 未指定时为 null，只报告耗时不做比较
+    private static final String TIME_TOLERANCE = System.getProperty("benchmark.tolerance");
+    // 分配量与耗时无关，基本不受机器影响，因此可以严格比较
+    private static final double ALLOC_TOLERANCE = 0.1;
+    // 迭代器等临时对象是否被 JIT 消除在每次启动时不同，每次操作会相差几个对象，与基线大小无关
+    private static final double ALLOC_SLACK = 128;
+
+    private static volatile Object sink;
+    private static Map<String, double[]> baseline;
+
+    private Benchmark() {
+    }
+
+    /**
+     * 基准测试的操作
+     */
+    public interface Operation {
+        void run() throws Exception;
+    }
+
+    /**
+     * 判断是否运行基准测试
+     *
+     * @return true - 运行基准测试
+     */
+    public static boolean isEnabled() {
+        return "true".equals(MODE) || "record".equals(MODE);
+    }
+
+    /**
+     * 防止结果被优化掉
+     *
+     * @param value 结果
+     */
+    public static void consume(Object value) {
+        sink = value;
+    }
+
+    /**
+     * 运行基准测试并报告结果
+     *
+     * @param name      名称，作为与基线比较的键
+     * @param operation 操作
+     */
+    public static void run(String name, Operation operation) throws Exception {
+        int batch = calibrate(operation);
+        long warmupEnd = System.nanoTime() + WARMUP_NANOS;
+        while (System.nanoTime() < warmupEnd) {
+            runBatch(operation, batch);
+        }
+        // 第一轮常伴随最后的编译与类加载，不计入结果
+        runBatch(operation, batch);
+        long overhead = allocationOverhead();
+        double[] nanos = new double[ROUNDS];
+        double[] bytes = new double[ROUNDS];
+        for (int round = 0; round < ROUNDS; round++) {
+            Map<Long, Long> allocated = allocatedBytesOfThreads();
+            long start = System.nanoTime();
+            runBatch(operation, batch);
+            long elapsed = System.nanoTime() - start;
+            nanos[round] = (double) elapsed / batch;
+            bytes[round] = allocated == null ? -1 : (double) Math.max(0, allocatedSince(allocated) - overhead) / batch;
+        }
+        report(name, median(nanos), median(bytes));
+    }
+
+    /**
+     * 选择使每轮耗时接近 {@link #ROUND_NANOS} 的批量
+     */
+    private static int calibrate(Operation operation) throws Exception {
+        int batch = 1;
+        while (true) {
+            long start = System.nanoTime();
+            runBatch(operation, batch);
+            long elapsed = System.nanoTime() - start;
+            if (elapsed >= ROUND_NANOS / 10 || batch >= 1 << 24) {
+                return (int) Math.max(1, Math.min(1 << 24, batch * (ROUND_NANOS / Math.max(1, elapsed))));
+            }
+            batch *= 2;
+        }
+    }
+
+    private static void runBatch(Operation operation, int batch) throws Exception {
+        for (int i = 0; i < batch; i++) {
+            operation.run();
+        }
+    }
+
+    /**
+     * 获取当前线程累计分配的字节数
+     *
+     * @return 字节数，JVM 不支持统计时返回 -1
+     */
+    public static long allocatedBytes() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+
+    /**
+     * 获取各线程累计分配的字节数
+     *
+     * @return 线程 id 到字节数的映射，JVM 不支持统计时返回 null
+     */
+    private static Map<Long, Long> allocatedBytesOfThreads() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean)) {
+            return null;
+        }
+        long[] ids = bean.getAllThreadIds();
+        long[] bytes = ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(ids);
+        Map<Long, Long> result = new HashMap<>();
+        for (int i = 0; i < ids.length; i++) {
+            if (bytes[i] >= 0) {
+                result.put(ids[i], bytes[i]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 计算自快照以来所有线程分配的字节数，其间结束的线程不计入
+     */
+    private static long allocatedSince(Map<Long, Long> before) {
+        long total = 0;
+        for (Map.Entry<Long, Long> entry : allocatedBytesOfThreads().entrySet()) {
+            Long previous = before.get(entry.getKey());
+            total += entry.getValue() - (previous == null ? 0 : previous);
+        }
+        return total;
+    }
+
+    /**
+     * 统计本身在每轮中分配的字节数。耗时较长的操作批量很小，不扣除时这部分开销会随批量大小计入每次操作
+     */
+    private static long allocationOverhead() {
+        long overhead = Long.MAX_VALUE;
+        for (int i = 0; i < ROUNDS; i++) {
+            Map<Long, Long> allocated = allocatedBytesOfThreads();
+            if (allocated == null) {
+                return 0;
+            }
+            overhead = Math.min(overhead, allocatedSince(allocated));
+        }
+        return overhead;
+    }
+
+    private static double median(double[] values) {
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+
+    private static synchronized void report(String name, double nanos, double bytes) throws IOException {
+        StringBuilder line = new StringBuilder(String.format(Locale.ROOT, "%-40s %14.1f ns/op %12.1f B/op", name, nanos, bytes));
+        double[] base = loadBaseline().get(name);
+        if (base != null) {
+            line.append(String.format(Locale.ROOT, "   %+6.1f%% time, %+6.1f%% alloc vs baseline",
+                    percent(nanos, base[0]), percent(bytes, base[1])));
+        }
+        System.out.println(line);
+        RESULTS.getParentFile().mkdirs();
+        try (PrintWriter writer = new PrintWriter(new FileWriter(RESULTS, true))) {
+            writer.printf(Locale.ROOT, "%s,%.1f,%.1f%n", name, nanos, bytes);
+        }
+        if ("record".equals(MODE)) {
+            loadBaseline().put(name, new double[]{nanos, bytes});
+            writeBaseline();
+            return;
+        }
+        if (base == null) {
+            throw new AssertionError(name + " has no baseline in " + BASELINE + ", run with -Pbenchmark=record");
+        }
+        if (TIME_TOLERANCE != null && !TIME_TOLERANCE.isEmpty()) {
+            double tolerance = Double.parseDouble(TIME_TOLERANCE);
+            if (nanos > base[0] * (1 + tolerance)) {
+                throw new AssertionError(String.format(Locale.ROOT, "%s took %.1f ns/op, baseline %.1f ns/op (tolerance %.0f%%)",
+                        name, nanos, base[0], tolerance * 100));
+            }
+        }
+        if (bytes > base[1] + Math.max(ALLOC_SLACK, base[1] * ALLOC_TOLERANCE)) {
+            throw new AssertionError(String.format(Locale.ROOT, "%s allocated %.1f B/op, baseline %.1f B/op",
+                    name, bytes, base[1]));
+        }
+    }
+
+    private static double percent(double value, double base) {
+        return base <= 0 ? 0 : (value - base) * 100 / base;
+    }
+
+    private static Map<String, double[]> loadBaseline() throws IOException {
+        if (baseline != null) {
+            return baseline;
+        }
+        baseline = new LinkedHashMap<>();
+        if (BASELINE.exists()) {
+            try (BufferedReader reader = new BufferedReader(new FileReader(BASELINE))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    String[] parts = line.split(",");
+                    if (parts.length == 3 && !line.startsWith("#")) {
+                        baseline.put(parts[0], new double[]{Double.parseDouble(parts[1]), Double.parseDouble(parts[2])});
+                    }
+                }
+            }
+        }
+        return baseline;
+    }
+
+    private static void writeBaseline() throws IOException {
+        BASELINE.getParentFile().mkdirs();
+        try (PrintWriter writer = new PrintWriter(new FileWriter(BASELINE))) {
+            writer.println("# name,ns/op,bytes/op");
+            for (Map.Entry<String, double[]> entry : baseline.entrySet()) {
+                writer.printf(Locale.ROOT, "%s,%.1f,%.1f%n", entry.getKey(), entry.getValue()[0], entry.getValue()[1]);
+            }
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package online.cszt0.androidcommonutils.view;
+
+import android.view.View;
+
+import androidx.recyclerview.widget.RecyclerView;
+
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import online.cszt0.androidcommonutils.benchmark.Benchmark;
+import online.cszt0.androidcommonutils.view.internal.RecyclerViewViewHolderImpl;
+import online.cszt0.androidcommonutils.view.internal.ViewHolderImpl;
+import online.cszt0.androidcommonutils.view.internal.ViewLookupTable;
+
+/**
+ * 适配器热点路径的基准测试：控件查找、viewType 与绑定的分发、数据集替换。
+ */
+public class AdapterBenchmark {
+    private static final int SIZE = 1_000;
+
+    @Before
+    public void setUp() {
+        Assume.assumeTrue(Benchmark.isEnabled());
+    }
+
+    @Test
+    public void viewHolderGetView() throws Exception {
+        // 空实现的控件 id 均为 0，根布局即为 id 为 0 的控件，查找命中缓存
+        View root = new View(null);
+        ViewLookupTable table = new ViewLookupTable();
+        table.register(0, root, root);
+        final ViewHolderImpl viewHolder = new ViewHolderImpl(root, table);
+        Benchmark.run("viewHolder/getView", new Benchmark.Operation() {
+            @Override
+            public void run() {
+                Benchmark.consume(viewHolder.getView(0));
+            }
+        });
+    }
+
+    @Test
+    public void bindDispatch() throws Exception {
+        final CommonRecyclerViewAdapter<Item> adapter = newAdapter(items(SIZE));
+        final RecyclerView.ViewHolder holder = new RecyclerViewViewHolderImpl(new View(null));
+        Benchmark.run("adapter/viewType+bind", new Benchmark.Operation() {
+            private int position;
+
+            @Override
+            public void run() {
+                int viewType = adapter.getItemViewType(position);
+                adapter.onBindViewHolder(holder, position);
+                Benchmark.consume(viewType);
+                position = (position + 1) % SIZE;
+            }
+        });
+    }
+
+    @Test
+    public void resetDataSetChurn() throws Exception {
+        final CommonRecyclerViewAdapter<Item> adapter = newAdapter(items(SIZE));
+        final List<Item> a = items(SIZE);
+        final List<Item> b = items(SIZE);
+        Benchmark.run("adapter/resetDataSet", new Benchmark.Operation() {
+            private boolean flip;
+
+            @Override
+            public void run() {
+                adapter.resetDataSet(flip ? a : b);
+                flip = !flip;
+            }
+        });
+    }
+
+    private static List<Item> items(int size) {
+        List<Item> items = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            items.add(new Item(i));
+        }
+        return items;
+    }
+
+    private static CommonRecyclerViewAdapter<Item> newAdapter(List<Item> items) {
+        return new CommonRecyclerViewAdapter<Item>(null, items, 1, 2) {
+            @Override
+            protected void bindView(ViewHolder viewHolder, Item item, int position, int viewType) {
+                Benchmark.consume(item);
+            }
+        };
+    }
+
+    private static class Item implements CommonAdapterInterface.ViewTypeRequire, CommonAdapterInterface.Identifiable {
+        final int id;
+
+        Item(int id) {
+            this.id = id;
+        }
+
+        @Override
+        public int viewType() {
+            return id & 1;
+        }
+
+        @Override
+        public long itemId() {
+            return id;
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package online.cszt0.androidcommonutils.view;
+
+import android.content.ComponentCallbacks;
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import online.cszt0.androidcommonutils.view.internal.TrimRegistry;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * {@link CacheRegistry} 的测试：报告释放的内容、通知监听器、监听应用的内存紧张通知
+ */
+public class CacheRegistryTest {
+    private final List<Integer> levels = new ArrayList<>();
+    private final List<CacheRegistry.Report> reports = new ArrayList<>();
+    private final FakeCache cache = new FakeCache();
+
+    @Before
+    public void setUp() {
+        // 先释放其他测试留下的缓存，只统计本测试登记的内容
+        CacheRegistry.trimMemory(ComponentCallbacks2.TRIM_MEMORY_COMPLETE);
+        TrimRegistry.register(cache);
+        CacheRegistry.setOnTrimListener(new CacheRegistry.OnTrimListener() {
+            @Override
+            public void onTrimmed(int level, @NonNull CacheRegistry.Report report) {
+                levels.add(level);
+                reports.add(report);
+            }
+        });
+    }
+
+    @After
+    public void tearDown() {
+        CacheRegistry.setOnTrimListener(null);
+    }
+
+    @Test
+    public void reportDescribesFreedContent() {
+        CacheRegistry.Report report = CacheRegistry.trimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE);
+        assertEquals(7, report.getPreparedItems());
+        assertEquals(0, report.getPooledViews());
+        assertEquals(0, report.getImageBytes());
+
+        report = CacheRegistry.trimMemory(ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN);
+        assertEquals(7, report.getPreparedItems());
+        assertEquals(3, report.getPooledViews());
+        assertEquals(1 << 20, report.getImageBytes());
+        assertEquals(2, report.getDerivedStructures());
+        assertEquals(0, report.getPages());
+        assertEquals(0, report.getHolderImages());
+        assertEquals("images=1048576B holderImages=0 pooledViews=3 preparedItems=7 derived=2 pages=0",
+                report.toString());
+    }
+
+    @Test
+    public void listenerReceivesEveryTrim() {
+        CacheRegistry.Report first = CacheRegistry.trimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW);
+        CacheRegistry.Report second = CacheRegistry.trimMemory(ComponentCallbacks2.TRIM_MEMORY_BACKGROUND);
+        assertEquals(2, levels.size());
+        assertEquals(ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW, (int) levels.get(0));
+        assertEquals(ComponentCallbacks2.TRIM_MEMORY_BACKGROUND, (int) levels.get(1));
+        assertSame(first, reports.get(0));
+        assertSame(second, reports.get(1));
+
+        CacheRegistry.setOnTrimListener(null);
+        CacheRegistry.trimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW);
+        assertEquals(2, levels.size());
+    }
+
+    @Test
+    public void installForwardsApplicationCallbacks() {
+        Context application = mock(Context.class);
+        Context activity = mock(Context.class);
+        when(activity.getApplicationContext()).thenReturn(application);
+        CacheRegistry.install(activity);
+        // 重复安装不会重复监听
+        CacheRegistry.install(activity);
+
+        ArgumentCaptor<ComponentCallbacks> callbacks = ArgumentCaptor.forClass(ComponentCallbacks.class);
+        verify(application).registerComponentCallbacks(callbacks.capture());
+        assertTrue(callbacks.getValue() instanceof ComponentCallbacks2);
+        ComponentCallbacks2 registered = (ComponentCallbacks2) callbacks.getValue();
+
+        registered.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE);
+        registered.onLowMemory();
+        assertEquals(2, levels.size());
+        assertEquals(ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE, (int) levels.get(0));
+        // 系统内存不足时按最高级别释放
+        assertEquals(ComponentCallbacks2.TRIM_MEMORY_COMPLETE, (int) levels.get(1));
+        assertEquals(3, reports.get(1).getPooledViews());
+    }
+
+    /**
+     * 持有固定内容的缓存，按级别释放后不再计入，因此其他测试留下的实例不影响统计
+     */
+    private static class FakeCache implements TrimRegistry.Trimmable {
+        int preparedItems = 14;
+        int pooledViews = 3;
+        long imageBytes = 1 << 20;
+        int derivedStructures = 2;
+
+        @Override
+        public void trim(int level, @NonNull TrimRegistry.Freed freed) {
+            if (TrimRegistry.shouldClear(level)) {
+                freed.preparedItems += preparedItems;
+                freed.pooledViews += pooledViews;
+                freed.imageBytes += imageBytes;
+                preparedItems = 0;
+                pooledViews = 0;
+                imageBytes = 0;
+            } else if (TrimRegistry.shouldShrink(level)) {
+                freed.preparedItems += preparedItems / 2;
+                preparedItems -= preparedItems / 2;
+            }
+            if (TrimRegistry.shouldDropDerived(level)) {
+                freed.derivedStructures += derivedStructures;
+                derivedStructures = 0;
+            }
+        }
+    }
+}
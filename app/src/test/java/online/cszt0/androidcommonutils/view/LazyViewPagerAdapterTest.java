@@ -0,0 +1,141 @@
+package online.cszt0.androidcommonutils.view;
+
+import android.content.ComponentCallbacks2;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.fragment.app.Fragment;
+import androidx.fragment.app.FragmentManager;
+import androidx.fragment.app.FragmentTransaction;
+import androidx.viewpager.widget.ViewPager;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import online.cszt0.androidcommonutils.view.internal.TrimRegistry;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * {@link LazyViewPagerAdapter} 的测试：内存紧张时缩小窗口，切换页面时逐步恢复，并同步到 ViewPager
+ */
+public class LazyViewPagerAdapterTest {
+    private LazyViewPagerAdapter adapter;
+    private ViewPager pager;
+
+    @Before
+    public void setUp() {
+        FragmentManager fm = mock(FragmentManager.class);
+        when(fm.beginTransaction()).thenReturn(mock(FragmentTransaction.class));
+        adapter = new LazyViewPagerAdapter(fm, 10, new LazyViewPagerAdapter.FragmentFactory() {
+            @NonNull
+            @Override
+            public Fragment createFragment(int position) {
+                return new Fragment();
+            }
+
+            @Nullable
+            @Override
+            public CharSequence getTitle(int position) {
+                return "page " + position;
+            }
+        });
+        pager = mock(ViewPager.class);
+    }
+
+    @Test
+    public void moderatePressureHalvesWindow() {
+        adapter.setWindow(4);
+        adapter.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE);
+        assertEquals(2, adapter.getEffectiveWindow());
+        // 刚进入后台时窗口继续减半，但不小于 1
+        adapter.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN);
+        assertEquals(1, adapter.getEffectiveWindow());
+        adapter.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN);
+        assertEquals(1, adapter.getEffectiveWindow());
+        assertEquals(4, adapter.getWindow());
+    }
+
+    @Test
+    public void severePressureKeepsOnePageEachSide() {
+        adapter.setWindow(5);
+        adapter.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW);
+        assertEquals(1, adapter.getEffectiveWindow());
+
+        adapter.setWindow(5);
+        adapter.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_BACKGROUND);
+        assertEquals(1, adapter.getEffectiveWindow());
+
+        adapter.setWindow(5);
+        adapter.onLowMemory();
+        assertEquals(1, adapter.getEffectiveWindow());
+    }
+
+    @Test
+    public void windowGrowsBackOnePageEachSwitch() {
+        adapter.setWindow(3);
+        adapter.onLowMemory();
+        Fragment fragment = new Fragment();
+
+        adapter.setPrimaryItem(pager, 0, fragment);
+        assertEquals(2, adapter.getEffectiveWindow());
+        // 同一页面再次设为当前页面不算切换
+        adapter.setPrimaryItem(pager, 0, fragment);
+        assertEquals(2, adapter.getEffectiveWindow());
+
+        adapter.setPrimaryItem(pager, 1, new Fragment());
+        assertEquals(3, adapter.getEffectiveWindow());
+        adapter.setPrimaryItem(pager, 2, new Fragment());
+        assertEquals(3, adapter.getEffectiveWindow());
+    }
+
+    @Test
+    public void effectiveWindowIsAppliedToViewPager() {
+        when(pager.getAdapter()).thenReturn(adapter);
+        adapter.startUpdate(pager);
+        // 布局期间不修改，推迟到布局完成后
+        ArgumentCaptor<Runnable> posted = ArgumentCaptor.forClass(Runnable.class);
+        verify(pager).post(posted.capture());
+        verify(pager, never()).setOffscreenPageLimit(1);
+        Runnable apply = posted.getValue();
+        apply.run();
+        verify(pager).setOffscreenPageLimit(1);
+
+        adapter.setWindow(3);
+        verify(pager).setOffscreenPageLimit(3);
+        when(pager.getOffscreenPageLimit()).thenReturn(3);
+
+        adapter.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW);
+        verify(pager, times(2)).setOffscreenPageLimit(1);
+        when(pager.getOffscreenPageLimit()).thenReturn(1);
+
+        adapter.setPrimaryItem(pager, 4, new Fragment());
+        verify(pager, never()).setOffscreenPageLimit(2);
+        apply.run();
+        verify(pager).setOffscreenPageLimit(2);
+    }
+
+    @Test
+    public void otherAdapterOnViewPagerIsLeftAlone() {
+        adapter.startUpdate(pager);
+        adapter.setWindow(3);
+        verify(pager, never()).setOffscreenPageLimit(3);
+    }
+
+    @Test
+    public void registryCountsDestroyedPages() {
+        // 先让此前创建、尚未回收的适配器缩到最小，只统计本适配器
+        TrimRegistry.trim(ComponentCallbacks2.TRIM_MEMORY_COMPLETE);
+        adapter.setWindow(3);
+        TrimRegistry.Freed freed = TrimRegistry.trim(ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW);
+        assertEquals(4, freed.pages);
+        assertEquals(1, adapter.getEffectiveWindow());
+        assertEquals(0, TrimRegistry.trim(ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW).pages);
+    }
+}
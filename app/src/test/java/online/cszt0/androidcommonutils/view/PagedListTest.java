@@ -0,0 +1,219 @@
+package online.cszt0.androidcommonutils.view;
+
+import androidx.annotation.NonNull;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * {@link PagedList} 的测试：按访问位置加载页面、数据不足时缩减、超出上限时释放最远的页面
+ */
+public class PagedListTest {
+    private final QueueExecutor background = new QueueExecutor();
+    private final QueueExecutor main = new QueueExecutor();
+
+    @Test
+    public void loadsPagesAroundAccessedPosition() {
+        Source source = new Source(100, 100);
+        PagedList<Integer> list = new PagedList<>(source, 10, 20, background, main);
+        Events events = new Events(list);
+
+        list.loadAround(25);
+        // 加载在后台线程进行，结果回到主线程前不可见
+        assertNull(list.get(25));
+        assertEquals(3, background.queue.size());
+        background.runAll();
+        assertFalse(list.isLoaded(25));
+        main.runAll();
+
+        assertEquals("[10+10, 20+10, 30+10]", source.requests.toString());
+        assertEquals("[loaded 10+10, loaded 20+10, loaded 30+10]", events.log.toString());
+        for (int i = 10; i < 40; i++) {
+            assertEquals(Integer.valueOf(i), list.get(i));
+        }
+        assertNull(list.get(9));
+        assertNull(list.get(40));
+
+        // 已加载与正在加载的页面不会重复请求
+        list.loadAround(35);
+        list.loadAround(36);
+        background.runAll();
+        main.runAll();
+        assertEquals("[10+10, 20+10, 30+10, 40+10]", source.requests.toString());
+    }
+
+    @Test
+    public void shrinksWhenSourceHasFewerItems() {
+        // 数据源估计有 100 条，实际只有 35 条
+        Source source = new Source(100, 35);
+        PagedList<Integer> list = new PagedList<>(source, 10, 20, background, main);
+        Events events = new Events(list);
+
+        list.loadAround(28);
+        background.runAll();
+        main.runAll();
+
+        assertEquals(35, list.size());
+        assertEquals("[loaded 10+10, loaded 20+10, loaded 30+5, removed 35+65]", sorted(events.log).toString());
+        assertEquals(Integer.valueOf(34), list.get(34));
+
+        // 缩减前已请求、位于新末尾之后的页面，其结果被忽略
+        source = new Source(100, 15);
+        list = new PagedList<>(source, 10, 20, background, main);
+        events = new Events(list);
+        list.loadAround(15);
+        list.loadAround(25);
+        background.runAll();
+        main.runAll();
+        assertEquals(15, list.size());
+        assertEquals("[loaded 0+10, loaded 10+5, removed 15+85]", sorted(events.log).toString());
+    }
+
+    @Test
+    public void evictsPagesFarthestFromLastAccess() {
+        Source source = new Source(200, 200);
+        PagedList<Integer> list = new PagedList<>(source, 10, 4, background, main);
+        list.setPrefetchDistance(0);
+        for (int page = 0; page < 4; page++) {
+            load(list, page * 10);
+        }
+        for (int page = 0; page < 4; page++) {
+            assertTrue(list.isLoaded(page * 10));
+        }
+
+        // 访问第 10 页后，距离最远的第 0 页被释放
+        load(list, 100);
+        assertFalse(list.isLoaded(0));
+        assertNull(list.get(0));
+        assertTrue(list.isLoaded(10));
+        assertTrue(list.isLoaded(100));
+
+        // 回到开头后，离得最远的第 10 页被释放
+        load(list, 0);
+        assertTrue(list.isLoaded(0));
+        assertFalse(list.isLoaded(100));
+        assertEquals(Integer.valueOf(5), list.get(5));
+
+        // 被释放的页面再次访问时重新加载
+        source.requests.clear();
+        load(list, 100);
+        assertEquals("[100+10]", source.requests.toString());
+        assertEquals(Integer.valueOf(105), list.get(105));
+    }
+
+    @Test
+    public void pageLimitCoversPrefetchWindow() {
+        Source source = new Source(1000, 1000);
+        PagedList<Integer> list = new PagedList<>(source, 10, 1, background, main);
+        list.setPrefetchDistance(10);
+        // 上限不足以容纳预加载窗口时，至少保留窗口内的页面
+        assertEquals(3, list.getMaxPages());
+        load(list, 505);
+        for (int i = 495; i < 520; i++) {
+            assertTrue(list.isLoaded(i));
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void loadFailureIsRethrownOnMainThread() {
+        PagedList<Integer> list = new PagedList<>(new PagedDataSource<Integer>() {
+            @Override
+            public int getCount() {
+                return 10;
+            }
+
+            @NonNull
+            @Override
+            public List<Integer> loadRange(int start, int count) {
+                throw new IllegalStateException();
+            }
+        }, 10, 1, background, main);
+        list.loadAround(0);
+        background.runAll();
+        main.runAll();
+    }
+
+    private void load(PagedList<?> list, int index) {
+        list.loadAround(index);
+        background.runAll();
+        main.runAll();
+    }
+
+    private static List<String> sorted(List<String> log) {
+        List<String> result = new ArrayList<>(log);
+        Collections.sort(result);
+        return result;
+    }
+
+    /**
+     * 预计数量为 count，实际只有 actual 条数据，位置 i 的数据为 i
+     */
+    private static class Source extends PagedDataSource<Integer> {
+        final int count;
+        final int actual;
+        final List<String> requests = new ArrayList<>();
+
+        Source(int count, int actual) {
+            this.count = count;
+            this.actual = actual;
+        }
+
+        @Override
+        public int getCount() {
+            return count;
+        }
+
+        @NonNull
+        @Override
+        public List<Integer> loadRange(int start, int count) {
+            requests.add(start + "+" + count);
+            List<Integer> items = new ArrayList<>();
+            for (int i = start; i < Math.min(start + count, actual); i++) {
+                items.add(i);
+            }
+            return items;
+        }
+    }
+
+    private static class Events implements PagedList.Callback {
+        final List<String> log = new ArrayList<>();
+
+        Events(PagedList<?> list) {
+            list.addCallback(this);
+        }
+
+        @Override
+        public void onItemRangeLoaded(int start, int count) {
+            log.add("loaded " + start + "+" + count);
+        }
+
+        @Override
+        public void onItemRangeRemoved(int start, int count) {
+            log.add("removed " + start + "+" + count);
+        }
+    }
+
+    private static class QueueExecutor implements Executor {
+        final List<Runnable> queue = new ArrayList<>();
+
+        @Override
+        public void execute(@NonNull Runnable command) {
+            queue.add(command);
+        }
+
+        void runAll() {
+            while (!queue.isEmpty()) {
+                queue.remove(0).run();
+            }
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package online.cszt0.androidcommonutils.view;
+
+import androidx.annotation.NonNull;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * {@link SectionedRecyclerViewAdapter} 的稳定 id 与视图类型
+ */
+public class SectionedRecyclerViewAdapterTest {
+    private static final int LAYOUT = 0x7f0b0001;
+
+    @Test
+    public void stableIdsFollowWrappedAdapter() {
+        CommonRecyclerViewAdapter<Item> adapter = newAdapter(items(6));
+        assertFalse(adapter.hasStableIds());
+        SectionedRecyclerViewAdapter<Item> sectioned = newSectioned(adapter);
+        // 被包装的适配器在包装时注册观察者，由数据确定使用稳定 id
+        assertTrue(adapter.hasStableIds());
+        assertTrue(sectioned.hasStableIds());
+        assertEquals(3, sectioned.getItemId(sectioned.getPosition(3)));
+        assertTrue(sectioned.getItemId(0) < 0);
+    }
+
+    @Test
+    public void withoutIdentifiableDataNoStableIds() {
+        List<Object> items = new ArrayList<>();
+        items.add("a");
+        CommonRecyclerViewAdapter<Object> adapter = new CommonRecyclerViewAdapter<Object>(null, items, LAYOUT) {
+            @Override
+            protected void bindView(ViewHolder viewHolder, Object item, int position, int viewType) {
+            }
+        };
+        SectionedRecyclerViewAdapter<Object> sectioned = new SectionedRecyclerViewAdapter<Object>(null, adapter, LAYOUT) {
+            @Override
+            protected Object getSectionKey(Object o) {
+                return o;
+            }
+
+            @Override
+            protected void bindHeader(@NonNull ViewHolder viewHolder, Object key, int section) {
+            }
+        };
+        assertFalse(sectioned.hasStableIds());
+    }
+
+    @Test
+    public void headerViewTypeDoesNotCollideWithLayout() {
+        // 标题布局与数据布局相同
+        SectionedRecyclerViewAdapter<Item> sectioned = newSectioned(newAdapter(items(4)));
+        assertTrue(sectioned.isHeader(0));
+        int headerType = sectioned.getItemViewType(0);
+        int dataType = sectioned.getItemViewType(1);
+        assertEquals(LAYOUT, dataType);
+        assertEquals(SectionedRecyclerViewAdapter.getHeaderViewType(LAYOUT), headerType);
+        assertNotEquals(dataType, headerType);
+        assertTrue(headerType < 0);
+    }
+
+    private static List<Item> items(int size) {
+        List<Item> items = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            items.add(new Item(i));
+        }
+        return items;
+    }
+
+    private static CommonRecyclerViewAdapter<Item> newAdapter(List<Item> items) {
+        return new CommonRecyclerViewAdapter<Item>(null, items, LAYOUT) {
+            @Override
+            protected void bindView(ViewHolder viewHolder, Item item, int position, int viewType) {
+            }
+        };
+    }
+
+    private static SectionedRecyclerViewAdapter<Item> newSectioned(CommonRecyclerViewAdapter<Item> adapter) {
+        return new SectionedRecyclerViewAdapter<Item>(null, adapter, LAYOUT) {
+            @Override
+            protected Object getSectionKey(Item item) {
+                return item.id / 2;
+            }
+
+            @Override
+            protected void bindHeader(@NonNull ViewHolder viewHolder, Object key, int section) {
+            }
+        };
+    }
+
+    private static class Item implements CommonAdapterInterface.Identifiable {
+        final int id;
+
+        Item(int id) {
+            this.id = id;
+        }
+
+        @Override
+        public long itemId() {
+            return id;
+        }
+    }
+}
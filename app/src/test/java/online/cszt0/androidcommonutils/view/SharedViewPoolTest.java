@@ -0,0 +1,132 @@
+package online.cszt0.androidcommonutils.view;
+
+import android.content.ComponentCallbacks2;
+import android.view.View;
+import android.view.ViewGroup;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import online.cszt0.androidcommonutils.view.internal.TrimRegistry;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+/**
+ * {@link SharedViewPool} 的测试：按布局限制缓存数量、统计命中，内存紧张时清空
+ */
+public class SharedViewPoolTest {
+    private static final int ITEM = 0x7f0b0001;
+    private static final int HEADER = 0x7f0b0002;
+
+    private static final RecyclerView.Adapter<RecyclerView.ViewHolder> FACTORY = new RecyclerView.Adapter<RecyclerView.ViewHolder>() {
+        @NonNull
+        @Override
+        public RecyclerView.ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+            return new RecyclerView.ViewHolder(new View(null)) {
+            };
+        }
+
+        @Override
+        public void onBindViewHolder(@NonNull RecyclerView.ViewHolder holder, int position) {
+        }
+
+        @Override
+        public int getItemCount() {
+            return 0;
+        }
+    };
+
+    @Test
+    public void layoutsWithoutLimitUseDefault() {
+        SharedViewPool pool = new SharedViewPool(2);
+        assertEquals(2, pool.getMaxRecycledViews(ITEM));
+        put(pool, ITEM, 4);
+        assertEquals(2, pool.getRecycledViewCount(ITEM));
+
+        Set<RecyclerView.ViewHolder> holders = new HashSet<>();
+        holders.add(pool.getRecycledView(ITEM));
+        holders.add(pool.getRecycledView(ITEM));
+        assertEquals(2, holders.size());
+        assertNull(pool.getRecycledView(ITEM));
+        assertEquals(SharedViewPool.DEFAULT_MAX_RECYCLED_VIEWS, new SharedViewPool().getMaxRecycledViews(ITEM));
+    }
+
+    @Test
+    public void limitsAreKeptPerLayout() {
+        SharedViewPool pool = new SharedViewPool(2);
+        pool.setMaxRecycledViews(HEADER, 4);
+        put(pool, HEADER, 6);
+        put(pool, ITEM, 6);
+        assertEquals(4, pool.getMaxRecycledViews(HEADER));
+        assertEquals(2, pool.getMaxRecycledViews(ITEM));
+        assertEquals(4, pool.getRecycledViewCount(HEADER));
+        assertEquals(2, pool.getRecycledViewCount(ITEM));
+
+        // 缩小限制时丢弃多余的视图
+        pool.setMaxRecycledViews(HEADER, 1);
+        assertEquals(1, pool.getRecycledViewCount(HEADER));
+        assertEquals(1, pool.getMaxRecycledViews(HEADER));
+    }
+
+    @Test
+    public void countsHitsAndMissesPerLayout() {
+        SharedViewPool pool = new SharedViewPool(3);
+        put(pool, ITEM, 2);
+        for (int i = 0; i < 3; i++) {
+            pool.getRecycledView(ITEM);
+        }
+        assertNull(pool.getRecycledView(HEADER));
+
+        assertEquals(2, pool.getHitCount(ITEM));
+        assertEquals(1, pool.getMissCount(ITEM));
+        assertEquals(0, pool.getHitCount(HEADER));
+        assertEquals(1, pool.getMissCount(HEADER));
+        assertEquals(2, pool.getHitCount());
+        assertEquals(2, pool.getMissCount());
+
+        pool.resetStats();
+        assertEquals(0, pool.getHitCount(ITEM));
+        assertEquals(0, pool.getMissCount(HEADER));
+        assertEquals(0, pool.getHitCount());
+        assertEquals(0, pool.getMissCount());
+    }
+
+    @Test
+    public void trimClearsPoolUnderPressure() {
+        // 先清空其他测试中尚未回收的缓存池，只统计本缓存池
+        TrimRegistry.trim(ComponentCallbacks2.TRIM_MEMORY_COMPLETE);
+        SharedViewPool pool = new SharedViewPool(3);
+        pool.setMaxRecycledViews(HEADER, 1);
+        put(pool, ITEM, 3);
+        put(pool, HEADER, 2);
+
+        // 内存开始紧张时保留缓存
+        assertEquals(0, TrimRegistry.trim(ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE).pooledViews);
+        assertEquals(3, pool.getRecycledViewCount(ITEM));
+
+        TrimRegistry.Freed freed = TrimRegistry.trim(ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW);
+        assertEquals(4, freed.pooledViews);
+        assertEquals(0, pool.getRecycledViewCount(ITEM));
+        assertEquals(0, pool.getRecycledViewCount(HEADER));
+        // 清空不计入命中统计，限制保持不变
+        assertEquals(0, pool.getHitCount());
+        assertEquals(0, pool.getMissCount());
+        assertEquals(1, pool.getMaxRecycledViews(HEADER));
+
+        put(pool, ITEM, 1);
+        assertNotNull(pool.getRecycledView(ITEM));
+    }
+
+    private static void put(SharedViewPool pool, int layout, int count) {
+        for (int i = 0; i < count; i++) {
+            pool.putRecycledView(FACTORY.createViewHolder(null, layout));
+        }
+    }
+}
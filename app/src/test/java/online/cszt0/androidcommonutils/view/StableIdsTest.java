@@ -0,0 +1,97 @@
+package online.cszt0.androidcommonutils.view;
+
+import androidx.recyclerview.widget.RecyclerView;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * {@link CommonRecyclerViewAdapter} 的稳定 id：在第一个观察者注册前确定，修改后仍能按 id 查询位置
+ */
+public class StableIdsTest {
+
+    @Test
+    public void decidedFromDataWhenFirstObserved() {
+        CommonRecyclerViewAdapter<Item> adapter = newAdapter(null);
+        assertFalse(adapter.hasStableIds());
+        // 构造后、设置到 RecyclerView 前提供的数据同样生效
+        adapter.resetDataSet(items(3));
+        adapter.registerAdapterDataObserver(new RecyclerView.AdapterDataObserver() {
+        });
+        assertTrue(adapter.hasStableIds());
+        assertEquals(2, adapter.getItemId(2));
+    }
+
+    @Test
+    public void unchangedAfterObserved() {
+        CommonRecyclerViewAdapter<Item> adapter = newAdapter(null);
+        adapter.registerAdapterDataObserver(new RecyclerView.AdapterDataObserver() {
+        });
+        assertFalse(adapter.hasStableIds());
+        // 有观察者后不能修改，也不应抛出异常
+        adapter.resetDataSet(items(3));
+        assertFalse(adapter.hasStableIds());
+        assertEquals(2, adapter.getItemId(2));
+    }
+
+    @Test
+    public void explicitSettingIsKept() {
+        CommonRecyclerViewAdapter<Item> adapter = newAdapter(Collections.<Item>emptyList());
+        adapter.setHasStableIds(true);
+        adapter.registerAdapterDataObserver(new RecyclerView.AdapterDataObserver() {
+        });
+        assertTrue(adapter.hasStableIds());
+    }
+
+    @Test
+    public void positionsFollowEdits() {
+        CommonRecyclerViewAdapter<Item> adapter = newAdapter(items(100));
+        assertEquals(99, adapter.getPositionForItemId(99));
+        adapter.insert(10, new Item(1000));
+        adapter.remove(0);
+        adapter.move(50, 5);
+        adapter.update(20, new Item(2000));
+        adapter.add(new Item(3000));
+        for (int i = 0; i < adapter.getItemCount(); i++) {
+            assertEquals(i, adapter.getPositionForItemId(adapter.getItemId(i)));
+        }
+        assertEquals(RecyclerView.NO_POSITION, adapter.getPositionForItemId(0));
+        assertEquals(10, adapter.getPositionForItemId(1000));
+    }
+
+    private static List<Item> items(int size) {
+        List<Item> items = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            items.add(new Item(i));
+        }
+        return items;
+    }
+
+    private static CommonRecyclerViewAdapter<Item> newAdapter(List<Item> items) {
+        return new CommonRecyclerViewAdapter<Item>(null, items, 1) {
+            @Override
+            protected void bindView(ViewHolder viewHolder, Item item, int position, int viewType) {
+            }
+        };
+    }
+
+    private static class Item implements CommonAdapterInterface.Identifiable {
+        final int id;
+
+        Item(int id) {
+            this.id = id;
+        }
+
+        @Override
+        public long itemId() {
+            return id;
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package online.cszt0.androidcommonutils.view.internal;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import online.cszt0.androidcommonutils.view.CommonAdapterInterface;
+import online.cszt0.androidcommonutils.view.CommonAdapterViewAdapter;
+import online.cszt0.androidcommonutils.view.CommonRecyclerViewAdapter;
+import online.cszt0.androidcommonutils.view.ViewHolder;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 过滤期间对公共适配器进行细粒度修改的测试。
+ * <p>
+ * 过滤结果通过 {@link FilterImpl} 同步计算并发布，修改后检查显示的数据与按发布的条件重新过滤的结果一致。
+ */
+public class AdapterFilterTest {
+    private CommonAdapterViewAdapter<Named> adapter;
+    private FilterImpl<Named> filter;
+
+    @Before
+    public void setUp() {
+        adapter = new CommonAdapterViewAdapter<Named>(null, items("apple", "banana", "cherry"), 1) {
+            @Override
+            protected void bindView(ViewHolder viewHolder, Named named, int position, int viewType) {
+            }
+        };
+        filter = (FilterImpl<Named>) adapter.getFilter();
+        publish("an");
+        assertEquals(Collections.singletonList("banana"), shown());
+    }
+
+    @Test
+    public void clearKeepsConstraintForLaterEdits() {
+        adapter.clear();
+        assertEquals(Collections.emptyList(), shown());
+
+        adapter.add(new Named("mango"));
+        adapter.add(new Named("kiwi"));
+        assertEquals(2, adapter.getData().size());
+        assertEquals(Collections.singletonList("mango"), shown());
+
+        adapter.insert(0, new Named("ant"));
+        assertEquals(Arrays.asList("ant", "mango"), shown());
+        adapter.remove(1);
+        assertEquals(Collections.singletonList("ant"), shown());
+        adapter.update(1, new Named("pecan"));
+        assertEquals(Arrays.asList("ant", "pecan"), shown());
+        adapter.removeRange(0, 2);
+        assertEquals(Collections.emptyList(), shown());
+        checkTypes();
+    }
+
+    @Test
+    public void foreignFilterDataIsRefiltered() {
+        // 过滤结果中含有不在数据集中的数据，无法对应到数据集
+        adapter.setFilterData(items("banana", "durian"));
+        adapter.add(new Named("mandarin"));
+        assertEquals(Arrays.asList("banana", "mandarin"), shown());
+        adapter.remove(0);
+        assertEquals(Arrays.asList("banana", "mandarin"), shown());
+        adapter.remove(0);
+        assertEquals(Collections.singletonList("mandarin"), shown());
+        checkTypes();
+    }
+
+    @Test
+    public void recyclerClearKeepsConstraint() {
+        CommonRecyclerViewAdapter<Named> recycler = new CommonRecyclerViewAdapter<Named>(null, items("apple", "banana"), 1) {
+            @Override
+            protected void bindView(ViewHolder viewHolder, Named named, int position, int viewType) {
+            }
+        };
+        FilterImpl<Named> recyclerFilter = (FilterImpl<Named>) recycler.getFilter();
+        recyclerFilter.publishResults("an", recyclerFilter.performFiltering("an"));
+        assertEquals(1, recycler.getItemCount());
+
+        recycler.clear();
+        assertEquals(0, recycler.getItemCount());
+        recycler.add(new Named("kiwi"));
+        recycler.add(new Named("mango"));
+        assertEquals(2, recycler.getData().size());
+        assertEquals(1, recycler.getItemCount());
+    }
+
+    private void publish(String constraint) {
+        filter.publishResults(constraint, filter.performFiltering(constraint));
+    }
+
+    private List<String> shown() {
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < adapter.getCount(); i++) {
+            names.add(adapter.getItem(i).name);
+        }
+        return names;
+    }
+
+    private void checkTypes() {
+        assertEquals(adapter.getCount(), adapter.getViewTypeHistogram()[0]);
+    }
+
+    private static List<Named> items(String... names) {
+        List<Named> items = new ArrayList<>();
+        for (String name : names) {
+            items.add(new Named(name));
+        }
+        return items;
+    }
+
+    private static class Named implements CommonAdapterInterface.Filterable {
+        final String name;
+
+        Named(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public boolean filter(CharSequence constraint) {
+            return constraint == null || name.contains(constraint);
+        }
+    }
+}
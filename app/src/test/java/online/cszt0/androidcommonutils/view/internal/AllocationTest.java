@@ -0,0 +1,86 @@
+package online.cszt0.androidcommonutils.view.internal;
+
+import android.view.View;
+
+import androidx.recyclerview.widget.RecyclerView;
+
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.Field;
+import java.util.List;
+
+import online.cszt0.androidcommonutils.benchmark.Benchmark;
+import online.cszt0.androidcommonutils.view.CommonRecyclerViewAdapter;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 热点路径的分配测试。
+ * <p>
+ * 预热后统计稳定状态下每次操作在当前线程分配的字节数，超过上限即失败。
+ * 过滤使用串行扫描，并归还上一次的结果，与适配器发布结果后的稳定状态一致。
+ */
+public class AllocationTest {
+    private static final int WARMUP = 200;
+    private static final int ITERATIONS = 2_000;
+    // 每次过滤只分配结果对象、过滤状态与条件字符串，与数据量无关
+    private static final long FILTER_LIMIT = 512;
+    // 绑定分发不应分配
+    private static final long BIND_LIMIT = 0;
+
+    @Before
+    public void setUp() {
+        Assume.assumeTrue(Benchmark.allocatedBytes() >= 0);
+    }
+
+    @Test
+    public void steadyStateFilterAllocatesConstant() throws Exception {
+        final FilterImpl<FilterBenchmark.Item> filter =
+                (FilterImpl<FilterBenchmark.Item>) FilterBenchmark.newAdapter(FilterBenchmark.items(20_000)).getFilter();
+        final Field values = Class.forName("android.widget.Filter$FilterResults").getField("values");
+        values.setAccessible(true);
+        long bytes = measure(new Benchmark.Operation() {
+            @Override
+            public void run() throws Exception {
+                Object results = filter.performFiltering("ab");
+                filter.recycle((List<?>) values.get(results));
+            }
+        });
+        assertTrue("filter allocated " + bytes + " B/op", bytes <= FILTER_LIMIT);
+    }
+
+    @Test
+    public void steadyStateBindAllocatesNothing() throws Exception {
+        final int size = 1_000;
+        final CommonRecyclerViewAdapter<FilterBenchmark.Item> adapter = FilterBenchmark.newAdapter(FilterBenchmark.items(size));
+        final RecyclerView.ViewHolder holder = new RecyclerViewViewHolderImpl(new View(null));
+        long bytes = measure(new Benchmark.Operation() {
+            private int position;
+
+            @Override
+            public void run() {
+                int viewType = adapter.getItemViewType(position);
+                adapter.onBindViewHolder(holder, position);
+                Benchmark.consume(viewType);
+                position = (position + 1) % size;
+            }
+        });
+        assertTrue("bind allocated " + bytes + " B/op", bytes <= BIND_LIMIT);
+    }
+
+    /**
+     * 预热后运行操作，返回每次操作平均分配的字节数
+     */
+    private static long measure(Benchmark.Operation operation) throws Exception {
+        for (int i = 0; i < WARMUP; i++) {
+            operation.run();
+        }
+        long start = Benchmark.allocatedBytes();
+        for (int i = 0; i < ITERATIONS; i++) {
+            operation.run();
+        }
+        return (Benchmark.allocatedBytes() - start) / ITERATIONS;
+    }
+}
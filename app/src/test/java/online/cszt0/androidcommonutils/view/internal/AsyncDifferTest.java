@@ -0,0 +1,263 @@
+package online.cszt0.androidcommonutils.view.internal;
+
+import android.view.ViewGroup;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import online.cszt0.androidcommonutils.view.CommonAdapterInterface;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * {@link AsyncDiffer} 的测试。
+ * <p>
+ * 后台线程与主线程均替换为手动执行的队列。适配器收到的通知应用到旧数据集的副本上，
+ * 分发完成后副本中保留的数据应与新数据集中同一位置的数据相同。
+ */
+public class AsyncDifferTest {
+    private final QueueExecutor background = new QueueExecutor();
+    private final QueueExecutor main = new QueueExecutor();
+    private final List<List<Item>> commits = new ArrayList<>();
+    private TestAdapter adapter;
+    private AsyncDiffer<Item> differ;
+    private int dispatched;
+
+    @Before
+    public void setUp() {
+        adapter = new TestAdapter();
+        differ = new AsyncDiffer<>(adapter, new AsyncDiffer.Committer<Item>() {
+            @Override
+            public void commit(List<Item> newList) {
+                commits.add(newList);
+            }
+
+            @Override
+            public void onDispatched() {
+                dispatched++;
+            }
+        }, background, main);
+    }
+
+    @Test
+    public void dispatchesDifferenceOnMainThread() {
+        List<Item> oldList = items("a:1", "b:1", "c:1", "d:1", "e:1");
+        List<Item> newList = items("b:1", "x:1", "c:2", "e:1", "a:1");
+        Mirror mirror = new Mirror(oldList);
+        adapter.registerAdapterDataObserver(mirror);
+
+        differ.submit(oldList, newList);
+        assertTrue(differ.isPending());
+        assertTrue(commits.isEmpty());
+        background.runAll();
+        // 计算完成，尚未回到主线程
+        assertTrue(commits.isEmpty());
+        assertEquals(0, mirror.events);
+        main.runAll();
+
+        assertFalse(differ.isPending());
+        assertEquals(1, commits.size());
+        assertSame(newList, commits.get(0));
+        assertEquals(1, dispatched);
+        mirror.check(newList);
+        assertTrue("内容变化的数据应收到变化通知", mirror.changed.contains("c"));
+    }
+
+    @Test
+    public void newerSubmitDiscardsRunningDiff() {
+        List<Item> oldList = items("a:1", "b:1", "c:1");
+        List<Item> stale = items("a:1", "c:1");
+        List<Item> latest = items("c:1", "d:1", "a:2");
+        Mirror mirror = new Mirror(oldList);
+        adapter.registerAdapterDataObserver(mirror);
+
+        differ.submit(oldList, stale);
+        differ.submit(oldList, latest);
+        background.runAll();
+        main.runAll();
+
+        assertEquals(Collections.singletonList(latest), commits);
+        assertEquals(1, dispatched);
+        mirror.check(latest);
+    }
+
+    @Test
+    public void newerSubmitDiscardsComputedResult() {
+        List<Item> oldList = items("a:1", "b:1");
+        List<Item> stale = items("b:1");
+        List<Item> latest = items("b:1", "c:1");
+        Mirror mirror = new Mirror(oldList);
+        adapter.registerAdapterDataObserver(mirror);
+
+        differ.submit(oldList, stale);
+        background.runAll();
+        // 结果已计算完成，回到主线程之前提交了新的数据集
+        differ.submit(oldList, latest);
+        background.runAll();
+        main.runAll();
+
+        assertEquals(Collections.singletonList(latest), commits);
+        mirror.check(latest);
+    }
+
+    @Test
+    public void cancelDropsPendingDiff() {
+        differ.submit(items("a:1"), items("b:1"));
+        assertTrue(differ.isPending());
+        differ.cancel();
+        assertFalse(differ.isPending());
+        background.runAll();
+        main.runAll();
+        assertTrue(commits.isEmpty());
+        assertEquals(0, dispatched);
+    }
+
+    @Test
+    public void emptyListsDispatchSynchronously() {
+        List<Item> newList = items("a:1", "b:1");
+        Mirror mirror = new Mirror(Collections.<Item>emptyList());
+        adapter.registerAdapterDataObserver(mirror);
+        differ.submit(Collections.<Item>emptyList(), newList);
+        assertFalse(differ.isPending());
+        assertEquals(0, background.queue.size());
+        assertEquals(1, dispatched);
+        mirror.check(newList);
+
+        differ.submit(newList, Collections.<Item>emptyList());
+        assertEquals(2, dispatched);
+        mirror.check(Collections.<Item>emptyList());
+
+        // 相同的数据集不需要刷新
+        differ.submit(newList, newList);
+        assertEquals(2, dispatched);
+        assertEquals(2, commits.size());
+    }
+
+    /**
+     * 以 "key:content" 的形式创建数据
+     */
+    private static List<Item> items(String... specs) {
+        List<Item> items = new ArrayList<>();
+        for (String spec : specs) {
+            String[] parts = spec.split(":");
+            items.add(new Item(parts[0], parts[1]));
+        }
+        return items;
+    }
+
+    private static class Item implements CommonAdapterInterface.Diffable {
+        final String key;
+        final String content;
+
+        Item(String key, String content) {
+            this.key = key;
+            this.content = content;
+        }
+
+        @Override
+        public boolean isSameItem(Object other) {
+            return other instanceof Item && key.equals(((Item) other).key);
+        }
+
+        @Override
+        public boolean isSameContent(Object other) {
+            return isSameItem(other) && content.equals(((Item) other).content);
+        }
+    }
+
+    /**
+     * 将通知应用到旧数据集的副本上，插入的位置以 null 占位
+     */
+    private static class Mirror extends RecyclerView.AdapterDataObserver {
+        final List<Item> shown;
+        final List<String> changed = new ArrayList<>();
+        int events;
+
+        Mirror(List<Item> oldList) {
+            shown = new ArrayList<>(oldList);
+        }
+
+        void check(List<Item> newList) {
+            assertEquals(newList.size(), shown.size());
+            for (int i = 0; i < shown.size(); i++) {
+                Item item = shown.get(i);
+                if (item != null) {
+                    assertTrue(item.key, item.isSameItem(newList.get(i)));
+                }
+            }
+        }
+
+        @Override
+        public void onItemRangeInserted(int positionStart, int itemCount) {
+            events++;
+            shown.addAll(positionStart, Arrays.asList(new Item[itemCount]));
+        }
+
+        @Override
+        public void onItemRangeRemoved(int positionStart, int itemCount) {
+            events++;
+            shown.subList(positionStart, positionStart + itemCount).clear();
+        }
+
+        @Override
+        public void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
+            events++;
+            shown.add(toPosition, shown.remove(fromPosition));
+        }
+
+        @Override
+        public void onItemRangeChanged(int positionStart, int itemCount) {
+            events++;
+            for (int i = positionStart; i < positionStart + itemCount; i++) {
+                Item item = shown.get(i);
+                assertNotNull("插入的数据不应收到变化通知", item);
+                changed.add(item.key);
+            }
+        }
+    }
+
+    private static class TestAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
+        @NonNull
+        @Override
+        public RecyclerView.ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void onBindViewHolder(@NonNull RecyclerView.ViewHolder holder, int position) {
+        }
+
+        @Override
+        public int getItemCount() {
+            return 0;
+        }
+    }
+
+    private static class QueueExecutor implements Executor {
+        final List<Runnable> queue = new ArrayList<>();
+
+        @Override
+        public void execute(@NonNull Runnable command) {
+            queue.add(command);
+        }
+
+        void runAll() {
+            while (!queue.isEmpty()) {
+                queue.remove(0).run();
+            }
+        }
+    }
+}
@@ -0,0 +1,330 @@
+package online.cszt0.androidcommonutils.view.internal;
+
+import org.junit.Test;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * {@link ChunkedList} 的测试。
+ * <p>
+ * 随机修改与 {@link ArrayList} 对照，并通过反射检查树的结构：所有叶子分段位于同一深度，
+ * 节点记录的元素数量与子节点一致，分段不超过容量。
+ */
+public class ChunkedListTest {
+
+    @Test
+    public void buildsFromCollection() {
+        for (int size : new int[]{0, 1, 63, 64, 65, 2048, 2049, 100_000}) {
+            List<Integer> expected = range(0, size);
+            ChunkedList<Integer> list = new ChunkedList<>(expected);
+            assertEquals(expected, list);
+            checkStructure(list);
+        }
+    }
+
+    @Test
+    public void singleEditsSplitAndMerge() {
+        ChunkedList<Integer> list = new ChunkedList<>();
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            // 总是插入在中间，反复分裂同一区域的分段
+            list.add(list.size() / 2, i);
+            expected.add(expected.size() / 2, i);
+        }
+        assertEquals(expected, list);
+        checkStructure(list);
+        while (list.size() > 10) {
+            int index = list.size() / 3;
+            assertEquals(expected.remove(index), list.remove(index));
+        }
+        assertEquals(expected, list);
+        checkStructure(list);
+    }
+
+    @Test
+    public void bulkAddAllAtEveryPosition() {
+        for (int size : new int[]{0, 10, 64, 500, 5000}) {
+            for (int count : new int[]{16, 64, 65, 700, 9000}) {
+                for (int index : new int[]{0, size / 3, size}) {
+                    List<Integer> expected = range(0, size);
+                    ChunkedList<Integer> list = new ChunkedList<>(expected);
+                    List<Integer> inserted = range(-count, 0);
+                    list.addAll(index, inserted);
+                    expected.addAll(index, inserted);
+                    assertEquals(expected, list);
+                    checkStructure(list);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void bulkRemoveRange() {
+        for (int size : new int[]{100, 5000, 70_000}) {
+            for (int count : new int[]{16, 64, 65, 1000, size / 2}) {
+                if (count > size) {
+                    continue;
+                }
+                for (int from : new int[]{0, size / 4, size - count}) {
+                    List<Integer> expected = range(0, size);
+                    ChunkedList<Integer> list = new ChunkedList<>(expected);
+                    list.subList(from, from + count).clear();
+                    expected.subList(from, from + count).clear();
+                    assertEquals(expected, list);
+                    checkStructure(list);
+                }
+            }
+        }
+        ChunkedList<Integer> list = new ChunkedList<>(range(0, 5000));
+        list.subList(0, 5000).clear();
+        assertTrue(list.isEmpty());
+        list.add(1);
+        assertEquals(Collections.singletonList(1), list);
+    }
+
+    @Test
+    public void addAllOfItself() {
+        ChunkedList<Integer> list = new ChunkedList<>(range(0, 10));
+        list.addAll(5, list);
+        List<Integer> expected = range(0, 10);
+        expected.addAll(5, range(0, 10));
+        assertEquals(expected, list);
+
+        list = new ChunkedList<>(range(0, 100));
+        list.addAll(list);
+        expected = range(0, 100);
+        expected.addAll(range(0, 100));
+        assertEquals(expected, list);
+    }
+
+    @Test
+    public void randomEditsMatchArrayList() {
+        Random random = new Random(42);
+        ChunkedList<Integer> list = new ChunkedList<>();
+        List<Integer> expected = new ArrayList<>();
+        int next = 0;
+        for (int step = 0; step < 4000; step++) {
+            int size = expected.size();
+            switch (random.nextInt(6)) {
+                case 0: {
+                    int index = random.nextInt(size + 1);
+                    list.add(index, next);
+                    expected.add(index, next++);
+                    break;
+                }
+                case 1: {
+                    if (size > 0) {
+                        int index = random.nextInt(size);
+                        assertEquals(expected.remove(index), list.remove(index));
+                    }
+                    break;
+                }
+                case 2: {
+                    if (size > 0) {
+                        int index = random.nextInt(size);
+                        assertEquals(expected.set(index, next), list.set(index, next++));
+                    }
+                    break;
+                }
+                case 3: {
+                    int index = random.nextInt(size + 1);
+                    List<Integer> inserted = range(next, next + random.nextInt(300));
+                    next += inserted.size();
+                    list.addAll(index, inserted);
+                    expected.addAll(index, inserted);
+                    break;
+                }
+                case 4: {
+                    // 删除的数量少于新增，列表逐渐变大
+                    int from = random.nextInt(size + 1);
+                    int to = Math.min(size, from + random.nextInt(200));
+                    list.subList(from, to).clear();
+                    expected.subList(from, to).clear();
+                    break;
+                }
+                default: {
+                    ChunkedList<Integer> snapshot = list.snapshot();
+                    List<Integer> copy = new ArrayList<>(expected);
+                    // 修改后快照保持不变
+                    int index = random.nextInt(size + 1);
+                    list.addAll(index, range(next, next + 50));
+                    expected.addAll(index, range(next, next + 50));
+                    next += 50;
+                    if (!expected.isEmpty()) {
+                        list.set(0, -1);
+                        expected.set(0, -1);
+                    }
+                    assertEquals(copy, snapshot);
+                    checkStructure(snapshot);
+                    break;
+                }
+            }
+            if (step % 100 == 0) {
+                assertEquals(expected, list);
+                checkStructure(list);
+            }
+        }
+        assertEquals(expected, list);
+        checkStructure(list);
+    }
+
+    @Test
+    public void snapshotIsImmutableAndShared() {
+        ChunkedList<Integer> list = new ChunkedList<>(range(0, 1000));
+        ChunkedList<Integer> snapshot = list.snapshot();
+        assertSame(snapshot, list.snapshot());
+        assertSame(snapshot, snapshot.snapshot());
+
+        list.remove(0);
+        list.subList(100, 400).clear();
+        list.addAll(0, range(5000, 5100));
+        assertEquals(range(0, 1000), snapshot);
+        ChunkedList<Integer> second = list.snapshot();
+        assertNotSame(snapshot, second);
+        assertEquals(list, second);
+
+        try {
+            snapshot.add(1);
+            fail();
+        } catch (UnsupportedOperationException expected) {
+            // 快照只读
+        }
+        try {
+            snapshot.addAll(range(0, 100));
+            fail();
+        } catch (UnsupportedOperationException expected) {
+            // 快照只读
+        }
+        try {
+            snapshot.subList(0, 100).clear();
+            fail();
+        } catch (UnsupportedOperationException expected) {
+            // 快照只读
+        }
+        assertEquals(range(0, 1000), snapshot);
+    }
+
+    @Test
+    public void snapshotReadableFromOtherThread() throws InterruptedException {
+        final ChunkedList<Integer> list = new ChunkedList<>(range(0, 50_000));
+        final ChunkedList<Integer> snapshot = list.snapshot();
+        final long[] sum = new long[1];
+        Thread reader = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                for (int round = 0; round < 20; round++) {
+                    long total = 0;
+                    for (int value : snapshot) {
+                        total += value;
+                    }
+                    sum[0] = total;
+                }
+            }
+        });
+        reader.start();
+        for (int i = 0; i < 2000; i++) {
+            list.add(i * 7 % list.size(), -i);
+            list.remove(i * 13 % list.size());
+        }
+        reader.join();
+        assertEquals(50_000L * 49_999 / 2, sum[0]);
+    }
+
+    @Test
+    public void iteratorDetectsModification() {
+        ChunkedList<Integer> list = new ChunkedList<>(range(0, 200));
+        Iterator<Integer> iterator = list.iterator();
+        iterator.next();
+        list.addAll(range(0, 100));
+        try {
+            iterator.next();
+            fail();
+        } catch (ConcurrentModificationException expected) {
+            // 迭代期间被修改
+        }
+
+        iterator = list.iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next() % 2 == 0) {
+                iterator.remove();
+            }
+        }
+        for (int value : list) {
+            assertEquals(1, value % 2);
+        }
+        checkStructure(list);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void addAllOutOfBounds() {
+        new ChunkedList<>(range(0, 10)).addAll(11, range(0, 100));
+    }
+
+    private static List<Integer> range(int from, int to) {
+        List<Integer> list = new ArrayList<>(Math.max(0, to - from));
+        for (int i = from; i < to; i++) {
+            list.add(i);
+        }
+        return list;
+    }
+
+    private static void checkStructure(ChunkedList<?> list) {
+        try {
+            Object root = field(ChunkedList.class, "root").get(list);
+            int[] leafDepth = {-1};
+            int size = checkNode(root, 0, leafDepth, true);
+            assertEquals(list.size(), size);
+        } catch (ReflectiveOperationException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private static int checkNode(Object node, int depth, int[] leafDepth, boolean isRoot) throws ReflectiveOperationException {
+        Class<?> type = node.getClass();
+        int size = field(type.getSuperclass(), "size").getInt(node);
+        if (type.getSimpleName().equals("Leaf")) {
+            Object[] items = (Object[]) field(type, "items").get(node);
+            assertTrue(size <= items.length);
+            assertTrue("只有根可以是空的分段", isRoot || size > 0);
+            for (int i = size; i < items.length; i++) {
+                assertEquals("分段末尾应当清空", null, items[i]);
+            }
+            if (leafDepth[0] < 0) {
+                leafDepth[0] = depth;
+            }
+            assertEquals("叶子分段应位于同一深度", leafDepth[0], depth);
+            return size;
+        }
+        Object[] children = (Object[]) field(type, "children").get(node);
+        int count = field(type, "count").getInt(node);
+        assertTrue(count >= 1 && count <= children.length);
+        assertTrue("根分支至少有两个子节点", !isRoot || count >= 2);
+        int total = 0;
+        for (int i = 0; i < count; i++) {
+            total += checkNode(children[i], depth + 1, leafDepth, false);
+        }
+        for (int i = count; i < children.length; i++) {
+            assertEquals(null, children[i]);
+        }
+        assertEquals("分支记录的数量应与子节点一致", total, size);
+        return size;
+    }
+
+    private static Field field(Class<?> type, String name) throws NoSuchFieldException {
+        Field field = type.getDeclaredField(name);
+        field.setAccessible(true);
+        return field;
+    }
+}
@@ -0,0 +1,92 @@
+package online.cszt0.androidcommonutils.view.internal;
+
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import online.cszt0.androidcommonutils.benchmark.Benchmark;
+import online.cszt0.androidcommonutils.view.CommonAdapterInterface;
+import online.cszt0.androidcommonutils.view.CommonRecyclerViewAdapter;
+import online.cszt0.androidcommonutils.view.ViewHolder;
+
+/**
+ * {@link FilterImpl#performFiltering(CharSequence)} 的基准测试。
+ * <p>
+ * 每次操作完整扫描数据集，并归还上一次的结果，与适配器发布结果后的稳定状态一致。
+ */
+public class FilterBenchmark {
+
+    @Before
+    public void setUp() {
+        Assume.assumeTrue(Benchmark.isEnabled());
+    }
+
+    @Test
+    public void filter1k() throws Exception {
+        benchmark("filter/1k", 1_000);
+    }
+
+    @Test
+    public void filter100k() throws Exception {
+        benchmark("filter/100k", 100_000);
+    }
+
+    @Test
+    public void filter1m() throws Exception {
+        benchmark("filter/1m", 1_000_000);
+    }
+
+    private static void benchmark(String name, int size) throws Exception {
+        final FilterImpl<Item> filter = (FilterImpl<Item>) newAdapter(items(size)).getFilter();
+        // FilterResults 对 Filter 之外不可见，通过反射读取结果
+        final Field values = Class.forName("android.widget.Filter$FilterResults").getField("values");
+        values.setAccessible(true);
+        Benchmark.run(name, new Benchmark.Operation() {
+            @Override
+            public void run() throws Exception {
+                Object results = filter.performFiltering("ab");
+                filter.recycle((List<?>) values.get(results));
+            }
+        });
+    }
+
+    static List<Item> items(int size) {
+        Random random = new Random(size);
+        List<Item> items = new ArrayList<>(size);
+        char[] name = new char[8];
+        for (int i = 0; i < size; i++) {
+            for (int c = 0; c < name.length; c++) {
+                name[c] = (char) ('a' + random.nextInt(8));
+            }
+            items.add(new Item(new String(name)));
+        }
+        return items;
+    }
+
+    static CommonRecyclerViewAdapter<Item> newAdapter(List<Item> items) {
+        return new CommonRecyclerViewAdapter<Item>(null, items, 1) {
+            @Override
+            protected void bindView(ViewHolder viewHolder, Item item, int position, int viewType) {
+                Benchmark.consume(item);
+            }
+        };
+    }
+
+    static class Item implements CommonAdapterInterface.Filterable {
+        final String name;
+
+        Item(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public boolean filter(CharSequence constraint) {
+            return name.contains(constraint);
+        }
+    }
+}
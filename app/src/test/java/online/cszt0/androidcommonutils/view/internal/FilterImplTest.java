@@ -0,0 +1,360 @@
+package online.cszt0.androidcommonutils.view.internal;
+
+import androidx.annotation.NonNull;
+
+import org.junit.Test;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+
+import online.cszt0.androidcommonutils.view.CommonAdapterInterface;
+import online.cszt0.androidcommonutils.view.CommonRecyclerViewAdapter;
+import online.cszt0.androidcommonutils.view.ViewHolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * {@link FilterImpl} 的测试。
+ * <p>
+ * 直接调用 {@link FilterImpl#performFiltering(CharSequence)} 并读取结果，建立索引的后台线程替换为手动执行的队列。
+ */
+public class FilterImplTest {
+
+    @Test
+    public void resultDoesNotDependOnIndexReadiness() throws Exception {
+        List<Object> items = mixedItems(3000);
+        QueueExecutor background = new QueueExecutor();
+        FilterImpl<Object> filter = new FilterImpl<>(newAdapter(items), background);
+        filter.setIndexEnabled(true);
+        for (String constraint : new String[]{"ab", "abc", "", "zzz"}) {
+            List<Object> expected = expected(filter, items, constraint);
+            // 索引尚未建立，逐个扫描
+            assertEquals(constraint, expected, filter(filter, constraint));
+            filter.setParallelThreshold(1);
+            assertEquals(constraint, expected, filter(filter, constraint));
+            filter.setParallelThreshold(0);
+        }
+
+        background.runAll();
+        for (String constraint : new String[]{"ab", "abc", "", "zzz"}) {
+            assertEquals(constraint, expected(filter, items, constraint), filter(filter, constraint));
+        }
+
+        // 数据集变化后索引重建完成前，同样与索引的结果一致
+        items.remove(0);
+        filter.invalidate();
+        List<Object> beforeBuild = filter(filter, "ab");
+        background.runAll();
+        assertEquals(beforeBuild, filter(filter, "ab"));
+    }
+
+    @Test
+    public void indexableItemsAreMatchedByKeys() throws Exception {
+        List<Object> items = new ArrayList<>();
+        items.add(new Keyed("Alpha"));
+        items.add(new Keyed("beta"));
+        items.add(new Both("alphabet", false));
+        items.add(new Plain());
+        items.add(new Checked(false));
+        QueueExecutor background = new QueueExecutor();
+        FilterImpl<Object> filter = new FilterImpl<>(newAdapter(items), background);
+        filter.setIndexEnabled(true);
+
+        // 实现 Indexable 的数据按关键字判断，不调用 filter；其余数据按 Filterable 的规则判断
+        List<Object> expected = new ArrayList<>();
+        expected.add(items.get(0));
+        expected.add(items.get(2));
+        expected.add(items.get(3));
+        assertEquals(expected, filter(filter, "alp"));
+        background.runAll();
+        assertEquals(expected, filter(filter, "alp"));
+
+        // 关闭索引后恢复按 Filterable 判断
+        filter.setIndexEnabled(false);
+        expected.remove(items.get(2));
+        expected.add(1, items.get(1));
+        assertEquals(expected, filter(filter, "alp"));
+    }
+
+    @Test
+    public void refinedConstraintScansPreviousResult() throws Exception {
+        List<Object> items = mixedItems(2000);
+        FilterImpl<Object> filter = new FilterImpl<>(newAdapter(items), new QueueExecutor());
+        filter.setIncremental(true);
+        List<Object> first = filter(filter, "a");
+        Counted.calls = 0;
+        List<Object> refined = filter(filter, "ab");
+        // 只判断上一次通过的数据
+        assertEquals(countFilterable(first), Counted.calls);
+        assertEquals(scan(items, "ab"), refined);
+
+        // 不以上一次的条件开头时完整扫描
+        Counted.calls = 0;
+        List<Object> unrelated = filter(filter, "ba");
+        assertEquals(countFilterable(items), Counted.calls);
+        assertEquals(scan(items, "ba"), unrelated);
+    }
+
+    @Test
+    public void dataChangeStopsRefinement() throws Exception {
+        List<Object> items = mixedItems(1000);
+        CommonRecyclerViewAdapter<Object> adapter = newAdapter(items);
+        FilterImpl<Object> filter = new FilterImpl<>(adapter, new QueueExecutor());
+        filter.setIncremental(true);
+        filter(filter, "a");
+        adapter.add(new Named("zab"));
+        filter.invalidate();
+        Counted.calls = 0;
+        List<Object> refined = filter(filter, "ab");
+        assertEquals(countFilterable(adapter.getData()), Counted.calls);
+        assertEquals(scan(adapter.getData(), "ab"), refined);
+    }
+
+    @Test
+    public void publishedResultSurvivesRefinement() throws Exception {
+        List<Object> items = mixedItems(1000);
+        FilterImpl<Object> filter = new FilterImpl<>(newAdapter(items), new QueueExecutor());
+        filter.setIncremental(true);
+        // 第一次的结果与过滤线程共享位置表，仍在显示，不归还
+        List<?> first = values(filter.performFiltering("a"));
+        List<Object> expected = new ArrayList<Object>(first);
+        filter(filter, "ab");
+        filter(filter, "abc");
+        assertEquals(expected, first);
+        assertEquals(scan(items, "a"), first);
+    }
+
+    @Test
+    public void parallelMatchesSerialOrder() throws Exception {
+        List<Object> items = mixedItems(50_000);
+        FilterImpl<Object> filter = new FilterImpl<>(newAdapter(items), new QueueExecutor());
+        for (String constraint : new String[]{"a", "ab", "abcd", "", "zz"}) {
+            filter.setParallelThreshold(0);
+            List<Object> serial = filter(filter, constraint);
+            filter.setParallelThreshold(1000);
+            assertEquals(constraint, serial, filter(filter, constraint));
+            assertEquals(constraint, scan(items, constraint), serial);
+        }
+
+        // 增量过滤时在上一次的结果中并行过滤
+        filter.setIncremental(true);
+        filter(filter, "a");
+        assertEquals(scan(items, "abc"), filter(filter, "abc"));
+    }
+
+    @Test
+    public void parallelRunsOnForkJoinPool() throws Exception {
+        final Set<Thread> threads = Collections.newSetFromMap(new ConcurrentHashMap<Thread, Boolean>());
+        List<Object> items = new ArrayList<>();
+        for (int i = 0; i < 4096; i++) {
+            final int value = i;
+            items.add(new CommonAdapterInterface.Filterable() {
+                @Override
+                public boolean filter(CharSequence constraint) {
+                    threads.add(Thread.currentThread());
+                    return value % 3 == 0;
+                }
+            });
+        }
+        FilterImpl<Object> filter = new FilterImpl<>(newAdapter(items), new QueueExecutor());
+        filter.setParallelThreshold(items.size() + 1);
+        assertEquals(1366, filter(filter, "").size());
+        assertEquals(Collections.singleton(Thread.currentThread()), threads);
+
+        threads.clear();
+        filter.setParallelThreshold(items.size());
+        List<Object> parallel = filter(filter, "");
+        assertEquals(1366, parallel.size());
+        assertSame(items.get(4095), parallel.get(1365));
+        assertFalse(threads.contains(Thread.currentThread()));
+    }
+
+    static List<Object> filter(FilterImpl<Object> filter, CharSequence constraint) throws Exception {
+        List<?> list = values(filter.performFiltering(constraint));
+        assertTrue(list instanceof FilteredList);
+        List<Object> copy = new ArrayList<Object>(list);
+        filter.recycle(list);
+        return copy;
+    }
+
+    static List<?> values(Object results) throws Exception {
+        // FilterResults 对 Filter 之外不可见，通过反射读取结果
+        Field values = Class.forName("android.widget.Filter$FilterResults").getField("values");
+        values.setAccessible(true);
+        return (List<?>) values.get(results);
+    }
+
+    /**
+     * 不使用索引时逐个判断
+     */
+    static List<Object> scan(List<Object> items, String constraint) {
+        List<Object> expected = new ArrayList<>();
+        for (Object item : items) {
+            if (!(item instanceof CommonAdapterInterface.Filterable)
+                    || ((CommonAdapterInterface.Filterable) item).filter(constraint)) {
+                expected.add(item);
+            }
+        }
+        return expected;
+    }
+
+    private static int countFilterable(List<?> items) {
+        int count = 0;
+        for (Object item : items) {
+            if (item instanceof CommonAdapterInterface.Filterable) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 按维护过滤结果使用的规则逐个判断
+     */
+    private static List<Object> expected(FilterImpl<Object> filter, List<Object> items, String constraint) {
+        List<Object> expected = new ArrayList<>();
+        for (Object item : items) {
+            if (filter.matches(item, constraint)) {
+                expected.add(item);
+            }
+        }
+        return expected;
+    }
+
+    static List<Object> mixedItems(int size) {
+        Random random = new Random(size);
+        List<Object> items = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            String name = word(random, 6);
+            switch (i % 4) {
+                case 0:
+                    items.add(new Keyed(name));
+                    break;
+                case 1:
+                    items.add(new Both(name, random.nextBoolean()));
+                    break;
+                case 2:
+                    items.add(new Named(name));
+                    break;
+                default:
+                    items.add(new Plain());
+                    break;
+            }
+        }
+        return items;
+    }
+
+    private static String word(Random random, int length) {
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = (char) ('a' + random.nextInt(4));
+        }
+        return new String(chars);
+    }
+
+    static CommonRecyclerViewAdapter<Object> newAdapter(List<Object> items) {
+        return new CommonRecyclerViewAdapter<Object>(null, items, 1) {
+            @Override
+            protected void bindView(ViewHolder viewHolder, Object item, int position, int viewType) {
+            }
+        };
+    }
+
+    /**
+     * 只提供关键字
+     */
+    static class Keyed implements CommonAdapterInterface.Indexable {
+        final String name;
+
+        Keyed(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public CharSequence[] searchKeys() {
+            return new CharSequence[]{name};
+        }
+    }
+
+    /**
+     * 同时提供关键字与过滤规则，启用索引时过滤规则不被使用
+     */
+    private static class Both extends Keyed implements CommonAdapterInterface.Filterable {
+        private final boolean result;
+
+        Both(String name, boolean result) {
+            super(name);
+            this.result = result;
+        }
+
+        @Override
+        public boolean filter(CharSequence constraint) {
+            Counted.calls++;
+            return result;
+        }
+    }
+
+    /**
+     * 按名称过滤
+     */
+    static class Named implements CommonAdapterInterface.Filterable {
+        final String name;
+
+        Named(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public boolean filter(CharSequence constraint) {
+            Counted.calls++;
+            return name.contains(constraint);
+        }
+    }
+
+    /**
+     * 记录 {@link CommonAdapterInterface.Filterable#filter(CharSequence)} 被调用的次数
+     */
+    static class Counted {
+        static volatile int calls;
+    }
+
+    private static class Checked implements CommonAdapterInterface.Filterable {
+        private final boolean result;
+
+        Checked(boolean result) {
+            this.result = result;
+        }
+
+        @Override
+        public boolean filter(CharSequence constraint) {
+            return result;
+        }
+    }
+
+    private static class Plain {
+    }
+
+    static class QueueExecutor implements Executor {
+        private final List<Runnable> queue = new ArrayList<>();
+
+        @Override
+        public void execute(@NonNull Runnable command) {
+            queue.add(command);
+        }
+
+        void runAll() {
+            while (!queue.isEmpty()) {
+                queue.remove(0).run();
+            }
+        }
+    }
+}
@@ -0,0 +1,250 @@
+package online.cszt0.androidcommonutils.view.internal;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import online.cszt0.androidcommonutils.view.CommonAdapterInterface;
+import online.cszt0.androidcommonutils.view.CommonRecyclerViewAdapter;
+import online.cszt0.androidcommonutils.view.FilterCancellation;
+import online.cszt0.androidcommonutils.view.ViewHolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * {@link FilterImpl#request(CharSequence)} 的测试：防抖、只发布最新请求的结果、扫描中途取消。
+ * <p>
+ * 防抖的延迟任务由测试手动执行。单元测试中 {@link android.widget.Filter#filter(CharSequence)} 不会启动过滤线程，
+ * 因此请求交出后由测试直接调用 {@link FilterImpl#performFiltering(CharSequence)} 并发布其结果。
+ */
+public class FilterRequestTest {
+    private final ManualScheduler scheduler = new ManualScheduler();
+    private List<Object> items;
+    private CommonRecyclerViewAdapter<Object> adapter;
+    private FilterImpl<Object> filter;
+    private int scanned;
+
+    @Before
+    public void setUp() {
+        items = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            items.add(new Word(Integer.toString(i)));
+        }
+        adapter = new CommonRecyclerViewAdapter<Object>(null, items, 1) {
+            @Override
+            protected void bindView(ViewHolder viewHolder, Object item, int position, int viewType) {
+            }
+        };
+        filter = new FilterImpl<>(adapter, new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                throw new AssertionError("index is not enabled");
+            }
+        }, scheduler);
+    }
+
+    @Test
+    public void debouncedRequestWaitsForQuietPeriod() throws Exception {
+        filter.setDebounce(300);
+        filter.request("12");
+        assertEquals(1, scheduler.tasks.size());
+        assertEquals(Long.valueOf(300), scheduler.delays.get(0));
+
+        // 防抖期间开始的过滤不扫描数据，其结果也不会被发布
+        Object early = filter.performFiltering("12");
+        assertNull(values(early));
+        assertEquals(0, scanned);
+        publish("12", early);
+        assertNull(filter.getPublishedConstraint());
+        assertEquals(1000, adapter.getItemCount());
+
+        scheduler.runAll();
+        filter.publishResults("12", filter.performFiltering("12"));
+        assertEquals("12", filter.getPublishedConstraint());
+        // 12、112、120 ~ 129、212、312 …… 912
+        assertEquals(20, adapter.getItemCount());
+        assertEquals(1000, scanned);
+    }
+
+    @Test
+    public void newerRequestReplacesPendingOne() throws Exception {
+        filter.setDebounce(300);
+        filter.request("1");
+        Runnable replaced = scheduler.tasks.get(0);
+        filter.request("99");
+        assertEquals(1, scheduler.canceled.size());
+        assertTrue(scheduler.canceled.contains(replaced));
+        assertEquals(1, scheduler.tasks.size());
+
+        // 即使被替换的任务已在执行队列中，也不会交出过期的条件
+        replaced.run();
+        assertNull(values(filter.performFiltering("1")));
+
+        scheduler.runAll();
+        filter.publishResults("99", filter.performFiltering("99"));
+        assertEquals("99", filter.getPublishedConstraint());
+        assertEquals(19, adapter.getItemCount());
+    }
+
+    @Test
+    public void onlyLatestResultIsPublished() throws Exception {
+        // 不防抖时立即交出
+        filter.request("5");
+        assertTrue(scheduler.tasks.isEmpty());
+        Object first = filter.performFiltering("5");
+        assertNotNull(values(first));
+
+        filter.request("55");
+        Object second = filter.performFiltering("55");
+        publish("5", first);
+        assertNull(filter.getPublishedConstraint());
+        assertEquals(1000, adapter.getItemCount());
+
+        publish("55", second);
+        assertEquals("55", filter.getPublishedConstraint());
+        assertEquals(19, adapter.getItemCount());
+    }
+
+    @Test
+    public void newerRequestStopsRunningScan() throws Exception {
+        items.set(300, new Probe(new Runnable() {
+            @Override
+            public void run() {
+                filter.request("7");
+            }
+        }));
+        adapter.resetDataSet(items);
+        filter.invalidate();
+        filter.request("3");
+        Object results = filter.performFiltering("3");
+
+        // 扫描每 256 个数据检查一次，发现过期后停止，不会扫描完整个数据集
+        assertNull(values(results));
+        assertTrue(String.valueOf(scanned), scanned <= 512);
+        publish("3", results);
+        assertNull(filter.getPublishedConstraint());
+    }
+
+    @Test
+    public void filterCancellationSeesNewerRequest() throws Exception {
+        final List<Boolean> observed = new ArrayList<>();
+        Runnable observe = new Runnable() {
+            @Override
+            public void run() {
+                observed.add(FilterCancellation.isCanceled());
+            }
+        };
+        items.set(10, new Probe(observe));
+        items.set(11, new Probe(new Runnable() {
+            @Override
+            public void run() {
+                filter.request("7");
+            }
+        }));
+        items.set(12, new Probe(observe));
+        items.set(13, new Probe(new Runnable() {
+            @Override
+            public void run() {
+                FilterCancellation.throwIfCanceled();
+            }
+        }));
+        items.set(14, new Probe(observe));
+        adapter.resetDataSet(items);
+        filter.invalidate();
+        filter.request("3");
+
+        Object results = filter.performFiltering("3");
+        assertNull(values(results));
+        // 取消前为 false，之后为 true；throwIfCanceled 立即结束扫描
+        assertEquals("[false, true]", observed.toString());
+        assertEquals(14, scanned);
+        // 过滤之外调用时不认为已取消
+        assertFalse(FilterCancellation.isCanceled());
+    }
+
+    private static List<?> values(Object results) throws Exception {
+        // FilterResults 对 Filter 之外不可见，通过反射读取结果
+        Field values = Class.forName("android.widget.Filter$FilterResults").getField("values");
+        return (List<?>) values.get(results);
+    }
+
+    /**
+     * 发布先前保存的结果，FilterResults 类型无法在此声明
+     */
+    private void publish(CharSequence constraint, Object results) throws Exception {
+        Method publish = FilterImpl.class.getDeclaredMethod("publishResults",
+                CharSequence.class, Class.forName("android.widget.Filter$FilterResults"));
+        publish.setAccessible(true);
+        publish.invoke(filter, constraint, results);
+    }
+
+    private class Word implements CommonAdapterInterface.Filterable {
+        final String text;
+
+        Word(String text) {
+            this.text = text;
+        }
+
+        @Override
+        public boolean filter(CharSequence constraint) {
+            scanned++;
+            return text.contains(constraint);
+        }
+    }
+
+    /**
+     * 被判断时执行给定的操作
+     */
+    private class Probe implements CommonAdapterInterface.Filterable {
+        final Runnable action;
+
+        Probe(Runnable action) {
+            this.action = action;
+        }
+
+        @Override
+        public boolean filter(CharSequence constraint) {
+            scanned++;
+            action.run();
+            return false;
+        }
+    }
+
+    private static class ManualScheduler implements FilterImpl.Scheduler {
+        final List<Runnable> tasks = new ArrayList<>();
+        final List<Long> delays = new ArrayList<>();
+        final List<Runnable> canceled = new ArrayList<>();
+
+        @Override
+        public void postDelayed(Runnable task, long delayMillis) {
+            tasks.add(task);
+            delays.add(delayMillis);
+        }
+
+        @Override
+        public void cancel(Runnable task) {
+            int i = tasks.indexOf(task);
+            if (i >= 0) {
+                tasks.remove(i);
+                delays.remove(i);
+            }
+            canceled.add(task);
+        }
+
+        void runAll() {
+            while (!tasks.isEmpty()) {
+                delays.remove(0);
+                tasks.remove(0).run();
+            }
+        }
+    }
+}
@@ -0,0 +1,277 @@
+package online.cszt0.androidcommonutils.view.internal;
+
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.ListUpdateCallback;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * {@link FilteredList} 的测试。
+ * <p>
+ * 每次修改原数据集后，检查视图与重新过滤的结果一致，并将回调的通知应用到显示列表的副本上，
+ * 检查通知的位置与数量正确。
+ */
+public class FilteredListTest {
+    private static final FilteredList.Matcher MULTIPLE_OF_THREE = new FilteredList.Matcher() {
+        @Override
+        public boolean matches(Object item) {
+            return (Integer) item % 3 == 0;
+        }
+    };
+
+    @Test
+    public void insertedItemsAreRanked() {
+        List<Integer> source = new ArrayList<>(Arrays.asList(0, 1, 2, 3, 4, 5, 6));
+        FilteredList<Integer> filtered = filter(source);
+        Mirror mirror = new Mirror(filtered);
+        assertEquals(Arrays.asList(0, 3, 6), filtered);
+
+        source.addAll(2, Arrays.asList(9, 10, 12));
+        filtered.onInserted(2, 3, MULTIPLE_OF_THREE, mirror);
+        assertEquals(Arrays.asList(0, 9, 12, 3, 6), filtered);
+        assertEquals("[inserted 1+2]", mirror.events.toString());
+        mirror.check();
+        assertEquals(6, filtered.positionAt(3));
+    }
+
+    @Test
+    public void removedRangeShiftsLaterPositions() {
+        List<Integer> source = new ArrayList<>(Arrays.asList(0, 1, 3, 4, 6, 7, 9));
+        FilteredList<Integer> filtered = filter(source);
+        Mirror mirror = new Mirror(filtered);
+
+        source.subList(1, 4).clear();
+        filtered.onRemoved(1, 3, mirror);
+        assertEquals(Arrays.asList(0, 6, 9), filtered);
+        assertEquals(1, filtered.positionAt(1));
+        assertEquals("[removed 1+1]", mirror.events.toString());
+        mirror.check();
+
+        // 删除的数据均未显示时只移动位置，不发出通知
+        source.remove(2);
+        filtered.onRemoved(2, 1, mirror);
+        assertEquals(2, filtered.positionAt(2));
+        assertEquals(1, mirror.events.size());
+    }
+
+    @Test
+    public void changedItemsEnterAndLeave() {
+        List<Integer> source = new ArrayList<>(Arrays.asList(0, 1, 3, 4));
+        FilteredList<Integer> filtered = filter(source);
+        Mirror mirror = new Mirror(filtered);
+
+        source.set(1, 6);
+        filtered.onChanged(1, null, MULTIPLE_OF_THREE, mirror);
+        source.set(2, 5);
+        filtered.onChanged(2, null, MULTIPLE_OF_THREE, mirror);
+        source.set(0, 9);
+        filtered.onChanged(0, "payload", MULTIPLE_OF_THREE, mirror);
+        assertEquals(Arrays.asList(9, 6), filtered);
+        assertEquals("[inserted 1+1, removed 2+1, changed 0+1:payload]", mirror.events.toString());
+        mirror.check();
+    }
+
+    @Test
+    public void movedItemsKeepRanks() {
+        List<Integer> source = new ArrayList<>(Arrays.asList(0, 1, 3, 4, 6, 7));
+        FilteredList<Integer> filtered = filter(source);
+        Mirror mirror = new Mirror(filtered);
+
+        // 显示的数据移动到另一个显示的数据之后
+        source.add(4, source.remove(0));
+        filtered.onMoved(0, 4, mirror);
+        assertEquals(Arrays.asList(3, 6, 0), filtered);
+        mirror.check();
+
+        // 未显示的数据移动，只调整位置
+        int events = mirror.events.size();
+        source.add(0, source.remove(2));
+        filtered.onMoved(2, 0, mirror);
+        assertEquals(events, mirror.events.size());
+        assertEquals(Arrays.asList(3, 6, 0), filtered);
+        assertEquals(2, filtered.positionAt(0));
+
+        // 移动后显示位置不变时不发出通知
+        source.add(1, source.remove(0));
+        filtered.onMoved(0, 1, mirror);
+        assertEquals(events, mirror.events.size());
+        mirror.check();
+    }
+
+    @Test
+    public void randomEditsMatchRefiltering() {
+        Random random = new Random(7);
+        List<Integer> source = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            source.add(random.nextInt(100));
+        }
+        FilteredList<Integer> filtered = filter(source);
+        Mirror mirror = new Mirror(filtered);
+        for (int step = 0; step < 3000; step++) {
+            int size = source.size();
+            switch (random.nextInt(4)) {
+                case 0: {
+                    int position = random.nextInt(size + 1);
+                    int count = 1 + random.nextInt(5);
+                    for (int i = 0; i < count; i++) {
+                        source.add(position + i, random.nextInt(100));
+                    }
+                    filtered.onInserted(position, count, MULTIPLE_OF_THREE, mirror);
+                    break;
+                }
+                case 1: {
+                    if (size == 0) {
+                        break;
+                    }
+                    int position = random.nextInt(size);
+                    int count = Math.min(size - position, 1 + random.nextInt(5));
+                    source.subList(position, position + count).clear();
+                    filtered.onRemoved(position, count, mirror);
+                    break;
+                }
+                case 2: {
+                    if (size == 0) {
+                        break;
+                    }
+                    int position = random.nextInt(size);
+                    source.set(position, random.nextInt(100));
+                    filtered.onChanged(position, null, MULTIPLE_OF_THREE, mirror);
+                    break;
+                }
+                default: {
+                    if (size == 0) {
+                        break;
+                    }
+                    int from = random.nextInt(size);
+                    int to = random.nextInt(size);
+                    source.add(to, source.remove(from));
+                    filtered.onMoved(from, to, mirror);
+                    break;
+                }
+            }
+            assertEquals(refilter(source), filtered);
+            mirror.check();
+        }
+    }
+
+    @Test
+    public void ofMatchesFilteredItems() {
+        List<Integer> source = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            source.add(i * 1000);
+        }
+        List<Integer> subset = Arrays.asList(source.get(2), source.get(5), source.get(9));
+        FilteredList<Integer> filtered = FilteredList.of(source, subset);
+        assertEquals(subset, filtered);
+        assertEquals(5, filtered.positionAt(1));
+        // 顺序不一致或不属于原数据集
+        assertNull(FilteredList.of(source, Arrays.asList(source.get(5), source.get(2))));
+        assertNull(FilteredList.of(source, Collections.singletonList(123456)));
+    }
+
+    @Test
+    public void sharedPositionsAreCopiedBeforeEdit() {
+        List<Integer> source = new ArrayList<>(Arrays.asList(0, 3, 6, 9));
+        FilteredList<Integer> filtered = filter(source);
+        FilteredList<Integer> snapshot = filtered.snapshot();
+        Mirror mirror = new Mirror(filtered);
+
+        source.remove(0);
+        filtered.onRemoved(0, 1, mirror);
+        assertEquals(Arrays.asList(3, 6, 9), filtered);
+        // 快照读取的是原数据集的快照与原位置表
+        assertEquals(4, snapshot.size());
+        assertEquals(0, snapshot.positionAt(0));
+        assertEquals(3, snapshot.positionAt(3));
+
+        // 共享的位置表不会交给过滤线程复用
+        assertEquals(0, snapshot.release().length);
+    }
+
+    @Test
+    public void releaseReturnsBufferForReuse() {
+        List<Integer> source = Arrays.asList(0, 1, 3);
+        int[] buffer = new int[8];
+        FilteredList<Integer> filtered = new FilteredList<>(source, buffer);
+        filtered.append(0);
+        filtered.append(2);
+        assertEquals(Arrays.asList(0, 3), filtered);
+        assertSame(buffer, filtered.release());
+        assertEquals(0, filtered.size());
+    }
+
+    private static FilteredList<Integer> filter(List<Integer> source) {
+        FilteredList<Integer> filtered = new FilteredList<>(source, new int[4]);
+        for (int i = 0; i < source.size(); i++) {
+            if (MULTIPLE_OF_THREE.matches(source.get(i))) {
+                filtered.append(i);
+            }
+        }
+        return filtered;
+    }
+
+    private static List<Integer> refilter(List<Integer> source) {
+        List<Integer> result = new ArrayList<>();
+        for (Integer item : source) {
+            if (MULTIPLE_OF_THREE.matches(item)) {
+                result.add(item);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 将通知应用到显示列表的副本上，检查其与视图一致
+     */
+    private static class Mirror implements ListUpdateCallback {
+        final List<String> events = new ArrayList<>();
+        private final FilteredList<Integer> filtered;
+        private final List<Integer> shown;
+
+        Mirror(FilteredList<Integer> filtered) {
+            this.filtered = filtered;
+            shown = new ArrayList<>(filtered);
+        }
+
+        void check() {
+            assertEquals(filtered, shown);
+        }
+
+        @Override
+        public void onInserted(int position, int count) {
+            events.add("inserted " + position + "+" + count);
+            // 回调在修改完成后发出，插入的数据可从视图读取
+            shown.addAll(position, filtered.subList(position, position + count));
+        }
+
+        @Override
+        public void onRemoved(int position, int count) {
+            events.add("removed " + position + "+" + count);
+            shown.subList(position, position + count).clear();
+        }
+
+        @Override
+        public void onMoved(int fromPosition, int toPosition) {
+            events.add("moved " + fromPosition + "->" + toPosition);
+            shown.add(toPosition, shown.remove(fromPosition));
+        }
+
+        @Override
+        public void onChanged(int position, int count, @Nullable Object payload) {
+            events.add("changed " + position + "+" + count + (payload == null ? "" : ":" + payload));
+            for (int i = position; i < position + count; i++) {
+                shown.set(i, filtered.get(i));
+            }
+        }
+    }
+}
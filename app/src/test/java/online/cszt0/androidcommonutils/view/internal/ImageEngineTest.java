@@ -0,0 +1,277 @@
+package online.cszt0.androidcommonutils.view.internal;
+
+import android.graphics.Bitmap;
+
+import androidx.annotation.NonNull;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+import online.cszt0.androidcommonutils.view.ImageLoader;
+import online.cszt0.androidcommonutils.view.ImageSource;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * {@link ImageEngine} 的测试。
+ * <p>
+ * 后台线程与主线程均替换为手动执行的队列，解码器读取本地文件，以文件大小作为位图的字节数。
+ */
+public class ImageEngineTest {
+    private static final int CACHE_SIZE = 1000;
+
+    private final QueueExecutor background = new QueueExecutor();
+    private final QueueExecutor main = new QueueExecutor();
+    private final List<File> files = new ArrayList<>();
+    private ImageEngine engine;
+    private FileDecoder decoder;
+
+    @Before
+    public void setUp() {
+        engine = new ImageEngine(CACHE_SIZE, background, main);
+        decoder = new FileDecoder();
+        engine.setDecoder(decoder);
+    }
+
+    @After
+    public void tearDown() {
+        for (File file : files) {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void decodesFromLocalFile() throws IOException {
+        byte[] content = bytes(200, 7);
+        ImageSource source = ImageSource.fromFile(file(content));
+        String key = ImageEngine.cacheKey(source, 100, 100);
+        Result result = new Result();
+        engine.load(source, key, 100, 100, result);
+        assertNull("未执行解码前不应回调", result.bitmap);
+
+        background.runAll();
+        main.runAll();
+        assertEquals(1, result.calls);
+        assertNotNull(result.bitmap);
+        assertArrayEquals(content, decoder.read.get(result.bitmap.bitmap));
+        assertEquals(200, engine.getMemoryCacheSize());
+
+        // 已缓存，不再解码
+        ImageEngine.CachedBitmap cached = engine.acquire(key);
+        assertSame(result.bitmap, cached);
+        assertEquals(1, decoder.decodes);
+    }
+
+    @Test
+    public void failedDecodeCallsBackWithNull() throws IOException {
+        File missing = file(bytes(10, 1));
+        missing.delete();
+        ImageSource source = ImageSource.fromFile(missing);
+        Result result = new Result();
+        engine.load(source, ImageEngine.cacheKey(source, 10, 10), 10, 10, result);
+        background.runAll();
+        main.runAll();
+        assertEquals(1, result.calls);
+        assertNull(result.bitmap);
+        assertEquals(0, engine.getMemoryCacheSize());
+    }
+
+    @Test
+    public void canceledBeforeDecodeSkipsDecoding() throws IOException {
+        ImageSource source = ImageSource.fromFile(file(bytes(100, 3)));
+        Result result = new Result();
+        ImageEngine.Request request = engine.load(source, ImageEngine.cacheKey(source, 10, 10), 10, 10, result);
+        request.cancel();
+        background.runAll();
+        main.runAll();
+        assertEquals(0, decoder.decodes);
+        assertEquals(0, result.calls);
+    }
+
+    @Test
+    public void canceledAfterDecodeReleasesBitmap() throws IOException {
+        ImageSource first = ImageSource.fromFile(file(bytes(200, 1)));
+        Result canceled = new Result();
+        ImageEngine.Request request = engine.load(first, ImageEngine.cacheKey(first, 10, 10), 10, 10, canceled);
+        background.runAll();
+        // 解码已完成，回调尚未在主线程执行时重新绑定到其他图片
+        request.cancel();
+        ImageSource second = ImageSource.fromFile(file(bytes(300, 2)));
+        Result rebound = new Result();
+        engine.load(second, ImageEngine.cacheKey(second, 10, 10), 10, 10, rebound);
+        background.runAll();
+        main.runAll();
+
+        assertEquals(0, canceled.calls);
+        assertEquals(1, rebound.calls);
+        assertNotNull(rebound.bitmap);
+        // 被取消的位图已释放引用，被挤出缓存后进入位图池；仍在显示的位图不会进入
+        ImageSource large = ImageSource.fromFile(file(bytes(900, 3)));
+        engine.load(large, ImageEngine.cacheKey(large, 10, 10), 10, 10, new Result());
+        background.runAll();
+        main.runAll();
+        assertEquals(900, engine.getMemoryCacheSize());
+        assertEquals(200, engine.getBitmapPool().size());
+    }
+
+    @Test
+    public void evictedUnusedBitmapIsReused() throws IOException {
+        ImageSource small = ImageSource.fromFile(file(bytes(200, 1)));
+        Result first = new Result();
+        engine.load(small, ImageEngine.cacheKey(small, 10, 10), 10, 10, first);
+        background.runAll();
+        main.runAll();
+        engine.release(first.bitmap);
+        // 仍在缓存中，不进入位图池
+        assertEquals(0, engine.getBitmapPool().size());
+
+        ImageSource large = ImageSource.fromFile(file(bytes(900, 2)));
+        Result second = new Result();
+        engine.load(large, ImageEngine.cacheKey(large, 10, 10), 10, 10, second);
+        background.runAll();
+        main.runAll();
+        assertEquals(900, engine.getMemoryCacheSize());
+        assertEquals(200, engine.getBitmapPool().size());
+
+        // 解码新图片时复用
+        assertSame(first.bitmap.bitmap, engine.getBitmapPool().get(150));
+        assertEquals(0, engine.getBitmapPool().size());
+    }
+
+    @Test
+    public void evictedBitmapInUseIsNotReused() throws IOException {
+        ImageSource small = ImageSource.fromFile(file(bytes(200, 1)));
+        Result first = new Result();
+        engine.load(small, ImageEngine.cacheKey(small, 10, 10), 10, 10, first);
+        background.runAll();
+        main.runAll();
+
+        engine.clear();
+        assertEquals(0, engine.getMemoryCacheSize());
+        assertEquals("正在显示的位图不能被复用", 0, engine.getBitmapPool().size());
+
+        engine.release(first.bitmap);
+        assertEquals(200, engine.getBitmapPool().size());
+    }
+
+    @Test
+    public void poolSkipsImmutableAndOversizedBitmaps() {
+        BitmapPool pool = new BitmapPool(1000);
+        pool.put(bitmap(100, false));
+        pool.put(bitmap(1100, true));
+        assertEquals(0, pool.size());
+
+        Bitmap exact = bitmap(100, true);
+        Bitmap larger = bitmap(180, true);
+        Bitmap tooLarge = bitmap(250, true);
+        pool.put(tooLarge);
+        pool.put(larger);
+        pool.put(exact);
+        assertSame(exact, pool.get(100));
+        assertSame(larger, pool.get(100));
+        // 超过需要的两倍，不复用
+        assertNull(pool.get(100));
+        assertSame(tooLarge, pool.get(200));
+    }
+
+    @Test
+    public void sampleSizeKeepsAtLeastRequestedSize() {
+        assertEquals(1, ImageEngine.sampleSize(100, 100, 100, 100));
+        assertEquals(2, ImageEngine.sampleSize(400, 300, 200, 150));
+        assertEquals(2, ImageEngine.sampleSize(400, 300, 150, 150));
+        assertEquals(8, ImageEngine.sampleSize(4000, 3000, 400, 300));
+        assertEquals(1, ImageEngine.sampleSize(4000, 3000, 0, 300));
+    }
+
+    private File file(byte[] content) throws IOException {
+        File file = File.createTempFile("image", ".bin");
+        files.add(file);
+        try (FileOutputStream stream = new FileOutputStream(file)) {
+            stream.write(content);
+        }
+        return file;
+    }
+
+    private static byte[] bytes(int length, int seed) {
+        byte[] bytes = new byte[length];
+        Arrays.fill(bytes, (byte) seed);
+        bytes[0] = (byte) length;
+        return bytes;
+    }
+
+    private static Bitmap bitmap(int bytes, boolean mutable) {
+        Bitmap bitmap = mock(Bitmap.class);
+        when(bitmap.getAllocationByteCount()).thenReturn(bytes);
+        when(bitmap.isMutable()).thenReturn(mutable);
+        return bitmap;
+    }
+
+    /**
+     * 读取整个文件，返回可变的位图，字节数为文件大小
+     */
+    private static class FileDecoder implements ImageLoader.Decoder {
+        final Map<Bitmap, byte[]> read = new HashMap<>();
+        int decodes;
+
+        @Override
+        public Bitmap decode(@NonNull ImageSource source, int reqWidth, int reqHeight) throws IOException {
+            decodes++;
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            try (InputStream stream = source.openStream()) {
+                byte[] buffer = new byte[64];
+                int count;
+                while ((count = stream.read(buffer)) > 0) {
+                    out.write(buffer, 0, count);
+                }
+            }
+            Bitmap bitmap = bitmap(out.size(), true);
+            read.put(bitmap, out.toByteArray());
+            return bitmap;
+        }
+    }
+
+    private static class Result implements ImageEngine.Callback {
+        ImageEngine.CachedBitmap bitmap;
+        int calls;
+
+        @Override
+        public void onLoaded(ImageEngine.CachedBitmap bitmap) {
+            this.bitmap = bitmap;
+            calls++;
+        }
+    }
+
+    private static class QueueExecutor implements Executor {
+        private final List<Runnable> queue = new ArrayList<>();
+
+        @Override
+        public void execute(@NonNull Runnable command) {
+            queue.add(command);
+        }
+
+        void runAll() {
+            while (!queue.isEmpty()) {
+                queue.remove(0).run();
+            }
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package online.cszt0.androidcommonutils.view.internal;
+
+import android.view.View;
+import android.view.ViewGroup;
+
+import androidx.annotation.NonNull;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+/**
+ * {@link InflatePool} 的测试。
+ * <p>
+ * 后台加载与主线程空闲任务均替换为手动执行的队列，布局加载只记录调用并创建空视图。
+ */
+public class InflatePoolTest {
+    private static final int LIST_ITEM = 1;
+    private static final int HEADER = 2;
+    private static final int BROKEN = 3;
+
+    private final QueueExecutor background = new QueueExecutor();
+    private final QueueExecutor idle = new QueueExecutor();
+    private final List<Integer> inflated = new ArrayList<>();
+    private final ViewGroup parent = mock(ViewGroup.class);
+    private InflatePool pool;
+
+    @Before
+    public void setUp() {
+        pool = new InflatePool(new InflatePool.Inflater() {
+            @Override
+            public View inflate(int layout, @NonNull ViewGroup parent) {
+                assertSame(InflatePoolTest.this.parent, parent);
+                inflated.add(layout);
+                if (layout == BROKEN) {
+                    throw new IllegalStateException("needs a Looper");
+                }
+                return new View(null);
+            }
+        }, background, idle);
+    }
+
+    @Test
+    public void fillsInBackgroundAfterStart() {
+        pool.setTarget(LIST_ITEM, 3);
+        pool.setTarget(HEADER, 1);
+        assertTrue(pool.isEnabled());
+        // 未指定父布局前不加载
+        assertTrue(background.queue.isEmpty());
+
+        pool.start(parent);
+        assertEquals(4, background.queue.size());
+        assertNull("后台加载完成前池为空", pool.obtain(LIST_ITEM));
+        background.runAll();
+        assertEquals(3, count(inflated, LIST_ITEM));
+        assertEquals(1, count(inflated, HEADER));
+
+        Set<View> views = new HashSet<>();
+        for (int i = 0; i < 3; i++) {
+            View view = pool.obtain(LIST_ITEM);
+            assertNotNull(view);
+            views.add(view);
+        }
+        assertEquals(3, views.size());
+        assertNull(pool.obtain(LIST_ITEM));
+        assertNotNull(pool.obtain(HEADER));
+        assertEquals(4, pool.getHitCount());
+        assertEquals(2, pool.getMissCount());
+    }
+
+    @Test
+    public void refillsOnceWhenIdle() {
+        pool.setTarget(LIST_ITEM, 3);
+        pool.start(parent);
+        background.runAll();
+        inflated.clear();
+
+        pool.obtain(LIST_ITEM);
+        pool.obtain(LIST_ITEM);
+        // 连续取出只安排一次空闲任务，且在空闲前不加载
+        assertEquals(1, idle.queue.size());
+        assertTrue(background.queue.isEmpty());
+
+        idle.runAll();
+        assertEquals(2, background.queue.size());
+        // 正在加载的数量计入，再次补足不会重复加载
+        pool.setTarget(LIST_ITEM, 3);
+        assertEquals(2, background.queue.size());
+        background.runAll();
+        assertEquals(2, inflated.size());
+        for (int i = 0; i < 3; i++) {
+            assertNotNull(pool.obtain(LIST_ITEM));
+        }
+    }
+
+    @Test
+    public void failedLayoutFallsBackToSynchronousInflation() {
+        pool.setTarget(BROKEN, 3);
+        pool.setTarget(LIST_ITEM, 1);
+        pool.start(parent);
+        background.runAll();
+        // 第一次失败后，已排队的加载不再尝试
+        assertEquals(1, count(inflated, BROKEN));
+        assertNull(pool.obtain(BROKEN));
+        assertNotNull(pool.obtain(LIST_ITEM));
+
+        inflated.clear();
+        idle.runAll();
+        background.runAll();
+        assertEquals(0, count(inflated, BROKEN));
+        assertEquals(1, count(inflated, LIST_ITEM));
+        assertNull(pool.obtain(BROKEN));
+        assertEquals(2, pool.getMissCount());
+    }
+
+    @Test
+    public void layoutsWithoutTargetAreNotPooled() {
+        pool.setTarget(HEADER, 0);
+        assertFalse(pool.isEnabled());
+        pool.start(parent);
+        assertTrue(background.queue.isEmpty());
+        assertNull(pool.obtain(HEADER));
+        assertNull(pool.obtain(LIST_ITEM));
+        assertEquals(0, pool.getMissCount());
+        assertTrue(idle.queue.isEmpty());
+    }
+
+    @Test
+    public void clearDropsPooledViews() {
+        pool.setTarget(LIST_ITEM, 2);
+        pool.setTarget(HEADER, 1);
+        pool.start(parent);
+        background.runAll();
+
+        assertEquals(3, pool.clear());
+        assertEquals(0, pool.clear());
+        assertNull(pool.obtain(LIST_ITEM));
+
+        idle.runAll();
+        background.runAll();
+        assertNotNull(pool.obtain(LIST_ITEM));
+        assertNotNull(pool.obtain(HEADER));
+    }
+
+    private static int count(List<Integer> layouts, int layout) {
+        int count = 0;
+        for (int l : layouts) {
+            if (l == layout) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static class QueueExecutor implements Executor {
+        final List<Runnable> queue = new ArrayList<>();
+
+        @Override
+        public void execute(@NonNull Runnable command) {
+            queue.add(command);
+        }
+
+        void runAll() {
+            while (!queue.isEmpty()) {
+                queue.remove(0).run();
+            }
+        }
+    }
+}
@@ -0,0 +1,244 @@
+package online.cszt0.androidcommonutils.view.internal;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import online.cszt0.androidcommonutils.view.CommonAdapterInterface;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * {@link ItemIdIndex} 的测试。
+ * <p>
+ * 细粒度修改后的查询结果与重新建立的索引对照，并通过数据的 id 被读取的次数检查修改没有触发重建。
+ */
+public class ItemIdIndexTest {
+
+    @Test
+    public void findsPositionsOfIds() {
+        List<Item> items = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            items.add(new Item(i * 7919L - 500_000));
+        }
+        ItemIdIndex index = new ItemIdIndex();
+        index.invalidate(items);
+        for (int i = 0; i < items.size(); i++) {
+            assertEquals(i, index.positionOf(items.get(i).itemId()));
+        }
+        assertEquals(-1, index.positionOf(1));
+    }
+
+    @Test
+    public void rebuildsAfterInvalidate() {
+        List<Item> items = new ArrayList<>(Arrays.asList(new Item(10), new Item(20), new Item(30)));
+        ItemIdIndex index = new ItemIdIndex();
+        index.invalidate(items);
+        assertEquals(2, index.positionOf(30));
+
+        items.remove(0);
+        items.add(new Item(40));
+        index.invalidate(items);
+        assertEquals(-1, index.positionOf(10));
+        assertEquals(1, index.positionOf(30));
+        assertEquals(2, index.positionOf(40));
+    }
+
+    @Test
+    public void duplicateIdKeepsFirstPosition() {
+        ItemIdIndex index = new ItemIdIndex();
+        index.invalidate(Arrays.asList(new Item(5), new Item(6), new Item(5)));
+        assertEquals(0, index.positionOf(5));
+        assertEquals(1, index.positionOf(6));
+    }
+
+    @Test
+    public void positionIsIdWithoutIdentifiable() {
+        ItemIdIndex index = new ItemIdIndex();
+        index.invalidate(Arrays.asList("a", "b", "c"));
+        assertEquals(2, ItemIdIndex.idOf("c", 2));
+        assertEquals(1, index.positionOf(1));
+        assertEquals(-1, index.positionOf(3));
+    }
+
+    @Test
+    public void trimDropsTableUntilNextQuery() {
+        ItemIdIndex index = new ItemIdIndex();
+        assertFalse(index.trim());
+        index.invalidate(Arrays.asList(new Item(1), new Item(2)));
+        assertFalse("尚未查询，没有建立哈希表", index.trim());
+        assertEquals(1, index.positionOf(2));
+        assertTrue(index.trim());
+        assertEquals(1, index.positionOf(2));
+    }
+
+    @Test
+    public void emptyIndex() {
+        ItemIdIndex index = new ItemIdIndex();
+        assertEquals(-1, index.positionOf(0));
+        index.invalidate(Collections.emptyList());
+        assertEquals(-1, index.positionOf(0));
+        assertFalse(ItemIdIndex.hasStableIds(Collections.emptyList()));
+        assertTrue(ItemIdIndex.hasStableIds(Collections.singletonList(new Item(1))));
+        assertFalse(ItemIdIndex.hasStableIds(Collections.singletonList("a")));
+    }
+
+    @Test
+    public void editsUpdateOnlyChangedRange() {
+        List<Item> items = items(0, 1000);
+        ItemIdIndex index = new ItemIdIndex();
+        index.invalidate(items);
+        assertEquals(999, index.positionOf(999));
+        Item.reads = 0;
+
+        items.add(500, new Item(5000));
+        index.insert(500, 1);
+        items.addAll(items(6000, 6003));
+        index.insert(1001, 3);
+        items.subList(10, 20).clear();
+        index.remove(10, 10);
+        items.add(700, items.remove(3));
+        index.move(3, 700);
+        items.add(0, items.remove(900));
+        index.move(900, 0);
+        long replaced = items.set(42, new Item(7000)).id;
+        index.update(42, 1);
+        // 只读取插入与替换的数据
+        assertEquals(5, Item.reads);
+
+        check(index, items);
+        assertEquals(5, Item.reads);
+        assertEquals(-1, index.positionOf(15));
+        assertEquals(-1, index.positionOf(replaced));
+    }
+
+    @Test
+    public void randomEditsMatchRebuild() {
+        Random random = new Random(3);
+        List<Item> items = items(0, 300);
+        ItemIdIndex index = new ItemIdIndex();
+        index.invalidate(items);
+        long next = 1000;
+        for (int step = 0; step < 2000; step++) {
+            int size = items.size();
+            switch (random.nextInt(4)) {
+                case 0: {
+                    int start = random.nextInt(size + 1);
+                    int count = 1 + random.nextInt(20);
+                    items.addAll(start, items(next, next + count));
+                    next += count;
+                    index.insert(start, count);
+                    break;
+                }
+                case 1: {
+                    if (size == 0) {
+                        break;
+                    }
+                    int start = random.nextInt(size);
+                    int count = Math.min(size - start, 1 + random.nextInt(20));
+                    items.subList(start, start + count).clear();
+                    index.remove(start, count);
+                    break;
+                }
+                case 2: {
+                    if (size == 0) {
+                        break;
+                    }
+                    int from = random.nextInt(size);
+                    int to = random.nextInt(size);
+                    items.add(to, items.remove(from));
+                    index.move(from, to);
+                    break;
+                }
+                default: {
+                    if (size == 0) {
+                        break;
+                    }
+                    int position = random.nextInt(size);
+                    // 偶尔保留原 id
+                    items.set(position, new Item(random.nextInt(4) == 0 ? items.get(position).id : next++));
+                    index.update(position, 1);
+                    break;
+                }
+            }
+            if (step % 20 == 0) {
+                check(index, items);
+            }
+        }
+        check(index, items);
+    }
+
+    @Test
+    public void duplicateIdsFallBackToRebuild() {
+        List<Item> items = new ArrayList<>(Arrays.asList(new Item(1), new Item(2), new Item(1), new Item(3)));
+        ItemIdIndex index = new ItemIdIndex();
+        index.invalidate(items);
+        assertEquals(0, index.positionOf(1));
+        items.remove(0);
+        index.remove(0, 1);
+        assertEquals(1, index.positionOf(1));
+        assertEquals(2, index.positionOf(3));
+
+        // 插入重复的 id 后删除较早的一个
+        items.add(0, new Item(3));
+        index.insert(0, 1);
+        assertEquals(0, index.positionOf(3));
+        items.remove(0);
+        index.remove(0, 1);
+        assertEquals(2, index.positionOf(3));
+    }
+
+    @Test
+    public void positionalIdsFallBackToRebuild() {
+        List<Object> items = new ArrayList<Object>(Arrays.asList(new Item(100), "a", new Item(200)));
+        ItemIdIndex index = new ItemIdIndex();
+        index.invalidate(items);
+        assertEquals(1, index.positionOf(1));
+        items.add(0, new Item(300));
+        index.insert(0, 1);
+        // "a" 的 id 随位置变为 2
+        assertEquals(-1, index.positionOf(1));
+        assertEquals(2, index.positionOf(2));
+        assertEquals(3, index.positionOf(200));
+
+        items.add("b");
+        index.insert(4, 1);
+        assertEquals(4, index.positionOf(4));
+    }
+
+    private static void check(ItemIdIndex index, List<Item> items) {
+        for (int i = 0; i < items.size(); i++) {
+            assertEquals(i, index.positionOf(items.get(i).id));
+        }
+    }
+
+    private static List<Item> items(long from, long to) {
+        List<Item> items = new ArrayList<>();
+        for (long id = from; id < to; id++) {
+            items.add(new Item(id));
+        }
+        return items;
+    }
+
+    private static class Item implements CommonAdapterInterface.Identifiable {
+        // 读取 id 的次数
+        static int reads;
+        final long id;
+
+        Item(long id) {
+            this.id = id;
+        }
+
+        @Override
+        public long itemId() {
+            reads++;
+            return id;
+        }
+    }
+}
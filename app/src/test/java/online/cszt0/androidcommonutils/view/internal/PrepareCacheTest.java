@@ -0,0 +1,204 @@
+package online.cszt0.androidcommonutils.view.internal;
+
+import android.content.ComponentCallbacks2;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import online.cszt0.androidcommonutils.view.ItemPreparer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * {@link PrepareCache} 的测试。
+ * <p>
+ * 后台预处理与回到主线程均替换为手动执行的队列，预处理记录被调用的数据。
+ */
+public class PrepareCacheTest {
+    private final QueueExecutor background = new QueueExecutor();
+    private final QueueExecutor main = new QueueExecutor();
+    private final List<Object> prepared = new ArrayList<>();
+    private final ItemPreparer<Object, String> preparer = new ItemPreparer<Object, String>() {
+        @Nullable
+        @Override
+        public String prepare(@NonNull Object data) {
+            prepared.add(data);
+            if ("broken".equals(data)) {
+                throw new IllegalStateException();
+            }
+            return "empty".equals(data) ? null : "<" + data + ">";
+        }
+    };
+
+    @Test
+    public void cachesByReference() {
+        PrepareCache cache = newCache(10, 0);
+        // 内容相同但引用不同的数据分别缓存
+        List<String> shown = Arrays.asList(new String("a"), new String("a"), "empty");
+        assertEquals("<a>", cache.obtain(shown, 0));
+        assertEquals("<a>", cache.obtain(shown, 1));
+        assertEquals("<a>", cache.obtain(shown, 0));
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+
+        // 结果为 null 同样被缓存
+        assertNull(cache.obtain(shown, 2));
+        assertNull(cache.obtain(shown, 2));
+        assertEquals(3, prepared.size());
+        assertEquals(2, cache.getHitCount());
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsed() {
+        PrepareCache cache = newCache(3, 0);
+        List<String> shown = Arrays.asList("a", "b", "c", "d");
+        cache.obtain(shown, 0);
+        cache.obtain(shown, 1);
+        cache.obtain(shown, 2);
+        // 访问 a 后，最久未使用的是 b
+        cache.obtain(shown, 0);
+        cache.obtain(shown, 3);
+        assertEquals(3, cache.size());
+
+        prepared.clear();
+        cache.obtain(shown, 0);
+        cache.obtain(shown, 2);
+        cache.obtain(shown, 3);
+        assertTrue(prepared.isEmpty());
+        cache.obtain(shown, 1);
+        assertEquals(Arrays.<Object>asList("b"), prepared);
+
+        cache.setMaxSize(1);
+        assertEquals(1, cache.size());
+        prepared.clear();
+        cache.obtain(shown, 1);
+        assertTrue(prepared.isEmpty());
+    }
+
+    @Test
+    public void preparesAheadInScrollDirection() {
+        PrepareCache cache = newCache(20, 2);
+        List<String> shown = Arrays.asList("0", "1", "2", "3", "4", "5", "6", "7", "8", "9");
+        cache.obtain(shown, 5);
+        assertEquals(2, background.queue.size());
+        // 排队中的数据不重复安排
+        cache.obtain(shown, 5);
+        assertEquals(2, background.queue.size());
+
+        background.runAll();
+        assertEquals(Arrays.<Object>asList("5", "6", "7"), prepared);
+        // 结果回到主线程前不可见
+        assertEquals(1, cache.size());
+        main.runAll();
+        assertEquals(3, cache.size());
+
+        prepared.clear();
+        assertEquals("<6>", cache.obtain(shown, 6));
+        assertEquals("<7>", cache.obtain(shown, 7));
+        background.runAll();
+        main.runAll();
+        assertEquals(Arrays.<Object>asList("8", "9"), prepared);
+
+        // 向前滚动时预处理之前的位置，到达边界即停止
+        prepared.clear();
+        cache.obtain(shown, 1);
+        background.runAll();
+        assertEquals(Arrays.<Object>asList("1", "0"), prepared);
+    }
+
+    @Test
+    public void dataSetChangeDropsQueuedWork() {
+        PrepareCache cache = newCache(20, 2);
+        List<String> shown = Arrays.asList("a", "b", "c", "d", "e");
+        cache.obtain(shown, 0);
+        cache.onDataSetChanged();
+        background.runAll();
+        // 排队中的预处理不再执行
+        assertEquals(Arrays.<Object>asList("a"), prepared);
+        assertTrue(main.queue.isEmpty());
+
+        // 已在后台完成的结果不会放入缓存
+        cache.obtain(shown, 2);
+        background.runAll();
+        assertEquals(Arrays.<Object>asList("a", "c", "d", "e"), prepared);
+        cache.onDataSetChanged();
+        main.runAll();
+        assertEquals(2, cache.size());
+
+        // 之前缓存的结果仍然有效，放弃的数据可以重新安排
+        prepared.clear();
+        assertEquals("<a>", cache.obtain(shown, 0));
+        background.runAll();
+        main.runAll();
+        assertEquals(Arrays.<Object>asList("b"), prepared);
+        assertEquals(3, cache.size());
+    }
+
+    @Test
+    public void failedPreparationIsRetriedOnBind() {
+        PrepareCache cache = newCache(20, 1);
+        List<String> shown = Arrays.asList("a", "broken");
+        cache.obtain(shown, 0);
+        background.runAll();
+        main.runAll();
+        assertEquals(1, cache.size());
+        try {
+            cache.obtain(shown, 1);
+            fail();
+        } catch (IllegalStateException e) {
+            // 异常在绑定时于主线程抛出
+        }
+        assertEquals(Arrays.<Object>asList("a", "broken", "broken"), prepared);
+    }
+
+    @Test
+    public void trimsByMemoryLevel() {
+        PrepareCache cache = newCache(20, 0);
+        List<String> shown = Arrays.asList("0", "1", "2", "3", "4", "5", "6", "7");
+        for (int i = 0; i < shown.size(); i++) {
+            cache.obtain(shown, i);
+        }
+        assertEquals(0, cache.trimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE - 1));
+        assertEquals(4, cache.trimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE));
+        // 保留最近使用的一半
+        prepared.clear();
+        cache.obtain(shown, 7);
+        cache.obtain(shown, 4);
+        assertTrue(prepared.isEmpty());
+
+        assertEquals(4, cache.trimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW));
+        assertEquals(0, cache.size());
+    }
+
+    private PrepareCache newCache(int maxSize, int ahead) {
+        PrepareCache cache = new PrepareCache(preparer, maxSize, background, main);
+        cache.setAhead(ahead);
+        return cache;
+    }
+
+    private static class QueueExecutor implements Executor {
+        final List<Runnable> queue = new ArrayList<>();
+
+        @Override
+        public void execute(@NonNull Runnable command) {
+            queue.add(command);
+        }
+
+        void runAll() {
+            while (!queue.isEmpty()) {
+                queue.remove(0).run();
+            }
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package online.cszt0.androidcommonutils.view.internal;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import online.cszt0.androidcommonutils.view.CommonAdapterInterface;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * {@link SearchIndex} 的测试。
+ * <p>
+ * 查询结果与对每个数据调用 {@link SearchIndex#matches(CommonAdapterInterface.Indexable, String)} 的线性扫描对照。
+ */
+public class SearchIndexTest {
+    private static final SearchIndex.Canceled NEVER = new SearchIndex.Canceled() {
+        @Override
+        public boolean isCanceled() {
+            return false;
+        }
+    };
+
+    @Test
+    public void randomQueriesMatchLinearScan() {
+        Random random = new Random(11);
+        List<Object> items = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            if (i % 50 == 0) {
+                // 未实现 Indexable 的数据不参与索引
+                items.add("plain" + i);
+                continue;
+            }
+            CharSequence[] keys = new CharSequence[1 + random.nextInt(2)];
+            for (int k = 0; k < keys.length; k++) {
+                keys[k] = word(random, 2 + random.nextInt(8));
+            }
+            items.add(new Item(keys));
+        }
+        SearchIndex index = SearchIndex.build(items, null, NEVER);
+        for (int q = 0; q < 500; q++) {
+            String query = SearchIndex.normalize(word(random, random.nextInt(6)));
+            assertArrayEquals(query, scan(items, query), index.query(query));
+        }
+    }
+
+    @Test
+    public void queryIsCaseInsensitive() {
+        List<Object> items = Arrays.<Object>asList(new Item("Hello World"), new Item("help"), new Item("WORLDWIDE"));
+        SearchIndex index = SearchIndex.build(items, null, NEVER);
+        assertArrayEquals(new int[]{0, 2}, index.query(SearchIndex.normalize("World")));
+        assertArrayEquals(new int[]{0, 1}, index.query(SearchIndex.normalize("HEL")));
+        // 查询串短于片段长度时线性扫描
+        assertArrayEquals(new int[]{0, 1}, index.query(SearchIndex.normalize("he")));
+        assertArrayEquals(new int[]{0, 1, 2}, index.query(SearchIndex.normalize(null)));
+        // 片段全部命中但不包含整个查询串
+        assertArrayEquals(new int[0], index.query(SearchIndex.normalize("worldo")));
+    }
+
+    @Test
+    public void unindexedPositionsAndNullKeys() {
+        List<Object> items = Arrays.<Object>asList("a", new Item((CharSequence[]) null), new Item("abc", null), 3);
+        SearchIndex index = SearchIndex.build(items, null, NEVER);
+        assertArrayEquals(new int[]{0, 3}, index.getUnindexedPositions());
+        assertArrayEquals(new int[]{2}, index.query("abc"));
+        assertArrayEquals(new int[]{2}, index.query(""));
+        assertFalse(SearchIndex.matches(new Item((CharSequence[]) null), ""));
+    }
+
+    @Test
+    public void rebuildReusesUnchangedItems() {
+        Item kept = new Item("kept");
+        Item removed = new Item("removed");
+        List<Object> first = Arrays.<Object>asList(kept, removed);
+        SearchIndex previous = SearchIndex.build(first, null, NEVER);
+        assertEquals(1, kept.reads);
+
+        Item added = new Item("added");
+        List<Object> second = Arrays.<Object>asList(added, kept, kept);
+        SearchIndex index = SearchIndex.build(second, previous, NEVER);
+        assertEquals("未变化的数据不再读取关键字", 1, kept.reads);
+        assertEquals(1, added.reads);
+        assertArrayEquals(new int[]{1, 2}, index.query("kep"));
+        assertArrayEquals(new int[0], index.query("removed"));
+    }
+
+    @Test
+    public void belongsToItsSource() {
+        List<Object> items = new ArrayList<>();
+        items.add(new Item("abc"));
+        SearchIndex index = SearchIndex.build(items, null, NEVER);
+        assertTrue(index.isFor(items));
+        assertFalse(index.isFor(new ArrayList<>(items)));
+        items.add(new Item("def"));
+        assertFalse(index.isFor(items));
+    }
+
+    @Test
+    public void canceledBuildReturnsNull() {
+        List<Object> items = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            items.add(new Item("item" + i));
+        }
+        assertNull(SearchIndex.build(items, null, new SearchIndex.Canceled() {
+            @Override
+            public boolean isCanceled() {
+                return true;
+            }
+        }));
+    }
+
+    private static int[] scan(List<Object> items, String query) {
+        int[] result = new int[items.size()];
+        int count = 0;
+        for (int i = 0; i < items.size(); i++) {
+            Object item = items.get(i);
+            if (item instanceof CommonAdapterInterface.Indexable
+                    && SearchIndex.matches((CommonAdapterInterface.Indexable) item, query)) {
+                result[count++] = i;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    private static String word(Random random, int length) {
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            char c = (char) ('a' + random.nextInt(4));
+            chars[i] = random.nextInt(5) == 0 ? Character.toUpperCase(c) : c;
+        }
+        return new String(chars);
+    }
+
+    private static class Item implements CommonAdapterInterface.Indexable {
+        private final CharSequence[] keys;
+        int reads;
+
+        Item(CharSequence... keys) {
+            this.keys = keys;
+        }
+
+        @Override
+        public CharSequence[] searchKeys() {
+            reads++;
+            return keys;
+        }
+    }
+}
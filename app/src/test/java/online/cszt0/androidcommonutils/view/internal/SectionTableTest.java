@@ -0,0 +1,253 @@
+package online.cszt0.androidcommonutils.view.internal;
+
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.ListUpdateCallback;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * {@link SectionTable} 的测试。
+ * <p>
+ * 每次修改数据集并增量更新分组表后，检查分组表与重新建立的分组表一致，
+ * 并将回调的通知应用到展开列表的副本上，检查其与展开后的结果一致。
+ */
+public class SectionTableTest {
+    // 十位数相同的数据为一组
+    private static final SectionTable.KeyFunction TENS = new SectionTable.KeyFunction() {
+        @Override
+        public Object keyOf(Object item) {
+            return (Integer) item / 10;
+        }
+    };
+
+    @Test
+    public void positionsConvertBothWays() {
+        List<Integer> list = Arrays.asList(1, 2, 11, 21, 22, 23);
+        SectionTable table = new SectionTable(TENS);
+        table.rebuild(list);
+        assertEquals(3, table.getSectionCount());
+        assertEquals(9, table.getFlatCount());
+        assertArrayEquals(new Object[]{0, 1, 2}, table.getKeys());
+        assertEquals(Arrays.asList("H0", "1", "2", "H1", "11", "H2", "21", "22", "23"), flatten(table, list));
+        assertEquals(3, table.getSectionSize(2));
+        for (int position = 0; position < list.size(); position++) {
+            int flatPosition = table.toFlatPosition(position);
+            assertFalse(table.isHeader(flatPosition));
+            assertEquals(position, table.toPosition(flatPosition));
+        }
+        assertTrue(table.isHeader(5));
+        assertEquals(5, table.getHeaderPosition(2));
+        assertEquals(2, table.getSectionForFlatPosition(5));
+    }
+
+    @Test
+    public void editInsideSectionIsForwarded() {
+        List<Integer> list = new ArrayList<>(Arrays.asList(1, 2, 11, 12, 21));
+        SectionTable table = new SectionTable(TENS);
+        table.rebuild(list);
+        Mirror mirror = new Mirror(table, list);
+
+        list.add(3, 15);
+        table.onInserted(3, 1, mirror);
+        list.set(3, 13);
+        table.onChanged(3, 1, "payload", mirror);
+        list.remove(0);
+        table.onRemoved(0, 1, mirror);
+        // 分组未变化，通知仅移动到展开后的位置
+        assertEquals("[inserted 5+1, changed 5+1:payload, removed 1+1]", mirror.events.toString());
+        mirror.check();
+    }
+
+    @Test
+    public void editAcrossSectionsRefreshesRegion() {
+        List<Integer> list = new ArrayList<>(Arrays.asList(1, 2, 11, 12, 21));
+        SectionTable table = new SectionTable(TENS);
+        table.rebuild(list);
+        Mirror mirror = new Mirror(table, list);
+
+        // 新的分组插入到两个分组之间
+        list.add(2, 5);
+        list.add(3, 35);
+        table.onInserted(2, 2, mirror);
+        mirror.check();
+        // 分组的数据全部删除，标题一并删除
+        list.subList(4, 6).clear();
+        table.onRemoved(4, 2, mirror);
+        mirror.check();
+        // 修改后与后一个分组合并
+        list.set(3, 22);
+        table.onChanged(3, 1, null, mirror);
+        mirror.check();
+        assertArrayEquals(new Object[]{0, 2}, table.getKeys());
+    }
+
+    @Test
+    public void emptyAndNonEmptyTransitions() {
+        List<Integer> list = new ArrayList<>();
+        SectionTable table = new SectionTable(TENS);
+        table.rebuild(list);
+        Mirror mirror = new Mirror(table, list);
+        assertEquals(0, table.getFlatCount());
+        assertEquals(-1, table.getSectionForPosition(0));
+
+        list.addAll(Arrays.asList(1, 11));
+        table.onInserted(0, 2, mirror);
+        mirror.check();
+        list.clear();
+        table.onRemoved(0, 2, mirror);
+        mirror.check();
+        assertEquals(0, table.getSectionCount());
+    }
+
+    @Test
+    public void randomEditsMatchRebuild() {
+        Random random = new Random(3);
+        List<Integer> list = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            list.add(random.nextInt(60));
+        }
+        SectionTable table = new SectionTable(TENS);
+        table.rebuild(list);
+        Mirror mirror = new Mirror(table, list);
+        for (int step = 0; step < 3000; step++) {
+            int size = list.size();
+            switch (random.nextInt(4)) {
+                case 0: {
+                    int position = random.nextInt(size + 1);
+                    int count = 1 + random.nextInt(4);
+                    for (int i = 0; i < count; i++) {
+                        list.add(position + i, random.nextInt(60));
+                    }
+                    table.onInserted(position, count, mirror);
+                    break;
+                }
+                case 1: {
+                    if (size == 0) {
+                        break;
+                    }
+                    int position = random.nextInt(size);
+                    int count = Math.min(size - position, 1 + random.nextInt(4));
+                    list.subList(position, position + count).clear();
+                    table.onRemoved(position, count, mirror);
+                    break;
+                }
+                case 2: {
+                    if (size == 0) {
+                        break;
+                    }
+                    int position = random.nextInt(size);
+                    int count = Math.min(size - position, 1 + random.nextInt(3));
+                    for (int i = position; i < position + count; i++) {
+                        // 多数替换保持分组键不变
+                        list.set(i, random.nextInt(4) == 0 ? random.nextInt(60) : list.get(i) / 10 * 10 + random.nextInt(10));
+                    }
+                    table.onChanged(position, count, null, mirror);
+                    break;
+                }
+                default: {
+                    if (size == 0) {
+                        break;
+                    }
+                    int from = random.nextInt(size);
+                    int to = random.nextInt(size);
+                    list.add(to, list.remove(from));
+                    table.onMoved(from, to, mirror);
+                    break;
+                }
+            }
+            SectionTable expected = new SectionTable(TENS);
+            expected.rebuild(list);
+            assertArrayEquals(expected.getKeys(), table.getKeys());
+            for (int section = 0; section < expected.getSectionCount(); section++) {
+                assertEquals(expected.getHeaderPosition(section), table.getHeaderPosition(section));
+            }
+            assertEquals(expected.getFlatCount(), table.getFlatCount());
+            mirror.check();
+        }
+    }
+
+    @Test
+    public void setListKeepsSections() {
+        List<Integer> list = Arrays.asList(1, 11, 12);
+        SectionTable table = new SectionTable(TENS);
+        table.rebuild(list);
+        List<Integer> copy = new ArrayList<>(list);
+        table.setList(copy);
+        copy.add(13);
+        Mirror mirror = new Mirror(table, copy);
+        table.onInserted(3, 1, mirror);
+        assertEquals("[inserted 5+1]", mirror.events.toString());
+    }
+
+    /**
+     * 展开后的列表，标题以 H 开头
+     */
+    private static List<String> flatten(SectionTable table, List<Integer> list) {
+        List<String> flat = new ArrayList<>();
+        for (int section = 0; section < table.getSectionCount(); section++) {
+            flat.add("H" + table.getKey(section));
+            int start = table.getHeaderPosition(section) - section;
+            for (int i = start; i < start + table.getSectionSize(section); i++) {
+                flat.add(String.valueOf(list.get(i)));
+            }
+        }
+        return flat;
+    }
+
+    /**
+     * 将通知应用到展开列表的副本上，检查其与分组表展开后的结果一致
+     */
+    private static class Mirror implements ListUpdateCallback {
+        final List<String> events = new ArrayList<>();
+        private final SectionTable table;
+        private final List<Integer> list;
+        private final List<String> shown;
+
+        Mirror(SectionTable table, List<Integer> list) {
+            this.table = table;
+            this.list = list;
+            shown = flatten(table, list);
+        }
+
+        void check() {
+            assertEquals(flatten(table, list), shown);
+        }
+
+        @Override
+        public void onInserted(int position, int count) {
+            events.add("inserted " + position + "+" + count);
+            shown.addAll(position, flatten(table, list).subList(position, position + count));
+        }
+
+        @Override
+        public void onRemoved(int position, int count) {
+            events.add("removed " + position + "+" + count);
+            shown.subList(position, position + count).clear();
+        }
+
+        @Override
+        public void onMoved(int fromPosition, int toPosition) {
+            events.add("moved " + fromPosition + "->" + toPosition);
+            shown.add(toPosition, shown.remove(fromPosition));
+        }
+
+        @Override
+        public void onChanged(int position, int count, @Nullable Object payload) {
+            events.add("changed " + position + "+" + count + (payload == null ? "" : ":" + payload));
+            List<String> flat = flatten(table, list);
+            for (int i = position; i < position + count; i++) {
+                shown.set(i, flat.get(i));
+            }
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package online.cszt0.androidcommonutils.view.internal;
+
+import org.junit.Test;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import online.cszt0.androidcommonutils.view.CommonRecyclerViewAdapter;
+import online.cszt0.androidcommonutils.view.PagedDataSource;
+import online.cszt0.androidcommonutils.view.PagedList;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * {@link Snapshots} 的测试：使用者提供的数据集被复制后，修改原列表不会影响后台读取
+ */
+public class SnapshotsTest {
+
+    @Test
+    public void copyOfChunkedListIsIndependent() {
+        ChunkedList<Integer> source = new ChunkedList<>(Arrays.asList(0, 1, 2, 3));
+        ChunkedList<Integer> copy = ChunkedList.copyOf(source);
+        assertNotSame(source, copy);
+        assertEquals(source, copy);
+
+        source.set(0, -1);
+        copy.add(4);
+        assertEquals(Arrays.asList(-1, 1, 2, 3), source);
+        assertEquals(Arrays.asList(0, 1, 2, 3, 4), copy);
+        // 副本可以继续建立快照
+        ChunkedList<Integer> snapshot = copy.snapshot();
+        copy.remove(0);
+        assertEquals(Arrays.asList(0, 1, 2, 3, 4), snapshot);
+    }
+
+    @Test
+    public void copyOfKeepsPagedList() {
+        List<Integer> paged = new PagedList<>(new PagedDataSource<Integer>() {
+            @Override
+            public int getCount() {
+                return 10;
+            }
+
+            @Override
+            public List<Integer> loadRange(int start, int count) {
+                return new ArrayList<>(count);
+            }
+        });
+        assertSame(paged, Snapshots.copyOf(paged));
+        List<Integer> list = new ArrayList<>(Arrays.asList(1, 2));
+        List<Integer> copy = Snapshots.copyOf(list);
+        assertTrue(copy instanceof ChunkedList);
+        list.add(3);
+        assertEquals(Arrays.asList(1, 2), copy);
+    }
+
+    @Test
+    public void sourceMutatedDuringBackgroundFilter() throws Exception {
+        final List<FilterBenchmark.Item> source = FilterBenchmark.items(50_000);
+        List<FilterBenchmark.Item> original = new ArrayList<>(source);
+        CommonRecyclerViewAdapter<FilterBenchmark.Item> adapter = FilterBenchmark.newAdapter(source);
+        final FilterImpl<FilterBenchmark.Item> filter = (FilterImpl<FilterBenchmark.Item>) adapter.getFilter();
+        final Field values = Class.forName("android.widget.Filter$FilterResults").getField("values");
+        final int expected = count(original, "ab");
+        final Throwable[] failure = new Throwable[1];
+        final int[] counts = new int[20];
+        final boolean[] done = new boolean[1];
+        Thread reader = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    for (int i = 0; i < counts.length; i++) {
+                        counts[i] = ((List<?>) values.get(filter.performFiltering("ab"))).size();
+                    }
+                } catch (Throwable e) {
+                    failure[0] = e;
+                } finally {
+                    synchronized (done) {
+                        done[0] = true;
+                    }
+                }
+            }
+        });
+        reader.start();
+        // 过滤期间使用者修改了传入的列表
+        int step = 0;
+        while (true) {
+            synchronized (done) {
+                if (done[0]) {
+                    break;
+                }
+            }
+            source.add(step % source.size(), new FilterBenchmark.Item("abababab"));
+            source.remove((step * 7) % source.size());
+            step++;
+        }
+        reader.join();
+        assertNull(failure[0]);
+        for (int count : counts) {
+            assertEquals(expected, count);
+        }
+        assertEquals(original, adapter.getData());
+    }
+
+    private static int count(List<FilterBenchmark.Item> items, String constraint) {
+        int count = 0;
+        for (FilterBenchmark.Item item : items) {
+            if (item.filter(constraint)) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,170 @@
+package online.cszt0.androidcommonutils.view.internal;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * {@link Sorter} 的测试。
+ * <p>
+ * 测试环境中主线程的消息不会执行，后台排序的结果只能通过 {@link Sorter#flush()} 取得。
+ */
+public class SorterTest {
+    private static final Comparator<int[]> BY_KEY = new Comparator<int[]>() {
+        @Override
+        public int compare(int[] o1, int[] o2) {
+            return Integer.compare(o1[0], o2[0]);
+        }
+    };
+
+    @Test
+    public void smallSortIsStableAndImmediate() {
+        List<int[]> data = pairs(1000, 20, 1);
+        List<int[]> copy = new ArrayList<>(data);
+        Result<int[]> result = new Result<>();
+        Sorter<int[]> sorter = new Sorter<>();
+        sorter.sort(data, BY_KEY, null, null, result);
+        assertEquals(1, result.calls);
+        assertFalse(sorter.isPending());
+        assertNull(result.filtered);
+        checkSortedAndStable(result.sorted);
+        // 原数据集不被修改
+        assertEquals(copy, data);
+    }
+
+    @Test
+    public void largeSortWaitsUntilFlushed() {
+        List<int[]> data = pairs(10_000, 100, 2);
+        Result<int[]> result = new Result<>();
+        Sorter<int[]> sorter = new Sorter<>();
+        sorter.sort(data, BY_KEY, null, null, result);
+        assertTrue(sorter.isPending());
+        assertEquals(0, result.calls);
+
+        sorter.flush();
+        assertFalse(sorter.isPending());
+        assertEquals(1, result.calls);
+        assertEquals(data.size(), result.sorted.size());
+        checkSortedAndStable(result.sorted);
+        sorter.flush();
+        assertEquals(1, result.calls);
+    }
+
+    @Test
+    public void newerSortSupersedesPending() {
+        Sorter<int[]> sorter = new Sorter<>();
+        Result<int[]> first = new Result<>();
+        sorter.sort(pairs(10_000, 100, 3), BY_KEY, null, null, first);
+        Result<int[]> second = new Result<>();
+        sorter.sort(pairs(10, 5, 4), BY_KEY, null, null, second);
+        assertFalse(sorter.isPending());
+        assertEquals(1, second.calls);
+        sorter.flush();
+        assertEquals(0, first.calls);
+
+        sorter.sort(pairs(10_000, 100, 5), BY_KEY, null, null, first);
+        sorter.cancel();
+        assertFalse(sorter.isPending());
+        sorter.flush();
+        assertEquals(0, first.calls);
+    }
+
+    @Test
+    public void filterKeepsSortedOrder() {
+        List<FilterBenchmark.Item> items = FilterBenchmark.items(2000);
+        FilterImpl<FilterBenchmark.Item> filter = (FilterImpl<FilterBenchmark.Item>) FilterBenchmark.newAdapter(items).getFilter();
+        Comparator<FilterBenchmark.Item> byName = new Comparator<FilterBenchmark.Item>() {
+            @Override
+            public int compare(FilterBenchmark.Item o1, FilterBenchmark.Item o2) {
+                return o1.name.compareTo(o2.name);
+            }
+        };
+        Result<FilterBenchmark.Item> result = new Result<>();
+        new Sorter<FilterBenchmark.Item>().sort(items, byName, filter, "ab", result);
+        assertNotNull(result.filtered);
+        List<FilterBenchmark.Item> expected = new ArrayList<>();
+        for (FilterBenchmark.Item item : result.sorted) {
+            if (item.filter("ab")) {
+                expected.add(item);
+            }
+        }
+        assertEquals(expected, result.filtered);
+        assertTrue(result.filtered.isFor(result.sorted));
+    }
+
+    @Test
+    public void insertionPointIsAfterEqualItems() {
+        List<Integer> sorted = Arrays.asList(1, 3, 3, 3, 7);
+        Comparator<Integer> natural = natural();
+        assertEquals(0, Sorter.insertionPoint(sorted, 0, natural));
+        assertEquals(4, Sorter.insertionPoint(sorted, 3, natural));
+        assertEquals(4, Sorter.insertionPoint(sorted, 5, natural));
+        assertEquals(5, Sorter.insertionPoint(sorted, 9, natural));
+    }
+
+    @Test
+    public void repositionKeepsPositionWhenStillOrdered() {
+        // 原位置 2 的数据已被移除
+        List<Integer> sorted = Arrays.asList(1, 3, 3, 7);
+        Comparator<Integer> natural = natural();
+        assertEquals(2, Sorter.repositionPoint(sorted, 2, 3, natural));
+        assertEquals(3, Sorter.repositionPoint(sorted, 2, 5, natural));
+        assertEquals(1, Sorter.repositionPoint(sorted, 1, 2, natural));
+        assertEquals(4, Sorter.repositionPoint(sorted, 2, 8, natural));
+        assertEquals(0, Sorter.repositionPoint(sorted, 2, 0, natural));
+    }
+
+    /**
+     * 生成 (键, 原顺序) 对
+     */
+    private static List<int[]> pairs(int size, int keys, long seed) {
+        Random random = new Random(seed);
+        List<int[]> data = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            data.add(new int[]{random.nextInt(keys), i});
+        }
+        return data;
+    }
+
+    private static void checkSortedAndStable(List<int[]> sorted) {
+        for (int i = 1; i < sorted.size(); i++) {
+            int[] a = sorted.get(i - 1), b = sorted.get(i);
+            assertTrue(a[0] < b[0] || (a[0] == b[0] && a[1] < b[1]));
+        }
+    }
+
+    private static Comparator<Integer> natural() {
+        return new Comparator<Integer>() {
+            @Override
+            public int compare(Integer o1, Integer o2) {
+                return o1.compareTo(o2);
+            }
+        };
+    }
+
+    private static class Result<Data> implements Sorter.Callback<Data> {
+        ChunkedList<Data> sorted;
+        FilteredList<Data> filtered;
+        int calls;
+
+        @Override
+        public void onSorted(@NonNull ChunkedList<Data> sorted, @Nullable FilteredList<Data> filtered) {
+            this.sorted = sorted;
+            this.filtered = filtered;
+            calls++;
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package online.cszt0.androidcommonutils.view.internal;
+
+import android.content.ComponentCallbacks2;
+
+import androidx.annotation.NonNull;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * {@link TrimRegistry} 的测试：各级别的处理范围、向所有登记项分发并汇总释放的内容。
+ * <p>
+ * 登记表是全局的，每个测试开始前先以最高级别释放一次，使其他测试留下的缓存不再计入。
+ * 尚未回收的登记项仍会收到之后的释放，因此测试中的登记项只释放一次。
+ */
+public class TrimRegistryTest {
+    private static final int[] LEVELS = {
+            ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE,
+            ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW,
+            ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL,
+            ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN,
+            ComponentCallbacks2.TRIM_MEMORY_BACKGROUND,
+            ComponentCallbacks2.TRIM_MEMORY_MODERATE,
+            ComponentCallbacks2.TRIM_MEMORY_COMPLETE,
+    };
+
+    @Before
+    public void setUp() {
+        TrimRegistry.trim(ComponentCallbacks2.TRIM_MEMORY_COMPLETE);
+    }
+
+    @Test
+    public void levelsWidenWithPressure() {
+        StringBuilder actions = new StringBuilder();
+        for (int level : LEVELS) {
+            actions.append(TrimRegistry.shouldShrink(level) ? 'S' : '-')
+                    .append(TrimRegistry.shouldClear(level) ? 'C' : '-')
+                    .append(TrimRegistry.shouldDropDerived(level) ? 'D' : '-')
+                    .append(' ');
+        }
+        assertEquals("S-- SC- SC- SCD SCD SCD SCD ", actions.toString());
+        assertEquals("---", (TrimRegistry.shouldShrink(0) ? "S" : "-")
+                + (TrimRegistry.shouldClear(0) ? "C" : "-")
+                + (TrimRegistry.shouldDropDerived(0) ? "D" : "-"));
+    }
+
+    @Test
+    public void everyEntryIsTrimmedAndFreedIsSummed() {
+        Recording pool = new Recording(0, 3, 0);
+        Recording index = new Recording(0, 0, 2);
+        Recording images = new Recording(4096, 0, 0);
+        TrimRegistry.register(pool);
+        TrimRegistry.register(index);
+        TrimRegistry.register(images);
+
+        TrimRegistry.Freed freed = TrimRegistry.trim(ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE);
+        assertEquals(0, freed.pooledViews);
+        assertEquals(0, freed.derivedStructures);
+        assertEquals(0, freed.imageBytes);
+
+        freed = TrimRegistry.trim(ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN);
+        assertEquals(3, freed.pooledViews);
+        assertEquals(2, freed.derivedStructures);
+        assertEquals(4096, freed.imageBytes);
+        assertEquals(0, freed.pages);
+
+        String expected = "[" + ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE
+                + ", " + ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN + "]";
+        assertEquals(expected, pool.levels.toString());
+        assertEquals(expected, index.levels.toString());
+        assertEquals(expected, images.levels.toString());
+    }
+
+    @Test
+    public void imagesReleasedOnRecycleAreReportedOnce() {
+        TrimRegistry.onReleasedOnRecycle(2);
+        TrimRegistry.onReleasedOnRecycle(3);
+        assertEquals(5, TrimRegistry.trim(ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE).holderImages);
+        assertEquals(0, TrimRegistry.trim(ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE).holderImages);
+    }
+
+    @Test
+    public void clearingStartsPressurePeriod() {
+        TrimRegistry.trim(ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW);
+        // 此后一段时间内回收的视图应释放位图
+        assertTrue(TrimRegistry.isUnderPressure());
+    }
+
+    /**
+     * 持有固定的内容，在对应级别释放后不再计入，并记录收到的级别
+     */
+    private static class Recording implements TrimRegistry.Trimmable {
+        long imageBytes;
+        int pooledViews;
+        int derivedStructures;
+        final List<Integer> levels = new ArrayList<>();
+
+        Recording(long imageBytes, int pooledViews, int derivedStructures) {
+            this.imageBytes = imageBytes;
+            this.pooledViews = pooledViews;
+            this.derivedStructures = derivedStructures;
+        }
+
+        @Override
+        public void trim(int level, @NonNull TrimRegistry.Freed freed) {
+            levels.add(level);
+            if (TrimRegistry.shouldClear(level)) {
+                freed.imageBytes += imageBytes;
+                freed.pooledViews += pooledViews;
+                imageBytes = 0;
+                pooledViews = 0;
+            }
+            if (TrimRegistry.shouldDropDerived(level)) {
+                freed.derivedStructures += derivedStructures;
+                derivedStructures = 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package online.cszt0.androidcommonutils.view.internal;
+
+import androidx.annotation.NonNull;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import online.cszt0.androidcommonutils.view.CommonAdapterInterface;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * {@link ViewTypeTable} 的测试。后台计算与回到主线程均替换为手动执行的队列
+ */
+public class ViewTypeTableTest {
+    // 不小于后台计算的阈值
+    private static final int LARGE = 5000;
+
+    private final QueueExecutor background = new QueueExecutor();
+    private final QueueExecutor main = new QueueExecutor();
+
+    @Test
+    public void smallListBuildsImmediately() {
+        List<Item> items = items(10);
+        ViewTypeTable table = new ViewTypeTable(3, background, main);
+        table.submit(items);
+        assertEquals(0, background.size());
+        assertEquals(1, table.get(1));
+        assertArrayEquals(new int[]{4, 3, 3}, table.histogram());
+    }
+
+    @Test
+    public void backgroundBuildInstallsResult() {
+        List<Item> items = items(LARGE);
+        ViewTypeTable table = new ViewTypeTable(3, background, main);
+        table.submit(items);
+        // 计算完成前逐个判断
+        assertEquals(2, table.get(2));
+        background.runAll();
+        main.runAll();
+        items.set(2, new Item(0));
+        // 已安装类型表，未通知的修改不可见
+        assertEquals(2, table.get(2));
+    }
+
+    @Test
+    public void updateWhileBuildingDiscardsStaleResult() {
+        List<Item> items = items(LARGE);
+        ViewTypeTable table = new ViewTypeTable(3, background, main);
+        table.submit(items);
+        background.runAll();
+        // 后台已读取旧数据，结果回到主线程之前替换了数据
+        items.set(0, new Item(2));
+        table.update(0, 1);
+        main.runAll();
+        assertEquals(2, table.get(0));
+
+        background.runAll();
+        main.runAll();
+        assertEquals(2, table.get(0));
+        assertArrayEquals(new int[]{1666, 1667, 1667}, table.histogram());
+    }
+
+    @Test
+    public void insertAndRemoveWhileBuildingDiscardStaleResult() {
+        List<Item> items = items(LARGE);
+        ViewTypeTable table = new ViewTypeTable(3, background, main);
+        table.submit(items);
+        background.runAll();
+        items.add(0, new Item(2));
+        table.insert(0, 1);
+        main.runAll();
+        assertEquals(2, table.get(0));
+        assertEquals(0, table.get(1));
+
+        background.runAll();
+        main.runAll();
+        items.remove(0);
+        table.remove(0, 1);
+        assertEquals(0, table.get(0));
+        assertEquals(LARGE, sum(table.histogram()));
+    }
+
+    @Test
+    public void incrementalEditsKeepHistogram() {
+        List<Item> items = items(9);
+        ViewTypeTable table = new ViewTypeTable(3, background, main);
+        table.submit(items);
+        items.set(0, new Item(1));
+        table.update(0, 1);
+        items.add(3, new Item(2));
+        table.insert(3, 1);
+        items.remove(5);
+        table.remove(5, 1);
+        items.add(1, items.remove(7));
+        table.move(7, 1);
+        for (int i = 0; i < items.size(); i++) {
+            assertEquals(items.get(i).viewType(), table.get(i));
+        }
+        int[] expected = new int[3];
+        for (Item item : items) {
+            expected[item.viewType()]++;
+        }
+        assertArrayEquals(expected, table.histogram());
+    }
+
+    @Test
+    public void invalidateRecomputesOnRead() {
+        List<Item> items = items(9);
+        ViewTypeTable table = new ViewTypeTable(3, background, main);
+        table.submit(items);
+        items.set(4, new Item(0));
+        table.invalidate();
+        assertEquals(0, table.get(4));
+        assertArrayEquals(new int[]{4, 2, 3}, table.histogram());
+    }
+
+    private static int sum(int[] values) {
+        int sum = 0;
+        for (int value : values) {
+            sum += value;
+        }
+        return sum;
+    }
+
+    private static List<Item> items(int size) {
+        List<Item> items = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            items.add(new Item(i % 3));
+        }
+        return items;
+    }
+
+    private static class Item implements CommonAdapterInterface.ViewTypeRequire {
+        final int type;
+
+        Item(int type) {
+            this.type = type;
+        }
+
+        @Override
+        public int viewType() {
+            return type;
+        }
+    }
+
+    private static class QueueExecutor implements Executor {
+        private final List<Runnable> queue = new ArrayList<>();
+
+        @Override
+        public void execute(@NonNull Runnable command) {
+            queue.add(command);
+        }
+
+        int size() {
+            return queue.size();
+        }
+
+        void runAll() {
+            while (!queue.isEmpty()) {
+                queue.remove(0).run();
+            }
+        }
+    }
+}